@@ -13,8 +13,9 @@ import org.aion.interfaces.block.PowBlockHeader;
 import org.aion.types.Address;
 import org.aion.crypto.HashUtil;
 import org.aion.mcf.types.AbstractBlockHeader;
-import org.aion.rlp.RLP;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.zero.exceptions.HeaderStructureException;
 import org.json.JSONObject;
@@ -65,77 +66,66 @@ public class A0BlockHeader extends AbstractBlockHeader implements PowBlockHeader
     }
 
     public A0BlockHeader(byte[] encoded) {
-        this((RLPList) RLP.decode2(encoded).get(0));
+        this(RLPView.wrap(encoded));
     }
 
     public A0BlockHeader(RLPList rlpHeader) {
+        this(RLPView.wrap(rlpHeader.getRLPData()));
+    }
+
+    public A0BlockHeader(RLPView rlpHeader) {
 
         // Version
-        byte[] versionBytes = rlpHeader.get(RPL_BH_VERSION).getRLPData();
-        this.version = versionBytes.length == 1 ? versionBytes[0] : 1;
+        RLPView version = rlpHeader.get(RPL_BH_VERSION);
+        this.version = version.getPayloadLength() == 1 ? (byte) version.getLong() : 1;
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
+        this.number = rlpHeader.get(RPL_BH_NUMBER).getLong();
 
         // ParentHash
-        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getRLPData();
+        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getBytes();
 
         // CoinBase
-        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getRLPData();
-        if (data == null || data.length != Address.SIZE) {
+        RLPView coinbase = rlpHeader.get(RPL_BH_COINBASE);
+        if (coinbase.getPayloadLength() != Address.SIZE) {
             throw new IllegalArgumentException("Coinbase can not be null!");
         }
-        this.coinbase = Address.wrap(data);
+        this.coinbase = Address.wrap(coinbase.getBytes());
 
         // StateRoot
-        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getRLPData();
+        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getBytes();
 
         // TxTrieRoot
-        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
-        if (this.txTrieRoot == null) {
-            this.txTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getBytes();
 
         // ReceiptTrieRoot
-        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
-        if (this.receiptTrieRoot == null) {
-            this.receiptTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getBytes();
 
         // LogsBloom
-        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData();
+        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getBytes();
 
         // Difficulty
-        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData();
+        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getBytes();
 
         // ExtraData
-        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getRLPData();
+        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getBytes();
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        this.energyConsumed =
-                energyConsumedBytes == null
-                        ? 0
-                        : (new BigInteger(1, energyConsumedBytes).longValue());
+        this.energyConsumed = rlpHeader.get(RPL_BH_NRG_CONSUMED).getLong();
 
         // Energy Limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-        this.energyLimit =
-                energyLimitBytes == null ? 0 : (new BigInteger(1, energyLimitBytes).longValue());
+        this.energyLimit = rlpHeader.get(RPL_BH_NRG_LIMIT).getLong();
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
-
         // TODO: not a huge concern, but how should we handle possible
         // overflows?
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.timestamp = rlpHeader.get(RPL_BH_TIMESTAMP).getLong();
 
         // Nonce
-        this.nonce = rlpHeader.get(RPL_BH_NONCE).getRLPData();
+        this.nonce = rlpHeader.get(RPL_BH_NONCE).getBytes();
 
         // Solution
-        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getRLPData();
+        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getBytes();
     }
 
     /**
@@ -255,67 +245,71 @@ public class A0BlockHeader extends AbstractBlockHeader implements PowBlockHeader
     public byte[] getEncoded(boolean withNonce) {
 
         byte[] versionBytes = {this.version};
-
-        byte[] RLPversion = RLP.encodeElement(versionBytes);
-        byte[] number = RLP.encodeBigInteger(BigInteger.valueOf(this.number));
-        byte[] parentHash = RLP.encodeElement(this.parentHash);
-        byte[] coinbase = RLP.encodeElement(this.coinbase.toBytes());
-        byte[] stateRoot = RLP.encodeElement(this.stateRoot);
+        byte[] coinbase = this.coinbase.toBytes();
 
         if (txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] txTrieRoot = RLP.encodeElement(this.txTrieRoot);
 
         if (receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] receiptTrieRoot = RLP.encodeElement(this.receiptTrieRoot);
-        byte[] logsBloom = RLP.encodeElement(this.logsBloom);
-        byte[] difficulty = RLP.encodeElement(this.difficulty);
-        byte[] extraData = RLP.encodeElement(this.extraData);
-        byte[] energyConsumed = RLP.encodeBigInteger(BigInteger.valueOf(this.energyConsumed));
-        byte[] energyLimit = RLP.encodeBigInteger(BigInteger.valueOf(this.energyLimit));
 
-        byte[] timestamp = RLP.encodeBigInteger(BigInteger.valueOf(this.timestamp));
+        int length =
+                RlpWriter.sizeOfElement(versionBytes)
+                        + RlpWriter.sizeOfBigInteger(this.number)
+                        + RlpWriter.sizeOfElement(this.parentHash)
+                        + RlpWriter.sizeOfElement(coinbase)
+                        + RlpWriter.sizeOfElement(this.stateRoot)
+                        + RlpWriter.sizeOfElement(this.txTrieRoot)
+                        + RlpWriter.sizeOfElement(this.receiptTrieRoot)
+                        + RlpWriter.sizeOfElement(this.logsBloom)
+                        + RlpWriter.sizeOfElement(this.difficulty)
+                        + RlpWriter.sizeOfElement(this.extraData)
+                        + RlpWriter.sizeOfBigInteger(this.energyConsumed)
+                        + RlpWriter.sizeOfBigInteger(this.energyLimit)
+                        + RlpWriter.sizeOfBigInteger(this.timestamp)
+                        + RlpWriter.sizeOfElement(this.solution);
+        if (withNonce) {
+            length += RlpWriter.sizeOfElement(this.nonce);
+        }
 
-        byte[] solution = RLP.encodeElement(this.solution);
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfList(length));
+        writer.writeListHeader(length);
 
         if (withNonce) {
-            byte[] nonce = RLP.encodeElement(this.nonce);
-            return RLP.encodeList(
-                    RLPversion,
-                    number,
-                    parentHash,
-                    coinbase,
-                    stateRoot,
-                    txTrieRoot,
-                    receiptTrieRoot,
-                    logsBloom,
-                    difficulty,
-                    extraData,
-                    energyConsumed,
-                    energyLimit,
-                    timestamp,
-                    nonce,
-                    solution);
+            writer.writeElement(versionBytes)
+                    .writeBigInteger(this.number)
+                    .writeElement(this.parentHash)
+                    .writeElement(coinbase)
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeElement(this.extraData)
+                    .writeBigInteger(this.energyConsumed)
+                    .writeBigInteger(this.energyLimit)
+                    .writeBigInteger(this.timestamp)
+                    .writeElement(this.nonce)
+                    .writeElement(this.solution);
         } else {
-            return RLP.encodeList(
-                    RLPversion,
-                    parentHash,
-                    coinbase,
-                    stateRoot,
-                    txTrieRoot,
-                    receiptTrieRoot,
-                    logsBloom,
-                    difficulty,
-                    number,
-                    timestamp,
-                    extraData,
-                    solution,
-                    energyConsumed,
-                    energyLimit);
-        }
+            writer.writeElement(versionBytes)
+                    .writeElement(this.parentHash)
+                    .writeElement(coinbase)
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeBigInteger(this.number)
+                    .writeBigInteger(this.timestamp)
+                    .writeElement(this.extraData)
+                    .writeElement(this.solution)
+                    .writeBigInteger(this.energyConsumed)
+                    .writeBigInteger(this.energyLimit);
+        }
+        return writer.toByteArray();
     }
 
     public String toString() {
@@ -476,7 +470,11 @@ public class A0BlockHeader extends AbstractBlockHeader implements PowBlockHeader
     }
 
     public static A0BlockHeader fromRLP(byte[] rawData, boolean isUnsafe) throws Exception {
-        return fromRLP((RLPList) RLP.decode2(rawData).get(0), isUnsafe);
+        return fromRLP(RLPView.wrap(rawData), isUnsafe);
+    }
+
+    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+        return fromRLP(RLPView.wrap(rlpHeader.getRLPData()), isUnsafe);
     }
 
     /**
@@ -486,75 +484,57 @@ public class A0BlockHeader extends AbstractBlockHeader implements PowBlockHeader
      * @param isUnsafe
      * @return
      */
-    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+    public static A0BlockHeader fromRLP(RLPView rlpHeader, boolean isUnsafe) throws Exception {
         Builder builder = new Builder();
         if (isUnsafe) {
             builder.fromUnsafeSource();
         }
 
         // Version
-        byte[] version = rlpHeader.get(RPL_BH_VERSION).getRLPData();
-        if (version != null && version.length == 1) builder.withVersion(version[0]);
+        RLPView version = rlpHeader.get(RPL_BH_VERSION);
+        if (version.getPayloadLength() == 1) builder.withVersion((byte) version.getLong());
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        if (nrBytes != null) {
-            builder.withNumber(nrBytes);
-        }
+        builder.withNumber(rlpHeader.get(RPL_BH_NUMBER).getBytes());
 
         // Parent Hash
-        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getRLPData());
+        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getBytes());
 
         // Coinbase (miner)
-        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getRLPData()));
+        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getBytes()));
 
         // State root
-        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getRLPData());
+        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getBytes());
 
         // TxTrie root
-        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
-        if (txTrieRoot != null) {
-            builder.withTxTrieRoot(txTrieRoot);
-        }
+        builder.withTxTrieRoot(rlpHeader.get(RPL_BH_TXTRIE).getBytes());
 
         // Receipt Trie root
-        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
-        if (receiptTrieRoot != null) {
-            builder.withReceiptTrieRoot(receiptTrieRoot);
-        }
+        builder.withReceiptTrieRoot(rlpHeader.get(RPL_BH_RECEIPTTRIE).getBytes());
 
         // LogsBloom
-        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData());
+        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getBytes());
 
         // Difficulty
-        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData());
+        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getBytes());
 
         // ExtraData
-        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getRLPData());
+        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getBytes());
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        if (energyConsumedBytes != null) {
-            builder.withEnergyConsumed(energyConsumedBytes);
-        }
+        builder.withEnergyConsumed(rlpHeader.get(RPL_BH_NRG_CONSUMED).getBytes());
 
         // Energy limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-        if (energyLimitBytes != null) {
-            builder.withEnergyLimit(energyLimitBytes);
-        }
+        builder.withEnergyLimit(rlpHeader.get(RPL_BH_NRG_LIMIT).getBytes());
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
-        if (tsBytes != null) {
-            builder.withTimestamp(tsBytes);
-        }
+        builder.withTimestamp(rlpHeader.get(RPL_BH_TIMESTAMP).getBytes());
 
         // Nonce
-        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getRLPData());
+        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getBytes());
 
         // Solution
-        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getRLPData());
+        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getBytes());
 
         return builder.build();
     }
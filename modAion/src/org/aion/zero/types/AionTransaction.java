@@ -13,8 +13,8 @@ import org.aion.crypto.ISignature;
 import org.aion.crypto.SignatureFac;
 import org.aion.mcf.types.AbstractTransaction;
 import org.aion.mcf.vm.Constants;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.time.TimeInstant;
 
@@ -36,8 +36,14 @@ public class AionTransaction extends AbstractTransaction {
 
     private byte[] rlpRaw;
 
+    /* Hash of the raw encoding, i.e. the signed message */
+    private byte[] rawHash;
+
     protected Address from;
 
+    /* Result of the signature verification, null until verified */
+    private volatile Boolean signatureValid = null;
+
     /** These four members doesn't include into the RLP encode data */
     private long txIndexInBlock = 0;
 
@@ -127,26 +133,25 @@ public class AionTransaction extends AbstractTransaction {
 
     public void rlpParse() {
 
-        RLPList decodedTxList = RLP.decode2(rlpEncoded);
-        RLPList tx = (RLPList) decodedTxList.get(0);
+        RLPView tx = RLPView.wrap(rlpEncoded);
 
-        this.nonce = tx.get(RLP_TX_NONCE).getRLPData();
-        this.value = tx.get(RLP_TX_VALUE).getRLPData();
-        this.data = tx.get(RLP_TX_DATA).getRLPData();
+        this.nonce = tx.get(RLP_TX_NONCE).getBytes();
+        this.value = tx.get(RLP_TX_VALUE).getBytes();
+        this.data = tx.get(RLP_TX_DATA).getBytes();
 
-        byte[] rlpTo = tx.get(RLP_TX_TO).getRLPData();
-        if (rlpTo == null || rlpTo.length == 0) {
+        RLPView rlpTo = tx.get(RLP_TX_TO);
+        if (rlpTo.getPayloadLength() == 0) {
             this.to = null;
         } else {
-            this.to = Address.wrap(tx.get(RLP_TX_TO).getRLPData());
+            this.to = Address.wrap(rlpTo.getBytes());
         }
 
-        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
-        this.nrg = new BigInteger(1, tx.get(RLP_TX_NRG).getRLPData()).longValue();
-        this.nrgPrice = new BigInteger(1, tx.get(RLP_TX_NRGPRICE).getRLPData()).longValue();
-        this.type = new BigInteger(1, tx.get(RLP_TX_TYPE).getRLPData()).byteValue();
+        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getBytes();
+        this.nrg = tx.get(RLP_TX_NRG).getLong();
+        this.nrgPrice = tx.get(RLP_TX_NRGPRICE).getLong();
+        this.type = (byte) tx.get(RLP_TX_TYPE).getLong();
 
-        byte[] sigs = tx.get(RLP_TX_SIG).getRLPData();
+        byte[] sigs = tx.get(RLP_TX_SIG).getBytes();
         if (sigs != null) {
             // Singature Factory will decode the signature based on the algo
             // presetted in main() entry.
@@ -186,11 +191,54 @@ public class AionTransaction extends AbstractTransaction {
     }
 
     public byte[] getRawHash() {
+        if (rawHash != null) {
+            return rawHash;
+        }
+
         if (!parsed) {
             rlpParse();
         }
         byte[] plainMsg = this.getEncodedRaw();
-        return HashUtil.h256(plainMsg);
+        // cache it.
+        rawHash = HashUtil.h256(plainMsg);
+        return rawHash;
+    }
+
+    /**
+     * Verifies the signature against the raw hash of the transaction. The result is cached, so the
+     * (expensive) verification is performed at most once per transaction object.
+     *
+     * @return {@code true} if the transaction has a valid signature, {@code false} otherwise
+     */
+    public boolean isSignatureValid() {
+        Boolean valid = signatureValid;
+        if (valid == null) {
+            valid = verifySignature();
+            signatureValid = valid;
+        }
+        return valid;
+    }
+
+    private boolean verifySignature() {
+        byte[] msg = getRawHash();
+        ISignature sig = getSignature();
+        if (msg == null || sig == null) {
+            return false;
+        }
+
+        try {
+            return SignatureFac.verify(msg, sig);
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /** Clears the values derived from the signed content after it was modified. */
+    private void resetSignedContent() {
+        this.rlpRaw = null;
+        this.rawHash = null;
+        this.signatureValid = null;
     }
 
     @Override
@@ -241,6 +289,7 @@ public class AionTransaction extends AbstractTransaction {
     public void setTimeStamp(long timeStamp) {
         this.timeStamp = BigInteger.valueOf(timeStamp).toByteArray();
         this.parsed = true;
+        resetSignedContent();
     }
 
     @Override
@@ -336,6 +385,7 @@ public class AionTransaction extends AbstractTransaction {
 
     public void sign(ECKey key) throws MissingPrivateKeyException {
         this.timeStamp = ByteUtil.longToBytes(TimeInstant.now().toEpochMicro());
+        resetSignedContent();
         this.signature = key.sign(this.getRawHash());
         this.rlpEncoded = null;
     }
@@ -396,23 +446,7 @@ public class AionTransaction extends AbstractTransaction {
             return rlpRaw;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        rlpRaw = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type);
+        rlpRaw = encode(null);
         return rlpRaw;
     }
 
@@ -422,37 +456,50 @@ public class AionTransaction extends AbstractTransaction {
             return rlpEncoded;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        byte[] sigs;
-
         if (signature == null) {
             LOG.error("Encoded transaction has no signature!");
             return null;
         }
 
-        sigs = RLP.encodeElement(signature.toBytes());
-        this.rlpEncoded =
-                RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type, sigs);
+        this.rlpEncoded = encode(signature.toBytes());
         this.hash = this.getTransactionHash();
 
         return rlpEncoded;
     }
 
+    /** Encodes the transaction fields, followed by the signature when one is given. */
+    private byte[] encode(byte[] sigs) {
+        byte[] to = this.to == null ? null : this.to.toBytes();
+
+        int length =
+                RlpWriter.sizeOfElement(this.nonce)
+                        + RlpWriter.sizeOfElement(to)
+                        + RlpWriter.sizeOfElement(this.value)
+                        + RlpWriter.sizeOfElement(this.data)
+                        + RlpWriter.sizeOfElement(this.timeStamp)
+                        + RlpWriter.sizeOfLong(this.nrg)
+                        + RlpWriter.sizeOfLong(this.nrgPrice)
+                        + RlpWriter.sizeOfByte(this.type);
+        if (sigs != null) {
+            length += RlpWriter.sizeOfElement(sigs);
+        }
+
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfList(length));
+        writer.writeListHeader(length)
+                .writeElement(this.nonce)
+                .writeElement(to)
+                .writeElement(this.value)
+                .writeElement(this.data)
+                .writeElement(this.timeStamp)
+                .writeLong(this.nrg)
+                .writeLong(this.nrgPrice)
+                .writeByte(this.type);
+        if (sigs != null) {
+            writer.writeElement(sigs);
+        }
+        return writer.toByteArray();
+    }
+
     @Override
     public int hashCode() {
 
@@ -499,6 +546,7 @@ public class AionTransaction extends AbstractTransaction {
     public void setEncoded(byte[] _encodedData) {
         this.rlpEncoded = _encodedData;
         parsed = false;
+        resetSignedContent();
     }
 
     public DataWordImpl nrgPrice() {
@@ -14,6 +14,7 @@ import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RlpWriter;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
 import org.aion.vm.api.interfaces.IExecutionLog;
@@ -105,32 +106,42 @@ public class AionTxReceipt extends AbstractTxReceipt<AionTransaction> {
      */
     private byte[] getEncoded(boolean receiptTrie) {
 
-        byte[] postTxStateRLP = RLP.encodeElement(this.postTxState);
-        byte[] bloomRLP = RLP.encodeElement(this.bloomFilter.data);
-
-        final byte[] logInfoListRLP;
+        int logsLength = 0;
+        byte[][] logInfoListE = new byte[logInfoList == null ? 0 : logInfoList.size()][];
         if (logInfoList != null) {
-            byte[][] logInfoListE = new byte[logInfoList.size()][];
-
             int i = 0;
             for (IExecutionLog logInfo : logInfoList) {
                 logInfoListE[i] = logInfo.getEncoded();
+                logsLength += logInfoListE[i].length;
                 ++i;
             }
-            logInfoListRLP = RLP.encodeList(logInfoListE);
-        } else {
-            logInfoListRLP = RLP.encodeList();
         }
 
-        return receiptTrie
-                ? RLP.encodeList(postTxStateRLP, bloomRLP, logInfoListRLP)
-                : RLP.encodeList(
-                        postTxStateRLP,
-                        bloomRLP,
-                        logInfoListRLP,
-                        RLP.encodeElement(executionResult),
-                        RLP.encodeLong(energyUsed),
-                        RLP.encodeElement(error.getBytes(StandardCharsets.UTF_8)));
+        byte[] errorBytes = receiptTrie ? null : error.getBytes(StandardCharsets.UTF_8);
+
+        int length =
+                RlpWriter.sizeOfElement(this.postTxState)
+                        + RlpWriter.sizeOfElement(this.bloomFilter.data)
+                        + RlpWriter.sizeOfList(logsLength);
+        if (!receiptTrie) {
+            length +=
+                    RlpWriter.sizeOfElement(executionResult)
+                            + RlpWriter.sizeOfLong(energyUsed)
+                            + RlpWriter.sizeOfElement(errorBytes);
+        }
+
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfList(length));
+        writer.writeListHeader(length)
+                .writeElement(this.postTxState)
+                .writeElement(this.bloomFilter.data)
+                .writeListHeader(logsLength);
+        for (byte[] log : logInfoListE) {
+            writer.writeEncoded(log);
+        }
+        if (!receiptTrie) {
+            writer.writeElement(executionResult).writeLong(energyUsed).writeElement(errorBytes);
+        }
+        return writer.toByteArray();
     }
 
     /** TODO: check that this is valid, should null == valid? */
@@ -2,9 +2,12 @@ package org.aion.types;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.aion.crypto.ECKeyFac;
 import org.aion.mcf.vm.types.DataWordImpl;
+import org.aion.util.bytes.ByteUtil;
 import org.aion.zero.types.AionTransaction;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.Test;
@@ -62,6 +65,23 @@ public class AionTransactionTest {
         assertTransactionEquals(tx, tx2);
     }
 
+    @Test
+    public void testSignatureVerification() {
+        byte[] nonce = RandomUtils.nextBytes(16);
+        Address to = Address.wrap(RandomUtils.nextBytes(32));
+        byte[] value = RandomUtils.nextBytes(16);
+        byte[] data = RandomUtils.nextBytes(64);
+
+        AionTransaction tx = new AionTransaction(nonce, to, value, data, 1_000_000L, 1L);
+        tx.sign(ECKeyFac.inst().create());
+        assertTrue(tx.isSignatureValid());
+        assertTrue(new AionTransaction(tx.getEncoded()).isSignatureValid());
+
+        // the cached result is discarded when the signed content changes
+        tx.setTimeStamp(ByteUtil.byteArrayToLong(tx.getTimeStamp()) + 1);
+        assertFalse(tx.isSignatureValid());
+    }
+
     @Test
     public void testTransactionCost() {
         byte[] nonce = DataWordImpl.ONE.getData();
@@ -70,6 +70,7 @@ import org.aion.zero.impl.core.energy.AbstractEnergyStrategyLimit;
 import org.aion.zero.impl.core.energy.EnergyStrategies;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.LogIndex;
 import org.aion.zero.impl.sync.DatabaseType;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.types.AionBlock;
@@ -77,6 +78,7 @@ import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.impl.types.RetValidPreBlock;
 import org.aion.zero.impl.valid.TXValidator;
+import org.aion.zero.impl.valid.TransactionSignatureVerifier;
 import org.aion.zero.impl.valid.TransactionTypeValidator;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -137,6 +139,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private final GrandParentBlockHeaderValidator<A0BlockHeader> grandParentBlockHeaderValidator;
     private final ParentBlockHeaderValidator<A0BlockHeader> parentHeaderValidator;
     private final BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
+
+    /** Validates the transactions of blocks in parallel, shared by all instances. */
+    private static final TransactionSignatureVerifier TX_VERIFIER =
+            new TransactionSignatureVerifier(Runtime.getRuntime().availableProcessors());
+
     private AtomicReference<BlockIdentifierImpl> bestKnownBlock =
             new AtomicReference<BlockIdentifierImpl>();
 
@@ -334,6 +341,24 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getBlocksByRange(first, last);
     }
 
+    @Override
+    public List<AionTxReceipt> getReceipts(byte[] blockHash) {
+        AionBlock block = getBlockByHash(blockHash);
+        if (block == null) {
+            return null;
+        }
+
+        List<AionTxReceipt> receipts = new ArrayList<>();
+        for (AionTransaction tx : block.getTransactionsList()) {
+            AionTxInfo info = transactionStore.get(tx.getTransactionHash(), blockHash);
+            if (info == null) {
+                return null;
+            }
+            receipts.add(info.getReceipt());
+        }
+        return receipts;
+    }
+
     @Override
     /* NOTE: only returns receipts from the main chain
      */
@@ -547,7 +572,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
      * @return a {@link TrieNodeResult} indicating the success or failure of the import operation
      */
     public TrieNodeResult importTrieNode(byte[] key, byte[] value, DatabaseType dbType) {
-        return repository.importTrieNode(key, value, dbType);
+        TrieNodeResult result = repository.importTrieNode(key, value, dbType);
+        // persisted before fast sync records the node as imported
+        repository.commitWriteBatch();
+        return result;
     }
 
     /**
@@ -609,6 +637,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         } else {
             // the total difficulty will be updated after the chain is complete
             getBlockStore().saveBlock(block, ZERO, true);
+            repository.commitWriteBatch();
 
             if (LOG.isDebugEnabled()) {
                 LOG.debug(
@@ -621,6 +650,46 @@ public class AionBlockchainImpl implements IAionBlockchain {
         }
     }
 
+    /**
+     * Stores the receipts of a block imported by fast sync, since these blocks are not executed.
+     * The receipts must match the receipts root, logs bloom and energy consumed of the block.
+     *
+     * @param block a block imported by fast sync
+     * @param receipts the receipts of the transactions in the order of the transactions in the
+     *     block
+     * @return {@code true} if the receipts match the block and were stored, {@code false} otherwise
+     */
+    public synchronized boolean storeFastSyncReceipts(
+            AionBlock block, List<AionTxReceipt> receipts) {
+        long energyUsed = 0;
+        for (AionTxReceipt receipt : receipts) {
+            energyUsed += receipt.getEnergyUsed();
+        }
+
+        if (receipts.size() != block.getTransactionsList().size()
+                || energyUsed != block.getNrgConsumed()
+                || !Arrays.equals(block.getReceiptsRoot(), calcReceiptsTrie(receipts))
+                || !Arrays.equals(block.getLogBloom(), calcLogBloom(receipts))) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                        "Fast sync receipts do not match block: number: {}, hash: {}",
+                        block.getNumber(),
+                        block.getShortHash());
+            }
+            return false;
+        }
+
+        for (int i = 0; i < receipts.size(); i++) {
+            transactionStore.putToBatch(new AionTxInfo(receipts.get(i), block.getHash(), i));
+        }
+        transactionStore.flushBatch();
+
+        // the receipts arrive out of order, so the range is marked as indexed on completion
+        repository.getLogIndex().backfill(block.getNumber(), receipts);
+        repository.commitWriteBatch();
+        return true;
+    }
+
     /**
      * Walks though the ancestor blocks starting with the given hash to determine if there is an
      * ancestor missing from storage. Returns the ancestor's hash if one is found missing or {@code
@@ -653,6 +722,15 @@ public class AionBlockchainImpl implements IAionBlockchain {
         }
     }
 
+    /**
+     * Validates the transactions of the given blocks ahead of their import on a dedicated pool of
+     * threads. The results are cached, which speeds up the checks performed by {@link
+     * #tryToConnect(AionBlock)}. Does not require the blockchain lock.
+     */
+    public void preVerifyTransactions(List<AionBlock> blocks) {
+        TX_VERIFIER.verifyBlocks(blocks);
+    }
+
     public synchronized ImportResult tryToConnect(final AionBlock block) {
         return tryToConnectInternal(block, System.currentTimeMillis() / THOUSAND_MS);
     }
@@ -1051,6 +1129,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
             e.printStackTrace();
         }
         transactionStore.flush();
+
+        // the block is persisted together with its state when the stores share a database
+        repository.commitWriteBatch();
     }
 
     @SuppressWarnings("unused")
@@ -1153,12 +1234,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
                 Map<Address, BigInteger> nonceCache = new HashMap<>();
 
-                if (txs.parallelStream()
-                        .anyMatch(
-                                tx ->
-                                        !TXValidator.isValid(tx)
-                                                || !TransactionTypeValidator.isValid(
-                                                        tx.getTargetVM()))) {
+                if (!TX_VERIFIER.verify(txs)) {
                     LOG.error("Some transactions in the block are invalid");
                     if (TX_LOG.isDebugEnabled()) {
                         for (AionTransaction tx : txs) {
@@ -1401,6 +1477,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return rewards;
     }
 
+    @Override
+    public LogIndex getLogIndex() {
+        return repository.getLogIndex();
+    }
+
     public ChainConfiguration getChainConfiguration() {
         return chainConfiguration;
     }
@@ -1419,6 +1500,8 @@ public class AionBlockchainImpl implements IAionBlockchain {
         }
         transactionStore.flushBatch();
 
+        repository.getLogIndex().index(block.getNumber(), receipts);
+
         repository.commitBlock(block.getHeader());
 
         if (LOG.isDebugEnabled()) {
@@ -31,6 +31,7 @@ import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.db.RecoveryUtils;
 import org.aion.zero.impl.pow.AionPoW;
+import org.aion.zero.impl.sync.FastSyncManager;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.handler.BlockPropagationHandler;
 import org.aion.zero.impl.sync.handler.BroadcastNewBlockHandler;
@@ -38,9 +39,15 @@ import org.aion.zero.impl.sync.handler.BroadcastTxHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ReqStatusHandler;
+import org.aion.zero.impl.sync.handler.RequestBlocksHandler;
+import org.aion.zero.impl.sync.handler.RequestReceiptsHandler;
+import org.aion.zero.impl.sync.handler.RequestTrieDataHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ResStatusHandler;
+import org.aion.zero.impl.sync.handler.ResponseBlocksHandler;
+import org.aion.zero.impl.sync.handler.ResponseReceiptsHandler;
+import org.aion.zero.impl.sync.handler.ResponseTrieDataHandler;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -58,6 +65,9 @@ public class AionHub {
 
     private SyncMgr syncMgr;
 
+    // null when fast sync is disabled
+    private FastSyncManager fastSyncMgr = null;
+
     private BlockPropagationHandler propHandler;
 
     private IPendingStateInternal<AionBlock, AionTransaction> mempool;
@@ -160,6 +170,14 @@ public class AionHub {
                         cfgNetP2p.getBootlistSyncOnly(),
                         cfgNetP2p.getErrorTolerance());
 
+        if (cfg.getSync().getFastSyncEnabled()) {
+            this.fastSyncMgr =
+                    new FastSyncManager(
+                            blockchain,
+                            new ChainConfiguration().createBlockHeaderValidator(),
+                            p2pMgr);
+        }
+
         this.syncMgr = SyncMgr.inst();
         this.syncMgr.init(
                 blockchain,
@@ -172,7 +190,8 @@ public class AionHub {
                         ? cfg.getSync().getSlowImportTime()
                         : 0, // set to 0 when disabled
                 cfg.getSync().getCompactFrequency(),
-                cfg.getNet().getP2p().getMaxActiveNodes());
+                cfg.getNet().getP2p().getMaxActiveNodes(),
+                fastSyncMgr);
 
         ChainConfiguration chainConfig = new ChainConfiguration();
         this.propHandler =
@@ -229,6 +248,16 @@ public class AionHub {
         cbs.add(new ResBlocksBodiesHandler(syncLOG, syncMgr, p2pMgr));
         cbs.add(new BroadcastTxHandler(syncLOG, mempool, p2pMgr, inSyncOnlyMode));
         cbs.add(new BroadcastNewBlockHandler(syncLOG, propHandler, p2pMgr));
+        // serving the data used by fast sync
+        cbs.add(new RequestBlocksHandler(syncLOG, blockchain, p2pMgr));
+        cbs.add(new RequestTrieDataHandler(syncLOG, blockchain, p2pMgr));
+        cbs.add(new RequestReceiptsHandler(syncLOG, blockchain, p2pMgr));
+        if (fastSyncMgr != null) {
+            cbs.add(new ResponseBlocksHandler(syncLOG, fastSyncMgr, p2pMgr));
+            cbs.add(
+                    new ResponseTrieDataHandler(syncLOG, fastSyncMgr.getReceivedTrieNodes()));
+            cbs.add(new ResponseReceiptsHandler(syncLOG, fastSyncMgr, p2pMgr));
+        }
         this.p2pMgr.register(cbs);
     }
 
@@ -294,6 +323,10 @@ public class AionHub {
         }
 
         AionBlock bestBlock = this.repository.getBlockStore().getBestBlock();
+        if (bestBlock != null && FastSyncManager.isInProgress(repository)) {
+            // the state of the blocks imported by fast sync is not available yet
+            bestBlock = this.repository.getBlockStore().getChainBlockByNumber(0);
+        }
         if (bestBlock != null) {
             bestBlock.setCumulativeDifficulty(
                     repository.getBlockStore().getTotalDifficultyForHash(bestBlock.getHash()));
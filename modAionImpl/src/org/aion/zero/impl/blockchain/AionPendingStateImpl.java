@@ -39,14 +39,18 @@ import org.aion.mcf.db.TransactionStore;
 import org.aion.mcf.evt.IListenerBase.PendingTransactionState;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.precompiled.ContractFactory;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.TxPoolModule;
 import org.aion.types.Address;
+import org.aion.types.ByteArrayWrapper;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
 import org.aion.vm.BulkExecutor;
 import org.aion.vm.ExecutionBatch;
 import org.aion.vm.PostExecutionWork;
+import org.aion.vm.api.interfaces.IExecutionLog;
+import org.aion.vm.api.interfaces.InternalTransactionInterface;
 import org.aion.vm.exception.VMException;
 import org.aion.zero.impl.AionBlockchainImpl;
 import org.aion.zero.impl.config.CfgAion;
@@ -60,6 +64,7 @@ import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxExecSummary;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.zero.types.IAionBlock;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 
 public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, AionTransaction> {
@@ -130,6 +135,17 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private boolean closeToNetworkBest = true;
 
+    // receipts of the pending value transfers executed on the current pending state, by tx hash
+    private Map<ByteArrayWrapper, AionTxReceipt> pendingTransfers = new HashMap<>();
+
+    // accounts touched by the blocks processed since the pending state was last revalidated
+    private final Set<Address> blockTouchedAccounts = new HashSet<>();
+
+    // set when no previous result can be reused, e.g. after switching to another fork
+    private boolean fullRevalidation = true;
+
+    private final PendingStateStats stats = new PendingStateStats();
+
     private static long NRGPRICE_MIN = 10_000_000_000L; // 10 PLAT  (10 * 10 ^ -9 AION)
     private static long NRGPRICE_MAX = 9_000_000_000_000_000_000L; //  9 AION
 
@@ -299,7 +315,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
             Properties prop = new Properties();
 
-            prop.put(TxPoolModule.MODULENAME, "org.aion.txpool.zero.TxPoolA0");
+            prop.put(TxPoolModule.MODULENAME, "org.aion.txpool.zero.TxPoolA1");
             // The BlockEnergyLimit will be updated when the best block found.
             prop.put(
                     ITxPool.PROP_BLOCK_NRG_LIMIT,
@@ -337,6 +353,16 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
             ees = new EventExecuteService(1000, "EpPS", Thread.MAX_PRIORITY, LOGGER_TX);
             ees.setFilter(setEvtFilter());
+            // only the latest best block matters, processBest catches up on skipped blocks the
+            // same way it switches forks, and a backup always stores all pending changes
+            ees.setPolicy(
+                    IHandler.TYPE.BLOCK0.getValue(),
+                    EventBlock.CALLBACK.ONBEST0.getValue(),
+                    EventExecuteService.Policy.COALESCE);
+            ees.setPolicy(
+                    IHandler.TYPE.TX0.getValue(),
+                    EventTx.CALLBACK.TXBACKUP0.getValue(),
+                    EventExecuteService.Policy.COALESCE);
 
             regBlockEvents();
 
@@ -724,6 +750,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             return TxResponse.DROPPED;
         } else {
             tx.setNrgConsume(txSum.getReceipt().getEnergyUsed());
+            recordTransfer(tx, txSum);
 
             if (LOGGER_TX.isTraceEnabled()) {
                 LOGGER_TX.trace("addPendingTransactionImpl validTx {}", tx.toString());
@@ -818,6 +845,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             // first return back the transactions from forked blocks
             IAionBlock rollback = best.get();
             while (!rollback.isEqual(commonAncestor)) {
+                // the state changes of the forked blocks are not known
+                fullRevalidation = true;
+
                 if (LOGGER_TX.isDebugEnabled()) {
                     LOGGER_TX.debug("Rollback: {}", rollback.getShortDescr());
                 }
@@ -917,6 +947,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private void processBestInternal(IAionBlock block, List<AionTxReceipt> receipts) {
 
+        // the block reward changes the balance of the coinbase
+        blockTouchedAccounts.add(block.getCoinbase());
+
         clearPending(block, receipts);
 
         clearOutdated(block.getNumber());
@@ -986,6 +1019,8 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                     receipt = info.getReceipt();
                 }
 
+                addTouchedAccounts(tx, receipt.getLogInfoList(), blockTouchedAccounts);
+
                 if (poolBackUp) {
                     backupPendingPoolRemove.add(tx.getTransactionHash().clone());
                 }
@@ -1010,8 +1045,18 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return info;
     }
 
+    /**
+     * Rebuilds the pending state on top of the new best block.
+     *
+     * <p>Only the pending transactions affected by the blocks processed since the last update are
+     * executed again. A value transfer whose sender and recipient were not touched by these blocks,
+     * nor by the transactions executed again before it, keeps the result of its previous execution
+     * and is applied directly to the pending state. Consecutive transactions to execute are run as
+     * one {@link BulkExecutor} batch instead of one executor per transaction.
+     */
     @SuppressWarnings("UnusedReturnValue")
     private List<AionTransaction> updateState(IAionBlock block) {
+        long start = System.nanoTime();
 
         pendingState = repository.startTracking();
 
@@ -1021,15 +1066,128 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         if (LOGGER_TX.isInfoEnabled()) {
             LOGGER_TX.info("updateState - snapshotAll tx[{}]", pendingTxl.size());
         }
+
+        boolean full = fullRevalidation;
+        Map<ByteArrayWrapper, AionTxReceipt> previous =
+                full ? Collections.emptyMap() : pendingTransfers;
+        // the accounts whose state may differ from the one seen by the previous executions
+        Set<Address> touched = new HashSet<>(blockTouchedAccounts);
+
+        pendingTransfers = new HashMap<>();
+        blockTouchedAccounts.clear();
+        fullRevalidation = false;
+
+        List<Pair<AionTxReceipt, PendingTransactionState>> updates = new ArrayList<>();
+        List<AionTransaction> batch = new ArrayList<>();
+        int executed = 0;
+        int carried = 0;
+        int dropped = 0;
+        long executeTime = 0;
+        long carryTime = 0;
+
+        long now = System.nanoTime();
+        stats.onPhase(PendingStateStats.Phase.SNAPSHOT, now - start);
+
         for (AionTransaction tx : pendingTxl) {
             if (LOGGER_TX.isTraceEnabled()) {
                 LOGGER_TX.trace("updateState - loop: " + tx.toString());
             }
 
-            AionTxExecSummary txSum = executeTx(tx, false);
+            AionTxReceipt receipt = previous.get(new ByteArrayWrapper(tx.getTransactionHash()));
+            if (receipt != null && isUntouched(tx, touched)) {
+                // the transactions executed before it may touch its accounts
+                if (!batch.isEmpty()) {
+                    executed += batch.size();
+                    dropped += executeBatch(batch, touched, updates, rtn);
+                    batch = new ArrayList<>();
+
+                    long t = System.nanoTime();
+                    executeTime += t - now;
+                    now = t;
+                }
+
+                boolean keep = isUntouched(tx, touched) && carryForward(tx, receipt, block);
+
+                long t = System.nanoTime();
+                carryTime += t - now;
+                now = t;
+
+                if (keep) {
+                    pendingTransfers.put(new ByteArrayWrapper(tx.getTransactionHash()), receipt);
+                    updates.add(Pair.of(receipt, PendingTransactionState.PENDING));
+                    rtn.add(tx);
+                    carried++;
+                    continue;
+                }
+            }
+            batch.add(tx);
+        }
+
+        if (!batch.isEmpty()) {
+            executed += batch.size();
+            dropped += executeBatch(batch, touched, updates, rtn);
+
+            long t = System.nanoTime();
+            executeTime += t - now;
+            now = t;
+        }
+
+        for (Pair<AionTxReceipt, PendingTransactionState> update : updates) {
+            fireTxUpdate(update.getLeft(), update.getRight(), block);
+        }
+
+        stats.onPhase(PendingStateStats.Phase.EXECUTE, executeTime);
+        stats.onPhase(PendingStateStats.Phase.CARRY_FORWARD, carryTime);
+        stats.onPhase(PendingStateStats.Phase.NOTIFY, System.nanoTime() - now);
+        stats.onUpdate(full, executed, carried, dropped);
+
+        if (LOGGER_TX.isDebugEnabled()) {
+            LOGGER_TX.debug(
+                    "updateState block#[{}] full[{}] executed[{}] carried[{}] dropped[{}] in {} ms",
+                    block.getNumber(),
+                    full,
+                    executed,
+                    carried,
+                    dropped,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Executes the given pending transactions on the pending state and removes the rejected ones
+     * from the pool.
+     *
+     * @param touched the set to which the accounts touched by the transactions are added
+     * @param updates the list to which the new states of the transactions are added
+     * @param valid the list to which the transactions that remain pending are added
+     * @return the number of rejected transactions
+     */
+    private int executeBatch(
+            List<AionTransaction> txs,
+            Set<Address> touched,
+            List<Pair<AionTxReceipt, PendingTransactionState>> updates,
+            List<AionTransaction> valid) {
+
+        List<AionTxExecSummary> summaries = executeTxs(txs, false);
+
+        int dropped = 0;
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            AionTxExecSummary txSum = summaries.get(i);
             AionTxReceipt receipt = txSum.getReceipt();
             receipt.setTransaction(tx);
 
+            addTouchedAccounts(tx, txSum.getLogs(), touched);
+            for (InternalTransactionInterface itx : txSum.getInternalTransactions()) {
+                touched.add(itx.getSenderAddress());
+                if (itx.getDestinationAddress() != null) {
+                    touched.add(itx.getDestinationAddress());
+                }
+            }
+            touched.addAll(txSum.getDeletedAccounts());
+
             if (txSum.isRejected()) {
                 if (LOGGER_TX.isDebugEnabled()) {
                     LOGGER_TX.debug("Invalid transaction in txpool: {}", tx);
@@ -1039,14 +1197,90 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 if (poolBackUp) {
                     backupPendingPoolRemove.add(tx.getTransactionHash().clone());
                 }
-                fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
+                updates.add(Pair.of(receipt, PendingTransactionState.DROPPED));
+                dropped++;
             } else {
-                fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
-                rtn.add(tx);
+                recordTransfer(tx, txSum);
+                updates.add(Pair.of(receipt, PendingTransactionState.PENDING));
+                valid.add(tx);
             }
         }
+        return dropped;
+    }
+
+    /**
+     * Adds the accounts touched by a transaction to the given set: its sender, its recipient or
+     * the contract it created and the contracts that emitted its logs.
+     */
+    private static void addTouchedAccounts(
+            AionTransaction tx, List<IExecutionLog> logs, Set<Address> accounts) {
+        accounts.add(tx.getSenderAddress());
+
+        Address destination =
+                tx.isContractCreationTransaction()
+                        ? tx.getContractAddress()
+                        : tx.getDestinationAddress();
+        if (destination != null) {
+            accounts.add(destination);
+        }
 
-        return rtn;
+        for (IExecutionLog log : logs) {
+            accounts.add(log.getSourceAddress());
+        }
+    }
+
+    private static boolean isUntouched(AionTransaction tx, Set<Address> touched) {
+        return !touched.contains(tx.getSenderAddress())
+                && !touched.contains(tx.getDestinationAddress());
+    }
+
+    /**
+     * Keeps the receipt of a successful value transfer between accounts without code, whose effect
+     * on the state is fully determined by the receipt and can be applied again without executing
+     * the transaction.
+     */
+    private void recordTransfer(AionTransaction tx, AionTxExecSummary txSum) {
+        if (!txSum.isRejected()
+                && !txSum.isFailed()
+                && !tx.isContractCreationTransaction()
+                && !ContractFactory.isPrecompiledContract(tx.getDestinationAddress())
+                && txSum.getLogs().isEmpty()
+                && txSum.getInternalTransactions().isEmpty()
+                && txSum.getReceipt().getEnergyUsed() == tx.getTransactionCost()) {
+            pendingTransfers.put(new ByteArrayWrapper(tx.getTransactionHash()), txSum.getReceipt());
+        }
+    }
+
+    /**
+     * Applies a value transfer to the pending state using the receipt of its previous execution,
+     * provided that the checks done by the virtual machine before running it still pass.
+     *
+     * @return {@code false} if the transaction has to be executed again
+     */
+    private boolean carryForward(AionTransaction tx, AionTxReceipt receipt, IAionBlock block) {
+        Address sender = tx.getSenderAddress();
+        Address destination = tx.getDestinationAddress();
+        BigInteger value = new BigInteger(1, tx.getValue());
+        BigInteger price = BigInteger.valueOf(tx.getEnergyPrice());
+        BigInteger maxCost = value.add(price.multiply(BigInteger.valueOf(tx.getEnergyLimit())));
+
+        if (tx.getEnergyLimit() > block.getNrgLimit()
+                || !tx.getNonceBI().equals(pendingState.getNonce(sender))
+                || pendingState.getBalance(sender).compareTo(maxCost) < 0) {
+            return false;
+        }
+
+        byte[] code = pendingState.getCode(destination);
+        if (code != null && code.length > 0) {
+            return false;
+        }
+
+        BigInteger fee = price.multiply(BigInteger.valueOf(receipt.getEnergyUsed()));
+        pendingState.incrementNonce(sender);
+        pendingState.addBalance(sender, value.add(fee).negate());
+        pendingState.addBalance(destination, value);
+        pendingState.addBalance(block.getCoinbase(), fee);
+        return true;
     }
 
     private Set<Address> getTxsAccounts(List<AionTransaction> txn) {
@@ -1058,13 +1292,19 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     private AionTxExecSummary executeTx(AionTransaction tx, boolean inPool) {
+        return executeTxs(Collections.singletonList(tx), inPool).get(0);
+    }
+
+    private List<AionTxExecSummary> executeTxs(List<AionTransaction> txs, boolean inPool) {
 
         IAionBlock bestBlk = best.get();
         if (LOGGER_TX.isTraceEnabled()) {
-            LOGGER_TX.trace("executeTx: {}", Hex.toHexString(tx.getTransactionHash()));
+            for (AionTransaction tx : txs) {
+                LOGGER_TX.trace("executeTx: {}", Hex.toHexString(tx.getTransactionHash()));
+            }
         }
 
-        ExecutionBatch details = new ExecutionBatch(bestBlk, Collections.singletonList(tx));
+        ExecutionBatch details = new ExecutionBatch(bestBlk, txs);
         BulkExecutor txExe =
                 new BulkExecutor(
                         details,
@@ -1075,7 +1315,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                         LOGGER_VM,
                         getPostExecutionWork());
         try {
-            return txExe.execute().get(0);
+            return txExe.execute();
         } catch (VMException e) {
             LOGGER_VM.error("Shutdown due to a VM fatal error.", e);
             System.exit(-1);
@@ -1084,8 +1324,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     /**
-     * Currently there is no post-execution work to do because this class actually uses the {@link
-     * BulkExecutor} to execute transactions sequentially instead of in bulk.
+     * Currently there is no post-execution work to do because the pending transactions are not
+     * part of a block: each one is checked against the energy limit of the whole block, also when
+     * several of them are executed in one batch.
      *
      * <p>In the future we may choose to be more ambitious and to use the {@link BulkExecutor}
      * properly, in which case we will have to give this method real functionality. Likely, we will
@@ -1124,6 +1365,19 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         if (ees != null) {
             ees.shutdown();
         }
+
+        if (LOGGER_TX.isDebugEnabled()) {
+            LOGGER_TX.debug("Pending state update stats: {}", getStatsSummary());
+        }
+    }
+
+    /** Returns the statistics of the updates of the pending state on new best blocks. */
+    public PendingStateStats getStats() {
+        return stats;
+    }
+
+    public String getStatsSummary() {
+        return stats.toString();
     }
 
     @Override
@@ -0,0 +1,124 @@
+package org.aion.zero.impl.blockchain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the revalidations of the pending state done when a new best block is imported.
+ *
+ * <p>Each revalidation is timed in phases: collecting the accounts touched by the imported blocks
+ * and taking the pool snapshot, re-executing the affected transactions, carrying forward the
+ * results of the unaffected ones and notifying the listeners of the new transaction states.
+ */
+public final class PendingStateStats {
+
+    /** The phases of a revalidation of the pending state. */
+    public enum Phase {
+        SNAPSHOT,
+        EXECUTE,
+        CARRY_FORWARD,
+        NOTIFY
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder fullUpdates = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder carriedForward = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder[] phaseTotal = new LongAdder[PHASES.length];
+    private final AtomicLong[] phaseMax = new AtomicLong[PHASES.length];
+
+    public PendingStateStats() {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseTotal[i] = new LongAdder();
+            phaseMax[i] = new AtomicLong();
+        }
+    }
+
+    /** Records the time in nanoseconds spent in the given phase by one revalidation. */
+    public void onPhase(Phase phase, long nanos) {
+        phaseTotal[phase.ordinal()].add(nanos);
+        phaseMax[phase.ordinal()].accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Records a completed revalidation.
+     *
+     * @param full whether all the pending transactions had to be re-executed
+     * @param executed the number of re-executed transactions
+     * @param carriedForward the number of transactions whose previous result was kept
+     * @param dropped the number of transactions removed from the pool as invalid
+     */
+    public void onUpdate(boolean full, int executed, int carriedForward, int dropped) {
+        updates.increment();
+        if (full) {
+            fullUpdates.increment();
+        }
+        this.executed.add(executed);
+        this.carriedForward.add(carriedForward);
+        this.dropped.add(dropped);
+    }
+
+    /** Returns the number of revalidations. */
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    /** Returns the number of revalidations that re-executed all the pending transactions. */
+    public long getFullUpdates() {
+        return fullUpdates.sum();
+    }
+
+    /** Returns the number of re-executed transactions. */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /** Returns the number of transactions whose previous result was kept. */
+    public long getCarriedForward() {
+        return carriedForward.sum();
+    }
+
+    /** Returns the number of transactions removed from the pool as invalid. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Returns the average time in nanoseconds a revalidation spent in the given phase. */
+    public long getAverage(Phase phase) {
+        long count = updates.sum();
+        return count == 0 ? 0 : phaseTotal[phase.ordinal()].sum() / count;
+    }
+
+    /** Returns the longest time in nanoseconds a revalidation spent in the given phase. */
+    public long getMax(Phase phase) {
+        return phaseMax[phase.ordinal()].get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb =
+                new StringBuilder()
+                        .append("updates=")
+                        .append(getUpdates())
+                        .append(" full=")
+                        .append(getFullUpdates())
+                        .append(" executed=")
+                        .append(getExecuted())
+                        .append(" carried=")
+                        .append(getCarriedForward())
+                        .append(" dropped=")
+                        .append(getDropped());
+        for (Phase phase : PHASES) {
+            sb.append(
+                    String.format(
+                            " %s(avg/max)=%.3f/%.3f ms",
+                            phase.name().toLowerCase(),
+                            getAverage(phase) / 1_000_000d,
+                            getMax(phase) / 1_000_000d));
+        }
+        return sb.toString();
+    }
+}
@@ -159,6 +159,12 @@ public class Arguments {
                     "drops all databases except for block and index when not given a parameter or starting from 0 and redoes import of all known main chain blocks")
     private String redoImport = null;
 
+    @Option(
+            names = {"--reindex-logs"},
+            description =
+                    "indexes the logs of the main chain blocks stored before the log index was introduced")
+    private boolean reindexLogs;
+
     /** Compacts the account options into specific commands. */
     public static String[] preProcess(String[] arguments) {
         List<String> list = new ArrayList<>();
@@ -270,4 +276,8 @@ public class Arguments {
     public String isRedoImport() {
         return redoImport;
     }
+
+    public boolean isReindexLogs() {
+        return reindexLogs;
+    }
 }
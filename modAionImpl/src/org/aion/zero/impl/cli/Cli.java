@@ -81,7 +81,8 @@ public class Cli {
         DUMP_STATE,
         DUMP_BLOCKS,
         DB_COMPACT,
-        REDO_IMPORT
+        REDO_IMPORT,
+        REINDEX_LOGS
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -544,6 +545,11 @@ public class Cli {
                 }
             }
 
+            if (options.isReindexLogs()) {
+                RecoveryUtils.reindexLogs();
+                return EXIT;
+            }
+
             // if no return happened earlier, run the kernel
             return RUN;
         } catch (Exception e) {
@@ -944,6 +950,9 @@ public class Cli {
         if (options.isRedoImport() != null) {
             return TaskPriority.REDO_IMPORT;
         }
+        if (options.isReindexLogs()) {
+            return TaskPriority.REINDEX_LOGS;
+        }
         return TaskPriority.NONE;
     }
 
@@ -1027,6 +1036,10 @@ public class Cli {
                 && options.isRedoImport() != null) {
             skippedTasks.add("--redo-import");
         }
+        if (breakingTaskPriority.compareTo(TaskPriority.REINDEX_LOGS) < 0
+                && options.isReindexLogs()) {
+            skippedTasks.add("--reindex-logs");
+        }
         return skippedTasks;
     }
 
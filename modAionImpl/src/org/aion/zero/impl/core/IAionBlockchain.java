@@ -6,6 +6,7 @@ import org.aion.interfaces.db.Repository;
 import org.aion.mcf.core.IBlockchain;
 import org.aion.types.ByteArrayWrapper;
 import org.aion.zero.impl.BlockContext;
+import org.aion.zero.impl.db.LogIndex;
 import org.aion.zero.impl.sync.DatabaseType;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionTxInfo;
@@ -43,6 +44,15 @@ public interface IAionBlockchain
      */
     List<AionBlock> getBlocksByRange(long first, long last);
 
+    /**
+     * Retrieves the receipts of the transactions included in the block with the given hash.
+     *
+     * @param blockHash the hash of the block
+     * @return the receipts in the order of the transactions in the block or {@code null} when the
+     *     block or any of its receipts cannot be found
+     */
+    List<AionTxReceipt> getReceipts(byte[] blockHash);
+
     /**
      * Recovery functionality for rebuilding the world state.
      *
@@ -89,4 +99,7 @@ public interface IAionBlockchain
      */
     Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(
             byte[] value, int limit, DatabaseType dbType);
+
+    /** Returns the index used for finding the blocks with logs matching a filter. */
+    LogIndex getLogIndex();
 }
@@ -4,7 +4,6 @@ import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
 import static org.aion.crypto.HashUtil.h256;
 import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
 
-import com.google.common.annotations.VisibleForTesting;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,6 +36,7 @@ public abstract class AbstractContractDetails implements ContractDetails {
 
     @Override
     public byte[] getCode() {
+        Map<ByteArrayWrapper, byte[]> codes = getCodes();
         return codes.size() == 0 ? EMPTY_BYTE_ARRAY : codes.values().iterator().next();
     }
 
@@ -45,7 +45,7 @@ public abstract class AbstractContractDetails implements ContractDetails {
         if (java.util.Arrays.equals(codeHash, EMPTY_DATA_HASH)) {
             return EMPTY_BYTE_ARRAY;
         }
-        byte[] code = codes.get(new ByteArrayWrapper(codeHash));
+        byte[] code = getCodes().get(new ByteArrayWrapper(codeHash));
         return code == null ? EMPTY_BYTE_ARRAY : code;
     }
 
@@ -55,7 +55,7 @@ public abstract class AbstractContractDetails implements ContractDetails {
             return;
         }
         try {
-            codes.put(ByteArrayWrapper.wrap(h256(code)), code);
+            getCodes().put(ByteArrayWrapper.wrap(h256(code)), code);
         } catch (Exception e) {
             e.printStackTrace();
             return;
@@ -63,6 +63,10 @@ public abstract class AbstractContractDetails implements ContractDetails {
         setDirty(true);
     }
 
+    /**
+     * Returns the codes of the contract. Subclasses that decode the codes on demand must override
+     * this method since all the accesses to the codes go through it.
+     */
     public Map<ByteArrayWrapper, byte[]> getCodes() {
         return codes;
     }
@@ -72,7 +76,7 @@ public abstract class AbstractContractDetails implements ContractDetails {
     }
 
     public void appendCodes(Map<ByteArrayWrapper, byte[]> codes) {
-        this.codes.putAll(codes);
+        getCodes().putAll(codes);
     }
 
     public void setVmType(byte vmType) {
@@ -107,6 +111,7 @@ public abstract class AbstractContractDetails implements ContractDetails {
     public String toString() {
         String ret;
 
+        Map<ByteArrayWrapper, byte[]> codes = getCodes();
         if (codes != null) {
             ret =
                     "  Code: "
@@ -128,7 +133,6 @@ public abstract class AbstractContractDetails implements ContractDetails {
         return ret;
     }
 
-    @VisibleForTesting
     @Override
     public void setStorage(Map<ByteArrayWrapper, ByteArrayWrapper> storage) {
         for (Map.Entry<ByteArrayWrapper, ByteArrayWrapper> entry : storage.entrySet()) {
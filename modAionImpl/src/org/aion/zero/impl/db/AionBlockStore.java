@@ -30,9 +30,8 @@ import org.aion.mcf.ds.DataSourceArray;
 import org.aion.mcf.ds.ObjectDataSource;
 import org.aion.mcf.ds.Serializer;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
-import org.aion.util.bytes.ByteUtil;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.util.conversions.Hex;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
@@ -1055,20 +1054,25 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         public BlockInfo() {}
 
         public BlockInfo(byte[] ser) {
-            RLPList outerList = RLP.decode2(ser);
-
             // should we throw?
-            if (outerList.isEmpty()) {
+            if (ser == null || ser.length == 0) {
                 return;
             }
 
-            RLPList list = (RLPList) outerList.get(0);
-            this.hash = list.get(0).getRLPData();
-            this.cummDifficulty = ByteUtil.bytesToBigInteger(list.get(1).getRLPData());
+            decode(RLPView.wrap(ser));
+        }
+
+        private BlockInfo(RLPView list) {
+            decode(list);
+        }
+
+        private void decode(RLPView list) {
+            this.hash = list.get(0).getBytes();
+            this.cummDifficulty = list.get(1).getBigInteger();
 
-            byte[] boolData = list.get(2).getRLPData();
+            RLPView boolData = list.get(2);
             this.mainChain =
-                    !(boolData == null || boolData.length == 0) && boolData[0] == (byte) 0x1;
+                    boolData.getPayloadLength() != 0 && boolData.getBytes()[0] == (byte) 0x1;
         }
 
         private static final long serialVersionUID = 7279277944605144671L;
@@ -1104,10 +1108,19 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         }
 
         public byte[] getEncoded() {
-            byte[] hashElement = RLP.encodeElement(hash);
-            byte[] cumulativeDiffElement = RLP.encodeElement(cummDifficulty.toByteArray());
-            byte[] mainChainElement = RLP.encodeByte(mainChain ? (byte) 0x1 : (byte) 0x0);
-            return RLP.encodeList(hashElement, cumulativeDiffElement, mainChainElement);
+            byte[] cumulativeDiff = cummDifficulty.toByteArray();
+            byte mainChainByte = mainChain ? (byte) 0x1 : (byte) 0x0;
+
+            int length =
+                    RlpWriter.sizeOfElement(hash)
+                            + RlpWriter.sizeOfElement(cumulativeDiff)
+                            + RlpWriter.sizeOfByte(mainChainByte);
+            return new RlpWriter(RlpWriter.sizeOfList(length))
+                    .writeListHeader(length)
+                    .writeElement(hash)
+                    .writeElement(cumulativeDiff)
+                    .writeByte(mainChainByte)
+                    .toByteArray();
         }
     }
 
@@ -1146,11 +1159,11 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
                 @Override
                 public List<BlockInfo> deserialize(byte[] stream) {
-                    RLPList list = (RLPList) RLP.decode2(stream).get(0);
+                    RLPView list = RLPView.wrap(stream);
                     List<BlockInfo> res = new ArrayList<>(list.size());
 
-                    for (RLPElement aList : list) {
-                        res.add(new BlockInfo(aList.getRLPData()));
+                    for (RLPView aList : list.getElementList()) {
+                        res.add(new BlockInfo(aList));
                     }
                     return res;
                 }
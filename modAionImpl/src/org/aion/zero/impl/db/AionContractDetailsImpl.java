@@ -36,6 +36,37 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
     public boolean externalStorage;
     private ByteArrayKeyValueStore externalStorageDataSource;
 
+    /**
+     * The encoded codes, which are decoded and hashed only when the codes are accessed. Set to
+     * {@code null} once decoded.
+     */
+    private RLPElement encodedCodes;
+
+    /**
+     * The encoded storage, from which the storage trie is built only when the storage is accessed.
+     * Set to {@code null} once decoded.
+     */
+    private EncodedStorage encodedStorage;
+
+    /**
+     * The storage of details decoded from their RLP encoding. Deserializing the in-memory storage
+     * trie is expensive and many lookups do not touch the storage at all, so it is deferred.
+     */
+    private static final class EncodedStorage {
+        /** The storage root for external storage, otherwise the serialized storage trie. */
+        private final byte[] data;
+        /** The root to move the trie to once it is decoded, or {@code null} to keep the root. */
+        private final byte[] root;
+
+        private final boolean pruning;
+
+        private EncodedStorage(byte[] data, byte[] root, boolean pruning) {
+            this.data = data;
+            this.root = root;
+            this.pruning = pruning;
+        }
+    }
+
     public AionContractDetailsImpl() {}
 
     public AionContractDetailsImpl(int prune, int memStorageLimit) {
@@ -79,7 +110,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
         // get we can differentiate between the two.
 
         byte[] data = RLP.encodeElement(value.getData());
-        storageTrie.update(key.getData(), data);
+        getStorageTrie().update(key.getData(), data);
 
         this.setDirty(true);
         this.rlpEncoded = null;
@@ -89,12 +120,35 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
     public void delete(ByteArrayWrapper key) {
         Objects.requireNonNull(key);
 
-        storageTrie.delete(key.getData());
+        getStorageTrie().delete(key.getData());
 
         this.setDirty(true);
         this.rlpEncoded = null;
     }
 
+    /**
+     * Applies all the given storage changes to the storage trie in a single batch. A {@code null}
+     * value marks the key for deletion.
+     *
+     * @param storage the storage changes to be applied
+     */
+    @Override
+    public void setStorage(Map<ByteArrayWrapper, ByteArrayWrapper> storage) {
+        Map<ByteArrayWrapper, byte[]> batch = new HashMap<>();
+        for (Entry<ByteArrayWrapper, ByteArrayWrapper> entry : storage.entrySet()) {
+            ByteArrayWrapper key = Objects.requireNonNull(entry.getKey());
+            ByteArrayWrapper value = entry.getValue();
+            batch.put(key, value == null ? null : RLP.encodeElement(value.getData()));
+        }
+
+        if (!batch.isEmpty()) {
+            getStorageTrie().updateBatch(batch);
+
+            this.setDirty(true);
+            this.rlpEncoded = null;
+        }
+    }
+
     /**
      * Returns the value associated with key if it exists, otherwise returns a DataWordImpl
      * consisting entirely of zero bytes.
@@ -104,7 +158,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
      */
     @Override
     public ByteArrayWrapper get(ByteArrayWrapper key) {
-        byte[] data = storageTrie.get(key.getData());
+        byte[] data = getStorageTrie().get(key.getData());
         return (data == null || data.length == 0)
                 ? null
                 : new ByteArrayWrapper(RLP.decode2(data).get(0).getRLPData());
@@ -121,7 +175,62 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
      */
     @Override
     public byte[] getStorageHash() {
-        return storageTrie.getRootHash();
+        return getStorageTrie().getRootHash();
+    }
+
+    /**
+     * Returns the storage trie, building it from the encoded storage if it was not accessed since
+     * the details were decoded.
+     */
+    private SecureTrie getStorageTrie() {
+        if (encodedStorage != null) {
+            EncodedStorage encoded = encodedStorage;
+            encodedStorage = null;
+
+            SecureTrie trie;
+            if (externalStorage) {
+                trie = new SecureTrie(getExternalStorageDataSource(), encoded.data);
+            } else {
+                trie = new SecureTrie(null);
+                trie.deserialize(encoded.data);
+            }
+            if (encoded.root != null) {
+                trie =
+                        wrap(encoded.root).equals(wrap(EMPTY_TRIE_HASH))
+                                ? new SecureTrie(trie.getCache(), "".getBytes())
+                                : new SecureTrie(trie.getCache(), encoded.root);
+            }
+            trie.withPruningEnabled(encoded.pruning);
+            storageTrie = trie;
+        }
+        return storageTrie;
+    }
+
+    /** Returns the codes, decoding them if not accessed since the details were decoded. */
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getCodes() {
+        if (encodedCodes != null) {
+            RLPElement code = encodedCodes;
+            encodedCodes = null;
+
+            // decoding does not modify the details
+            boolean dirty = isDirty();
+            if (code instanceof RLPList) {
+                for (RLPElement e : ((RLPList) code)) {
+                    setCode(e.getRLPData());
+                }
+            } else {
+                setCode(code.getRLPData());
+            }
+            setDirty(dirty);
+        }
+        return super.getCodes();
+    }
+
+    @Override
+    protected void setCodes(Map<ByteArrayWrapper, byte[]> codes) {
+        encodedCodes = null;
+        super.setCodes(codes);
     }
 
     /**
@@ -201,24 +310,23 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
             this.address = Address.wrap(address.getRLPData());
         }
 
-        if (code instanceof RLPList) {
-            for (RLPElement e : ((RLPList) code)) {
-                setCode(e.getRLPData());
-            }
-        } else {
-            setCode(code.getRLPData());
+        // the codes are decoded on first access, but the details are marked dirty as if they were
+        // set here
+        encodedCodes = code;
+        if (code instanceof RLPList ? !((RLPList) code).isEmpty() : code.getRLPData() != null) {
+            setDirty(true);
         }
 
-        // load/deserialize storage trie
-        if (externalStorage) {
-            storageTrie = new SecureTrie(getExternalStorageDataSource(), storageRoot.getRLPData());
-        } else {
-            storageTrie.deserialize(storage.getRLPData());
-        }
-        storageTrie.withPruningEnabled(prune > 0);
+        // the storage trie is loaded/deserialized on first access
+        encodedStorage =
+                new EncodedStorage(
+                        externalStorage ? storageRoot.getRLPData() : storage.getRLPData(),
+                        null,
+                        prune > 0);
 
         // switch from in-memory to external storage
         if (!externalStorage && !keepStorageInMem) {
+            getStorageTrie();
             externalStorage = true;
             storageTrie.getCache().setDB(getExternalStorageDataSource());
         }
@@ -240,9 +348,10 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
             byte[] rlpIsExternalStorage = RLP.encodeByte((byte) (externalStorage ? 1 : 0));
             byte[] rlpStorageRoot =
                     RLP.encodeElement(
-                            externalStorage ? storageTrie.getRootHash() : EMPTY_BYTE_ARRAY);
+                            externalStorage ? getStorageTrie().getRootHash() : EMPTY_BYTE_ARRAY);
             byte[] rlpStorage =
-                    RLP.encodeElement(externalStorage ? EMPTY_BYTE_ARRAY : storageTrie.serialize());
+                    RLP.encodeElement(
+                            externalStorage ? EMPTY_BYTE_ARRAY : getStorageTrie().serialize());
             byte[][] codes = new byte[getCodes().size()][];
             int i = 0;
             for (byte[] bytes : this.getCodes().values()) {
@@ -290,10 +399,10 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
         this.rlpEncoded = null;
     }
 
-    /** Syncs the storage trie. */
+    /** Syncs the storage trie. There are no changes to sync if the storage was never accessed. */
     @Override
     public void syncStorage() {
-        if (externalStorage) {
+        if (externalStorage && encodedStorage == null) {
             storageTrie.sync();
         }
     }
@@ -315,12 +424,22 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
     private ByteArrayKeyValueStore getExternalStorageDataSource() {
         if (externalStorageDataSource == null) {
             externalStorageDataSource =
-                    new XorDataSource(
-                            dataSource, h256(("details-storage/" + address.toString()).getBytes()));
+                    new XorDataSource(dataSource, getExternalStorageSalt(address));
         }
         return externalStorageDataSource;
     }
 
+    /**
+     * Returns the value combined with the keys of the external storage nodes of the given contract,
+     * which keeps the storage of different contracts apart in the shared storage database.
+     *
+     * @param address the address of the contract
+     * @return the value combined with the storage keys of the contract
+     */
+    public static byte[] getExternalStorageSalt(Address address) {
+        return h256(("details-storage/" + address.toString()).getBytes());
+    }
+
     /**
      * Sets the external storage data source to dataSource.
      *
@@ -333,6 +452,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
         // TODO: regarding the node above: the tests should be updated and the method removed
         this.externalStorageDataSource = dataSource;
         this.externalStorage = true;
+        this.encodedStorage = null;
         this.storageTrie = new SecureTrie(getExternalStorageDataSource());
     }
 
@@ -346,14 +466,21 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
     @Override
     public ContractDetails getSnapshotTo(byte[] hash) {
 
-        SecureTrie snapStorage =
-                wrap(hash).equals(wrap(EMPTY_TRIE_HASH))
-                        ? new SecureTrie(storageTrie.getCache(), "".getBytes())
-                        : new SecureTrie(storageTrie.getCache(), hash);
-        snapStorage.withPruningEnabled(storageTrie.isPruningEnabled());
+        AionContractDetailsImpl details;
+        if (encodedStorage != null) {
+            // the snapshot decodes its own storage trie when accessed
+            details = new AionContractDetailsImpl(this.address, null, getCodes());
+            details.encodedStorage =
+                    new EncodedStorage(encodedStorage.data, hash, encodedStorage.pruning);
+        } else {
+            SecureTrie snapStorage =
+                    wrap(hash).equals(wrap(EMPTY_TRIE_HASH))
+                            ? new SecureTrie(storageTrie.getCache(), "".getBytes())
+                            : new SecureTrie(storageTrie.getCache(), hash);
+            snapStorage.withPruningEnabled(storageTrie.isPruningEnabled());
 
-        AionContractDetailsImpl details =
-                new AionContractDetailsImpl(this.address, snapStorage, getCodes());
+            details = new AionContractDetailsImpl(this.address, snapStorage, getCodes());
+        }
 
         // vm information
         details.vmType = this.vmType;
@@ -394,7 +521,12 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
 
         aionContractDetailsCopy.prune = this.prune;
         aionContractDetailsCopy.detailsInMemoryStorageLimit = this.detailsInMemoryStorageLimit;
-        aionContractDetailsCopy.setCodes(getDeepCopyOfCodes());
+        if (encodedCodes != null) {
+            // the encoded codes are never modified and can be shared
+            aionContractDetailsCopy.encodedCodes = this.encodedCodes;
+        } else {
+            aionContractDetailsCopy.setCodes(getDeepCopyOfCodes());
+        }
         aionContractDetailsCopy.setDirty(this.isDirty());
         aionContractDetailsCopy.setDeleted(this.isDeleted());
         aionContractDetailsCopy.address = new Address(this.address.toBytes());
@@ -402,8 +534,12 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
                 (this.rlpEncoded == null)
                         ? null
                         : Arrays.copyOf(this.rlpEncoded, this.rlpEncoded.length);
-        aionContractDetailsCopy.storageTrie =
-                (this.storageTrie == null) ? null : this.storageTrie.copy();
+        if (encodedStorage != null) {
+            aionContractDetailsCopy.encodedStorage = this.encodedStorage;
+        } else {
+            aionContractDetailsCopy.storageTrie =
+                    (this.storageTrie == null) ? null : this.storageTrie.copy();
+        }
         return aionContractDetailsCopy;
     }
 
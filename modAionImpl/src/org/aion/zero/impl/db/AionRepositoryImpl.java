@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +24,7 @@ import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.AbstractRepository;
 import org.aion.mcf.db.TransactionStore;
 import org.aion.mcf.ds.ObjectDataSource;
+import org.aion.mcf.trie.Cache;
 import org.aion.mcf.trie.SecureTrie;
 import org.aion.mcf.trie.Trie;
 import org.aion.mcf.trie.TrieImpl;
@@ -46,6 +48,9 @@ public class AionRepositoryImpl
 
     private TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> transactionStore;
 
+    // index of log addresses and topics not used for consensus
+    private LogIndex logIndex;
+
     // pending block store
     private PendingBlockStore pendingStore;
 
@@ -82,6 +87,8 @@ public class AionRepositoryImpl
                     new TransactionStore<>(
                             transactionDatabase, AionTransactionStoreSerializer.serializer);
 
+            this.logIndex = new LogIndex(logIndexDatabase);
+
             // Setup block store.
             this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, checkIntegrity);
 
@@ -104,13 +111,24 @@ public class AionRepositoryImpl
         return this.pendingStore;
     }
 
+    public LogIndex getLogIndex() {
+        return this.logIndex;
+    }
+
+    /** Returns the database where fast sync records its progress. */
+    public ByteArrayKeyValueDatabase getFastSyncDatabase() {
+        return this.fastSyncDatabase;
+    }
+
     /** @implNote The transaction store is not locked within the repository implementation. */
     public TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> getTransactionStore() {
         return this.transactionStore;
     }
 
     private Trie createStateTrie() {
-        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneEnabled);
+        return new SecureTrie(new Cache(stateDSPrune, trieCacheSize), "")
+                .withPruningEnabled(pruneEnabled)
+                .withDeferredHashingEnabled(true);
     }
 
     @Override
@@ -119,18 +137,16 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
 
         try {
+            // world state changes applied to the trie in a single batch
+            Map<ByteArrayWrapper, byte[]> stateBatch = new HashMap<>();
+
             for (Map.Entry<Address, AccountState> entry : stateCache.entrySet()) {
                 Address address = entry.getKey();
                 AccountState accountState = entry.getValue();
                 ContractDetails contractDetails = detailsCache.get(address);
 
                 if (accountState.isDeleted()) {
-                    // TODO-A: batch operations here
-                    try {
-                        worldState.delete(address.toBytes());
-                    } catch (Exception e) {
-                        LOG.error("key deleted exception [{}]", e.toString());
-                    }
+                    stateBatch.put(ByteArrayWrapper.wrap(address.toBytes()), null);
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("key deleted <key={}>", Hex.toHexString(address.toBytes()));
                     }
@@ -142,7 +158,9 @@ public class AionRepositoryImpl
                         // TODO: issue above will be solved with the conversion to a
                         // ContractState class
                         if (accountState.isDirty()) {
-                            updateAccountState(address, accountState);
+                            stateBatch.put(
+                                    ByteArrayWrapper.wrap(address.toBytes()),
+                                    accountState.getEncoded());
 
                             if (LOG.isTraceEnabled()) {
                                 LOG.trace(
@@ -180,7 +198,8 @@ public class AionRepositoryImpl
                         accountState.setStateRoot(contractDetails.getStorageHash());
                     }
 
-                    updateAccountState(address, accountState);
+                    stateBatch.put(
+                            ByteArrayWrapper.wrap(address.toBytes()), accountState.getEncoded());
 
                     if (LOG.isTraceEnabled()) {
                         LOG.trace(
@@ -193,6 +212,8 @@ public class AionRepositoryImpl
                 }
             }
 
+            worldState.updateBatch(stateBatch);
+
             if (LOG.isTraceEnabled()) {
                 LOG.trace("updated: detailsCache.size: {}", detailsCache.size());
             }
@@ -229,6 +250,9 @@ public class AionRepositoryImpl
             }
             worldState.sync();
 
+            // Sync the storage of the contracts touched since the last flush.
+            detailsDS.flush();
+
             // Flush all necessary caches.
             if (LOG.isInfoEnabled()) {
                 LOG.info("flush all databases");
@@ -246,6 +270,14 @@ public class AionRepositoryImpl
                 }
             }
 
+            // the writes above are persisted in the background, without atomicity across databases
+            if (writeBehindQueue != null) {
+                writeBehindQueue.checkpoint();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("write-behind queue: {}", writeBehindQueue.getStatsSummary());
+                }
+            }
+
             if (LOG.isInfoEnabled()) {
                 LOG.info("RepositoryImpl.flush took " + (System.currentTimeMillis() - s) + " ms");
             }
@@ -382,12 +414,6 @@ public class AionRepositoryImpl
         return (account == null) ? BigInteger.ZERO : account.getNonce();
     }
 
-    /** @implNote The method calling this method must handle the locking. */
-    private void updateAccountState(Address address, AccountState accountState) {
-        // locked by calling method
-        worldState.update(address.toBytes(), accountState.getEncoded());
-    }
-
     /**
      * @inheritDoc
      * @implNote Any other method calling this can rely on the fact that the contract details
@@ -522,6 +548,13 @@ public class AionRepositoryImpl
                     // archive block
                     worldState.saveDiffStateToDatabase(
                             blockHeader.getStateRoot(), stateDSPrune.getArchiveSource());
+
+                    if (LOGGEN.isDebugEnabled() && stateArchiveDatabase != null) {
+                        LOGGEN.debug(
+                                "State archive filter stats after block {}: {}",
+                                blockHeader.getNumber(),
+                                stateArchiveDatabase.getStatsSummary());
+                    }
                 }
                 stateDSPrune.storeBlockChanges(blockHeader.getHash(), blockHeader.getNumber());
                 detailsDS
@@ -570,6 +603,7 @@ public class AionRepositoryImpl
             AionRepositoryImpl repo = new AionRepositoryImpl();
             repo.blockStore = blockStore;
             repo.contractInfoSource = contractInfoSource;
+            repo.logIndex = logIndex;
             repo.cfg = cfg;
             repo.stateDatabase = this.stateDatabase;
             repo.stateWithArchive = this.stateWithArchive;
@@ -579,6 +613,7 @@ public class AionRepositoryImpl
             repo.pruneEnabled = this.pruneEnabled;
             repo.pruneBlockCount = this.pruneBlockCount;
             repo.archiveRate = this.archiveRate;
+            repo.trieCacheSize = this.trieCacheSize;
 
             repo.detailsDS = this.detailsDS;
             repo.isSnapshot = true;
@@ -638,6 +673,9 @@ public class AionRepositoryImpl
     public void close() {
         rwLock.writeLock().lock();
         try {
+            // the pending writes are committed when the last column family is closed
+            sharedDatabase = null;
+
             try {
                 if (detailsDS != null) {
                     detailsDS.close();
@@ -679,6 +717,16 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the state archive database.", e);
             }
 
+            try {
+                if (stateJournalDatabase != null) {
+                    stateJournalDatabase.close();
+                    LOGGEN.info("State journal database closed.");
+                    stateJournalDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state journal database.", e);
+            }
+
             try {
                 if (transactionDatabase != null) {
                     transactionDatabase.close();
@@ -689,6 +737,27 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the transaction database.", e);
             }
 
+            try {
+                if (logIndexDatabase != null) {
+                    logIndexDatabase.close();
+                    LOGGEN.info("Log index database closed.");
+                    logIndexDatabase = null;
+                    logIndex = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the log index database.", e);
+            }
+
+            try {
+                if (fastSyncDatabase != null) {
+                    fastSyncDatabase.close();
+                    LOGGEN.info("Fast sync database closed.");
+                    fastSyncDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the fast sync database.", e);
+            }
+
             try {
                 if (blockStore != null) {
                     blockStore.close();
@@ -729,6 +798,15 @@ public class AionRepositoryImpl
                 LOGGEN.error(
                         "Exception occurred while closing the pendingTxCacheDatabase store.", e);
             }
+
+            try {
+                if (writeBehindQueue != null) {
+                    writeBehindQueue.shutdown();
+                    writeBehindQueue = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while stopping the write-behind queue.", e);
+            }
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -174,14 +174,8 @@ public class ContractDetailsCacheImpl extends AbstractContractDetails {
             return;
         }
 
-        for (ByteArrayWrapper key : storage.keySet()) {
-            ByteArrayWrapper value = storage.get(key);
-            if (value != null) {
-                origContract.put(key, storage.get(key));
-            } else {
-                origContract.delete(key);
-            }
-        }
+        // applied as a batch to the underlying storage trie
+        origContract.setStorage(storage);
 
         if (origContract instanceof AbstractContractDetails) {
             ((AbstractContractDetails) origContract).appendCodes(getCodes());
@@ -0,0 +1,231 @@
+package org.aion.zero.impl.db;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.ByteArrayWrapper;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.vm.api.interfaces.IExecutionLog;
+import org.aion.zero.types.AionTxReceipt;
+import org.slf4j.Logger;
+
+/**
+ * Persistent index from log addresses and topics to the numbers of the blocks containing them.
+ *
+ * <p>The blocks are grouped in sections of {@link #SECTION_SIZE} consecutive numbers. For each
+ * address or topic that appears in the logs of a section, the index stores a bit vector with one
+ * bit per block of the section. Range queries load the vectors for the requested addresses and
+ * topics and combine them to find the candidate blocks, instead of loading every block in the
+ * range.
+ *
+ * <p>The index is populated with every stored block, including side chain blocks, and entries are
+ * never removed on chain reorganizations. Therefore, the candidates are a superset of the main
+ * chain blocks matching the query and must be confirmed against the block receipts.
+ *
+ * @implNote Topics are indexed regardless of their position in the log and the position is checked
+ *     by the caller when confirming the candidates.
+ */
+public class LogIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Number of consecutive blocks covered by one bit vector. */
+    static final int SECTION_SIZE = 4096;
+
+    private static final byte ADDRESS_PREFIX = 0;
+    private static final byte TOPIC_PREFIX = 1;
+    /** Key storing the number of the first block from which all the blocks were indexed. */
+    private static final byte[] FIRST_INDEXED_KEY = new byte[] {2};
+
+    private final ByteArrayKeyValueDatabase database;
+    private final Lock lock = new ReentrantLock();
+
+    public LogIndex(ByteArrayKeyValueDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Adds the addresses and topics of the logs in the given receipts to the index. The blocks must
+     * be indexed in the order they are imported. The first indexed block becomes the {@link
+     * #getFirstIndexedBlock() first indexed block} when none was recorded.
+     */
+    public void index(long blockNumber, List<AionTxReceipt> receipts) {
+        add(blockNumber, receipts, true);
+    }
+
+    /**
+     * Adds the addresses and topics of the logs in the given receipts to the index for a block
+     * indexed out of order, such as the blocks below the pivot during fast sync. The {@link
+     * #getFirstIndexedBlock() first indexed block} is not changed, since the blocks between this
+     * one and the marker may still be missing. It must be set with {@link
+     * #setFirstIndexedBlock(long)} once the backfill is complete.
+     */
+    public void backfill(long blockNumber, List<AionTxReceipt> receipts) {
+        add(blockNumber, receipts, false);
+    }
+
+    private void add(long blockNumber, List<AionTxReceipt> receipts, boolean inOrder) {
+        Set<ByteArrayWrapper> items = new HashSet<>();
+        for (AionTxReceipt receipt : receipts) {
+            for (IExecutionLog log : receipt.getLogInfoList()) {
+                byte[] address = log.getSourceAddress().toBytes();
+                items.add(ByteArrayWrapper.wrap(itemKey(ADDRESS_PREFIX, address)));
+                for (byte[] topic : log.getTopics()) {
+                    items.add(ByteArrayWrapper.wrap(itemKey(TOPIC_PREFIX, topic)));
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            if (inOrder && !database.get(FIRST_INDEXED_KEY).isPresent()) {
+                database.put(FIRST_INDEXED_KEY, ByteUtil.longToBytes(blockNumber));
+            }
+
+            if (items.isEmpty()) {
+                return;
+            }
+
+            long section = blockNumber / SECTION_SIZE;
+            int bit = (int) (blockNumber % SECTION_SIZE);
+
+            Map<byte[], byte[]> batch = new HashMap<>();
+            for (ByteArrayWrapper item : items) {
+                byte[] key = sectionKey(item.getData(), section);
+                BitSet blocks = load(key);
+                if (!blocks.get(bit)) {
+                    blocks.set(bit);
+                    batch.put(key, blocks.toByteArray());
+                }
+            }
+            if (!batch.isEmpty()) {
+                database.putBatch(batch);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of the first block from which all the stored blocks are present in the
+     * index, or {@link Long#MAX_VALUE} when the index is empty. Ranges starting before this block
+     * must be searched without the index.
+     */
+    public long getFirstIndexedBlock() {
+        Optional<byte[]> value = database.get(FIRST_INDEXED_KEY);
+        return value.isPresent() ? ByteUtil.byteArrayToLong(value.get()) : Long.MAX_VALUE;
+    }
+
+    /** Records that all the stored blocks starting with the given number were indexed. */
+    public void setFirstIndexedBlock(long blockNumber) {
+        lock.lock();
+        try {
+            database.put(FIRST_INDEXED_KEY, ByteUtil.longToBytes(blockNumber));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the blocks in the given range that may contain logs matching the given filter. A log
+     * matches if it was created by one of the addresses (when any are given) and if, for each
+     * position, one of the topics at that position is present in the log.
+     *
+     * @param addresses the accepted log addresses; empty to accept all
+     * @param topics the accepted topics for each position; {@code null} or empty entries accept
+     *     any topic
+     * @param from the first block number in the range (inclusive)
+     * @param to the last block number in the range (inclusive)
+     * @return the candidate block numbers in ascending order or {@code null} when the filter has no
+     *     address or topic restrictions and every block is a candidate
+     */
+    public List<Long> findCandidateBlocks(
+            List<byte[]> addresses, List<byte[][]> topics, long from, long to) {
+        // each group contains the alternatives for one restriction of the filter
+        List<List<byte[]>> groups = new ArrayList<>();
+        if (addresses != null && !addresses.isEmpty()) {
+            List<byte[]> group = new ArrayList<>();
+            for (byte[] address : addresses) {
+                group.add(itemKey(ADDRESS_PREFIX, address));
+            }
+            groups.add(group);
+        }
+        if (topics != null) {
+            for (byte[][] alternatives : topics) {
+                if (alternatives != null && alternatives.length > 0) {
+                    List<byte[]> group = new ArrayList<>();
+                    for (byte[] topic : alternatives) {
+                        group.add(itemKey(TOPIC_PREFIX, topic));
+                    }
+                    groups.add(group);
+                }
+            }
+        }
+
+        if (groups.isEmpty()) {
+            return null;
+        }
+
+        List<Long> candidates = new ArrayList<>();
+        for (long section = from / SECTION_SIZE; section <= to / SECTION_SIZE; section++) {
+            BitSet matches = null;
+            for (List<byte[]> group : groups) {
+                BitSet any = new BitSet(SECTION_SIZE);
+                for (byte[] item : group) {
+                    any.or(load(sectionKey(item, section)));
+                }
+                if (matches == null) {
+                    matches = any;
+                } else {
+                    matches.and(any);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+
+            long sectionStart = section * SECTION_SIZE;
+            for (int bit = matches.nextSetBit(0); bit >= 0; bit = matches.nextSetBit(bit + 1)) {
+                long number = sectionStart + bit;
+                if (number >= from && number <= to) {
+                    candidates.add(number);
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Log index returned {} candidate blocks in range [{}, {}].",
+                    candidates.size(),
+                    from,
+                    to);
+        }
+        return candidates;
+    }
+
+    private BitSet load(byte[] key) {
+        Optional<byte[]> value = database.get(key);
+        return value.isPresent() ? BitSet.valueOf(value.get()) : new BitSet(SECTION_SIZE);
+    }
+
+    private static byte[] itemKey(byte prefix, byte[] item) {
+        byte[] key = new byte[item.length + 1];
+        key[0] = prefix;
+        System.arraycopy(item, 0, key, 1, item.length);
+        return key;
+    }
+
+    private static byte[] sectionKey(byte[] itemKey, long section) {
+        return ByteUtil.merge(itemKey, ByteUtil.longToBytes(section));
+    }
+}
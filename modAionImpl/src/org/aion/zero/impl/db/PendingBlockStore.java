@@ -1,6 +1,7 @@
 package org.aion.zero.impl.db;
 
 import static org.aion.mcf.db.DatabaseUtils.connectAndOpen;
+import static org.aion.mcf.db.DatabaseUtils.deleteRecursively;
 import static org.aion.mcf.db.DatabaseUtils.verifyAndBuildPath;
 import static org.aion.p2p.P2pConstant.LARGE_REQUEST_SIZE;
 import static org.aion.p2p.P2pConstant.STEP_COUNT;
@@ -13,11 +14,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -49,11 +52,15 @@ import org.slf4j.Logger;
  * <ul>
  *   <li><b>levels</b>: maps a blockchain height to the queue identifiers that start with blocks at
  *       that height;
- *   <li><b>queues</b>: maps queues identifiers to the list of blocks (in ascending order) that
- *       belong to the queue;
+ *   <li><b>queues</b>: maps queues identifiers to the number of blocks that belong to the queue,
+ *       while the blocks themselves (in ascending order) are stored individually under the queue
+ *       identifier followed by their position in the queue;
  *   <li><b>indexes</b>: maps block hashes to the identifier of the queue where the block is stored.
  * </ul>
  *
+ * Storing each block separately makes appending a block to a queue a constant time operation,
+ * independent of the length of the queue.
+ *
  * Additionally, the class is used to optimize requests for blocks ahead of time by tracking
  * received status blocks and proposing (mostly non-overlapping) base values for the requests.
  *
@@ -69,8 +76,11 @@ public class PendingBlockStore implements Flushable, Closeable {
 
     // database names
     private static final String LEVEL_DB_NAME = "level";
-    private static final String QUEUE_DB_NAME = "queue";
+    private static final String QUEUE_DB_NAME = "queue_size";
+    private static final String QUEUE_BLOCK_DB_NAME = "queue_block";
     private static final String INDEX_DB_NAME = "index";
+    /** Database used by previous versions to store each queue as a single list of blocks. */
+    private static final String LEGACY_QUEUE_DB_NAME = "queue";
 
     // data sources: with access managed by the `databaseLock`
     /**
@@ -80,13 +90,16 @@ public class PendingBlockStore implements Flushable, Closeable {
     private ObjectDataSource<List<byte[]>> levelSource;
 
     private ByteArrayKeyValueDatabase levelDatabase;
-    /** Used to map a queue identifier to a list of consecutive blocks. */
-    private ObjectDataSource<List<AionBlock>> queueSource;
-
+    /** Used to map a queue identifier to the number of consecutive blocks in the queue. */
     private ByteArrayKeyValueDatabase queueDatabase;
+    /** Used to map a queue identifier and a position in the queue to the block at that position. */
+    private ByteArrayKeyValueDatabase queueBlockDatabase;
     /** Used to maps a block hash to its current queue identifier. */
     private ByteArrayKeyValueDatabase indexSource;
 
+    /** Prefix of the database names, used when they are column families of the repository. */
+    private String namePrefix = "";
+
     // tracking the status: with access managed by the `internalLock`
     private Map<ByteArrayWrapper, QueueInfo> status;
     private long maxRequest = 0L, minStatus = Long.MAX_VALUE, maxStatus = 0L;
@@ -107,7 +120,10 @@ public class PendingBlockStore implements Flushable, Closeable {
 
         // check for database persistence requirements
         DBVendor vendor = DBVendor.fromString(local.getProperty(Props.DB_TYPE));
-        if (vendor.isFileBased()) {
+        if (vendor == DBVendor.ROCKSDB_CF) {
+            // stored in the shared database of the repository next to the other stores
+            namePrefix = local.getProperty(Props.DB_NAME) + "_";
+        } else if (vendor.isFileBased()) {
             File pbFolder =
                     new File(local.getProperty(Props.DB_PATH), local.getProperty(Props.DB_NAME));
 
@@ -130,27 +146,91 @@ public class PendingBlockStore implements Flushable, Closeable {
         this.status = new HashMap<>();
 
         // create the level source
-        props.setProperty(Props.DB_NAME, LEVEL_DB_NAME);
+        props.setProperty(Props.DB_NAME, namePrefix + LEVEL_DB_NAME);
         this.levelDatabase = connectAndOpen(props, LOG);
         if (levelDatabase == null || levelDatabase.isClosed()) {
             throw newException(LEVEL_DB_NAME, props);
         }
         this.levelSource = new ObjectDataSource<>(levelDatabase, HASH_LIST_RLP_SERIALIZER);
 
-        // create the queue source
-        props.setProperty(Props.DB_NAME, QUEUE_DB_NAME);
+        // create the queue sources
+        props.setProperty(Props.DB_NAME, namePrefix + QUEUE_DB_NAME);
         this.queueDatabase = connectAndOpen(props, LOG);
         if (queueDatabase == null || queueDatabase.isClosed()) {
             throw newException(QUEUE_DB_NAME, props);
         }
-        this.queueSource = new ObjectDataSource<>(queueDatabase, BLOCK_LIST_RLP_SERIALIZER);
+
+        props.setProperty(Props.DB_NAME, namePrefix + QUEUE_BLOCK_DB_NAME);
+        this.queueBlockDatabase = connectAndOpen(props, LOG);
+        if (queueBlockDatabase == null || queueBlockDatabase.isClosed()) {
+            throw newException(QUEUE_BLOCK_DB_NAME, props);
+        }
 
         // create the index source
-        props.setProperty(Props.DB_NAME, INDEX_DB_NAME);
+        props.setProperty(Props.DB_NAME, namePrefix + INDEX_DB_NAME);
         this.indexSource = connectAndOpen(props, LOG);
         if (indexSource == null || indexSource.isClosed()) {
             throw newException(INDEX_DB_NAME, props);
         }
+
+        // convert the queues stored by previous versions
+        DBVendor vendor = DBVendor.fromString(props.getProperty(Props.DB_TYPE));
+        if (vendor.isFileBased() && namePrefix.isEmpty()) {
+            File legacyFolder = new File(props.getProperty(Props.DB_PATH), LEGACY_QUEUE_DB_NAME);
+            if (legacyFolder.exists()) {
+                props.setProperty(Props.DB_NAME, LEGACY_QUEUE_DB_NAME);
+                migrateLegacyQueues(props, legacyFolder);
+            }
+        }
+    }
+
+    /**
+     * Moves the queues stored by previous versions as a single list of blocks per queue to the
+     * current storage layout with one entry per block. The legacy database is deleted only after a
+     * successful migration, otherwise the migration is attempted again at the next start.
+     *
+     * @param props the database properties for the legacy queue database
+     * @param legacyFolder the location of the legacy queue database
+     */
+    private void migrateLegacyQueues(Properties props, File legacyFolder) {
+        boolean migrated = false;
+        ByteArrayKeyValueDatabase legacyDatabase = connectAndOpen(props, LOG);
+        if (legacyDatabase == null || legacyDatabase.isClosed()) {
+            LOG.error(
+                    "Unable to open the legacy pending block queues for migration. The stored"
+                            + " queues are kept at {}.",
+                    legacyFolder.getAbsolutePath());
+        } else {
+            int count = 0;
+            try {
+                Iterator<byte[]> keys = legacyDatabase.keys();
+                while (keys.hasNext()) {
+                    byte[] queueHash = keys.next();
+                    Optional<byte[]> data = legacyDatabase.get(queueHash);
+                    if (data.isPresent()) {
+                        List<AionBlock> queue = BLOCK_LIST_RLP_SERIALIZER.deserialize(data.get());
+                        for (int i = 0; i < queue.size(); i++) {
+                            queueBlockDatabase.putToBatch(
+                                    queueBlockKey(queueHash, i), queue.get(i).getEncoded());
+                        }
+                        queueDatabase.putToBatch(queueHash, ByteUtil.longToBytes(queue.size()));
+                        count++;
+                    }
+                }
+                queueBlockDatabase.commitBatch();
+                queueDatabase.commitBatch();
+                LOG.info("Migrated {} pending block queues to the current storage layout.", count);
+                migrated = true;
+            } catch (Exception e) {
+                LOG.error("Unable to migrate the legacy pending block queues due to: ", e);
+            } finally {
+                legacyDatabase.close();
+            }
+        }
+
+        if (migrated) {
+            deleteRecursively(legacyFolder);
+        }
     }
 
     private InvalidFilePathException newException(String dbName, Properties props) {
@@ -173,7 +253,8 @@ public class PendingBlockStore implements Flushable, Closeable {
         try {
             return status != null
                     && levelSource.isOpen()
-                    && queueSource.isOpen()
+                    && queueDatabase.isOpen()
+                    && queueBlockDatabase.isOpen()
                     && indexSource.isOpen();
         } finally {
             databaseLock.readLock().unlock();
@@ -206,6 +287,7 @@ public class PendingBlockStore implements Flushable, Closeable {
                 }
             };
 
+    /** Used to read the queues stored by previous versions. */
     private static final Serializer<List<AionBlock>, byte[]> BLOCK_LIST_RLP_SERIALIZER =
             new Serializer<>() {
                 @Override
@@ -231,6 +313,36 @@ public class PendingBlockStore implements Flushable, Closeable {
                 }
             };
 
+    /** Builds the key for the block at the given position in the queue. */
+    private static byte[] queueBlockKey(byte[] queueHash, long position) {
+        return ByteUtil.merge(queueHash, ByteUtil.longToBytes(position));
+    }
+
+    /**
+     * @return the number of blocks in the given queue or zero if the queue does not exist.
+     * @implNote Any method calling this functionality must first acquire the needed read lock.
+     */
+    private long getQueueLength(byte[] queueHash) {
+        Optional<byte[]> length = queueDatabase.get(queueHash);
+        return length.isPresent() ? ByteUtil.byteArrayToLong(length.get()) : 0L;
+    }
+
+    /**
+     * @return the blocks in the given queue in ascending order.
+     * @implNote Any method calling this functionality must first acquire the needed read lock.
+     */
+    private List<AionBlock> getQueue(byte[] queueHash) {
+        long length = getQueueLength(queueHash);
+        List<AionBlock> queue = new ArrayList<>();
+        for (long i = 0; i < length; i++) {
+            Optional<byte[]> data = queueBlockDatabase.get(queueBlockKey(queueHash, i));
+            if (data.isPresent()) {
+                queue.add(new AionBlock(data.get()));
+            }
+        }
+        return queue;
+    }
+
     /**
      * Stores a single block in the pending block store for importing later when the chain reaches
      * the needed height and the parent block gets imported. Is used by the functionality receiving
@@ -259,7 +371,7 @@ public class PendingBlockStore implements Flushable, Closeable {
                 // find parent queue hash
                 Optional<byte[]> existingQueueHash = indexSource.get(block.getParentHash());
                 byte[] currentQueueHash = null;
-                List<AionBlock> currentQueue = null;
+                long currentQueueLength = 0L;
 
                 // get existing queue if present
                 if (existingQueueHash.isPresent()) {
@@ -267,16 +379,15 @@ public class PendingBlockStore implements Flushable, Closeable {
                     currentQueueHash = existingQueueHash.get();
 
                     // append block to queue
-                    currentQueue = queueSource.get(currentQueueHash);
+                    currentQueueLength = getQueueLength(currentQueueHash);
                 } // do not add else here!
 
                 // when no queue exists OR problem with existing queue
-                if (currentQueue == null || currentQueue.isEmpty()) {
+                if (currentQueueLength == 0L) {
                     // start new queue
 
                     // queue hash = the node hash
                     currentQueueHash = block.getHash();
-                    currentQueue = new ArrayList<>();
 
                     // add (to) level
                     byte[] levelKey = ByteUtil.longToBytes(block.getNumber());
@@ -297,8 +408,9 @@ public class PendingBlockStore implements Flushable, Closeable {
                 indexSource.put(block.getHash(), currentQueueHash);
 
                 // add element to queue
-                currentQueue.add(block);
-                queueSource.put(currentQueueHash, currentQueue);
+                queueBlockDatabase.put(
+                        queueBlockKey(currentQueueHash, currentQueueLength), block.getEncoded());
+                queueDatabase.put(currentQueueHash, ByteUtil.longToBytes(currentQueueLength + 1));
 
                 // update status tracking
                 ByteArrayWrapper hash = ByteArrayWrapper.wrap(currentQueueHash);
@@ -395,7 +507,8 @@ public class PendingBlockStore implements Flushable, Closeable {
             // save data to disk
             indexSource.commitBatch();
             levelSource.flushBatch();
-            queueSource.flushBatch();
+            queueBlockDatabase.commitBatch();
+            queueDatabase.commitBatch();
 
             // the number of blocks added
             return stored;
@@ -432,7 +545,7 @@ public class PendingBlockStore implements Flushable, Closeable {
         // the first block is not stored
         // start new queue with hash = first node hash
         byte[] currentQueueHash = first.getHash();
-        List<AionBlock> currentQueue = new ArrayList<>();
+        long currentQueueLength = 0L;
 
         // add (to) level
         byte[] levelKey = ByteUtil.longToBytes(first.getNumber());
@@ -450,7 +563,8 @@ public class PendingBlockStore implements Flushable, Closeable {
         int stored = 1;
 
         // add element to queue
-        currentQueue.add(first);
+        queueBlockDatabase.putToBatch(
+                queueBlockKey(currentQueueHash, currentQueueLength++), first.getEncoded());
 
         // keep track of parent to ensure correct range
         AionBlock parent = first;
@@ -475,7 +589,8 @@ public class PendingBlockStore implements Flushable, Closeable {
             indexSource.putToBatch(current.getHash(), currentQueueHash);
 
             // append block to queue
-            currentQueue.add(current);
+            queueBlockDatabase.putToBatch(
+                    queueBlockKey(currentQueueHash, currentQueueLength++), current.getEncoded());
             stored++;
 
             // update parent
@@ -483,7 +598,7 @@ public class PendingBlockStore implements Flushable, Closeable {
         }
 
         // done with queue
-        queueSource.putToBatch(currentQueueHash, currentQueue);
+        queueDatabase.putToBatch(currentQueueHash, ByteUtil.longToBytes(currentQueueLength));
 
         // the number of blocks added
         return stored;
@@ -563,8 +678,8 @@ public class PendingBlockStore implements Flushable, Closeable {
             List<AionBlock> list;
             Map<ByteArrayWrapper, List<AionBlock>> blocks = new HashMap<>();
             for (byte[] queue : queueHashes) {
-                list = queueSource.get(queue);
-                if (list != null) {
+                list = getQueue(queue);
+                if (!list.isEmpty()) {
                     blocks.put(ByteArrayWrapper.wrap(queue), list);
                 }
             }
@@ -594,80 +709,119 @@ public class PendingBlockStore implements Flushable, Closeable {
         databaseLock.writeLock().lock();
 
         try {
+            // levels changed by this call, written after all the queues are processed
+            Map<ByteArrayWrapper, List<byte[]>> levels = new HashMap<>();
+
+            // remove the imported queues from their level
+            byte[] levelKey = ByteUtil.longToBytes(level);
+            List<byte[]> levelData = levelSource.get(levelKey);
+
+            if (levelData == null) {
+                LOG.error(
+                        "Corrupt data in PendingBlockStorage. Level (expected to exist) was not found.");
+                // level already missing so nothing to do here
+            } else {
+                List<byte[]> updatedLevelData = new ArrayList<>();
+
+                for (byte[] qHash : levelData) {
+                    if (!queues.contains(ByteArrayWrapper.wrap(qHash))) {
+                        // this queue was not imported
+                        updatedLevelData.add(qHash);
+                    }
+                }
+
+                levels.put(ByteArrayWrapper.wrap(levelKey), updatedLevelData);
+            }
+
             // delete imported queues & blocks
             for (ByteArrayWrapper q : queues) {
-                // load the queue from disk
-                List<AionBlock> currentQ = queueSource.get(q.getData());
+                byte[] queueHash = q.getData();
+                long length = getQueueLength(queueHash);
 
                 // delete imported blocks
-                for (AionBlock b : blocks.get(q)) {
-                    // delete index
-                    indexSource.deleteInBatch(b.getHash());
-                    currentQ.remove(b);
+                Set<ByteArrayWrapper> imported = new HashSet<>();
+                List<AionBlock> importedBlocks = blocks.get(q);
+                if (importedBlocks != null) {
+                    for (AionBlock b : importedBlocks) {
+                        // delete index
+                        indexSource.deleteInBatch(b.getHash());
+                        imported.add(ByteArrayWrapper.wrap(b.getHash()));
+                    }
                 }
 
-                // delete queue
-                queueSource.deleteInBatch(q.getData());
+                // delete queue, keeping the blocks that were not imported
+                // (e.g. appended since the import read) wherever they are in the queue
+                List<AionBlock> remaining = new ArrayList<>();
+                for (long i = 0; i < length; i++) {
+                    byte[] key = queueBlockKey(queueHash, i);
+                    Optional<byte[]> data = queueBlockDatabase.get(key);
+                    if (data.isPresent()) {
+                        AionBlock b = new AionBlock(data.get());
+                        if (!imported.contains(ByteArrayWrapper.wrap(b.getHash()))) {
+                            remaining.add(b);
+                        }
+                    }
+                    queueBlockDatabase.deleteInBatch(key);
+                }
+                queueDatabase.deleteInBatch(queueHash);
+
+                // store the remaining blocks as new queues, one for each continuous range
+                int from = 0;
+                while (from < remaining.size()) {
+                    int to = from + 1;
+                    while (to < remaining.size()
+                            && Arrays.equals(
+                                    remaining.get(to).getParentHash(),
+                                    remaining.get(to - 1).getHash())) {
+                        to++;
+                    }
 
-                // the queue has been updated since the import read
-                if (!currentQ.isEmpty()) {
                     // get first block in remaining queue
-                    AionBlock first = currentQ.get(0);
+                    AionBlock first = remaining.get(from);
 
                     // update queue hash to first remaining element
                     byte[] currentQueueHash = first.getHash();
 
-                    // put in queue database
-                    queueSource.putToBatch(currentQueueHash, currentQ);
-
-                    // update block index
-                    for (AionBlock b : currentQ) {
+                    // put in queue database and update block index
+                    for (int i = from; i < to; i++) {
+                        AionBlock b = remaining.get(i);
+                        queueBlockDatabase.putToBatch(
+                                queueBlockKey(currentQueueHash, i - from), b.getEncoded());
                         indexSource.putToBatch(b.getHash(), currentQueueHash);
                     }
+                    queueDatabase.putToBatch(currentQueueHash, ByteUtil.longToBytes(to - from));
 
                     // add (to) level
-                    byte[] levelKey = ByteUtil.longToBytes(first.getNumber());
-                    List<byte[]> levelData = levelSource.get(levelKey);
-
+                    byte[] firstLevelKey = ByteUtil.longToBytes(first.getNumber());
+                    levelData = levels.get(ByteArrayWrapper.wrap(firstLevelKey));
                     if (levelData == null) {
-                        levelData = new ArrayList<>();
+                        levelData = levelSource.get(firstLevelKey);
+                        if (levelData == null) {
+                            levelData = new ArrayList<>();
+                        }
+                        levels.put(ByteArrayWrapper.wrap(firstLevelKey), levelData);
                     }
-
                     levelData.add(currentQueueHash);
-                    levelSource.putToBatch(levelKey, levelData);
-                }
-            }
 
-            // update level
-            byte[] levelKey = ByteUtil.longToBytes(level);
-            List<byte[]> levelData = levelSource.get(levelKey);
-
-            if (levelData == null) {
-                LOG.error(
-                        "Corrupt data in PendingBlockStorage. Level (expected to exist) was not found.");
-                // level already missing so nothing to do here
-            } else {
-                List<byte[]> updatedLevelData = new ArrayList<>();
-
-                for (byte[] qHash : levelData) {
-                    if (!queues.contains(ByteArrayWrapper.wrap(qHash))) {
-                        // this queue was not imported
-                        updatedLevelData.add(qHash);
-                    }
+                    from = to;
                 }
+            }
 
-                if (updatedLevelData.isEmpty()) {
+            // update levels
+            for (Map.Entry<ByteArrayWrapper, List<byte[]>> entry : levels.entrySet()) {
+                if (entry.getValue().isEmpty()) {
                     // delete level
-                    levelSource.deleteInBatch(levelKey);
+                    levelSource.deleteInBatch(entry.getKey().getData());
                 } else {
                     // update level
-                    levelSource.putToBatch(levelKey, updatedLevelData);
+                    levelSource.putToBatch(entry.getKey().getData(), entry.getValue());
                 }
             }
 
             // push changed to disk
             indexSource.commitBatch();
-            queueSource.flushBatch();
+            queueBlockDatabase.commitBatch();
+            queueDatabase.commitBatch();
             levelSource.flushBatch();
         } catch (Exception e) {
             LOG.error("Unable to delete used blocks due to: ", e);
@@ -782,7 +936,12 @@ public class PendingBlockStore implements Flushable, Closeable {
         databaseLock.writeLock().lock();
         try {
             levelSource.flush();
-            queueSource.flush();
+            if (!this.queueDatabase.isAutoCommitEnabled()) {
+                this.queueDatabase.commit();
+            }
+            if (!this.queueBlockDatabase.isAutoCommitEnabled()) {
+                this.queueBlockDatabase.commit();
+            }
             if (!this.indexSource.isAutoCommitEnabled()) {
                 this.indexSource.commit();
             }
@@ -806,11 +965,17 @@ public class PendingBlockStore implements Flushable, Closeable {
             }
 
             try {
-                queueSource.close();
+                queueDatabase.close();
             } catch (Exception e) {
                 LOG.error("Not able to close the pending blocks queue database:", e);
             }
 
+            try {
+                queueBlockDatabase.close();
+            } catch (Exception e) {
+                LOG.error("Not able to close the pending blocks queue block database:", e);
+            }
+
             try {
                 indexSource.close();
             } catch (Exception e) {
@@ -1,6 +1,8 @@
 package org.aion.zero.impl.db;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +11,7 @@ import org.aion.log.AionLoggerFactory;
 import org.aion.mcf.config.CfgDb;
 import org.aion.mcf.core.ImportResult;
 import org.aion.mcf.db.IBlockStoreBase;
+import org.aion.mcf.db.TransactionStore;
 import org.aion.zero.impl.AionBlockchainImpl;
 import org.aion.zero.impl.AionGenesis;
 import org.aion.zero.impl.AionHubUtils;
@@ -16,6 +19,9 @@ import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
 import org.apache.commons.lang3.tuple.Pair;
 
 /**
@@ -147,6 +153,114 @@ public class RecoveryUtils {
         repository.close();
     }
 
+    /** Used by the CLI call. */
+    public static void reindexLogs() {
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        cfg.getDb().setHeapCacheEnabled(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "WARN");
+        cfgLog.put("GEN", "INFO");
+
+        AionLoggerFactory.init(cfgLog);
+
+        // get the current blockchain
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+
+        AionBlockStore store = repository.getBlockStore();
+        AionBlock bestBlock = store.getBestBlock();
+        if (bestBlock == null) {
+            System.out.println("Empty database. Nothing to do.");
+            repository.close();
+            return;
+        }
+
+        LogIndex index = repository.getLogIndex();
+        long firstIndexed = index.getFirstIndexedBlock();
+        if (firstIndexed > bestBlock.getNumber()) {
+            // the marker ensures an interrupted run does not report the missing blocks as indexed
+            firstIndexed = bestBlock.getNumber() + 1;
+            index.setFirstIndexedBlock(firstIndexed);
+        }
+
+        if (firstIndexed == 0) {
+            System.out.println("The logs of all the main chain blocks are already indexed.");
+            repository.close();
+            return;
+        }
+
+        System.out.println(
+                "Indexing the logs of main chain blocks #0 to #" + (firstIndexed - 1) + ".");
+
+        TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> txStore =
+                repository.getTransactionStore();
+        long stepSize = 10_000L;
+        boolean fail = false;
+
+        for (long number = 0; number < firstIndexed; number++) {
+            AionBlock block = store.getChainBlockByNumber(number);
+            if (block == null) {
+                System.out.println(
+                        "The main chain block at level "
+                                + number
+                                + " is missing from the database. Cannot continue indexing logs.");
+                fail = true;
+                break;
+            }
+
+            List<AionTxReceipt> receipts = new ArrayList<>();
+            for (AionTransaction tx : block.getTransactionsList()) {
+                AionTxInfo info = findTxInfo(txStore, tx.getTransactionHash(), block.getHash());
+                if (info == null) {
+                    System.out.println(
+                            "The receipts of the main chain block at level "
+                                    + number
+                                    + " are missing from the database. Cannot continue indexing logs.");
+                    fail = true;
+                    break;
+                }
+                receipts.add(info.getReceipt());
+            }
+            if (fail) {
+                break;
+            }
+
+            index.index(number, receipts);
+
+            if (number % stepSize == 0) {
+                System.out.println("Finished indexing blocks up to " + number + ".");
+            }
+        }
+
+        if (fail) {
+            System.out.println("Indexing logs FAILED.");
+        } else {
+            index.setFirstIndexedBlock(0);
+            System.out.println("Indexing logs SUCCESSFUL.");
+        }
+
+        repository.close();
+    }
+
+    private static AionTxInfo findTxInfo(
+            TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> txStore,
+            byte[] txHash,
+            byte[] blockHash) {
+        List<AionTxInfo> infos = txStore.get(txHash);
+        if (infos != null) {
+            for (AionTxInfo info : infos) {
+                if (Arrays.equals(info.getBlockHash(), blockHash)) {
+                    return info;
+                }
+            }
+        }
+        return null;
+    }
+
     /** Used by internal world state recovery method. */
     public static Status revertTo(IAionBlockchain blockchain, long nbBlock) {
         IBlockStoreBase store = blockchain.getBlockStore();
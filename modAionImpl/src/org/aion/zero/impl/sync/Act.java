@@ -26,4 +26,8 @@ public final class Act {
     public static final byte REQUEST_BLOCKS = 12;
 
     public static final byte RESPONSE_BLOCKS = 13;
+
+    public static final byte REQUEST_RECEIPTS = 14;
+
+    public static final byte RESPONSE_RECEIPTS = 15;
 }
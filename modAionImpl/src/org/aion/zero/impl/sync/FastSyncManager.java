@@ -1,56 +1,133 @@
 package org.aion.zero.impl.sync;
 
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.aion.crypto.HashUtil.h256;
 import static org.aion.p2p.V1Constants.BLOCKS_REQUEST_MAXIMUM_BATCH_SIZE;
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+import static org.aion.p2p.V1Constants.RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.interfaces.db.Repository;
 import org.aion.log.AionLoggerFactory;
+import org.aion.crypto.HashUtil;
 import org.aion.log.LogEnum;
+import org.aion.mcf.core.AccountState;
+import org.aion.mcf.trie.TrieImpl;
 import org.aion.mcf.valid.BlockHeaderValidator;
 import org.aion.p2p.INode;
-import org.aion.p2p.impl1.P2pMgr;
+import org.aion.p2p.IP2pMgr;
+import org.aion.types.Address;
 import org.aion.types.ByteArrayWrapper;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.vm.api.interfaces.IExecutionLog;
 import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.db.AionBlockStore;
+import org.aion.zero.impl.db.AionContractDetailsImpl;
+import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.sync.msg.RequestBlocks;
+import org.aion.zero.impl.sync.msg.RequestReceipts;
+import org.aion.zero.impl.sync.msg.RequestTrieData;
 import org.aion.zero.impl.sync.msg.ResponseBlocks;
+import org.aion.zero.impl.sync.msg.ResponseReceipts;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
 import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 
 /**
  * Directs behavior for fast sync functionality.
  *
+ * <p>The trie nodes still required for the world state, contract details and storage at the pivot
+ * block form a frontier that is expanded as nodes are imported. The frontier is persisted in the
+ * fast sync database so that a restarted kernel resumes where it stopped, together with the blocks
+ * whose transaction receipts are still required.
+ *
+ * <p>The contracts are found by walking the accounts of the complete world state. The state trie is
+ * keyed by the hash of the address, so each contract is matched to its address using the contracts
+ * deployed by the imported blocks, the contracts emitting the logs in the imported receipts and
+ * the contracts deployed by other contracts. Contracts that remain unmatched after all the blocks
+ * and receipts were imported are looked up again a bounded number of times, after which fast sync
+ * is abandoned in favour of importing all the blocks from genesis.
+ *
  * @author Alexandra Roatis
  */
 public final class FastSyncManager {
 
+    /** The distance from the best known block of the network at which the pivot is selected. */
+    private static final long PIVOT_DISTANCE = 1024;
+    /** The number of peers asked for the pivot block. */
+    private static final int PIVOT_PEERS = 5;
+    /** The number of peers that must return the same pivot block before it is accepted. */
+    private static final int PIVOT_AGREEMENT = 3;
+    /** The maximum number of trie data requests awaiting a response from a single peer. */
+    private static final int MAX_REQUESTS_PER_PEER = 16;
+    /** Requests not answered within this time are sent again, possibly to a different peer. */
+    private static final long REQUEST_TIMEOUT = 10_000; // 10 sec
+    /** The time between two rounds of outgoing trie data requests. */
+    private static final long REQUEST_INTERVAL = 200;
+    /** The number of times unmatched contracts are looked up before fast sync is abandoned. */
+    private static final int MAX_RESOLVE_ATTEMPTS = 5;
+    /** The time between two lookups of the unmatched contracts. */
+    private static final long RESOLVE_INTERVAL = 60_000; // 1 min
+
+    // keys for the entries of the fast sync database other than the required nodes
+    private static final byte[] PIVOT_KEY = "pivot".getBytes();
+    private static final byte[] COMPLETE_KEY = "complete".getBytes();
+    // prefix of the keys for the blocks whose receipts are required
+    private static final byte[] RECEIPTS_PREFIX = "rc".getBytes();
+    // value stored for required nodes that only need their hash to be verified
+    private static final byte[] HASH_VERIFIED = new byte[] {1};
+
     // TODO: ensure correct behavior when disabled
-    private boolean enabled;
+    private volatile boolean enabled;
     // TODO: ensure correct behavior when complete
     private final AtomicBoolean complete = new AtomicBoolean(false);
     private final AtomicBoolean completeBlocks = new AtomicBoolean(false);
 
     private final AionBlockchainImpl chain;
     private final BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
-    private final P2pMgr p2pMgr;
+    private final IP2pMgr p2pMgr;
+    private final ByteArrayKeyValueDatabase progress;
 
     // TODO: consider adding a FAST_SYNC log as well
     private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
 
-    private AionBlock pivot = null;
+    private volatile AionBlock pivot = null;
+    private long pivotRequestNumber = 0;
+    private long pivotRequestTime = 0;
+    // the peers asked for the pivot that did not respond yet
+    private final Set<Integer> pivotPeers = new HashSet<>();
+    // the peers that responded with each candidate pivot block
+    private final Map<ByteArrayWrapper, Set<Integer>> pivotVotes = new HashMap<>();
+    // the world state at the pivot used to verify contract details
+    private Repository pivotRepository = null;
 
     Map<ByteArrayWrapper, Long> importedBlockHashes =
             Collections.synchronizedMap(new LRUMap<>(4096));
@@ -60,30 +137,211 @@ public final class FastSyncManager {
     BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
     Map<ByteArrayWrapper, BlocksWrapper> receivedBlocks = new HashMap<>();
 
-    private final Map<ByteArrayWrapper, byte[]> importedTrieNodes = new ConcurrentHashMap<>();
+    private final BlockingQueue<TrieNodeWrapper> receivedTrieNodes = new LinkedBlockingQueue<>();
+    private final Map<ByteArrayWrapper, byte[]> importedTrieNodes =
+            Collections.synchronizedMap(new LRUMap<>(4096));
+
+    /**
+     * The trie nodes that are still required, identified by {@link #requestKey(DatabaseType,
+     * byte[])}, with the data needed to verify them: the storage salt for {@link
+     * DatabaseType#STORAGE} nodes and {@link #HASH_VERIFIED} otherwise.
+     */
+    private final Map<ByteArrayWrapper, byte[]> requiredNodes = new HashMap<>();
+
+    private final Map<DatabaseType, Integer> requiredCounts = new EnumMap<>(DatabaseType.class);
+    // required nodes that have not been requested yet
+    private final Deque<ByteArrayWrapper> requestQueue = new ArrayDeque<>();
+    // contract details are requested once the world state used to verify them is complete
+    private final Deque<ByteArrayWrapper> detailsQueue = new ArrayDeque<>();
+    /**
+     * The contracts in the world state of the pivot that were not matched to an address yet,
+     * mapped to the hash of their address. Set once the world state is complete.
+     */
+    private Map<ByteArrayWrapper, AccountState> unresolvedContracts = null;
+    private boolean unresolvedReported = false;
+    private int resolveAttempts = 0;
+    private long resolveTime = 0;
+
+    // blocks with transactions whose receipts are still required, identified by receiptsKey(hash)
+    private final Set<ByteArrayWrapper> requiredReceipts = new HashSet<>();
+    // required receipts that have not been requested yet
+    private final Deque<ByteArrayWrapper> receiptsQueue = new ArrayDeque<>();
+    // requests awaiting a response mapped to the time they were sent
+    private final Map<ByteArrayWrapper, Long> sentRequests = new HashMap<>();
+    // requests awaiting a response from each peer
+    private final Map<Integer, Set<ByteArrayWrapper>> peerRequests = new HashMap<>();
+
+    private ScheduledExecutorService requestScheduler = null;
+    private Thread syncFb = null;
+    private Thread syncIt = null;
+    private Runnable onComplete = null;
 
     public FastSyncManager(
             AionBlockchainImpl chain,
             BlockHeaderValidator<A0BlockHeader> blockHeaderValidator,
-            final P2pMgr p2pMgr) {
+            final IP2pMgr p2pMgr) {
         this.enabled = true;
         this.chain = chain;
         this.blockHeaderValidator = blockHeaderValidator;
         this.p2pMgr = p2pMgr;
+        this.progress = chain.getRepository().getFastSyncDatabase();
+
+        for (DatabaseType type : DatabaseType.values()) {
+            requiredCounts.put(type, 0);
+        }
+        loadProgress();
+    }
+
+    /**
+     * Checks if the given repository contains blocks imported by a fast sync that has not completed
+     * yet, in which case the state of its best block is not available.
+     *
+     * @param repository the repository to be checked
+     * @return {@code true} if a fast sync is in progress, {@code false} otherwise
+     */
+    public static boolean isInProgress(AionRepositoryImpl repository) {
+        ByteArrayKeyValueDatabase db = repository.getFastSyncDatabase();
+        return db.get(PIVOT_KEY).isPresent() && !db.get(COMPLETE_KEY).isPresent();
+    }
+
+    /** Restores the pivot and the required trie nodes recorded by a previous run. */
+    private synchronized void loadProgress() {
+        if (progress.get(COMPLETE_KEY).isPresent()) {
+            complete.set(true);
+            return;
+        }
+
+        Optional<byte[]> encodedPivot = progress.get(PIVOT_KEY);
+        if (!encodedPivot.isPresent()) {
+            if (chain.getBestBlock().getNumber() > 0) {
+                // fast sync only starts from an empty chain
+                complete.set(true);
+            }
+            return;
+        }
+        pivot = new AionBlock(encodedPivot.get());
+
+        Iterator<byte[]> keys = progress.keys();
+        while (keys.hasNext()) {
+            byte[] key = keys.next();
+            if (key.length == HASH_SIZE + 1) {
+                Optional<byte[]> value = progress.get(key);
+                if (value.isPresent()) {
+                    addRequired(ByteArrayWrapper.wrap(key), value.get());
+                }
+            } else if (isReceiptsKey(key)) {
+                ByteArrayWrapper receiptsKey = ByteArrayWrapper.wrap(key);
+                requiredReceipts.add(receiptsKey);
+                receiptsQueue.add(receiptsKey);
+            }
+        }
+
+        log.info(
+                "<fast-sync: resuming with pivot={} state={} details={} storage={} receipts={}>",
+                pivot.getShortDescr(),
+                requiredCounts.get(DatabaseType.STATE),
+                requiredCounts.get(DatabaseType.DETAILS),
+                requiredCounts.get(DatabaseType.STORAGE),
+                requiredReceipts.size());
+    }
+
+    /**
+     * Starts downloading and importing the blocks and the state unless fast sync is already
+     * complete.
+     *
+     * @param onComplete executed once fast sync completes
+     */
+    public synchronized void start(Runnable onComplete) {
+        if (isComplete()) {
+            onComplete.run();
+            return;
+        }
+        this.onComplete = onComplete;
+
+        syncFb = new Thread(new TaskFastImportBlocks(chain, this, log), "sync-fb");
+        syncFb.start();
+        syncIt = new Thread(new TaskImportTrieData(log, chain, receivedTrieNodes, this), "sync-it");
+        syncIt.start();
+
+        requestScheduler =
+                Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "sync-fr"));
+        requestScheduler.scheduleWithFixedDelay(
+                this::sendRequests, REQUEST_INTERVAL, REQUEST_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops all fast sync activity. */
+    public void shutdown() {
+        enabled = false;
+        executors.shutdown();
+        if (requestScheduler != null) {
+            requestScheduler.shutdown();
+        }
+        if (syncFb != null) {
+            syncFb.interrupt();
+        }
+        if (syncIt != null) {
+            syncIt.interrupt();
+        }
+    }
+
+    /** Returns the queue where the trie data received from peers is placed for import. */
+    public BlockingQueue<TrieNodeWrapper> getReceivedTrieNodes() {
+        return receivedTrieNodes;
     }
 
     @VisibleForTesting
-    void setPivot(AionBlock pivot) {
+    synchronized void setPivot(AionBlock pivot) {
         Objects.requireNonNull(pivot);
 
         this.pivot = pivot;
+
+        // the pivot is the first block imported, its ancestors are added by fast import
+        chain.getBlockStore().saveBlock(pivot, BigInteger.ZERO, true);
+        chain.getRepository().commitWriteBatch();
+        progress.put(PIVOT_KEY, pivot.getEncoded());
+        require(DatabaseType.STATE, pivot.getStateRoot(), HASH_VERIFIED);
+        addImportedBlockRequests(pivot);
+
+        log.info("<fast-sync: pivot={}>", pivot.getShortDescr());
     }
 
     public AionBlock getPivot() {
         return pivot;
     }
 
-    // TODO: shutdown pool
+    /**
+     * Requests the pivot block from several peers when it was not selected yet. The block is
+     * accepted once {@link #PIVOT_AGREEMENT} of them respond with the same valid block. Requests
+     * that were not agreed upon within {@link #REQUEST_TIMEOUT} are sent again for a new number.
+     *
+     * @param networkBestBlockNumber the number of the best block known to the network
+     */
+    public synchronized void selectPivot(long networkBestBlockNumber) {
+        if (!enabled || complete.get() || pivot != null) {
+            return;
+        }
+
+        long number = networkBestBlockNumber - PIVOT_DISTANCE;
+        long now = System.currentTimeMillis();
+        if (number > 0 && now - pivotRequestTime > REQUEST_TIMEOUT) {
+            List<INode> peers = new ArrayList<>(p2pMgr.getActiveNodes().values());
+            if (peers.size() < PIVOT_AGREEMENT) {
+                // a single peer could provide a block from a chain of its own
+                return;
+            }
+            Collections.shuffle(peers);
+
+            pivotRequestNumber = number;
+            pivotRequestTime = now;
+            pivotPeers.clear();
+            pivotVotes.clear();
+            for (INode peer : peers.subList(0, Math.min(PIVOT_PEERS, peers.size()))) {
+                pivotPeers.add(peer.getIdHash());
+                p2pMgr.send(peer.getIdHash(), peer.getIdShort(), new RequestBlocks(number, 1, false));
+            }
+        }
+    }
+
     ExecutorService executors =
             Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
@@ -94,17 +352,79 @@ public final class FastSyncManager {
     }
 
     public boolean containsExact(ByteArrayWrapper key, byte[] value) {
-        return enabled
-                && importedTrieNodes.containsKey(key)
-                && Arrays.equals(importedTrieNodes.get(key), value);
+        return enabled && Arrays.equals(importedTrieNodes.get(key), value);
     }
 
-    /** Changes the pivot in case of import failure. */
-    public void handleFailedImport(
+    /**
+     * Checks that a received trie node matches the key it is stored under. State and storage
+     * nodes must hash to their key, while contract details must match the code and storage root of
+     * the account in the world state of the pivot block.
+     *
+     * @param key the key of the received node
+     * @param value the value of the received node
+     * @param dbType the database where the node is to be stored
+     * @return {@code true} if the node can be imported, {@code false} otherwise
+     */
+    public boolean isValidNode(ByteArrayWrapper key, byte[] value, DatabaseType dbType) {
+        switch (dbType) {
+            case STATE:
+                return Arrays.equals(h256(value), key.getData());
+            case STORAGE:
+                byte[] salt;
+                synchronized (this) {
+                    salt = requiredNodes.get(requestKey(dbType, key.getData()));
+                }
+                // the salt is known only for requested storage nodes
+                return salt != null
+                        && Arrays.equals(
+                                ByteUtil.xorAlignRight(h256(value), salt), key.getData());
+            case DETAILS:
+                return isValidDetails(key, value);
+            default:
+                return false;
+        }
+    }
+
+    private boolean isValidDetails(ByteArrayWrapper key, byte[] value) {
+        Repository state;
+        synchronized (this) {
+            if (!requiredNodes.containsKey(requestKey(DatabaseType.DETAILS, key.getData()))
+                    || pivotRepository == null) {
+                return false;
+            }
+            state = pivotRepository;
+        }
+
+        try {
+            AionContractDetailsImpl details = new AionContractDetailsImpl();
+            details.decode(value);
+            if (!Arrays.equals(details.getAddress().toBytes(), key.getData())) {
+                return false;
+            }
+
+            AccountState account = (AccountState) state.getAccountState(details.getAddress());
+            return account != null
+                    && Arrays.equals(details.getStorageHash(), account.getStateRoot())
+                    && details.getCode(account.getCodeHash()).length > 0;
+        } catch (RuntimeException e) {
+            log.debug("<fast-sync: invalid details for key={}>", key, e);
+            return false;
+        }
+    }
+
+    /** Releases the request so that the node is requested again from a different peer. */
+    public synchronized void handleFailedImport(
             ByteArrayWrapper key, byte[] value, DatabaseType dbType, int peerId, String peer) {
         if (enabled) {
+            ByteArrayWrapper requestKey = requestKey(dbType, key.getData());
+            Set<ByteArrayWrapper> pending = peerRequests.get(peerId);
+            if (pending != null) {
+                pending.remove(requestKey);
+            }
+            if (sentRequests.remove(requestKey) != null && requiredNodes.containsKey(requestKey)) {
+                requestQueue.addFirst(requestKey);
+            }
             // TODO: received incorrect or inconsistent state: change pivot??
-            // TODO: consider case where someone purposely sends incorrect values
             // TODO: decide on how far back to move the pivot
         }
     }
@@ -124,7 +444,7 @@ public final class FastSyncManager {
      *
      * @implNote Expensive functionality which should not be called frequently.
      */
-    private void ensureCompleteness() {
+    private synchronized void ensureCompleteness() {
         // already complete, do nothing
         if (isComplete()) {
             return;
@@ -158,7 +478,30 @@ public final class FastSyncManager {
         }
 
         // everything is complete
+        AionRepositoryImpl repository = chain.getRepository();
+        repository.setRoot(pivot.getStateRoot());
+        repository.flush();
+
+        AionBlock best = chain.getBlockStore().getBlockByHash(pivot.getHash());
+        best.setCumulativeDifficulty(
+                chain.getBlockStore().getTotalDifficultyForHash(pivot.getHash()));
+        chain.setBestBlock(best);
+        chain.setTotalDifficulty(best.getCumulativeDifficulty());
+
+        // the receipts of all the blocks up to the pivot were indexed
+        chain.getLogIndex().setFirstIndexedBlock(0L);
+        repository.commitWriteBatch();
+
+        progress.put(COMPLETE_KEY, HASH_VERIFIED);
         complete.set(true);
+        if (requestScheduler != null) {
+            requestScheduler.shutdown();
+        }
+        log.info("<fast-sync: complete at pivot={}>", pivot.getShortDescr());
+
+        if (onComplete != null) {
+            onComplete.run();
+        }
     }
 
     public boolean isCompleteBlockData() {
@@ -182,6 +525,7 @@ public final class FastSyncManager {
             // walk through the chain to update the total difficulty
             chain.getBlockStore().pruneAndCorrect();
             chain.getBlockStore().flush();
+            chain.getRepository().commitWriteBatch();
 
             completeBlocks.set(true);
             return true;
@@ -189,38 +533,514 @@ public final class FastSyncManager {
     }
 
     private boolean isCompleteReceiptData() {
-        // TODO: integrated implementation from separate branch
-        return false;
+        // receipts are required for the imported blocks, so all the blocks must be present
+        return completeBlocks.get() && requiredReceipts.isEmpty();
     }
 
     private boolean isCompleteWorldState() {
-        // TODO: implement
-        return false;
+        return pivot != null
+                && requiredCounts.get(DatabaseType.STATE) == 0
+                && chain.getTrieNode(pivot.getStateRoot(), DatabaseType.STATE) != null;
     }
 
     private boolean isCompleteContractDetails() {
-        // TODO: implement
-        return false;
+        if (unresolvedContracts == null) {
+            // the contracts are not known before the world state is complete
+            return false;
+        }
+
+        if (!unresolvedContracts.isEmpty()) {
+            // all the blocks and receipts were imported, so no other addresses will be found
+            long now = System.currentTimeMillis();
+            if (!unresolvedReported) {
+                log.warn(
+                        "<fast-sync: {} contracts in the world state of pivot={} were not"
+                                + " matched to an address by the imported blocks>",
+                        unresolvedContracts.size(),
+                        pivot.getShortDescr());
+                unresolvedReported = true;
+                resolveTime = now;
+            } else if (now - resolveTime > RESOLVE_INTERVAL) {
+                resolveTime = now;
+                if (resolveAttempts < MAX_RESOLVE_ATTEMPTS) {
+                    resolveAttempts++;
+                    resolveStoredContracts();
+                    log.info(
+                            "<fast-sync: {} contracts unmatched after attempt {} of {}>",
+                            unresolvedContracts.size(),
+                            resolveAttempts,
+                            MAX_RESOLVE_ATTEMPTS);
+                } else {
+                    fallBackToFullSync();
+                }
+            }
+            return false;
+        }
+
+        return requiredCounts.get(DatabaseType.DETAILS) == 0 && detailsQueue.isEmpty();
     }
 
     private boolean isCompleteStorage() {
-        // TODO: implement
-        return false;
+        return requiredCounts.get(DatabaseType.STORAGE) == 0;
     }
 
-    public void updateRequests(
+    /**
+     * Expands the set of required trie nodes with the nodes referenced by the imported ones and
+     * checks for completeness when none remain.
+     *
+     * @param topmostKey the key of the requested node
+     * @param referencedKeys the keys of the nodes received together with the requested node
+     * @param dbType the database where the nodes were imported
+     */
+    public synchronized void updateRequests(
             ByteArrayWrapper topmostKey,
             Set<ByteArrayWrapper> referencedKeys,
             DatabaseType dbType) {
         if (enabled) {
-            // TODO: check what's still missing and send out requests
-            // TODO: send state request to multiple peers
+            processImported(topmostKey, dbType);
+
+            // referenced nodes become required only after their parent was processed
+            Set<ByteArrayWrapper> remaining = new HashSet<>(referencedKeys);
+            boolean updated = true;
+            while (updated) {
+                updated = remaining.removeIf(key -> processImported(key, dbType));
+            }
+
+            if (requiredNodes.isEmpty() && detailsQueue.isEmpty() && requiredReceipts.isEmpty()) {
+                ensureCompleteness();
+            }
+        }
+    }
+
+    /**
+     * Adds the nodes referenced by an imported node to the required ones and removes the imported
+     * node from them.
+     *
+     * @return {@code true} if the node was required, {@code false} otherwise
+     */
+    private boolean processImported(ByteArrayWrapper key, DatabaseType dbType) {
+        ByteArrayWrapper requestKey = requestKey(dbType, key.getData());
+        byte[] verification = requiredNodes.get(requestKey);
+        if (verification == null) {
+            return false;
+        }
+
+        byte[] value = chain.getTrieNode(key.getData(), dbType);
+        if (value == null) {
+            return false;
+        }
+
+        try {
+            switch (dbType) {
+                case STATE:
+                    for (byte[] hash : TrieImpl.getReferencedHashes(value)) {
+                        require(DatabaseType.STATE, hash, HASH_VERIFIED);
+                    }
+                    break;
+                case STORAGE:
+                    // the referenced nodes belong to the same contract and use the same salt
+                    for (byte[] hash : TrieImpl.getReferencedHashes(value)) {
+                        require(
+                                DatabaseType.STORAGE,
+                                ByteUtil.xorAlignRight(hash, verification),
+                                verification);
+                    }
+                    break;
+                case DETAILS:
+                    AionContractDetailsImpl details = new AionContractDetailsImpl();
+                    details.decode(value);
+                    byte[] root = details.getStorageHash();
+                    if (details.externalStorage && !Arrays.equals(root, EMPTY_TRIE_HASH)) {
+                        byte[] salt =
+                                AionContractDetailsImpl.getExternalStorageSalt(
+                                        details.getAddress());
+                        require(DatabaseType.STORAGE, ByteUtil.xorAlignRight(root, salt), salt);
+                    }
+                    break;
+            }
+        } catch (RuntimeException e) {
+            log.error("<fast-sync: unable to decode key={} db={}>", key, dbType, e);
+        }
+
+        removeRequired(requestKey);
+        return true;
+    }
+
+    /**
+     * Schedules the download of the transaction receipts of a block imported by fast sync and of
+     * the contract details for the contracts deployed by its transactions.
+     *
+     * @param block a block imported by fast sync
+     */
+    public synchronized void addImportedBlockRequests(AionBlock block) {
+        if (enabled && !block.getTransactionsList().isEmpty()) {
+            ByteArrayWrapper receiptsKey = receiptsKey(block.getHash());
+            if (requiredReceipts.add(receiptsKey)) {
+                progress.put(receiptsKey.getData(), HASH_VERIFIED);
+                receiptsQueue.add(receiptsKey);
+            }
+
+            for (AionTransaction tx : block.getTransactionsList()) {
+                if (tx.isContractCreationTransaction()) {
+                    addContract(tx.getContractAddress());
+                }
+            }
+        }
+    }
+
+    /**
+     * Abandons fast sync when the contract details at the pivot cannot be completed and imports
+     * all the blocks from genesis instead. The blocks imported by fast sync are removed, while the
+     * trie nodes already downloaded remain stored.
+     */
+    private void fallBackToFullSync() {
+        log.error(
+                "<fast-sync: abandoned at pivot={} with {} unmatched contracts, importing all"
+                        + " blocks from genesis>",
+                pivot.getShortDescr(),
+                unresolvedContracts.size());
+
+        AionBlockStore store = chain.getBlockStore();
+        store.revert(0L);
+        store.flush();
+
+        AionBlock genesis = store.getChainBlockByNumber(0L);
+        genesis.setCumulativeDifficulty(store.getTotalDifficultyForHash(genesis.getHash()));
+        AionRepositoryImpl repository = chain.getRepository();
+        repository.setRoot(genesis.getStateRoot());
+        repository.flush();
+        chain.setBestBlock(genesis);
+        chain.setTotalDifficulty(genesis.getCumulativeDifficulty());
+        repository.commitWriteBatch();
+
+        // fast sync is not resumed after a restart
+        progress.put(COMPLETE_KEY, HASH_VERIFIED);
+        complete.set(true);
+        if (requestScheduler != null) {
+            requestScheduler.shutdown();
+        }
+
+        if (onComplete != null) {
+            onComplete.run();
+        }
+    }
+
+    /**
+     * Requires the details of a possible contract. Before the world state is complete, the
+     * address is kept until it can be checked against the world state.
+     */
+    private void addContract(Address address) {
+        if (unresolvedContracts == null) {
+            require(DatabaseType.DETAILS, address.toBytes(), HASH_VERIFIED);
+        } else {
+            resolveContracts(address);
+        }
+    }
+
+    /**
+     * Matches the given address and the addresses of the contracts it deployed to the contracts
+     * in the world state and requires their details.
+     */
+    private void resolveContracts(Address address) {
+        Deque<Address> candidates = new ArrayDeque<>();
+        candidates.add(address);
+
+        Address candidate;
+        while ((candidate = candidates.poll()) != null) {
+            AccountState account =
+                    unresolvedContracts.remove(ByteArrayWrapper.wrap(h256(candidate.toBytes())));
+            if (account != null) {
+                require(DatabaseType.DETAILS, candidate.toBytes(), HASH_VERIFIED);
+
+                // each contract deployed by this contract incremented its nonce
+                byte[] creator = candidate.toBytes();
+                BigInteger nonce = account.getNonce();
+                for (BigInteger n = BigInteger.ZERO;
+                        n.compareTo(nonce) < 0;
+                        n = n.add(BigInteger.ONE)) {
+                    candidates.add(Address.wrap(HashUtil.calcNewAddr(creator, n.toByteArray())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the accounts of the complete world state of the pivot to find all the contracts and
+     * matches them to the addresses known so far: the contracts deployed by the imported blocks and
+     * the ones whose details are already stored.
+     */
+    private void discoverContracts() {
+        long start = System.currentTimeMillis();
+        pivotRepository = chain.getRepository().getSnapshotTo(pivot.getStateRoot());
+
+        Map<ByteArrayWrapper, AccountState> contracts = new HashMap<>();
+        chain.getRepository()
+                .getWorldState()
+                .scanLeaves(
+                        pivot.getStateRoot(),
+                        (hashedAddress, encoded) -> {
+                            AccountState account = new AccountState(encoded);
+                            if (!Arrays.equals(account.getCodeHash(), EMPTY_DATA_HASH)) {
+                                contracts.put(ByteArrayWrapper.wrap(hashedAddress), account);
+                            }
+                        });
+        int total = contracts.size();
+        unresolvedContracts = contracts;
 
-            // TODO: check for completeness when no requests remain
-            ensureCompleteness();
+        List<Address> known = new ArrayList<>();
+        ByteArrayWrapper requestKey;
+        while ((requestKey = detailsQueue.poll()) != null) {
+            // required again below if it is a contract, e.g. not a failed deployment
+            removeRequired(requestKey);
+            known.add(Address.wrap(nodeKeyOf(requestKey)));
+        }
+        for (Address address : known) {
+            resolveContracts(address);
+        }
+        resolveStoredContracts();
+
+        log.info(
+                "<fast-sync: found {} contracts with {} unmatched at pivot={} in {} ms>",
+                total,
+                unresolvedContracts.size(),
+                pivot.getShortDescr(),
+                System.currentTimeMillis() - start);
+    }
+
+    /** Matches the unresolved contracts to the addresses whose details are already stored. */
+    private void resolveStoredContracts() {
+        Iterator<byte[]> stored = chain.getRepository().getDetailsDatabase().keys();
+        while (stored.hasNext()) {
+            byte[] key = stored.next();
+            if (key.length == Address.SIZE) {
+                resolveContracts(Address.wrap(key));
+            }
+        }
+    }
+
+    /** Adds a node to the required ones unless it is already stored. */
+    private void require(DatabaseType dbType, byte[] key, byte[] verification) {
+        ByteArrayWrapper requestKey = requestKey(dbType, key);
+        if (!requiredNodes.containsKey(requestKey) && chain.getTrieNode(key, dbType) == null) {
+            progress.put(requestKey.getData(), verification);
+            addRequired(requestKey, verification);
+        }
+    }
+
+    private void addRequired(ByteArrayWrapper requestKey, byte[] verification) {
+        DatabaseType dbType = typeOf(requestKey);
+        requiredNodes.put(requestKey, verification);
+        requiredCounts.merge(dbType, 1, Integer::sum);
+        if (dbType == DatabaseType.DETAILS && unresolvedContracts == null) {
+            detailsQueue.add(requestKey);
+        } else {
+            requestQueue.add(requestKey);
+        }
+    }
+
+    private void removeRequired(ByteArrayWrapper requestKey) {
+        if (requiredNodes.remove(requestKey) != null) {
+            progress.delete(requestKey.getData());
+            requiredCounts.merge(typeOf(requestKey), -1, Integer::sum);
+        }
+        sentRequests.remove(requestKey);
+        for (Set<ByteArrayWrapper> pending : peerRequests.values()) {
+            pending.remove(requestKey);
         }
     }
 
+    /**
+     * Sends requests for the required trie nodes and receipts to the active peers, keeping at most
+     * {@link #MAX_REQUESTS_PER_PEER} trie data requests awaiting a response from each peer.
+     * Requests that timed out are sent again.
+     */
+    private synchronized void sendRequests() {
+        if (isComplete() || pivot == null) {
+            return;
+        }
+
+        try {
+            // the contract details are verified against the complete world state
+            if (unresolvedContracts == null && isCompleteWorldState()) {
+                discoverContracts();
+            }
+
+            if (requiredNodes.isEmpty() && detailsQueue.isEmpty() && requiredReceipts.isEmpty()) {
+                // the state may be complete before the blocks
+                ensureCompleteness();
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            // release timed out requests
+            Iterator<Map.Entry<ByteArrayWrapper, Long>> it = sentRequests.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ByteArrayWrapper, Long> entry = it.next();
+                if (now - entry.getValue() > REQUEST_TIMEOUT) {
+                    it.remove();
+                    if (requiredNodes.containsKey(entry.getKey())) {
+                        requestQueue.add(entry.getKey());
+                    } else if (requiredReceipts.contains(entry.getKey())) {
+                        receiptsQueue.add(entry.getKey());
+                    }
+                }
+            }
+            for (Set<ByteArrayWrapper> pending : peerRequests.values()) {
+                pending.retainAll(sentRequests.keySet());
+            }
+
+            Map<Integer, INode> activeNodes = p2pMgr.getActiveNodes();
+            peerRequests.keySet().retainAll(activeNodes.keySet());
+            List<INode> peers = new ArrayList<>(activeNodes.values());
+            Collections.shuffle(peers);
+
+            sendTrieDataRequests(peers, now);
+            sendReceiptsRequests(peers, now);
+        } catch (RuntimeException e) {
+            log.error("<fast-sync: failed to send trie data requests>", e);
+        }
+    }
+
+    private void sendTrieDataRequests(List<INode> peers, long now) {
+        for (INode peer : peers) {
+            Set<ByteArrayWrapper> pending =
+                    peerRequests.computeIfAbsent(peer.getIdHash(), id -> new HashSet<>());
+            while (pending.size() < MAX_REQUESTS_PER_PEER) {
+                ByteArrayWrapper requestKey = requestQueue.poll();
+                if (requestKey == null) {
+                    return;
+                }
+                if (!requiredNodes.containsKey(requestKey)
+                        || sentRequests.containsKey(requestKey)) {
+                    continue;
+                }
+
+                DatabaseType dbType = typeOf(requestKey);
+                // state nodes are requested with the subtrie available at the peer, while the
+                // keys of the other types do not determine the keys of the referenced nodes
+                int limit = dbType == DatabaseType.STATE ? 0 : 1;
+                p2pMgr.send(
+                        peer.getIdHash(),
+                        peer.getIdShort(),
+                        new RequestTrieData(nodeKeyOf(requestKey), dbType, limit));
+                pending.add(requestKey);
+                sentRequests.put(requestKey, now);
+            }
+        }
+    }
+
+    /** Sends at most one request for a batch of receipts to each peer. */
+    private void sendReceiptsRequests(List<INode> peers, long now) {
+        for (INode peer : peers) {
+            List<byte[]> hashes = new ArrayList<>();
+            while (hashes.size() < RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE) {
+                ByteArrayWrapper receiptsKey = receiptsQueue.poll();
+                if (receiptsKey == null) {
+                    break;
+                }
+                if (requiredReceipts.contains(receiptsKey)
+                        && !sentRequests.containsKey(receiptsKey)) {
+                    hashes.add(blockHashOf(receiptsKey));
+                    sentRequests.put(receiptsKey, now);
+                }
+            }
+
+            if (hashes.isEmpty()) {
+                return;
+            }
+            p2pMgr.send(peer.getIdHash(), peer.getIdShort(), new RequestReceipts(hashes));
+        }
+    }
+
+    /**
+     * Stores the receipts received for blocks imported by fast sync after checking them against
+     * the block headers. Receipts that fail the checks are requested again.
+     *
+     * @param peerId the numerical identifier of the peer who sent the response
+     * @param response the response with receipts to be processed
+     */
+    public void validateAndAddReceipts(int peerId, ResponseReceipts response) {
+        for (Map.Entry<ByteArrayWrapper, List<AionTxReceipt>> entry :
+                response.getReceipts().entrySet()) {
+            ByteArrayWrapper receiptsKey = receiptsKey(entry.getKey().getData());
+            synchronized (this) {
+                if (!enabled || !requiredReceipts.contains(receiptsKey)) {
+                    continue;
+                }
+            }
+
+            // the chain is not accessed while holding the lock of the manager
+            AionBlock block = chain.getBlockStore().getBlockByHash(entry.getKey().getData());
+            boolean stored = block != null && chain.storeFastSyncReceipts(block, entry.getValue());
+
+            synchronized (this) {
+                if (stored) {
+                    if (requiredReceipts.remove(receiptsKey)) {
+                        progress.delete(receiptsKey.getData());
+                        addLogContracts(entry.getValue());
+                    }
+                    sentRequests.remove(receiptsKey);
+                } else if (sentRequests.remove(receiptsKey) != null
+                        && requiredReceipts.contains(receiptsKey)) {
+                    log.debug(
+                            "<fast-sync: invalid receipts for block={} from peer={}>",
+                            entry.getKey(),
+                            peerId);
+                    receiptsQueue.addFirst(receiptsKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Requires the details of the contracts that emitted the logs in the given receipts, which
+     * include contracts deployed by other contracts.
+     */
+    private void addLogContracts(List<AionTxReceipt> receipts) {
+        Set<Address> addresses = new HashSet<>();
+        for (AionTxReceipt receipt : receipts) {
+            for (IExecutionLog executionLog : receipt.getLogInfoList()) {
+                addresses.add(executionLog.getSourceAddress());
+            }
+        }
+        for (Address address : addresses) {
+            addContract(address);
+        }
+    }
+
+    private static ByteArrayWrapper receiptsKey(byte[] blockHash) {
+        byte[] receiptsKey = new byte[RECEIPTS_PREFIX.length + blockHash.length];
+        System.arraycopy(RECEIPTS_PREFIX, 0, receiptsKey, 0, RECEIPTS_PREFIX.length);
+        System.arraycopy(blockHash, 0, receiptsKey, RECEIPTS_PREFIX.length, blockHash.length);
+        return ByteArrayWrapper.wrap(receiptsKey);
+    }
+
+    private static boolean isReceiptsKey(byte[] key) {
+        return key.length == RECEIPTS_PREFIX.length + HASH_SIZE
+                && Arrays.equals(Arrays.copyOf(key, RECEIPTS_PREFIX.length), RECEIPTS_PREFIX);
+    }
+
+    private static byte[] blockHashOf(ByteArrayWrapper receiptsKey) {
+        return Arrays.copyOfRange(
+                receiptsKey.getData(), RECEIPTS_PREFIX.length, receiptsKey.getData().length);
+    }
+
+    private static ByteArrayWrapper requestKey(DatabaseType dbType, byte[] key) {
+        byte[] requestKey = new byte[key.length + 1];
+        requestKey[0] = (byte) dbType.ordinal();
+        System.arraycopy(key, 0, requestKey, 1, key.length);
+        return ByteArrayWrapper.wrap(requestKey);
+    }
+
+    private static DatabaseType typeOf(ByteArrayWrapper requestKey) {
+        return DatabaseType.values()[requestKey.getData()[0]];
+    }
+
+    private static byte[] nodeKeyOf(ByteArrayWrapper requestKey) {
+        return Arrays.copyOfRange(requestKey.getData(), 1, requestKey.getData().length);
+    }
+
     /**
      * Processes a block response by checking the proof-of-work. Adds valid blocks to the import
      * queue.
@@ -230,7 +1050,9 @@ public final class FastSyncManager {
      * @param response the response with blocks to be processed
      */
     public void validateAndAddBlocks(int peerId, String displayId, ResponseBlocks response) {
-        if (!executors.isShutdown()) {
+        if (pivot == null) {
+            acceptPivot(peerId, displayId, response);
+        } else if (!executors.isShutdown()) {
             executors.submit(
                     new TaskValidateAndAddBlocks(
                             peerId,
@@ -244,6 +1066,31 @@ public final class FastSyncManager {
         }
     }
 
+    /**
+     * Records the block returned by a peer asked for the pivot and sets the pivot once enough
+     * peers returned the same valid block.
+     */
+    private synchronized void acceptPivot(int peerId, String displayId, ResponseBlocks response) {
+        // each peer asked for the pivot has one vote
+        if (pivot != null || !pivotPeers.remove(peerId) || response.getBlocks().size() != 1) {
+            return;
+        }
+
+        AionBlock block = response.getBlocks().get(0);
+        if (block.getNumber() == pivotRequestNumber
+                && blockHeaderValidator.validate(block.getHeader(), log)) {
+            Set<Integer> votes =
+                    pivotVotes.computeIfAbsent(block.getHashWrapper(), k -> new HashSet<>());
+            votes.add(peerId);
+            if (votes.size() >= PIVOT_AGREEMENT) {
+                pivotVotes.clear();
+                setPivot(block);
+            }
+        } else {
+            log.debug("<fast-sync: rejected pivot={} peer={}>", block.getShortDescr(), displayId);
+        }
+    }
+
     public void addToImportedBlocks(ByteArrayWrapper hash) {
         this.importedBlockHashes.put(hash, null); // TODO: is there something useful I can add?
         this.receivedBlockHashes.remove(hash);
@@ -309,6 +1156,9 @@ public final class FastSyncManager {
         // TODO: improve peer selection
         // TODO: request that level plus further blocks
         INode peer = p2pMgr.getRandom();
+        if (peer == null) {
+            return;
+        }
         p2pMgr.send(peer.getIdHash(), peer.getIdShort(), request);
 
         // send an extra request ahead of time
@@ -82,6 +82,8 @@ public final class SyncMgr {
     private Thread syncSs = null;
 
     private BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
+    // null when fast sync is disabled
+    private FastSyncManager fastSyncMgr = null;
     private volatile long timeUpdated = 0;
     private AtomicBoolean queueFull = new AtomicBoolean(false);
 
@@ -109,8 +111,11 @@ public final class SyncMgr {
         // self
         BigInteger selfTd = this.chain.getTotalDifficulty();
 
-        // trigger send headers routine immediately
-        if (_remoteTotalDiff.compareTo(selfTd) > 0) {
+        if (fastSyncMgr != null && !fastSyncMgr.isComplete()) {
+            // the blocks are imported by fast sync up to its pivot
+            fastSyncMgr.selectPivot(getNetworkBestBlockNumber());
+        } else if (_remoteTotalDiff.compareTo(selfTd) > 0) {
+            // trigger send headers routine immediately
             this.getHeaders(selfTd);
         }
 
@@ -170,10 +175,12 @@ public final class SyncMgr {
             final Set<StatsType> showStatistics,
             final int _slowImportTime,
             final int _compactFrequency,
-            final int maxActivePeers) {
+            final int maxActivePeers,
+            final FastSyncManager _fastSyncMgr) {
         p2pMgr = _p2pMgr;
         chain = _chain;
         evtMgr = _evtMgr;
+        fastSyncMgr = _fastSyncMgr;
 
         blocksQueueMax = _blocksQueueMax;
 
@@ -207,7 +214,12 @@ public final class SyncMgr {
                                 _slowImportTime,
                                 _compactFrequency),
                         "sync-ib");
-        syncIb.start();
+        if (fastSyncMgr == null) {
+            syncIb.start();
+        } else {
+            // blocks are imported normally once the state at the pivot is available
+            fastSyncMgr.start(syncIb::start);
+        }
         syncGs = new Thread(new TaskGetStatus(start, p2pMgr, stats, log), "sync-gs");
         syncGs.start();
 
@@ -376,6 +388,9 @@ public final class SyncMgr {
     public synchronized void shutdown() {
         start.set(false);
         workers.shutdown();
+        if (fastSyncMgr != null) {
+            fastSyncMgr.shutdown();
+        }
 
         interruptAndWait(syncGb, 10000);
         interruptAndWait(syncIb, 10000);
@@ -111,6 +111,7 @@ final class TaskFastImportBlocks implements Runnable {
                             if (importResult.isSuccessful()) {
                                 lastImported = b;
                                 fastSyncMgr.addToImportedBlocks(b.getHashWrapper());
+                                fastSyncMgr.addImportedBlockRequests(b);
                             } else if (importResult.isKnown()) {
                                 lastImported = null; // to not update required incorrectly below
 
@@ -247,6 +247,9 @@ final class TaskImportBlocks implements Runnable {
             }
         }
 
+        // verify the transaction signatures of the whole batch in parallel
+        chain.preVerifyTransactions(batch);
+
         // remembering imported range
         long first = -1L, last = -1L;
         ImportResult importResult;
@@ -672,6 +675,8 @@ final class TaskImportBlocks implements Runnable {
                     continue;
                 }
 
+                chain.preVerifyTransactions(batchFromDisk);
+
                 for (AionBlock b : batchFromDisk) {
                     try {
                         importResult = importBlock(b, "STORAGE", state);
@@ -78,7 +78,10 @@ final class TaskImportTrieData implements Runnable {
                 key = e.getKey();
                 value = e.getValue();
 
-                TrieNodeResult result = chain.importTrieNode(key.getData(), value, dbType);
+                TrieNodeResult result =
+                        fastSyncMgr.isValidNode(key, value, dbType)
+                                ? chain.importTrieNode(key.getData(), value, dbType)
+                                : TrieNodeResult.INVALID_VALUE;
 
                 if (result.isSuccessful()) {
                     fastSyncMgr.addImportedNode(key, value, dbType);
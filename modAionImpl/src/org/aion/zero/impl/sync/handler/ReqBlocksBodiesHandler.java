@@ -86,7 +86,7 @@ public final class ReqBlocksBodiesHandler extends Handler {
 
                     if (block != null) {
                         blockBytesForadd = block.getEncodedBody();
-                        cache.put(ByteArrayWrapper.wrap(hash), block.getEncodedBody());
+                        cache.put(ByteArrayWrapper.wrap(hash), blockBytesForadd);
                     } else {
                         // not found
                         break;
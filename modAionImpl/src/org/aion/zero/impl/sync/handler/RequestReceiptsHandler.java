@@ -0,0 +1,91 @@
+package org.aion.zero.impl.sync.handler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.types.ByteArrayWrapper;
+import org.aion.zero.impl.core.IAionBlockchain;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.RequestReceipts;
+import org.aion.zero.impl.sync.msg.ResponseReceipts;
+import org.aion.zero.types.AionTxReceipt;
+import org.slf4j.Logger;
+
+/** Handler for transaction receipt requests from the network. */
+public final class RequestReceiptsHandler extends Handler {
+
+    private final Logger log;
+
+    private final IAionBlockchain chain;
+
+    private final IP2pMgr p2p;
+
+    /**
+     * Constructor.
+     *
+     * @param log logger for reporting execution information
+     * @param chain the blockchain used by the application
+     * @param p2p peer manager used to submit messages
+     */
+    public RequestReceiptsHandler(
+            final Logger log, final IAionBlockchain chain, final IP2pMgr p2p) {
+        super(Ver.V1, Ctrl.SYNC, Act.REQUEST_RECEIPTS);
+        this.log = log;
+        this.chain = chain;
+        this.p2p = p2p;
+    }
+
+    @Override
+    public void receive(int peerId, String displayId, final byte[] message) {
+        if (message == null || message.length == 0) {
+            this.log.debug("<request-receipts empty message from peer={}>", displayId);
+            return;
+        }
+
+        RequestReceipts request = RequestReceipts.decode(message);
+
+        if (request != null) {
+            if (log.isDebugEnabled()) {
+                this.log.debug(
+                        "<request-receipts blocks={} peer={}>",
+                        request.getBlockHashes().size(),
+                        displayId);
+            }
+
+            // blocks whose receipts are not available are left out of the response
+            Map<ByteArrayWrapper, List<AionTxReceipt>> receipts = new LinkedHashMap<>();
+            try {
+                for (byte[] hash : request.getBlockHashes()) {
+                    List<AionTxReceipt> blockReceipts = chain.getReceipts(hash);
+                    if (blockReceipts != null) {
+                        receipts.put(ByteArrayWrapper.wrap(hash), blockReceipts);
+                    }
+                }
+            } catch (Exception e) {
+                this.log.error("<request-receipts value retrieval failed>", e);
+            }
+
+            if (!receipts.isEmpty()) {
+                // reply to request
+                this.p2p.send(peerId, displayId, new ResponseReceipts(receipts));
+            }
+        } else {
+            this.log.error(
+                    "<request-receipts decode-error msg-bytes={} peer={}>",
+                    message.length,
+                    displayId);
+
+            if (log.isTraceEnabled()) {
+                this.log.trace(
+                        "<request-receipts decode-error for msg={} peer={}>",
+                        Arrays.toString(message),
+                        displayId);
+            }
+        }
+    }
+}
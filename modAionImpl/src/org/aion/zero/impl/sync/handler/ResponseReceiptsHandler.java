@@ -0,0 +1,71 @@
+package org.aion.zero.impl.sync.handler;
+
+import java.util.Arrays;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.FastSyncManager;
+import org.aion.zero.impl.sync.msg.ResponseReceipts;
+import org.slf4j.Logger;
+
+/** Handler for transaction receipt responses from the network. */
+public final class ResponseReceiptsHandler extends Handler {
+
+    private final Logger log;
+
+    private final FastSyncManager fastSyncMgr;
+
+    private final IP2pMgr p2pMgr;
+
+    /**
+     * Constructor.
+     *
+     * @param log logger for reporting execution information
+     * @param fastSyncMgr sync manager that validates and stores the received receipts
+     * @param p2pMgr p2p manager that can check for errors with the peer identifiers
+     */
+    public ResponseReceiptsHandler(
+            final Logger log, final FastSyncManager fastSyncMgr, final IP2pMgr p2pMgr) {
+        super(Ver.V1, Ctrl.SYNC, Act.RESPONSE_RECEIPTS);
+        this.log = log;
+        this.fastSyncMgr = fastSyncMgr;
+        this.p2pMgr = p2pMgr;
+    }
+
+    @Override
+    public void receive(int peerId, String displayId, final byte[] message) {
+        if (message == null || message.length == 0) {
+            p2pMgr.errCheck(peerId, displayId);
+            log.debug("<response-receipts empty message from peer={}>", displayId);
+            return;
+        }
+
+        ResponseReceipts response = ResponseReceipts.decode(message);
+
+        if (response != null) {
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "<response-receipts blocks={} peer={}>",
+                        response.getReceipts().size(),
+                        displayId);
+            }
+
+            fastSyncMgr.validateAndAddReceipts(peerId, response);
+        } else {
+            p2pMgr.errCheck(peerId, displayId);
+            log.error(
+                    "<response-receipts decode-error msg-bytes={} peer={}>",
+                    message.length,
+                    displayId);
+
+            if (log.isTraceEnabled()) {
+                log.trace(
+                        "<response-receipts decode-error for msg={} peer={}>",
+                        Arrays.toString(message),
+                        displayId);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.aion.zero.impl.sync.msg;
+
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+import static org.aion.p2p.V1Constants.RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.util.conversions.Hex;
+import org.aion.zero.impl.sync.Act;
+
+/** Request message for the transaction receipts of a list of blocks. */
+public final class RequestReceipts extends Msg {
+
+    private final List<byte[]> blockHashes;
+
+    /**
+     * Constructor for receipt requests.
+     *
+     * @param blockHashes the hashes of the blocks whose receipts are requested
+     * @throws NullPointerException if the given list or any of its elements is {@code null}
+     * @throws IllegalArgumentException if the list is empty or longer than {@link
+     *     org.aion.p2p.V1Constants#RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE} or one of the hashes does
+     *     not have a valid size
+     */
+    public RequestReceipts(final List<byte[]> blockHashes) {
+        super(Ver.V1, Ctrl.SYNC, Act.REQUEST_RECEIPTS);
+
+        Objects.requireNonNull(blockHashes);
+
+        if (blockHashes.isEmpty() || blockHashes.size() > RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    "The RequestReceipts object must be built with 1 to "
+                            + RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE
+                            + " block hashes.");
+        }
+
+        for (byte[] hash : blockHashes) {
+            Objects.requireNonNull(hash);
+            if (hash.length != HASH_SIZE) {
+                throw new IllegalArgumentException(
+                        "The given value "
+                                + Hex.toHexString(hash)
+                                + " is not a correct block hash.");
+            }
+        }
+
+        this.blockHashes = blockHashes;
+    }
+
+    /**
+     * Decodes a message into a receipts request.
+     *
+     * @param message a {@code byte} array representing a request for receipts
+     * @return the decoded receipts request if valid or {@code null} when the decoding encounters
+     *     invalid input
+     */
+    public static RequestReceipts decode(final byte[] message) {
+        if (message == null || message.length == 0) {
+            return null;
+        } else {
+            RLPList list = RLP.decode2(message);
+            if (list.get(0) instanceof RLPList) {
+                list = (RLPList) list.get(0);
+            } else {
+                return null;
+            }
+
+            if (list.isEmpty() || list.size() > RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE) {
+                return null;
+            }
+
+            List<byte[]> hashes = new ArrayList<>();
+            for (RLPElement encoded : list) {
+                byte[] hash = encoded.getRLPData();
+                if (hash == null || hash.length != HASH_SIZE) {
+                    return null;
+                }
+                hashes.add(hash);
+            }
+            return new RequestReceipts(hashes);
+        }
+    }
+
+    @Override
+    public byte[] encode() {
+        byte[][] toEncode = new byte[blockHashes.size()][];
+        for (int i = 0; i < toEncode.length; i++) {
+            toEncode[i] = RLP.encodeElement(blockHashes.get(i));
+        }
+        return RLP.encodeList(toEncode);
+    }
+
+    /**
+     * Returns the hashes of the blocks whose receipts are requested.
+     *
+     * @return the hashes of the blocks whose receipts are requested
+     */
+    public List<byte[]> getBlockHashes() {
+        return blockHashes;
+    }
+}
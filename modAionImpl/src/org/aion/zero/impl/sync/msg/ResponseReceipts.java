@@ -0,0 +1,116 @@
+package org.aion.zero.impl.sync.msg;
+
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.types.ByteArrayWrapper;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.types.AionTxReceipt;
+
+/** Response message to a request for the transaction receipts of a list of blocks. */
+public final class ResponseReceipts extends Msg {
+
+    private final Map<ByteArrayWrapper, List<AionTxReceipt>> receipts;
+
+    /**
+     * Constructor for receipt responses.
+     *
+     * @param receipts the receipts of each block mapped to the hash of the block, where the
+     *     receipts are in the order of the transactions in the block
+     * @implNote The given receipts are purposefully not deep copied to minimize resource
+     *     instantiation, since they are created to be encoded and transmitted over the network.
+     */
+    public ResponseReceipts(final Map<ByteArrayWrapper, List<AionTxReceipt>> receipts) {
+        super(Ver.V1, Ctrl.SYNC, Act.RESPONSE_RECEIPTS);
+
+        // ensure input is not null
+        Objects.requireNonNull(receipts);
+
+        this.receipts = receipts;
+    }
+
+    /**
+     * Decodes a message into a receipts response.
+     *
+     * @param message a {@code byte} array representing a response to a receipts request
+     * @return the decoded receipts response or {@code null} when the decoding encounters invalid
+     *     input
+     */
+    public static ResponseReceipts decode(final byte[] message) {
+        if (message == null || message.length == 0) {
+            return null;
+        } else {
+            RLPList list = RLP.decode2(message);
+            if (list.get(0) instanceof RLPList) {
+                list = (RLPList) list.get(0);
+            } else {
+                return null;
+            }
+
+            Map<ByteArrayWrapper, List<AionTxReceipt>> receipts = new LinkedHashMap<>();
+            for (RLPElement entry : list) {
+                if (!(entry instanceof RLPList) || ((RLPList) entry).size() != 2) {
+                    return null;
+                }
+
+                byte[] hash = ((RLPList) entry).get(0).getRLPData();
+                RLPElement encodedReceipts = ((RLPList) entry).get(1);
+                if (hash == null
+                        || hash.length != HASH_SIZE
+                        || !(encodedReceipts instanceof RLPList)) {
+                    return null;
+                }
+
+                List<AionTxReceipt> blockReceipts = new ArrayList<>();
+                for (RLPElement encoded : (RLPList) encodedReceipts) {
+                    try { // the receipt decoder does not validate its input
+                        blockReceipts.add(new AionTxReceipt(encoded.getRLPData()));
+                    } catch (Exception e) {
+                        return null;
+                    }
+                }
+                receipts.put(ByteArrayWrapper.wrap(hash), blockReceipts);
+            }
+            return new ResponseReceipts(receipts);
+        }
+    }
+
+    @Override
+    public byte[] encode() {
+        byte[][] toEncode = new byte[receipts.size()][];
+
+        int i = 0;
+        for (Map.Entry<ByteArrayWrapper, List<AionTxReceipt>> entry : receipts.entrySet()) {
+            byte[][] blockReceipts = new byte[entry.getValue().size()][];
+            for (int j = 0; j < blockReceipts.length; j++) {
+                blockReceipts[j] = entry.getValue().get(j).getEncoded();
+            }
+            toEncode[i] =
+                    RLP.encodeList(
+                            RLP.encodeElement(entry.getKey().getData()),
+                            RLP.encodeList(blockReceipts));
+            i++;
+        }
+
+        return RLP.encodeList(toEncode);
+    }
+
+    /**
+     * Returns the receipts of each block mapped to the hash of the block.
+     *
+     * @return the receipts of each block mapped to the hash of the block
+     */
+    public Map<ByteArrayWrapper, List<AionTxReceipt>> getReceipts() {
+        return receipts;
+    }
+}
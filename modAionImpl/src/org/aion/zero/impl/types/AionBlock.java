@@ -10,8 +10,7 @@ import org.aion.mcf.trie.Trie;
 import org.aion.mcf.trie.TrieImpl;
 import org.aion.mcf.types.AbstractBlock;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.types.Address;
 import org.aion.types.ByteArrayWrapper;
 import org.aion.util.bytes.ByteUtil;
@@ -157,16 +156,13 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         synchronized (this) {
             if (this.parsed) return;
 
-            RLPList params = RLP.decode2(rlpEncoded);
-            RLPList block = (RLPList) params.get(0);
+            RLPView block = RLPView.wrap(rlpEncoded);
 
             // Parse Header
-            RLPList header = (RLPList) block.get(0);
-            this.header = new A0BlockHeader(header);
+            this.header = new A0BlockHeader(block.get(0));
 
             // Parse Transactions
-            RLPList txTransactions = (RLPList) block.get(1);
-            this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
+            this.parseTxs(this.header.getTxTrieRoot(), block.get(1));
 
             this.parsed = true;
         }
@@ -392,17 +388,17 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         return toStringBuff.toString();
     }
 
-    private void parseTxs(RLPList txTransactions) {
+    private void parseTxs(RLPView txTransactions) {
 
         this.txsState = new TrieImpl(null);
         for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(new AionTransaction(transactionRaw.getRLPData()));
-            this.txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+            byte[] transactionRaw = txTransactions.get(i).getEncoded();
+            this.transactionsList.add(new AionTransaction(transactionRaw));
+            this.txsState.update(RLP.encodeInt(i), transactionRaw);
         }
     }
 
-    private boolean parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private boolean parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txsState.getRootHash());
@@ -443,13 +439,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
 
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
-            byte[] header = this.header.getEncoded();
-
-            List<byte[]> block = getBodyElements();
-            block.add(0, header);
-            byte[][] elements = block.toArray(new byte[block.size()][]);
-
-            this.rlpEncoded = RLP.encodeList(elements);
+            this.rlpEncoded = encodeBody(this.header.getEncoded());
         }
         return rlpEncoded;
     }
@@ -496,8 +486,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         block.header = header;
         block.parsed = true;
 
-        RLPList items = (RLPList) RLP.decode2(body).get(0);
-        RLPList transactions = (RLPList) items.get(0);
+        RLPView transactions = RLPView.wrap(body).get(0);
 
         if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
             return null;
@@ -507,16 +496,20 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
     }
 
     public static AionBlock fromRLP(byte[] rlpEncoded, boolean isUnsafe) {
-        RLPList params = RLP.decode2(rlpEncoded);
+        RLPView blockRLP;
+        try {
+            blockRLP = RLPView.wrap(rlpEncoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
 
-        // ensuring the expected types list before type casting
-        if (params.get(0) instanceof RLPList) {
-            RLPList blockRLP = (RLPList) params.get(0);
+        // ensuring the expected types list before reading the elements
+        if (blockRLP.isList()) {
 
-            if (blockRLP.get(0) instanceof RLPList && blockRLP.get(1) instanceof RLPList) {
+            if (blockRLP.get(0).isList() && blockRLP.get(1).isList()) {
 
                 // Parse Header
-                RLPList headerRLP = (RLPList) blockRLP.get(0);
+                RLPView headerRLP = blockRLP.get(0);
                 A0BlockHeader header;
                 try {
                     header = A0BlockHeader.fromRLP(headerRLP, isUnsafe);
@@ -532,7 +525,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
                 block.parsed = true;
 
                 // Parse Transactions
-                RLPList transactions = (RLPList) blockRLP.get(1);
+                RLPView transactions = blockRLP.get(1);
                 if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
                     return null;
                 }
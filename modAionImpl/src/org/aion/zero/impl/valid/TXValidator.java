@@ -7,7 +7,6 @@ import java.util.Collections;
 import java.util.Map;
 import org.aion.types.ByteArrayWrapper;
 import org.aion.crypto.ISignature;
-import org.aion.crypto.SignatureFac;
 import org.aion.log.LogEnum;
 import org.aion.mcf.vm.types.DataWordImpl;
 import org.aion.types.Hash256;
@@ -93,11 +92,7 @@ public class TXValidator {
             return false;
         }
 
-        try {
-            return SignatureFac.verify(hash, sig);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return false;
-        }
+        // the verification result is cached by the transaction
+        return tx.isSignatureValid();
     }
 }
@@ -0,0 +1,126 @@
+package org.aion.zero.impl.valid;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.aion.log.LogEnum;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates transactions (including the expensive signature verification) on a dedicated pool of
+ * threads.
+ *
+ * <p>The validation results, the transaction hash and the sender address are cached by the {@link
+ * AionTransaction} objects and by {@link TXValidator}, so verifying the transactions of downloaded
+ * blocks ahead of their import makes the later checks performed while importing the blocks, while
+ * executing the transactions and while updating the pending state cheap.
+ */
+public class TransactionSignatureVerifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogEnum.TX.name());
+
+    /** Below this size, transactions are validated on the calling thread. */
+    private static final int MIN_PARALLEL_SIZE = 2;
+
+    private final ExecutorService executor;
+    private final int threads;
+
+    /**
+     * Creates a verifier that uses the given number of threads.
+     *
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public TransactionSignatureVerifier(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        this.threads = threads;
+        this.executor =
+                Executors.newFixedThreadPool(
+                        threads,
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("tx-verifier-%d")
+                                .setDaemon(true)
+                                .build());
+    }
+
+    /**
+     * Validates the given transactions in parallel.
+     *
+     * @return {@code true} if all the transactions are valid, {@code false} otherwise
+     */
+    public boolean verify(List<AionTransaction> txs) {
+        if (txs.size() < MIN_PARALLEL_SIZE) {
+            return verifyRange(txs);
+        }
+
+        // split into contiguous chunks, one per thread
+        int chunkSize = (txs.size() + threads - 1) / threads;
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int start = 0; start < txs.size(); start += chunkSize) {
+            List<AionTransaction> chunk =
+                    txs.subList(start, Math.min(start + chunkSize, txs.size()));
+            results.add(executor.submit(() -> verifyRange(chunk)));
+        }
+
+        boolean valid = true;
+        for (Future<Boolean> result : results) {
+            try {
+                valid &= result.get();
+            } catch (ExecutionException e) {
+                LOG.error("Transaction verification failed.", e.getCause());
+                valid = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // not verified
+                return false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Validates the transactions of the given blocks ahead of their import. The results are only
+     * cached, the blocks are fully validated when imported.
+     */
+    public void verifyBlocks(List<AionBlock> blocks) {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (AionBlock block : blocks) {
+            txs.addAll(block.getTransactionsList());
+        }
+
+        if (!txs.isEmpty()) {
+            long start = System.nanoTime();
+            verify(txs);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                        "Verified {} transactions from {} blocks in {} ms.",
+                        txs.size(),
+                        blocks.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private static boolean verifyRange(List<AionTransaction> txs) {
+        boolean valid = true;
+        for (AionTransaction tx : txs) {
+            // all transactions are processed to cache the results
+            valid &= TXValidator.isValid(tx) && TransactionTypeValidator.isValid(tx.getTargetVM());
+            tx.getSenderAddress();
+        }
+        return valid;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
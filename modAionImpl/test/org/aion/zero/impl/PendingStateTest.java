@@ -14,6 +14,7 @@ import org.aion.mcf.core.ImportResult;
 import org.aion.mcf.tx.TransactionTypes;
 import org.aion.types.Address;
 import org.aion.vm.VirtualMachineProvider;
+import org.aion.zero.impl.blockchain.AionPendingStateImpl;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
@@ -199,4 +200,65 @@ public class PendingStateTest {
         assertEquals(hub.getPendingState().addPendingTransaction(transaction), TxResponse.SUCCESS);
         VirtualMachineProvider.shutdownAllVirtualMachines();
     }
+
+    @Test
+    public void testProcessBest_carriesForwardUntouchedTransfers() {
+        StandaloneBlockchain.Bundle bundle =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        CfgAion.inst().setGenesis(bc.getGenesis());
+
+        AionHub hub = AionHub.createForTesting(CfgAion.inst(), bc, bc.getRepository());
+        AionPendingStateImpl pendingState = (AionPendingStateImpl) hub.getPendingState();
+
+        ECKey untouched = bundle.privateKeys.get(1);
+        ECKey touched = bundle.privateKeys.get(2);
+        Address untouchedAddress = Address.wrap(untouched.getAddress());
+        Address touchedAddress = Address.wrap(touched.getAddress());
+
+        Address recipient = Address.wrap(bundle.privateKeys.get(3).getAddress());
+        for (int nonce = 0; nonce < 3; nonce++) {
+            AionTransaction tx = transfer(untouched, nonce, recipient);
+            assertEquals(pendingState.addPendingTransaction(tx), TxResponse.SUCCESS);
+        }
+
+        AionTransaction included =
+                transfer(touched, 0, Address.wrap(bundle.privateKeys.get(4).getAddress()));
+        AionTransaction pending =
+                transfer(touched, 1, Address.wrap(bundle.privateKeys.get(5).getAddress()));
+        assertEquals(pendingState.addPendingTransaction(included), TxResponse.SUCCESS);
+        assertEquals(pendingState.addPendingTransaction(pending), TxResponse.SUCCESS);
+
+        AionBlock block =
+                bc.createNewBlock(bc.getBestBlock(), Collections.singletonList(included), false);
+        Pair<ImportResult, AionBlockSummary> connectResult = bc.tryToConnectAndFetchSummary(block);
+        assertThat(connectResult.getLeft()).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        long carried = pendingState.getStats().getCarriedForward();
+        pendingState.processBest(block, connectResult.getRight().getReceipts());
+
+        // the transfers of the untouched sender keep their results
+        assertThat(pendingState.getStats().getCarriedForward() - carried).isAtLeast(3L);
+        assertThat(pendingState.bestPendingStateNonce(untouchedAddress))
+                .isEqualTo(BigInteger.valueOf(3));
+        assertThat(pendingState.bestPendingStateNonce(touchedAddress)).isEqualTo(BigInteger.TWO);
+        assertThat(pendingState.getPendingTransactions()).contains(pending);
+    }
+
+    private static AionTransaction transfer(ECKey signer, long nonce, Address to) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        to,
+                        BigInteger.TEN.toByteArray(),
+                        new byte[0],
+                        1_000_000L,
+                        10_000_000_000L);
+        tx.sign(signer);
+        return tx;
+    }
 }
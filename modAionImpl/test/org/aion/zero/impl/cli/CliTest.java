@@ -2036,6 +2036,11 @@ public class CliTest {
         skippedTasks.add("--db-compact");
         parameters.add(new Object[] {input, TaskPriority.DUMP_BLOCKS, skippedTasks});
 
+        input = new String[] {"--redo-import", "--reindex-logs"};
+        skippedTasks = new HashSet<>();
+        skippedTasks.add("--reindex-logs");
+        parameters.add(new Object[] {input, TaskPriority.REDO_IMPORT, skippedTasks});
+
         return parameters.toArray();
     }
 
@@ -116,6 +116,36 @@ public class AionContractDetailsTest {
                                 .getNoLeadZeroesData()));
     }
 
+    @Test
+    public void testLazyDecoding() throws Exception {
+        byte[] code = ByteUtil.hexStringToBytes("60016002");
+        ByteArrayWrapper key = new DataWordImpl(ByteUtil.hexStringToBytes("111111")).toWrapper();
+        ByteArrayWrapper value = new DataWordImpl(ByteUtil.hexStringToBytes("aaaaaa")).toWrapper();
+
+        AionContractDetailsImpl contractDetails = new AionContractDetailsImpl(0, 1000000);
+        contractDetails.setCode(code);
+        contractDetails.put(key, value);
+        contractDetails.setAddress(Address.ZERO_ADDRESS());
+        byte[] storageHash = contractDetails.getStorageHash();
+        byte[] data = contractDetails.getEncoded();
+
+        AionContractDetailsImpl decoded = new AionContractDetailsImpl(data);
+        assertThat(decoded.isDirty()).isTrue();
+
+        // copies and snapshots taken before any access decode their own storage
+        ContractDetails copy = decoded.copy();
+        ContractDetails snapshot = decoded.getSnapshotTo(storageHash);
+        copy.put(key, new DataWordImpl(ByteUtil.hexStringToBytes("bbbbbb")).toWrapper());
+
+        assertThat(snapshot.get(key)).isEqualTo(value);
+        assertThat(snapshot.getStorageHash()).isEqualTo(storageHash);
+        assertThat(snapshot.getCode()).isEqualTo(code);
+        assertThat(decoded.get(key)).isEqualTo(value);
+        assertThat(decoded.getCode()).isEqualTo(code);
+        assertThat(decoded.getEncoded()).isEqualTo(data);
+        assertThat(copy.getStorageHash()).isNotEqualTo(storageHash);
+    }
+
     @Test
     public void test_2() throws Exception {
 
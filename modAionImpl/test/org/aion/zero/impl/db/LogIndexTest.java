@@ -0,0 +1,143 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.mcf.vm.types.Log;
+import org.aion.types.Address;
+import org.aion.vm.api.interfaces.IExecutionLog;
+import org.aion.zero.types.AionTxReceipt;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link LogIndex}. */
+public class LogIndexTest {
+
+    private final ByteArrayKeyValueDatabase database = new MockDB("logIndex");
+    private LogIndex index;
+
+    private final Address contract1 = Address.wrap(RandomUtils.nextBytes(Address.SIZE));
+    private final Address contract2 = Address.wrap(RandomUtils.nextBytes(Address.SIZE));
+    private final byte[] topicA = RandomUtils.nextBytes(32);
+    private final byte[] topicB = RandomUtils.nextBytes(32);
+
+    @Before
+    public void setup() {
+        database.open();
+        index = new LogIndex(database);
+    }
+
+    @After
+    public void teardown() {
+        database.close();
+    }
+
+    private static List<AionTxReceipt> receipts(Address address, byte[]... topics) {
+        List<IExecutionLog> logs = new ArrayList<>();
+        List<byte[]> topicList = new ArrayList<>();
+        Collections.addAll(topicList, topics);
+        logs.add(new Log(address, topicList, new byte[0]));
+
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setLogs(logs);
+
+        List<AionTxReceipt> receipts = new ArrayList<>();
+        receipts.add(receipt);
+        return receipts;
+    }
+
+    private static List<byte[][]> topics(byte[]... alternatives) {
+        List<byte[][]> topics = new ArrayList<>();
+        topics.add(alternatives);
+        return topics;
+    }
+
+    @Test
+    public void testFirstIndexedBlock() {
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(Long.MAX_VALUE);
+
+        index.index(10L, new ArrayList<>());
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(10L);
+
+        // later blocks do not change the marker
+        index.index(11L, receipts(contract1, topicA));
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(10L);
+
+        index.setFirstIndexedBlock(0L);
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testFirstIndexedBlock_wBackfill() {
+        // out of order blocks are indexed without claiming the range
+        index.backfill(50L, receipts(contract1, topicA));
+        index.backfill(20L, receipts(contract1, topicA));
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(Long.MAX_VALUE);
+
+        List<byte[]> addresses = new ArrayList<>();
+        addresses.add(contract1.toBytes());
+        assertThat(index.findCandidateBlocks(addresses, new ArrayList<>(), 0L, 100L))
+                .containsExactly(20L, 50L)
+                .inOrder();
+
+        // the first block imported in order starts the range
+        index.index(101L, new ArrayList<>());
+        index.backfill(30L, new ArrayList<>());
+        assertThat(index.getFirstIndexedBlock()).isEqualTo(101L);
+    }
+
+    @Test
+    public void testFindByAddress() {
+        index.index(1L, receipts(contract1, topicA));
+        index.index(2L, receipts(contract2, topicA));
+        index.index(LogIndex.SECTION_SIZE + 5L, receipts(contract1, topicB));
+
+        List<byte[]> addresses = new ArrayList<>();
+        addresses.add(contract1.toBytes());
+        assertThat(index.findCandidateBlocks(addresses, new ArrayList<>(), 0L, 10_000L))
+                .containsExactly(1L, LogIndex.SECTION_SIZE + 5L)
+                .inOrder();
+
+        // the range limits are applied
+        assertThat(index.findCandidateBlocks(addresses, new ArrayList<>(), 2L, 10_000L))
+                .containsExactly(LogIndex.SECTION_SIZE + 5L);
+        assertThat(index.findCandidateBlocks(addresses, new ArrayList<>(), 0L, 1L))
+                .containsExactly(1L);
+    }
+
+    @Test
+    public void testFindByAddressAndTopics() {
+        index.index(1L, receipts(contract1, topicA));
+        index.index(2L, receipts(contract2, topicA));
+        index.index(3L, receipts(contract1, topicB));
+
+        List<byte[]> addresses = new ArrayList<>();
+        addresses.add(contract1.toBytes());
+
+        assertThat(index.findCandidateBlocks(addresses, topics(topicA), 0L, 10L))
+                .containsExactly(1L);
+        assertThat(index.findCandidateBlocks(new ArrayList<>(), topics(topicA), 0L, 10L))
+                .containsExactly(1L, 2L)
+                .inOrder();
+        assertThat(index.findCandidateBlocks(addresses, topics(topicA, topicB), 0L, 10L))
+                .containsExactly(1L, 3L)
+                .inOrder();
+        byte[] unknown = RandomUtils.nextBytes(32);
+        assertThat(index.findCandidateBlocks(addresses, topics(unknown), 0L, 10L)).isEmpty();
+    }
+
+    @Test
+    public void testFindWithoutRestrictions() {
+        index.index(1L, receipts(contract1, topicA));
+
+        List<byte[][]> topics = new ArrayList<>();
+        topics.add(null);
+        assertThat(index.findCandidateBlocks(new ArrayList<>(), topics, 0L, 10L)).isNull();
+    }
+}
@@ -1,6 +1,7 @@
 package org.aion.zero.impl.db;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.aion.mcf.db.DatabaseUtils.connectAndOpen;
 import static org.aion.mcf.db.DatabaseUtils.deleteRecursively;
 import static org.aion.p2p.P2pConstant.LARGE_REQUEST_SIZE;
 import static org.aion.p2p.P2pConstant.STEP_COUNT;
@@ -11,15 +12,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.rlp.RLP;
 import org.aion.types.ByteArrayWrapper;
+import org.aion.util.bytes.ByteUtil;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.impl.DatabaseFactory.Props;
 import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
 import org.aion.mcf.db.exception.InvalidFilePathException;
 import org.aion.util.TestResources;
 import org.aion.zero.impl.types.AionBlock;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.slf4j.Logger;
 
 /** @author Alexandra Roatis */
 public class PendingBlockStoreTest {
@@ -136,6 +142,73 @@ public class PendingBlockStoreTest {
         assertThat(deleteRecursively(dir)).isTrue();
     }
 
+    @Test
+    public void testMigrationOfLegacyQueues() throws InvalidFilePathException {
+        File dir = new File(System.getProperty("user.dir"), "tmp-" + System.currentTimeMillis());
+        File pbFolder = new File(dir, "pbTest");
+
+        List<AionBlock> blocks = TestResources.consecutiveBlocks(3);
+        byte[] queueHash = blocks.get(0).getHash();
+
+        // store a queue using the legacy layout
+        Logger log = AionLoggerFactory.getLogger(LogEnum.DB.name());
+        Properties legacyProps = new Properties();
+        legacyProps.setProperty(Props.DB_TYPE, DBVendor.PERSISTENTMOCKDB.toValue());
+        legacyProps.setProperty(Props.DB_PATH, pbFolder.getAbsolutePath());
+
+        legacyProps.setProperty(Props.DB_NAME, "queue");
+        ByteArrayKeyValueDatabase queue = connectAndOpen(legacyProps, log);
+        byte[][] encodings = new byte[blocks.size()][];
+        for (int i = 0; i < blocks.size(); i++) {
+            encodings[i] = blocks.get(i).getEncoded();
+        }
+        queue.put(queueHash, RLP.encodeList(encodings));
+        queue.close();
+
+        legacyProps.setProperty(Props.DB_NAME, "level");
+        ByteArrayKeyValueDatabase level = connectAndOpen(legacyProps, log);
+        level.put(
+                ByteUtil.longToBytes(blocks.get(0).getNumber()),
+                RLP.encodeList(RLP.encodeElement(queueHash)));
+        level.close();
+
+        legacyProps.setProperty(Props.DB_NAME, "index");
+        ByteArrayKeyValueDatabase index = connectAndOpen(legacyProps, log);
+        for (AionBlock b : blocks) {
+            index.put(b.getHash(), queueHash);
+        }
+        index.close();
+
+        // open the store with the same location
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.PERSISTENTMOCKDB.toValue());
+        props.setProperty(Props.DB_PATH, dir.getAbsolutePath());
+        props.setProperty(Props.DB_NAME, "pbTest");
+
+        PendingBlockStore pb = new PendingBlockStore(props);
+        assertThat(pb.isOpen()).isTrue();
+        assertThat(new File(pbFolder, "queue").exists()).isFalse();
+
+        assertThat(pb.getIndexSize()).isEqualTo(3);
+        assertThat(pb.getLevelSize()).isEqualTo(1);
+        assertThat(pb.getQueueSize()).isEqualTo(1);
+
+        Map<ByteArrayWrapper, List<AionBlock>> actual =
+                pb.loadBlockRange(blocks.get(0).getNumber());
+        assertThat(actual.size()).isEqualTo(1);
+        assertThat(actual.get(ByteArrayWrapper.wrap(queueHash))).isEqualTo(blocks);
+
+        // the migrated queue can be extended
+        AionBlock next = TestResources.consecutiveBlocks(4).get(3);
+        assertThat(pb.addStatusBlock(next)).isTrue();
+        actual = pb.loadBlockRange(blocks.get(0).getNumber());
+        assertThat(actual.get(ByteArrayWrapper.wrap(queueHash))).hasSize(4);
+
+        pb.close();
+
+        assertThat(deleteRecursively(dir)).isTrue();
+    }
+
     @Test
     public void testAddStatusBlock() {
         Properties props = new Properties();
@@ -591,6 +664,51 @@ public class PendingBlockStoreTest {
         assertThat(pb.getStatusSize()).isEqualTo(0);
     }
 
+    @Test
+    public void testDropPendingQueues_wImportedBlocksNotAtQueueStart() {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+
+        PendingBlockStore pb = null;
+        try {
+            pb = new PendingBlockStore(props);
+        } catch (InvalidFilePathException e) {
+            e.printStackTrace();
+        }
+        assertThat(pb.isOpen()).isTrue();
+
+        // add first queue
+        List<AionBlock> blocks = TestResources.consecutiveBlocks(6);
+        AionBlock first = blocks.get(0);
+        pb.addBlockRange(blocks);
+
+        // add second queue
+        AionBlock altBlock = new AionBlock(first.getEncoded());
+        altBlock.setExtraData("random".getBytes());
+        List<AionBlock> sideChain = new ArrayList<>();
+        sideChain.add(altBlock);
+        pb.addBlockRange(sideChain);
+
+        // test drop functionality when a block in the middle of the queue was not imported
+        ByteArrayWrapper queueId = ByteArrayWrapper.wrap(first.getHash());
+        List<ByteArrayWrapper> queues = new ArrayList<>();
+        queues.add(queueId);
+        Map<ByteArrayWrapper, List<AionBlock>> actual = pb.loadBlockRange(first.getNumber());
+        AionBlock skipped = actual.get(queueId).remove(2);
+        pb.dropPendingQueues(first.getNumber(), queues, actual);
+
+        // check storage after drop functionality
+        assertThat(pb.getIndexSize()).isEqualTo(2);
+        assertThat(pb.getLevelSize()).isEqualTo(2);
+        assertThat(pb.getQueueSize()).isEqualTo(2);
+
+        // only the skipped block remains in a queue of its own
+        Map<ByteArrayWrapper, List<AionBlock>> remaining = pb.loadBlockRange(skipped.getNumber());
+        assertThat(remaining.size()).isEqualTo(1);
+        assertThat(remaining.get(ByteArrayWrapper.wrap(skipped.getHash())))
+                .containsExactly(skipped);
+    }
+
     @Test
     public void testNextBase_wException() {
         Properties props = new Properties();
@@ -126,6 +126,7 @@ public class TaskImportTrieDataTest {
         FastSyncManager fastSyncMgr = mock(FastSyncManager.class);
         when(fastSyncMgr.isComplete()).thenReturn(false, true);
         when(fastSyncMgr.containsExact(any(), any())).thenReturn(false);
+        when(fastSyncMgr.isValidNode(wrappedNodeKey, leafValue, STATE)).thenReturn(true);
 
         BlockingQueue<TrieNodeWrapper> trieNodes = mock(LinkedBlockingQueue.class);
         byte[] encoding =
@@ -170,6 +171,7 @@ public class TaskImportTrieDataTest {
         FastSyncManager fastSyncMgr = mock(FastSyncManager.class);
         when(fastSyncMgr.isComplete()).thenReturn(false, true);
         when(fastSyncMgr.containsExact(any(), any())).thenReturn(false);
+        when(fastSyncMgr.isValidNode(wrappedNodeKey, leafValue, STATE)).thenReturn(true);
 
         BlockingQueue<TrieNodeWrapper> trieNodes = mock(LinkedBlockingQueue.class);
         byte[] encoding =
@@ -200,4 +202,45 @@ public class TaskImportTrieDataTest {
         verify(fastSyncMgr, times(1))
                 .handleFailedImport(wrappedNodeKey, leafValue, STATE, peerId, displayId);
     }
+
+    @Test
+    public void testRun_addNode_invalid() throws InterruptedException {
+        Logger log = mock(Logger.class);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        AionBlockchainImpl chain = mock(AionBlockchainImpl.class);
+
+        FastSyncManager fastSyncMgr = mock(FastSyncManager.class);
+        when(fastSyncMgr.isComplete()).thenReturn(false, true);
+        when(fastSyncMgr.containsExact(any(), any())).thenReturn(false);
+        when(fastSyncMgr.isValidNode(wrappedNodeKey, leafValue, STATE)).thenReturn(false);
+
+        BlockingQueue<TrieNodeWrapper> trieNodes = mock(LinkedBlockingQueue.class);
+        byte[] encoding =
+                RLP.encodeList(
+                        RLP.encodeElement(nodeKey),
+                        RLP.encodeElement(leafValue),
+                        RLP.encodeList(new byte[0]),
+                        RLP.encodeString(STATE.toString()));
+        ResponseTrieData response = ResponseTrieData.decode(encoding);
+        TrieNodeWrapper node = new TrieNodeWrapper(peerId, displayId, response);
+        when(trieNodes.take()).thenReturn(node);
+
+        // run task
+        TaskImportTrieData task = new TaskImportTrieData(log, chain, trieNodes, fastSyncMgr);
+        task.run();
+
+        verify(log, times(1))
+                .debug(
+                        "<import-trie-nodes-failed: key={}, value={}, db={}, result={}, peer={}>",
+                        wrappedNodeKey,
+                        Hex.toHexString(leafValue),
+                        STATE,
+                        TrieNodeResult.INVALID_VALUE,
+                        displayId);
+        verifyZeroInteractions(chain);
+        verify(fastSyncMgr, times(0)).addImportedNode(wrappedNodeKey, leafValue, STATE);
+        verify(fastSyncMgr, times(1))
+                .handleFailedImport(wrappedNodeKey, leafValue, STATE, peerId, displayId);
+    }
 }
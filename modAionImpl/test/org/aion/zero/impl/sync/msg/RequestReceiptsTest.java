@@ -0,0 +1,91 @@
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+import static org.aion.p2p.V1Constants.RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.zero.impl.sync.Act;
+import org.junit.Test;
+
+/** Unit tests for {@link RequestReceipts} messages. */
+public class RequestReceiptsTest {
+
+    private static List<byte[]> hashes(int count) {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[HASH_SIZE];
+            hash[0] = (byte) i;
+            hashes.add(hash);
+        }
+        return hashes;
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_nullList() {
+        new RequestReceipts(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_nullHash() {
+        new RequestReceipts(Collections.singletonList(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_emptyList() {
+        new RequestReceipts(Collections.emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_tooManyHashes() {
+        new RequestReceipts(hashes(RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_incorrectHashSize() {
+        new RequestReceipts(Collections.singletonList(new byte[HASH_SIZE - 1]));
+    }
+
+    @Test
+    public void testHeader() {
+        RequestReceipts message = new RequestReceipts(hashes(1));
+        assertThat(message.getHeader().getVer()).isEqualTo(Ver.V1);
+        assertThat(message.getHeader().getAction()).isEqualTo(Act.REQUEST_RECEIPTS);
+    }
+
+    @Test
+    public void testDecode_nullOrEmptyMessage() {
+        assertThat(RequestReceipts.decode(null)).isNull();
+        assertThat(RequestReceipts.decode(new byte[0])).isNull();
+    }
+
+    @Test
+    public void testDecode_notAList() {
+        assertThat(RequestReceipts.decode(RLP.encodeElement(new byte[HASH_SIZE]))).isNull();
+    }
+
+    @Test
+    public void testDecode_incorrectHashSize() {
+        byte[] encoded =
+                RLP.encodeList(
+                        RLP.encodeElement(new byte[HASH_SIZE]),
+                        RLP.encodeElement(new byte[HASH_SIZE + 1]));
+        assertThat(RequestReceipts.decode(encoded)).isNull();
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        List<byte[]> hashes = hashes(RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE);
+        RequestReceipts decoded = RequestReceipts.decode(new RequestReceipts(hashes).encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getBlockHashes()).hasSize(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertThat(decoded.getBlockHashes().get(i)).isEqualTo(hashes.get(i));
+        }
+    }
+}
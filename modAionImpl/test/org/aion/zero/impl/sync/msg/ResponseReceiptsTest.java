@@ -0,0 +1,94 @@
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.types.ByteArrayWrapper;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.types.AionTxReceipt;
+import org.junit.Test;
+
+/** Unit tests for {@link ResponseReceipts} messages. */
+public class ResponseReceiptsTest {
+
+    private static Map<ByteArrayWrapper, List<AionTxReceipt>> receipts(int blocks) {
+        Map<ByteArrayWrapper, List<AionTxReceipt>> receipts = new LinkedHashMap<>();
+        for (int i = 0; i < blocks; i++) {
+            byte[] hash = new byte[HASH_SIZE];
+            hash[0] = (byte) i;
+
+            List<AionTxReceipt> blockReceipts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                AionTxReceipt receipt = new AionTxReceipt();
+                receipt.setNrgUsed(21_000 + j);
+                receipt.setExecutionResult(new byte[] {(byte) j});
+                blockReceipts.add(receipt);
+            }
+            receipts.put(ByteArrayWrapper.wrap(hash), blockReceipts);
+        }
+        return receipts;
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_nullMap() {
+        new ResponseReceipts(null);
+    }
+
+    @Test
+    public void testHeader() {
+        ResponseReceipts message = new ResponseReceipts(Collections.emptyMap());
+        assertThat(message.getHeader().getVer()).isEqualTo(Ver.V1);
+        assertThat(message.getHeader().getAction()).isEqualTo(Act.RESPONSE_RECEIPTS);
+    }
+
+    @Test
+    public void testDecode_nullOrEmptyMessage() {
+        assertThat(ResponseReceipts.decode(null)).isNull();
+        assertThat(ResponseReceipts.decode(new byte[0])).isNull();
+    }
+
+    @Test
+    public void testDecode_incorrectHashSize() {
+        byte[] encoded =
+                RLP.encodeList(
+                        RLP.encodeList(
+                                RLP.encodeElement(new byte[HASH_SIZE - 1]), RLP.encodeList()));
+        assertThat(ResponseReceipts.decode(encoded)).isNull();
+    }
+
+    @Test
+    public void testDecode_invalidReceipt() {
+        byte[] encoded =
+                RLP.encodeList(
+                        RLP.encodeList(
+                                RLP.encodeElement(new byte[HASH_SIZE]),
+                                RLP.encodeList(RLP.encodeElement(new byte[] {1, 2, 3}))));
+        assertThat(ResponseReceipts.decode(encoded)).isNull();
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        Map<ByteArrayWrapper, List<AionTxReceipt>> receipts = receipts(5);
+        ResponseReceipts decoded = ResponseReceipts.decode(new ResponseReceipts(receipts).encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getReceipts().keySet())
+                .containsExactlyElementsIn(receipts.keySet())
+                .inOrder();
+        for (Map.Entry<ByteArrayWrapper, List<AionTxReceipt>> entry : receipts.entrySet()) {
+            List<AionTxReceipt> actual = decoded.getReceipts().get(entry.getKey());
+            assertThat(actual).hasSize(entry.getValue().size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertThat(actual.get(i).getEncoded())
+                        .isEqualTo(entry.getValue().get(i).getEncoded());
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.aion.zero.impl.valid;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.types.Address;
+import org.aion.zero.types.AionTransaction;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class TransactionSignatureVerifierTest {
+
+    private static final long VALID_NRG = 100_000L;
+
+    private final TransactionSignatureVerifier verifier = new TransactionSignatureVerifier(4);
+    private final ECKey key = ECKeyFac.inst().create();
+
+    @After
+    public void tearDown() {
+        verifier.shutdown();
+    }
+
+    private AionTransaction newTransaction(int nonce, long nrg) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        Address.wrap(RandomUtils.nextBytes(Address.SIZE)),
+                        BigInteger.ONE.toByteArray(),
+                        new byte[0],
+                        nrg,
+                        10_000_000_000L);
+        tx.sign(key);
+        return tx;
+    }
+
+    @Test
+    public void testVerifyValidTransactions() {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txs.add(newTransaction(i, VALID_NRG));
+        }
+
+        assertThat(verifier.verify(txs)).isTrue();
+
+        // the sender and the verification result are cached on the transactions
+        Address sender = Address.wrap(key.getAddress());
+        for (AionTransaction tx : txs) {
+            assertThat(tx.isSignatureValid()).isTrue();
+            assertThat(tx.getSenderAddress()).isEqualTo(sender);
+        }
+    }
+
+    @Test
+    public void testVerifyWithInvalidTransaction() {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // the transaction at index 7 has an energy limit below the minimum
+            txs.add(newTransaction(i, i == 7 ? 1L : VALID_NRG));
+        }
+
+        assertThat(verifier.verify(txs)).isFalse();
+    }
+
+    @Test
+    public void testVerifySingleTransaction() {
+        List<AionTransaction> txs = new ArrayList<>();
+        txs.add(newTransaction(0, VALID_NRG));
+        assertThat(verifier.verify(txs)).isTrue();
+
+        txs.set(0, newTransaction(1, 1L));
+        assertThat(verifier.verify(txs)).isFalse();
+    }
+}
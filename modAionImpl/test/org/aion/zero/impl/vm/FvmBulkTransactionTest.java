@@ -12,6 +12,7 @@ import org.aion.types.Address;
 import org.aion.crypto.ECKey;
 import org.aion.mcf.core.ImportResult;
 import org.aion.mcf.vm.types.DataWordImpl;
+import org.aion.types.ByteArrayWrapper;
 import org.aion.util.conversions.Hex;
 
 import org.aion.zero.impl.StandaloneBlockchain;
@@ -26,7 +27,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 public class FvmBulkTransactionTest {
+    // the storage slot of the counter of the Ticker.sol contract
+    private static final ByteArrayWrapper TICKER_COUNT_KEY = new DataWordImpl(0).toWrapper();
+
     private StandaloneBlockchain blockchain;
+    private List<ECKey> senderKeys;
     private ECKey deployerKey;
     private long energyPrice = 1;
 
@@ -38,15 +43,87 @@ public class FvmBulkTransactionTest {
                         .withDefaultAccounts()
                         .build();
         blockchain = bundle.bc;
+        senderKeys = bundle.privateKeys;
         deployerKey = bundle.privateKeys.get(0);
     }
 
     @After
     public void tearDown() {
         blockchain = null;
+        senderKeys = null;
         deployerKey = null;
     }
 
+    @Test
+    public void sendCallsFromManySendersToSharedContractInBulkTest() throws IOException {
+        // a second chain with the same accounts executes the same calls one block at a time
+        StandaloneBlockchain serialBlockchain =
+                (new StandaloneBlockchain.Builder())
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(this.senderKeys)
+                        .build()
+                        .bc;
+
+        AionTransaction create =
+                makeFvmContractCreateTransaction(this.deployerKey, getNonce(this.deployerKey));
+        Address contract =
+                sendTransactionsInBulkInSingleBlock(Collections.singletonList(create))
+                        .getReceipts()
+                        .get(0)
+                        .getTransaction()
+                        .getContractAddress();
+        assertEquals(
+                contract,
+                sendTransactionsInBulkInSingleBlock(
+                                serialBlockchain, Collections.singletonList(create))
+                        .getReceipts()
+                        .get(0)
+                        .getTransaction()
+                        .getContractAddress());
+
+        // every sender increments the same storage slot of the contract
+        int callsPerSender = 3;
+        List<AionTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < callsPerSender; i++) {
+            for (ECKey sender : this.senderKeys) {
+                BigInteger nonce = getNonce(sender).add(BigInteger.valueOf(i));
+                transactions.add(makeFvmContractCallTransaction(sender, nonce, contract));
+            }
+        }
+
+        AionBlockSummary bulkSummary = sendTransactionsInBulkInSingleBlock(transactions);
+        assertEquals(transactions.size(), bulkSummary.getSummaries().size());
+
+        for (int i = 0; i < transactions.size(); i++) {
+            AionTxExecSummary bulk = bulkSummary.getSummaries().get(i);
+            AionTxExecSummary serial =
+                    sendTransactionsInBulkInSingleBlock(
+                                    serialBlockchain,
+                                    Collections.singletonList(transactions.get(i)))
+                            .getSummaries()
+                            .get(0);
+
+            assertTrue(bulk.getReceipt().isSuccessful());
+            assertTrue(serial.getReceipt().isSuccessful());
+            assertEquals(serial.getReceipt().getEnergyUsed(), bulk.getReceipt().getEnergyUsed());
+            assertEquals(serial.getLogs().size(), bulk.getLogs().size());
+        }
+
+        for (ECKey sender : this.senderKeys) {
+            Address address = Address.wrap(sender.getAddress());
+            assertEquals(serialBlockchain.getRepository().getNonce(address), getNonce(address));
+            assertEquals(
+                    serialBlockchain.getRepository().getBalance(address), getBalance(address));
+        }
+        assertEquals(
+                serialBlockchain.getRepository().getStorageValue(contract, TICKER_COUNT_KEY),
+                this.blockchain.getRepository().getStorageValue(contract, TICKER_COUNT_KEY));
+
+        int count =
+                getDeployedTickerCountValue(this.deployerKey, getNonce(this.deployerKey), contract);
+        assertEquals(transactions.size(), count);
+    }
+
     @Test
     public void sendContractCreationAndCallTransactionsInBulkTest() throws IOException {
         BigInteger expectedDeployerNonce = getNonce(this.deployerKey);
@@ -134,12 +211,17 @@ public class FvmBulkTransactionTest {
 
     private AionBlockSummary sendTransactionsInBulkInSingleBlock(
             List<AionTransaction> transactions) {
-        AionBlock parentBlock = this.blockchain.getBestBlock();
+        return sendTransactionsInBulkInSingleBlock(this.blockchain, transactions);
+    }
+
+    private static AionBlockSummary sendTransactionsInBulkInSingleBlock(
+            StandaloneBlockchain blockchain, List<AionTransaction> transactions) {
+        AionBlock parentBlock = blockchain.getBestBlock();
         AionBlock block =
-                this.blockchain.createBlock(
+                blockchain.createBlock(
                         parentBlock, transactions, false, parentBlock.getTimestamp());
         Pair<ImportResult, AionBlockSummary> connectResult =
-                this.blockchain.tryToConnectAndFetchSummary(block);
+                blockchain.tryToConnectAndFetchSummary(block);
         assertEquals(ImportResult.IMPORTED_BEST, connectResult.getLeft());
         return connectResult.getRight();
     }
@@ -179,7 +261,7 @@ public class FvmBulkTransactionTest {
                         2_000_000,
                         this.energyPrice,
                         (byte) 0x01);
-        transaction.sign(this.deployerKey);
+        transaction.sign(sender);
         return transaction;
     }
 
@@ -107,6 +107,9 @@ public abstract class ApiAion extends Api {
                     if (e.getEventType() == IHandler.TYPE.BLOCK0.getValue()
                             && e.getCallbackType() == EventBlock.CALLBACK.ONBLOCK0.getValue()) {
                         onBlock((AionBlockSummary) e.getFuncArgs().get(0));
+                        if (NRG_ORACLE != null) {
+                            NRG_ORACLE.onBestBlock();
+                        }
                     } else if (e.getEventType() == IHandler.TYPE.TX0.getValue()) {
                         if (e.getCallbackType() == EventTx.CALLBACK.PENDINGTXUPDATE0.getValue()) {
                             pendingTxUpdate(
@@ -2,10 +2,8 @@ package org.aion.api.server.http.undertow;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.server.handlers.BlockingHandler;
 import io.undertow.server.handlers.RequestDumpingHandler;
 import io.undertow.server.handlers.RequestLimitingHandler;
-import io.undertow.server.handlers.StuckThreadDetectionHandler;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -15,14 +13,9 @@ import org.slf4j.Logger;
  * approach to server design (filter request through a bunch of objects that can choose to either
  * pass the request object to the next handler or respond to the request itself)
  *
- * @implNote a possible optimization here would be to use the RequestBufferingHandler
- *     <p>According to Stuart Douglas
- *     (http://lists.jboss.org/pipermail/undertow-dev/2018-July/002224.html):
- *     <p>"The advantage [of RequestBufferingHandler] is that if you are going to dispatch to a
- *     worker thread then the dispatch does not happen until the request has been read, thus
- *     reducing the amount of time a worker spends processing the request. Essentially this allows
- *     you to take advantage of non-blocking IO even for applications that use blocking IO, but at
- *     the expense of memory for buffering."
+ * <p>The handlers run on the io thread. The rpc handler reads the request body using non-blocking
+ * IO and only then dispatches the rpc call to a worker thread, so workers are not held while
+ * requests arrive over slow connections.
  */
 public class AionUndertowRootHandler implements HttpHandler {
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
@@ -32,35 +25,15 @@ public class AionUndertowRootHandler implements HttpHandler {
     private final HttpHandler rootHandler;
 
     public AionUndertowRootHandler(
-            AionUndertowRpcHandler rpcHandler,
-            RequestLimitingConfiguration requestLimiting,
-            StuckThreadDetectorConfiguration stuckThreadDetector) {
-        /**
-         * Opinion: StuckThreadDetectionHandler should be enabled by default, since in the
-         * grand-scheme of things, it's performance overhead is not too great and it could
-         * potentially help us catch implementation bugs in the API.
-         *
-         * <p>See Impl:
-         * github.com/undertow-io/undertow/blob/master/core/src/main/java/io/undertow/server/handlers/StuckThreadDetectionHandler.java
-         */
-        HttpHandler thirdHandler;
-        if (stuckThreadDetector.isEnabled()) {
-            thirdHandler =
-                    new StuckThreadDetectionHandler(
-                            stuckThreadDetector.getTimeoutSeconds(), rpcHandler);
-        } else {
-            thirdHandler = rpcHandler;
-        }
-
+            AionUndertowRpcHandler rpcHandler, RequestLimitingConfiguration requestLimiting) {
         // Only enable request dumping in TRACE mode
         HttpHandler secondHandler;
         if (LOG.isTraceEnabled()) {
-            secondHandler = new RequestDumpingHandler(thirdHandler);
+            secondHandler = new RequestDumpingHandler(rpcHandler);
         } else {
-            secondHandler = thirdHandler;
+            secondHandler = rpcHandler;
         }
 
-        HttpHandler firstHandler;
         if (requestLimiting.isEnabled()) {
             /**
              * @implNote rationale for doing this: request limiting handler is really a last resort
@@ -68,18 +41,14 @@ public class AionUndertowRootHandler implements HttpHandler {
              *     resources the RPC server can consume. The maximumConcurrentRequests in this case,
              *     are effectively the number of worker threads available.
              */
-            firstHandler =
+            rootHandler =
                     new RequestLimitingHandler(
                             requestLimiting.getMaxConcurrentConnections(),
                             requestLimiting.getQueueSize(),
                             secondHandler);
         } else {
-            firstHandler = secondHandler;
+            rootHandler = secondHandler;
         }
-
-        // first thing we need to do is dispatch this http request to a worker thread (off the io
-        // thread)
-        rootHandler = new BlockingHandler(firstHandler);
     }
 
     @Override
@@ -2,23 +2,61 @@ package org.aion.api.server.http.undertow;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.StuckThreadDetectionHandler;
+import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
 import io.undertow.util.StatusCodes;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import org.aion.api.server.rpc.RpcProcessor;
 
+/**
+ * Receives the rpc request body using non-blocking IO on the io thread, then dispatches the rpc
+ * call to a worker thread which writes the response straight to the output stream of the
+ * exchange as it is serialized.
+ */
 class AionUndertowRpcHandler implements HttpHandler {
+    private static final AttachmentKey<byte[]> REQUEST_BODY = AttachmentKey.create(byte[].class);
+
     private final boolean corsEnabled;
     private final Map<HttpString, String> corsHeaders;
     private final RpcProcessor rpcProcessor;
 
+    // handles the rpc call on the worker thread
+    private final HttpHandler callHandler;
+
     public AionUndertowRpcHandler(
-            boolean corsEnabled, Map<HttpString, String> corsHeaders, RpcProcessor rpcProcessor) {
+            boolean corsEnabled,
+            Map<HttpString, String> corsHeaders,
+            RpcProcessor rpcProcessor,
+            StuckThreadDetectorConfiguration stuckThreadDetector) {
         this.corsEnabled = corsEnabled;
         this.corsHeaders = corsHeaders;
         this.rpcProcessor = rpcProcessor;
+
+        /**
+         * Opinion: StuckThreadDetectionHandler should be enabled by default, since in the
+         * grand-scheme of things, it's performance overhead is not too great and it could
+         * potentially help us catch implementation bugs in the API.
+         *
+         * <p>See Impl:
+         * github.com/undertow-io/undertow/blob/master/core/src/main/java/io/undertow/server/handlers/StuckThreadDetectionHandler.java
+         */
+        if (stuckThreadDetector.isEnabled()) {
+            this.callHandler =
+                    new StuckThreadDetectionHandler(
+                            stuckThreadDetector.getTimeoutSeconds(), this::handleCall);
+        } else {
+            this.callHandler = this::handleCall;
+        }
     }
 
     private void addCorsHeaders(HttpServerExchange exchange) {
@@ -49,15 +87,34 @@ class AionUndertowRpcHandler implements HttpHandler {
             return;
         }
 
-        /** respond to rpc call; {@link io.Undertow.BlockingReceiverImpl#receiveFullString} */
+        /**
+         * read the request body without holding a worker thread; {@link
+         * io.undertow.io.AsyncReceiverImpl#receiveFullBytes}
+         */
         exchange.getRequestReceiver()
-                .receiveFullString(
+                .receiveFullBytes(
                         (_exchange, body) -> {
-                            if (corsEnabled) addCorsHeaders(_exchange);
-                            _exchange
-                                    .getResponseHeaders()
-                                    .put(Headers.CONTENT_TYPE, "application/json");
-                            _exchange.getResponseSender().send(rpcProcessor.process(body));
+                            _exchange.putAttachment(REQUEST_BODY, body);
+                            _exchange.dispatch(callHandler);
                         });
     }
+
+    // respond to rpc call
+    private void handleCall(HttpServerExchange exchange) throws IOException {
+        byte[] body = exchange.removeAttachment(REQUEST_BODY);
+
+        if (corsEnabled) addCorsHeaders(exchange);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+
+        exchange.startBlocking();
+        try (Writer response =
+                new BufferedWriter(
+                        new OutputStreamWriter(
+                                exchange.getOutputStream(), StandardCharsets.UTF_8))) {
+            rpcProcessor.process(
+                    new InputStreamReader(
+                            new ByteArrayInputStream(body), StandardCharsets.UTF_8),
+                    response);
+        }
+    }
 }
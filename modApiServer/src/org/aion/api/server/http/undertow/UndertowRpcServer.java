@@ -140,10 +140,10 @@ public class UndertowRpcServer extends RpcServer {
             }
 
             AionUndertowRpcHandler rpcHandler =
-                    new AionUndertowRpcHandler(corsEnabled, CORS_HEADERS, rpcProcessor);
+                    new AionUndertowRpcHandler(
+                            corsEnabled, CORS_HEADERS, rpcProcessor, stuckThreadDetector);
 
-            undertowBuilder.setHandler(
-                    new AionUndertowRootHandler(rpcHandler, requestLimiting, stuckThreadDetector));
+            undertowBuilder.setHandler(new AionUndertowRootHandler(rpcHandler, requestLimiting));
 
             server = undertowBuilder.build();
             server.start();
@@ -1,5 +1,8 @@
 package org.aion.api.server.nrgprice;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import org.aion.api.server.nrgprice.strategy.NrgBlockPrice;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -11,7 +14,12 @@ import org.slf4j.Logger;
  * Serves as the recommendor of nrg prices based on some observation strategy Currently uses the
  * blockPrice strategy
  *
- * <p>This class is thread safe: getNrgPrice() synchronized on object's intrinsic lock.
+ * <p>The recommendation is maintained incrementally: when the best block changes, only the blocks
+ * added to the main chain since the previous update are processed, and the prices of blocks that
+ * left the main chain on a re-org are rolled back.
+ *
+ * <p>This class is thread safe: getNrgPrice() and onBestBlock() synchronized on object's intrinsic
+ * lock.
  *
  * @author ali sharif
  */
@@ -27,20 +35,29 @@ public class NrgOracle {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
 
-    private long lastBlkProcessed;
+    // if we don't find any transaction within the last N blocks
+    // (at 10s block time, ~10min), miners should be willing to accept transactions at my
+    // defaultPrice
+    private static final int MAX_BLK_TRAVERSE = 64;
+
     private long recommendation;
     private long nrgPriceDefault;
     private Strategy strategy;
 
-    private INrgPriceAdvisor advisor;
+    private NrgBlockPrice advisor;
     private IAionBlockchain blockchain;
 
+    // hash of the last processed best block
+    private byte[] lastBlkHash;
+    // hashes of the processed main chain blocks indexed by block number modulo MAX_BLK_TRAVERSE
+    private final long[] blkNumbers = new long[MAX_BLK_TRAVERSE];
+    private final byte[][] blkHashes = new byte[MAX_BLK_TRAVERSE][];
+
     public NrgOracle(
             IAionBlockchain blockchain, long nrgPriceDefault, long nrgPriceMax, Strategy strategy) {
 
         // get default and max nrg from the config
         this.recommendation = nrgPriceDefault;
-        this.lastBlkProcessed = -1;
         this.nrgPriceDefault = nrgPriceDefault;
         this.strategy = strategy;
 
@@ -58,59 +75,82 @@ public class NrgOracle {
         }
     }
 
-    // if we don't find any transaction within the last N blocks
-    // (at 10s block time, ~10min), miners should be willing to accept transactions at my
-    // defaultPrice
-    private static final int MAX_BLK_TRAVERSE = 64;
+    private void updateRecommendation(AionBlock bestBlock) {
+        if (Arrays.equals(bestBlock.getHash(), lastBlkHash)) return;
 
-    private void buildRecommendation() {
-        long firstBlockNum = blockchain.getBestBlock().getNumber();
-        AionBlock lastBlock = blockchain.getBestBlock();
+        // collect the blocks that were not processed yet, down to the first block that is part of
+        // the main chain seen by the previous update
+        Deque<AionBlock> newBlocks = new ArrayDeque<>();
+        AionBlock block = bestBlock;
 
-        advisor.flush();
+        while (block != null && newBlocks.size() < MAX_BLK_TRAVERSE && !isProcessed(block)) {
+            newBlocks.push(block);
 
-        long blkTraverse = MAX_BLK_TRAVERSE;
+            // traverse up the chain to feed the recommendation engine
+            long parentBlockNumber = block.getNumber() - 1;
+            if (parentBlockNumber <= 0) break;
 
-        while (blkTraverse > 0) {
-            advisor.processBlock(lastBlock);
+            block = blockchain.getBlockByHash(block.getParentHash());
+        }
 
-            if (!advisor.isHungry()) break;
+        // the processed blocks at the height of the new blocks are no longer on the main chain
+        long firstNewBlkNumber =
+                newBlocks.isEmpty() ? bestBlock.getNumber() + 1 : newBlocks.peek().getNumber();
+        advisor.rollback(firstNewBlkNumber);
+        for (int i = 0; i < MAX_BLK_TRAVERSE; i++) {
+            if (blkHashes[i] != null && blkNumbers[i] >= firstNewBlkNumber) {
+                blkHashes[i] = null;
+            }
+        }
 
-            // traverse up the chain to feed the recommendation engine
-            long parentBlockNumber = lastBlock.getNumber() - 1;
-            if (parentBlockNumber <= 0) break;
+        while (!newBlocks.isEmpty()) {
+            block = newBlocks.pop();
+            advisor.processBlock(block);
 
-            lastBlock = blockchain.getBlockByHash(lastBlock.getParentHash());
-            blkTraverse--;
+            int i = (int) (block.getNumber() % MAX_BLK_TRAVERSE);
+            blkNumbers[i] = block.getNumber();
+            blkHashes[i] = block.getHash();
         }
 
+        advisor.expire(bestBlock.getNumber() - MAX_BLK_TRAVERSE + 1);
+
         recommendation = advisor.computeRecommendation();
-        lastBlkProcessed = firstBlockNum;
+        lastBlkHash = bestBlock.getHash();
+    }
+
+    private boolean isProcessed(AionBlock block) {
+        int i = (int) (block.getNumber() % MAX_BLK_TRAVERSE);
+        return blkNumbers[i] == block.getNumber() && Arrays.equals(blkHashes[i], block.getHash());
     }
 
     /**
-     * Lazy nrg price computation strategy: if you need the kernel to recommend nrg price, you
-     * should be prepared to give up some compute-time on the caller thread (most likely api worker
-     * thread).
-     *
-     * <p>Not an important enough computation to be a consumer on the event system.
-     *
-     * <p>If multiple consumers want nrgPrice simultaneously, all will be blocked until the
-     * recommendation is built and cached. Future consumers read the cached value until cache flush.
+     * Updates the recommendation with the current best block. Called on new blocks by the api
+     * event threads so that the recommendation is usually up to date when requested.
      */
-    private static final long CACHE_FLUSH_BLKS = 2;
+    public synchronized void onBestBlock() {
+        if (strategy != Strategy.BLK_PRICE) return;
+
+        try {
+            updateRecommendation(blockchain.getBestBlock());
+        } catch (Exception e) {
+            LOG.error("<nrg-oracle - updateRecommendation() threw.", e);
+            reset();
+        }
+    }
 
+    /**
+     * Returns the recommended nrg price. The recommendation is brought up to date with the best
+     * block first, which only processes the blocks added since the last update.
+     */
     public synchronized long getNrgPrice() {
         switch (strategy) {
             case BLK_PRICE:
                 try {
-                    long blkNow = blockchain.getBestBlock().getNumber();
-                    if (blkNow - lastBlkProcessed >= CACHE_FLUSH_BLKS) {
-                        buildRecommendation();
-                    }
+                    updateRecommendation(blockchain.getBestBlock());
                 } catch (Exception e) {
                     LOG.error(
-                            "<nrg-oacle - buildRecommendation() threw. returning default nrg recommendation just-in-case");
+                            "<nrg-oacle - updateRecommendation() threw. returning default nrg recommendation just-in-case");
+                    reset();
                     return nrgPriceDefault;
                 }
                 break;
@@ -120,4 +160,12 @@ public class NrgOracle {
 
         return recommendation;
     }
+
+    // forget all processed blocks, the next update rebuilds the window from the best block
+    private void reset() {
+        advisor.flush();
+        Arrays.fill(blkHashes, null);
+        lastBlkHash = null;
+        recommendation = nrgPriceDefault;
+    }
 }
@@ -2,7 +2,8 @@ package org.aion.api.server.nrgprice.strategy;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
+import java.util.TreeMap;
 import org.aion.api.server.nrgprice.NrgPriceAdvisor;
 import org.aion.types.Address;
 import org.aion.log.AionLoggerFactory;
@@ -24,6 +25,11 @@ import org.slf4j.Logger;
  * feedback effect where large numbers of people following the recommendation will tend the
  * recommendation upward
  *
+ * <p>The block prices of the window are kept in a ring buffer together with the numbers of their
+ * blocks, so that the window can be rolled back on chain re-orgs. The prices are also kept in two
+ * ordered multisets split at the recommendation index, which makes adding or removing a block
+ * price O(log n) and avoids sorting the window for every recommendation.
+ *
  * <p>This class is NOT thread-safe Policy: holder class (NrgOracle) should provide any concurrency
  * guarantees it needs to
  *
@@ -32,12 +38,18 @@ import org.slf4j.Logger;
 public class NrgBlockPrice extends NrgPriceAdvisor<AionBlock, AionTransaction> {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
-    private ArrayBlockingQueue<Long> blkPriceQ;
 
-    // enforce writes through buildRecommendation() to happen serially if multiple objects try to
-    // hold reference
-    // to this object. ie. enforce only one writer to populate the block list at a time
-    // private Object recommendationBuilderLock = new Object();
+    // ring buffer of the block prices in the window and the numbers of their blocks, oldest first
+    private final long[] blkPrices;
+    private final long[] blkNumbers;
+    private int head;
+    private int count;
+
+    // the lower multiset holds the (recommendationIndex + 1) smallest prices of the window, so the
+    // recommendation is its largest element; both map a price to the number of its occurrences
+    private final TreeMap<Long, Integer> lower = new TreeMap<>();
+    private final TreeMap<Long, Integer> upper = new TreeMap<>();
+    private int lowerSize;
 
     int percentile;
     int windowSize;
@@ -58,18 +70,19 @@ public class NrgBlockPrice extends NrgPriceAdvisor<AionBlock, AionTransaction> {
             this.windowSize = windowSize;
 
             // percentile enforced to be between 0-100, so i should exist within array bounds
-            this.recommendationIndex = (int) Math.round(windowSize * percentile / 100d);
+            this.recommendationIndex = (int) Math.round(windowSize * this.percentile / 100d);
             if (this.recommendationIndex > (windowSize - 1))
                 this.recommendationIndex = windowSize - 1;
         }
 
-        blkPriceQ = new ArrayBlockingQueue<>(windowSize);
+        blkPrices = new long[this.windowSize];
+        blkNumbers = new long[this.windowSize];
     }
 
     @Override
-    // in order to have good recommendations, we try to keep the blkPriceQ full
+    // in order to have good recommendations, we try to keep the window full
     public boolean isHungry() {
-        return (blkPriceQ.remainingCapacity() > 0);
+        return count < windowSize;
     }
 
     // notion of "block price" = lowest gas price for all transactions in a block, exluding miner's
@@ -96,35 +109,107 @@ public class NrgBlockPrice extends NrgPriceAdvisor<AionBlock, AionTransaction> {
     }
 
     /* Onus on the holder of an NrgPriceAdvisor instance to provide guarantees on:
-     * 1) Blocks provided in the right order
+     * 1) Blocks provided in ascending order
      * 2) No duplicate blocks provided
      *
-     * No mechanism anywhere to invalidate computed blkPrice values here (in case of chain re-orgs, etc.)
-     * Rationale: if the block was mined and accepted by some part of the network that included this node,
-     * then that block represents work done by the network; the person who did the work should have made the
-     * greediest gasPrice decisions wrt. including transactions in the block. Therefore, those side-chained
-     * blocks are valid signals by miners of acceptable nrg prices
+     * When the chain re-orgs, the holder rolls back the prices of the blocks that left the main
+     * chain with rollback() before providing the blocks of the new chain.
      */
     @Override
-    @SuppressWarnings("Duplicates")
     public void processBlock(AionBlock blk) {
         if (blk == null) return;
 
         Long blkPrice = getBlkPrice(blk);
 
         if (blkPrice != null) {
-            if (!blkPriceQ.offer(blkPrice)) {
-                blkPriceQ.poll();
-                if (!blkPriceQ.offer(blkPrice))
-                    LOG.error("NrgBlockPrice - problem with backing queue implementation");
-                // alternatively, we could throw here
+            if (count == windowSize) {
+                removeOldest();
             }
+
+            int tail = (head + count) % windowSize;
+            blkPrices[tail] = blkPrice;
+            blkNumbers[tail] = blk.getNumber();
+            count++;
+            insert(blkPrice);
+        }
+    }
+
+    /** Removes the prices of the blocks with a number greater than or equal to the given one. */
+    public void rollback(long blkNumber) {
+        while (count > 0) {
+            int tail = (head + count - 1) % windowSize;
+            if (blkNumbers[tail] < blkNumber) break;
+
+            count--;
+            delete(blkPrices[tail]);
+        }
+    }
+
+    /** Removes the prices of the blocks with a number lower than the given one. */
+    public void expire(long blkNumber) {
+        while (count > 0 && blkNumbers[head] < blkNumber) {
+            removeOldest();
+        }
+    }
+
+    private void removeOldest() {
+        long price = blkPrices[head];
+        head = (head + 1) % windowSize;
+        count--;
+        delete(price);
+    }
+
+    private void insert(long price) {
+        if (lower.isEmpty() || price <= lower.lastKey()) {
+            increment(lower, price);
+            lowerSize++;
+        } else {
+            increment(upper, price);
+        }
+        rebalance();
+    }
+
+    private void delete(long price) {
+        if (!lower.isEmpty() && price <= lower.lastKey()) {
+            decrement(lower, price);
+            lowerSize--;
+        } else {
+            decrement(upper, price);
+        }
+        rebalance();
+    }
+
+    // keeps the (recommendationIndex + 1) smallest prices in the lower multiset
+    private void rebalance() {
+        while (lowerSize > recommendationIndex + 1) {
+            long price = lower.lastKey();
+            decrement(lower, price);
+            lowerSize--;
+            increment(upper, price);
+        }
+        while (lowerSize < recommendationIndex + 1 && !upper.isEmpty()) {
+            long price = upper.firstKey();
+            decrement(upper, price);
+            increment(lower, price);
+            lowerSize++;
         }
     }
 
+    private static void increment(Map<Long, Integer> prices, long price) {
+        prices.merge(price, 1, Integer::sum);
+    }
+
+    private static void decrement(Map<Long, Integer> prices, long price) {
+        prices.computeIfPresent(price, (k, v) -> v == 1 ? null : v - 1);
+    }
+
     @Override
     public void flush() {
-        blkPriceQ.clear();
+        head = 0;
+        count = 0;
+        lower.clear();
+        upper.clear();
+        lowerSize = 0;
     }
 
     @Override
@@ -135,11 +220,7 @@ public class NrgBlockPrice extends NrgPriceAdvisor<AionBlock, AionTransaction> {
         // transaction with any gasPrice > some minimum threshold they've set internally.
         if (isHungry()) return defaultPrice;
 
-        // let the backing syncronized collection do the locking for us.
-        Long[] blkPrice = blkPriceQ.toArray(new Long[blkPriceQ.size()]);
-        Arrays.sort(blkPrice);
-
-        long recommendation = blkPrice[recommendationIndex];
+        long recommendation = lower.lastKey();
 
         // clamp the recommendation at the top if necessary
         // no minimum clamp since we can let the price go as low as the network deems profitable
@@ -78,8 +78,10 @@ import org.aion.zero.impl.blockchain.IAionChain;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.config.CfgConsensusPow;
 import org.aion.zero.impl.config.CfgEnergyStrategy;
+import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.LogIndex;
 import org.aion.zero.impl.sync.PeerState;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
@@ -1160,13 +1162,37 @@ public class ApiWeb3Aion extends ApiAion {
             // installation.
 
             toBlock = toBlock == null ? getBestBlock() : toBlock;
-            for (long i = fromBlock.getNumber(); i <= toBlock.getNumber(); i++) {
+            long from = fromBlock.getNumber();
+            long to = toBlock.getNumber();
+
+            IAionBlockchain chain = this.ac.getAionHub().getBlockchain();
+            LogIndex index = chain.getLogIndex();
+
+            // blocks stored before the index was populated are searched one by one
+            long firstIndexed = Math.max(from, index.getFirstIndexedBlock());
+            for (long i = from; i <= to && i < firstIndexed; i++) {
                 if (filter.isFull()) {
-                    break;
+                    return filter;
+                }
+                filter.onBlock(chain.getBlockByNumber(i), chain);
+            }
+
+            if (firstIndexed <= to) {
+                List<Long> candidates =
+                        index.findCandidateBlocks(rf.address, rf.topics, firstIndexed, to);
+                if (candidates == null) {
+                    // the filter matches all logs
+                    for (long i = firstIndexed; i <= to && !filter.isFull(); i++) {
+                        filter.onBlock(chain.getBlockByNumber(i), chain);
+                    }
+                } else {
+                    for (long i : candidates) {
+                        if (filter.isFull()) {
+                            break;
+                        }
+                        filter.onBlock(chain.getBlockByNumber(i), chain);
+                    }
                 }
-                filter.onBlock(
-                        this.ac.getBlockchain().getBlockByNumber(i),
-                        this.ac.getAionHub().getBlockchain());
             }
         }
 
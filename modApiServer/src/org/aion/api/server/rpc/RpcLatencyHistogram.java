@@ -0,0 +1,88 @@
+package org.aion.api.server.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of the time taken by the calls to a single rpc method.
+ *
+ * <p>Latencies are counted in buckets of exponentially growing width: bucket {@code i} holds the
+ * calls that took less than {@code 2^i} microseconds and at least half of that. Percentiles are
+ * therefore approximate, reporting the upper bound of the bucket they fall in. Recording a call
+ * does not allocate and is safe to do from multiple threads.
+ */
+public final class RpcLatencyHistogram {
+
+    // the last bucket holds everything above ~35 minutes
+    private static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public RpcLatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /** Records a call that took the given time in nanoseconds. */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+
+        buckets[bucket].increment();
+        count.increment();
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Returns the number of recorded calls. */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /** Returns the average time in nanoseconds of the recorded calls. */
+    public long getAverage() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : total.sum() / calls;
+    }
+
+    /** Returns the longest time in nanoseconds of the recorded calls. */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound in nanoseconds of the time taken by the given percentage of the
+     * recorded calls.
+     */
+    public long getPercentile(double percentile) {
+        long calls = count.sum();
+        if (calls == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(calls * Math.min(100, Math.max(0, percentile)) / 100d);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min((1L << i) * 1_000, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "count=%d latency(avg/p50/p99/max)=%.3f/%.3f/%.3f/%.3f ms",
+                getCount(),
+                getAverage() / 1_000_000d,
+                getPercentile(50) / 1_000_000d,
+                getPercentile(99) / 1_000_000d,
+                getMax() / 1_000_000d);
+    }
+}
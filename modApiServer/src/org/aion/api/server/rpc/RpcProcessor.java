@@ -1,20 +1,36 @@
 package org.aion.api.server.rpc;
 
 import com.google.common.base.Stopwatch;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
-import org.apache.commons.lang3.StringUtils;
-import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.slf4j.Logger;
 
+/**
+ * Processes json-rpc requests.
+ *
+ * <p>Requests are parsed as they are read from the request body and responses are serialized
+ * straight to the response writer, without building the request or response body as a string.
+ * The responses of batch requests are written as soon as each call completes. The time taken by
+ * the calls is recorded per method, see {@link #getStats(String)}.
+ */
 public class RpcProcessor {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
@@ -22,9 +38,10 @@ public class RpcProcessor {
     private RpcMethods apiHolder;
 
     private ExecutorService executor;
-    private CompletionService<JSONObject> batchCallCompletionService;
     private final int SHUTDOWN_WAIT_SECONDS = 5;
 
+    private final Map<String, RpcLatencyHistogram> latencies = new ConcurrentHashMap<>();
+
     public RpcProcessor(
             final List<String> enabledGroups,
             final List<String> enabledMethods,
@@ -34,35 +51,58 @@ public class RpcProcessor {
         executor =
                 Executors.newFixedThreadPool(
                         Math.min(Runtime.getRuntime().availableProcessors() * 2, 4));
-        batchCallCompletionService = new ExecutorCompletionService<>(executor);
     }
 
     public String process(String _requestBody) {
-        String response = composeRpcResponse(new RpcMsg(null, RpcError.INVALID_REQUEST).toString());
-
+        StringWriter response = new StringWriter();
         try {
-            String requestBody = _requestBody.trim();
-            if (!StringUtils.isEmpty(requestBody)) {
-                char firstChar = requestBody.charAt(0);
-                if (firstChar == '{') response = handleSingle(requestBody);
-                else if (firstChar == '[') response = handleBatch(requestBody);
-            }
+            process(new StringReader(_requestBody), response);
+            return response.toString();
         } catch (Exception e) {
             LOG.debug("<rpc-server - failed to process rpc request body>", e);
         }
 
-        return response;
+        return new RpcMsg(null, RpcError.INVALID_REQUEST).toString();
     }
 
-    private String composeRpcResponse(String _respBody) {
-        String respBody;
-        if (_respBody == null) {
-            respBody = new RpcMsg(null, RpcError.INTERNAL_ERROR).toString();
+    /**
+     * Reads a single or batch rpc request from the given reader and writes the response to the
+     * given writer.
+     *
+     * @throws IOException when writing the response fails
+     */
+    public void process(Reader requestBody, Writer response) throws IOException {
+        JSONTokener tokener = new JSONTokener(requestBody);
+
+        char firstChar;
+        try {
+            firstChar = tokener.nextClean();
+        } catch (JSONException e) {
+            LOG.debug("<rpc-server - failed to process rpc request body>", e);
+            firstChar = 0;
+        }
+
+        if (firstChar == '{') {
+            tokener.back();
+            handleSingle(tokener, response);
+        } else if (firstChar == '[') {
+            handleBatch(tokener, response);
         } else {
-            respBody = _respBody;
+            write(new RpcMsg(null, RpcError.INVALID_REQUEST).toJson(), response);
+        }
+    }
+
+    private static void write(JSONObject json, Writer writer) throws IOException {
+        try {
+            json.write(writer);
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
         }
 
-        return respBody;
+        if (LOG.isTraceEnabled()) LOG.trace("<rpc-server response={}>", json);
     }
 
     private JSONObject processObject(JSONObject body) {
@@ -94,15 +134,19 @@ public class RpcProcessor {
                     LOG.debug("<request mth=[{}] params={}>", method, params.toString());
                 else LOG.debug("<request mth=[{}]>", method);
 
-                // Delegating timing request to Guava's Stopwatch
-                boolean shouldTime = LOG.isDebugEnabled();
-                Stopwatch timer = null;
-                if (shouldTime) timer = Stopwatch.createStarted();
-                RpcMsg response = rpc.call(params);
-                if (shouldTime) {
-                    timer.stop();
-                    LOG.debug(
-                            "<request mth=[{}] rpc-process time: [{}]>", method, timer.toString());
+                RpcMsg response;
+                long start = System.nanoTime();
+                try {
+                    response = rpc.call(params);
+                } finally {
+                    long time = System.nanoTime() - start;
+                    latencies.computeIfAbsent(method, k -> new RpcLatencyHistogram()).record(time);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(
+                                "<request mth=[{}] rpc-process time: [{} ms]>",
+                                method,
+                                time / 1_000_000d);
+                    }
                 }
 
                 return response.setId(id).toJson();
@@ -119,78 +163,96 @@ public class RpcProcessor {
     }
 
     // implementing http://www.jsonrpc.org/specification#batch
-    private String handleBatch(String _reqBody) {
-        try {
-            JSONArray reqBodies;
-
-            try {
-                reqBodies = new JSONArray(_reqBody);
-                if (reqBodies.length() < 1) throw new Exception();
-            } catch (Exception e) {
-                // rpc call Batch, invalid JSON
-                // rpc call with an empty Array
-                LOG.debug("<rpc-server - rpc call parse error [4]>", e);
-                return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
-            }
-
-            // time batch completion
-            boolean shouldTime = LOG.isDebugEnabled();
-            Stopwatch timer = null;
-            if (shouldTime) timer = Stopwatch.createStarted();
-
-            for (int i = 0; i < reqBodies.length(); i++) {
-                batchCallCompletionService.submit(new BatchCallTask(reqBodies.getJSONObject(i)));
-            }
-
-            JSONArray respBodies = new JSONArray();
-            for (int i = 0; i < reqBodies.length(); i++) {
-                respBodies.put(batchCallCompletionService.take().get());
-            }
+    private void handleBatch(JSONTokener tokener, Writer response) throws IOException {
+        List<Object> reqBodies = new ArrayList<>();
 
-            if (shouldTime) {
-                timer.stop();
-                LOG.debug(
-                        "<batch request for [{}] entities finished in [{}]>",
-                        reqBodies.length(),
-                        timer.toString());
+        try {
+            if (tokener.nextClean() != ']') {
+                tokener.back();
+                while (true) {
+                    reqBodies.add(tokener.nextValue());
+
+                    char c = tokener.nextClean();
+                    if (c == ']') break;
+                    if (c != ',') throw tokener.syntaxError("Expected a ',' or ']'");
+                }
             }
+            if (reqBodies.isEmpty()) throw tokener.syntaxError("Empty batch");
+        } catch (JSONException e) {
+            // rpc call Batch, invalid JSON
+            // rpc call with an empty Array
+            LOG.debug("<rpc-server - rpc call parse error [4]>", e);
+            write(new RpcMsg(null, RpcError.PARSE_ERROR).toJson(), response);
+            return;
+        }
 
-            String respBody = respBodies.toString();
+        // time batch completion
+        boolean shouldTime = LOG.isDebugEnabled();
+        Stopwatch timer = null;
+        if (shouldTime) timer = Stopwatch.createStarted();
 
-            if (LOG.isTraceEnabled()) LOG.trace("<rpc-server response={}>", respBody);
+        // one completion service per batch, so that concurrent batches only see their own calls
+        CompletionService<JSONObject> completionService =
+                new ExecutorCompletionService<>(executor);
+        for (Object reqBody : reqBodies) {
+            completionService.submit(new BatchCallTask(reqBody));
+        }
 
-            return composeRpcResponse(respBody);
+        // the responses are written in the order in which the calls complete
+        response.write('[');
+        for (int i = 0; i < reqBodies.size(); i++) {
+            if (i > 0) response.write(',');
+            write(takeResponse(completionService), response);
+        }
+        response.write(']');
+
+        if (shouldTime) {
+            timer.stop();
+            LOG.debug(
+                    "<batch request for [{}] entities finished in [{}]>",
+                    reqBodies.size(),
+                    timer.toString());
+        }
+    }
 
+    private static JSONObject takeResponse(CompletionService<JSONObject> completionService) {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.debug("<rpc-server - interrupted waiting for batch call [6]>", e);
         } catch (Exception e) {
             LOG.debug("<rpc-server - internal error [6]>", e);
         }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString());
+        return new RpcMsg(null, RpcError.INTERNAL_ERROR).toJson();
     }
 
-    private String handleSingle(String _reqBody) {
+    private void handleSingle(JSONTokener tokener, Writer response) throws IOException {
+        JSONObject obj;
         try {
-            JSONObject obj = new JSONObject(_reqBody);
-            return composeRpcResponse(processObject(obj).toString());
-        } catch (Exception e) {
+            obj = new JSONObject(tokener);
+        } catch (JSONException e) {
             // rpc call with invalid JSON
             LOG.debug("<rpc-server - rpc call parse error [7]>", e);
+            write(new RpcMsg(null, RpcError.PARSE_ERROR).toJson(), response);
+            return;
         }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
+        write(processObject(obj), response);
     }
 
     private class BatchCallTask implements Callable<JSONObject> {
-        private JSONObject task;
+        private Object task;
 
-        public BatchCallTask(JSONObject task) {
+        public BatchCallTask(Object task) {
             this.task = task;
         }
 
         @Override
         public JSONObject call() {
             try {
-                return processObject(task);
+                return processObject((JSONObject) task);
             } catch (Exception e) {
                 LOG.debug("<rpc-server - processObject failed in batch request>", e);
                 return new RpcMsg(null, RpcError.INVALID_REQUEST, "INVALID_REQUEST").toJson();
@@ -198,7 +260,25 @@ public class RpcProcessor {
         }
     }
 
+    /** Returns the latency histogram of the given method or null if it was never called. */
+    public RpcLatencyHistogram getStats(String method) {
+        return latencies.get(method);
+    }
+
+    /** Returns the latency histograms of all called methods in a readable format. */
+    public String getStatsSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, RpcLatencyHistogram> e : latencies.entrySet()) {
+            sb.append(" mth[").append(e.getKey()).append("] ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+
     public void shutdown() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<rpc-server - method stats:{}>", getStatsSummary());
+        }
+
         apiHolder.shutdown();
 
         executor.shutdown();
@@ -39,7 +39,7 @@ public class Blk {
         obj.put("totalDifficulty", StringUtils.toJsonHex(totalDifficulty));
 
         // TODO: this is coinbase, miner, or minerAddress?
-        obj.put("miner", StringUtils.toJsonHex(block.getCoinbase().toString()));
+        obj.put("miner", StringUtils.toJsonHex(block.getCoinbase().toBytes()));
         obj.put("timestamp", StringUtils.toJsonHex(block.getTimestamp()));
         obj.put("nonce", StringUtils.toJsonHex(block.getNonce()));
         obj.put("solution", StringUtils.toJsonHex(block.getHeader().getSolution()));
@@ -60,7 +60,7 @@ public class Blk {
                 jsonTx.put(
                         "contractAddress",
                         (tx.getContractAddress() != null)
-                                ? StringUtils.toJsonHex(tx.getContractAddress().toString())
+                                ? StringUtils.toJsonHex(tx.getContractAddress().toBytes())
                                 : null);
                 jsonTx.put("hash", StringUtils.toJsonHex(tx.getTransactionHash()));
                 jsonTx.put("transactionIndex", i);
@@ -70,7 +70,7 @@ public class Blk {
                 jsonTx.put("gas", tx.getEnergyLimit());
                 jsonTx.put("gasPrice", StringUtils.toJsonHex(tx.getEnergyPrice()));
                 jsonTx.put("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
-                jsonTx.put("from", StringUtils.toJsonHex(tx.getSenderAddress().toString()));
+                jsonTx.put("from", StringUtils.toJsonHex(tx.getSenderAddress().toBytes()));
                 jsonTx.put(
                         "to",
                         StringUtils.toJsonHex(
@@ -107,7 +107,7 @@ public class Blk {
         obj.put("difficulty", StringUtils.toJsonHex(block.getDifficulty()));
         obj.put("totalDifficulty", StringUtils.toJsonHex(totalDifficulty));
 
-        obj.put("miner", StringUtils.toJsonHex(block.getCoinbase().toString()));
+        obj.put("miner", StringUtils.toJsonHex(block.getCoinbase().toBytes()));
         obj.put("timestamp", StringUtils.toJsonHex(block.getTimestamp()));
         obj.put("nonce", StringUtils.toJsonHex(block.getNonce()));
         obj.put("solution", StringUtils.toJsonHex(block.getHeader().getSolution()));
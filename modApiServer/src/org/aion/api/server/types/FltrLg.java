@@ -7,6 +7,7 @@ import org.aion.interfaces.block.Block;
 import org.aion.interfaces.block.BlockSummary;
 import org.aion.interfaces.tx.Transaction;
 import org.aion.mcf.vm.types.Bloom;
+import org.aion.util.conversions.CachedHex;
 import org.aion.vm.api.interfaces.IExecutionLog;
 import org.aion.zero.impl.core.BloomFilter;
 import org.aion.zero.impl.core.IAionBlockchain;
@@ -49,12 +50,14 @@ public final class FltrLg extends Fltr {
         Block blk = bs.getBlock();
 
         if (matchBloom(new Bloom(((IAionBlock) blk).getLogBloom()))) {
+            CachedHex blkHash = CachedHex.wrap(blk.getHash());
             int txIndex = 0;
             for (AionTxReceipt receipt : receipts) {
                 Transaction tx = receipt.getTransaction();
                 if (tx.getDestinationAddress() != null
                         && matchesContractAddress(tx.getDestinationAddress().toBytes())) {
                     if (matchBloom(receipt.getBloomFilter())) {
+                        CachedHex txHash = CachedHex.wrap(tx.getTransactionHash());
                         int logIndex = 0;
                         for (IExecutionLog logInfo : receipt.getLogInfoList()) {
                             if (matchBloom(logInfo.getBloomFilterForLog())
@@ -64,8 +67,9 @@ public final class FltrLg extends Fltr {
                                                 new TxRecptLg(
                                                         logInfo,
                                                         blk,
+                                                        blkHash,
                                                         txIndex,
-                                                        receipt.getTransaction(),
+                                                        txHash,
                                                         logIndex,
                                                         true)));
                             }
@@ -85,6 +89,7 @@ public final class FltrLg extends Fltr {
     // filter gives a positive match for;
     public boolean onBlock(IAionBlock blk, IAionBlockchain chain) {
         if (matchBloom(new Bloom(blk.getLogBloom()))) {
+            CachedHex blkHash = CachedHex.wrap(blk.getHash());
             int txIndex = 0;
             for (Transaction txn : blk.getTransactionsList()) {
                 if (txn.getDestinationAddress() != null
@@ -95,6 +100,7 @@ public final class FltrLg extends Fltr {
                     AionTxInfo txInfo = chain.getTransactionInfo(txn.getTransactionHash());
                     AionTxReceipt receipt = txInfo.getReceipt();
                     if (matchBloom(receipt.getBloomFilter())) {
+                        CachedHex txHash = CachedHex.wrap(txn.getTransactionHash());
                         int logIndex = 0;
                         for (IExecutionLog logInfo : receipt.getLogInfoList()) {
                             if (matchBloom(logInfo.getBloomFilterForLog())
@@ -102,7 +108,12 @@ public final class FltrLg extends Fltr {
                                 add(
                                         new EvtLg(
                                                 new TxRecptLg(
-                                                        logInfo, blk, txIndex, txn, logIndex,
+                                                        logInfo,
+                                                        blk,
+                                                        blkHash,
+                                                        txIndex,
+                                                        txHash,
+                                                        logIndex,
                                                         true)));
                             }
                             logIndex++;
@@ -37,7 +37,7 @@ public class Tx {
         json.put(
                 "contractAddress",
                 (tx.getContractAddress() != null)
-                        ? StringUtils.toJsonHex(tx.getContractAddress().toString())
+                        ? StringUtils.toJsonHex(tx.getContractAddress().toBytes())
                         : null);
         json.put("hash", StringUtils.toJsonHex(tx.getTransactionHash()));
         json.put("transactionIndex", index);
@@ -47,7 +47,7 @@ public class Tx {
         json.put("gas", tx.getEnergyLimit());
         json.put("gasPrice", StringUtils.toJsonHex(tx.getEnergyPrice()));
         json.put("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
-        json.put("from", StringUtils.toJsonHex(tx.getSenderAddress().toString()));
+        json.put("from", StringUtils.toJsonHex(tx.getSenderAddress().toBytes()));
         json.put(
                 "to",
                 StringUtils.toJsonHex(
@@ -9,6 +9,7 @@ import org.aion.mcf.core.AbstractTxInfo;
 import org.aion.mcf.types.AbstractTransaction;
 import org.aion.mcf.types.AbstractTxReceipt;
 import org.aion.util.bytes.ByteUtil;
+import org.aion.util.conversions.CachedHex;
 import org.aion.util.string.StringUtils;
 import org.aion.vm.api.interfaces.IExecutionLog;
 import org.aion.zero.impl.types.AionBlock;
@@ -79,19 +80,22 @@ public final class TxRecpt {
                     boolean isMainchain) {
 
         AbstractTxReceipt<TX> receipt = txInfo.getReceipt();
+        CachedHex txHash = CachedHex.wrap(receipt.getTransaction().getTransactionHash());
         if (block != null) {
             this.blockHash = toJsonHex(txInfo.getBlockHash());
             this.blockNumber = block.getNumber();
             this.txRoot = block.getReceiptsRoot();
             this.logs = new TxRecptLg[receipt.getLogInfoList().size()];
+            CachedHex blkHash = CachedHex.wrap(block.getHash());
             for (int i = 0; i < this.logs.length; i++) {
                 IExecutionLog logInfo = receipt.getLogInfoList().get(i);
                 this.logs[i] =
                         new TxRecptLg(
                                 logInfo,
                                 block,
+                                blkHash,
                                 txInfo.getIndex(),
-                                receipt.getTransaction(),
+                                txHash,
                                 i,
                                 isMainchain);
             }
@@ -104,8 +108,8 @@ public final class TxRecpt {
 
         if (receipt.getTransaction().getContractAddress() != null)
             this.contractAddress =
-                    toJsonHex(receipt.getTransaction().getContractAddress().toString());
-        this.transactionHash = toJsonHex(receipt.getTransaction().getTransactionHash());
+                    toJsonHex(receipt.getTransaction().getContractAddress().toBytes());
+        this.transactionHash = txHash.toJsonHex();
         this.transactionIndex = txInfo.getIndex();
         this.root = ByteUtil.toHexString(this.txRoot);
         this.fromAddr = receipt.getTransaction().getSenderAddress();
@@ -135,9 +139,12 @@ public final class TxRecpt {
             boolean isMainchain) {
 
         AionTransaction tx = receipt.getTransaction();
+        CachedHex txHash = CachedHex.wrap(tx.getTransactionHash());
 
+        CachedHex blkHash = null;
         if (block != null) {
-            this.blockHash = toJsonHex(block.getHash());
+            blkHash = CachedHex.wrap(block.getHash());
+            this.blockHash = blkHash.toJsonHex();
             this.blockNumber = block.getNumber();
             this.txRoot = block.getReceiptsRoot();
         }
@@ -145,9 +152,7 @@ public final class TxRecpt {
         this.logs = new TxRecptLg[receipt.getLogInfoList().size()];
         for (int i = 0; i < this.logs.length; i++) {
             IExecutionLog logInfo = receipt.getLogInfoList().get(i);
-            this.logs[i] =
-                    new TxRecptLg(
-                            logInfo, block, txIndex, receipt.getTransaction(), i, isMainchain);
+            this.logs[i] = new TxRecptLg(logInfo, block, blkHash, txIndex, txHash, i, isMainchain);
         }
 
         this.cumulativeNrgUsed = cumulativeNrgUsed;
@@ -155,9 +160,9 @@ public final class TxRecpt {
 
         this.contractAddress =
                 tx.getContractAddress() != null
-                        ? toJsonHex(tx.getContractAddress().toString())
+                        ? toJsonHex(tx.getContractAddress().toBytes())
                         : null;
-        this.transactionHash = toJsonHex(tx.getTransactionHash());
+        this.transactionHash = txHash.toJsonHex();
         this.transactionIndex = txIndex;
         this.root = this.txRoot != null ? ByteUtil.toHexString(this.txRoot) : null;
         this.fromAddr = tx.getSenderAddress();
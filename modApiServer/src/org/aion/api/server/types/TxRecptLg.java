@@ -2,6 +2,7 @@ package org.aion.api.server.types;
 
 import org.aion.interfaces.block.Block;
 import org.aion.interfaces.tx.Transaction;
+import org.aion.util.conversions.CachedHex;
 import org.aion.util.string.StringUtils;
 import org.aion.vm.api.interfaces.IExecutionLog;
 
@@ -28,13 +29,35 @@ public class TxRecptLg {
 
     public <TX extends Transaction> TxRecptLg(
             IExecutionLog logInfo, Block b, Integer txIndex, TX tx, int logIdx, boolean isMainchain) {
+        this(
+                logInfo,
+                b,
+                b == null ? null : CachedHex.wrap(b.getHash()),
+                txIndex,
+                CachedHex.wrap(tx.getTransactionHash()),
+                logIdx,
+                isMainchain);
+    }
+
+    /**
+     * Takes the block and transaction hash wrapped by the caller, so that their hex encoding is
+     * computed once for all the logs of the same block or transaction.
+     */
+    public TxRecptLg(
+            IExecutionLog logInfo,
+            Block b,
+            CachedHex blockHash,
+            Integer txIndex,
+            CachedHex txHash,
+            int logIdx,
+            boolean isMainchain) {
         this.logIndex = StringUtils.toJsonHex(logIdx);
         this.blockNumber = b == null ? null : StringUtils.toJsonHex(b.getNumber());
-        this.blockHash = b == null ? null : StringUtils.toJsonHex(b.getHash());
+        this.blockHash = b == null ? null : blockHash.toJsonHex();
         this.transactionIndex =
                 (b == null || txIndex == null) ? null : StringUtils.toJsonHex(txIndex);
-        this.transactionHash = StringUtils.toJsonHex(tx.getTransactionHash());
-        this.address = StringUtils.toJsonHex(logInfo.getSourceAddress().toString());
+        this.transactionHash = txHash.toJsonHex();
+        this.address = StringUtils.toJsonHex(logInfo.getSourceAddress().toBytes());
         this.data = StringUtils.toJsonHex(logInfo.getData());
         this.removed = !isMainchain;
 
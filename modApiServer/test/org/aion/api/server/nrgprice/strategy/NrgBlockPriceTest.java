@@ -0,0 +1,146 @@
+package org.aion.api.server.nrgprice.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.aion.types.Address;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+public class NrgBlockPriceTest {
+
+    private static final long DEFAULT_PRICE = 10;
+    private static final long MAX_PRICE = 1_000_000;
+
+    private static final Address MINER = Address.wrap(new byte[32]);
+    private static final Address SENDER = Address.wrap(filled((byte) 1));
+
+    private static byte[] filled(byte value) {
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+
+    private static AionTransaction tx(Address sender, long price) {
+        AionTransaction tx = mock(AionTransaction.class);
+        when(tx.getSenderAddress()).thenReturn(sender);
+        when(tx.getEnergyPrice()).thenReturn(price);
+        return tx;
+    }
+
+    private static AionBlock block(long number, AionTransaction... txs) {
+        AionBlock block = mock(AionBlock.class);
+        when(block.getNumber()).thenReturn(number);
+        when(block.getCoinbase()).thenReturn(MINER);
+        when(block.getTransactionsList()).thenReturn(Arrays.asList(txs));
+        return block;
+    }
+
+    private static long expected(List<Long> window, int index) {
+        List<Long> sorted = new ArrayList<>(window);
+        Collections.sort(sorted);
+        return sorted.get(index);
+    }
+
+    @Test
+    public void testBlockPrice_excludesMinerTransactions() {
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, 1, 0);
+
+        advisor.processBlock(block(1, tx(MINER, 1), tx(SENDER, 50), tx(SENDER, 40)));
+        assertEquals(40, advisor.computeRecommendation());
+
+        // blocks without a price do not change the window
+        advisor.processBlock(block(2, tx(MINER, 1)));
+        advisor.processBlock(block(3));
+        assertEquals(40, advisor.computeRecommendation());
+    }
+
+    @Test
+    public void testRecommendation_hungry() {
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, 3, 40);
+
+        advisor.processBlock(block(1, tx(SENDER, 100)));
+        advisor.processBlock(block(2, tx(SENDER, 200)));
+        assertTrue(advisor.isHungry());
+        assertEquals(DEFAULT_PRICE, advisor.computeRecommendation());
+
+        advisor.processBlock(block(3, tx(SENDER, 300)));
+        assertFalse(advisor.isHungry());
+        assertEquals(200, advisor.computeRecommendation());
+    }
+
+    @Test
+    public void testRecommendation_clampedAtMax() {
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, 1, 50);
+
+        advisor.processBlock(block(1, tx(SENDER, MAX_PRICE + 1)));
+        assertEquals(MAX_PRICE, advisor.computeRecommendation());
+    }
+
+    @Test
+    public void testSlidingWindow_matchesSortedWindow() {
+        int windowSize = 20;
+        int percentile = 60;
+        int index = (int) Math.round(windowSize * percentile / 100d);
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, windowSize, percentile);
+
+        Random random = new Random(7);
+        List<Long> window = new ArrayList<>();
+        for (long number = 1; number <= 200; number++) {
+            // few distinct prices to exercise duplicates
+            long price = 1 + random.nextInt(15);
+            advisor.processBlock(block(number, tx(SENDER, price)));
+
+            window.add(price);
+            if (window.size() > windowSize) {
+                window.remove(0);
+            }
+
+            if (window.size() == windowSize) {
+                assertEquals(expected(window, index), advisor.computeRecommendation());
+            }
+        }
+    }
+
+    @Test
+    public void testRollback() {
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, 3, 0);
+
+        advisor.processBlock(block(1, tx(SENDER, 30)));
+        advisor.processBlock(block(2, tx(SENDER, 20)));
+        advisor.processBlock(block(3, tx(SENDER, 10)));
+        assertEquals(10, advisor.computeRecommendation());
+
+        // blocks 2 and 3 are replaced by a fork
+        advisor.rollback(2);
+        assertTrue(advisor.isHungry());
+
+        advisor.processBlock(block(2, tx(SENDER, 40)));
+        advisor.processBlock(block(3, tx(SENDER, 50)));
+        assertEquals(30, advisor.computeRecommendation());
+    }
+
+    @Test
+    public void testExpire() {
+        NrgBlockPrice advisor = new NrgBlockPrice(DEFAULT_PRICE, MAX_PRICE, 2, 0);
+
+        advisor.processBlock(block(1, tx(SENDER, 10)));
+        advisor.processBlock(block(5, tx(SENDER, 20)));
+        assertEquals(10, advisor.computeRecommendation());
+
+        advisor.expire(2);
+        assertTrue(advisor.isHungry());
+
+        advisor.processBlock(block(6, tx(SENDER, 30)));
+        assertEquals(20, advisor.computeRecommendation());
+    }
+}
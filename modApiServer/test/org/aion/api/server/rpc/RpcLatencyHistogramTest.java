@@ -0,0 +1,57 @@
+package org.aion.api.server.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class RpcLatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        RpcLatencyHistogram histogram = new RpcLatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getAverage());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testRecord() {
+        RpcLatencyHistogram histogram = new RpcLatencyHistogram();
+
+        // 90 fast calls and 10 slow ones
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.getMax());
+        assertEquals(
+                (90 * TimeUnit.MICROSECONDS.toNanos(100) + 10 * TimeUnit.MILLISECONDS.toNanos(50))
+                        / 100,
+                histogram.getAverage());
+
+        // percentiles report the upper bound of their bucket
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= TimeUnit.MICROSECONDS.toNanos(100));
+        assertTrue(p50 <= TimeUnit.MICROSECONDS.toNanos(200));
+
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= TimeUnit.MILLISECONDS.toNanos(50) / 2);
+        assertTrue(p99 <= histogram.getMax());
+    }
+
+    @Test
+    public void testRecord_outOfRange() {
+        RpcLatencyHistogram histogram = new RpcLatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+}
@@ -0,0 +1,18 @@
+module aion.benchmark {
+    requires aion.util;
+    requires aion.log;
+    requires aion.rlp;
+    requires aion.crypto;
+    requires aion.mcf;
+    requires aion.db.impl;
+    requires aion.txpool;
+    requires aion.txpool.impl;
+    requires aion.vm;
+    requires aion.vm.api;
+    requires aion.zero;
+    requires aion.zero.impl;
+    requires slf4j.api;
+    requires jmh.core;
+
+    exports org.aion.benchmark;
+}
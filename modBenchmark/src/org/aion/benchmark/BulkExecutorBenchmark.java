@@ -0,0 +1,116 @@
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.ECKey;
+import org.aion.interfaces.db.RepositoryCache;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.Address;
+import org.aion.vm.BulkExecutor;
+import org.aion.vm.ExecutionBatch;
+import org.aion.vm.PostExecutionWork;
+import org.aion.vm.exception.VMException;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxExecSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+/**
+ * Benchmarks the execution of a block of balance transfers between the default accounts of a
+ * {@link StandaloneBlockchain}. Each invocation executes the same block on a fresh tracking
+ * repository that is discarded afterwards, so the world state does not change between runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkExecutorBenchmark {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.VM.name());
+
+    private static final int TRANSACTIONS_PER_SENDER = 20;
+
+    private AionRepositoryImpl repository;
+    private AionBlock block;
+
+    @Setup
+    public void setup() {
+        StandaloneBlockchain.Bundle bundle =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .build();
+        StandaloneBlockchain chain = bundle.bc;
+        List<ECKey> keys = bundle.privateKeys;
+
+        // every account sends to the next one so that senders and recipients overlap
+        List<AionTransaction> transactions = new ArrayList<>();
+        for (int nonce = 0; nonce < TRANSACTIONS_PER_SENDER; nonce++) {
+            for (int i = 0; i < keys.size(); i++) {
+                Address recipient = Address.wrap(keys.get((i + 1) % keys.size()).getAddress());
+                AionTransaction tx =
+                        new AionTransaction(
+                                BigInteger.valueOf(nonce).toByteArray(),
+                                recipient,
+                                BigInteger.TEN.toByteArray(),
+                                new byte[0],
+                                21_000L,
+                                10_000_000_000L);
+                tx.sign(keys.get(i));
+                transactions.add(tx);
+            }
+        }
+
+        AionBlock parent = chain.getBestBlock();
+        block = chain.createBlock(parent, transactions, false, parent.getTimestamp());
+        repository = chain.getRepository();
+    }
+
+    @Benchmark
+    public List<AionTxExecSummary> execute() throws VMException {
+        // the executor flushes each transaction into the track, which is discarded afterwards
+        RepositoryCache track = repository.startTracking();
+        RepositoryCache child = track.startTracking();
+        BulkExecutor executor =
+                new BulkExecutor(
+                        new ExecutionBatch(block, block.getTransactionsList()),
+                        track,
+                        child,
+                        false,
+                        true,
+                        block.getNrgLimit(),
+                        LOG,
+                        getPostExecutionWork());
+        List<AionTxExecSummary> summaries = executor.execute();
+        child.rollback();
+        track.rollback();
+        return summaries;
+    }
+
+    private static PostExecutionWork getPostExecutionWork() {
+        return (topRepository, childRepository, transactionSummary, transaction, energyLeft) -> {
+            if (transactionSummary.isRejected()) {
+                return 0;
+            }
+            childRepository.flush();
+            return transactionSummary.getReceipt().getEnergyUsed();
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package org.aion.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.HashUtil;
+import org.aion.crypto.ISignature;
+import org.aion.crypto.ed25519.ECKeyEd25519;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the hashing and signature operations performed for every transaction and trie
+ * node: blake2b over hash-sized and larger inputs and ed25519 signing and verification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private byte[] small;
+    private byte[] large;
+    private ECKeyEd25519 key;
+    private ISignature signature;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        small = new byte[32];
+        random.nextBytes(small);
+        large = new byte[1024];
+        random.nextBytes(large);
+
+        key = new ECKeyEd25519();
+        signature = key.sign(small);
+    }
+
+    @Benchmark
+    public byte[] blake2b32() {
+        return HashUtil.h256(small);
+    }
+
+    @Benchmark
+    public byte[] blake2b1024() {
+        return HashUtil.h256(large);
+    }
+
+    @Benchmark
+    public ISignature sign() {
+        return key.sign(small);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return ECKeyEd25519.verify(small, signature.getSignature(), signature.getPubkey(null));
+    }
+}
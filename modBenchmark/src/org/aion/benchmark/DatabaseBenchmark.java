@@ -0,0 +1,129 @@
+package org.aion.benchmark;
+
+import static org.aion.mcf.db.DatabaseUtils.deleteRecursively;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the key-value databases used by the kernel, both bare and with the heap cache
+ * and locking layers that {@link DatabaseFactory} can add on top of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    private static final int KEYS = 100_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"leveldb", "rocksdb", "h2"})
+    public String vendor;
+
+    /** The layer added on top of the vendor implementation: none, heap cache or locking. */
+    @Param({"none", "cache", "locking"})
+    public String wrapper;
+
+    private File directory;
+    private ByteArrayKeyValueDatabase database;
+    private byte[][] keys;
+    private byte[] value;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("aion-db-benchmark").toFile();
+
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, vendor);
+        props.setProperty(Props.DB_NAME, "benchmark");
+        props.setProperty(Props.DB_PATH, directory.getAbsolutePath());
+        props.setProperty(Props.ENABLE_DB_CACHE, "true");
+        props.setProperty(Props.ENABLE_DB_COMPRESSION, "false");
+        if (wrapper.equals("cache")) {
+            props.setProperty(Props.ENABLE_HEAP_CACHE, "true");
+            props.setProperty(Props.ENABLE_AUTO_COMMIT, "true");
+            props.setProperty(Props.MAX_HEAP_CACHE_SIZE, "1024");
+        } else if (wrapper.equals("locking")) {
+            props.setProperty(Props.ENABLE_LOCKING, "true");
+        }
+
+        database = DatabaseFactory.connect(props);
+        if (database == null || !database.open()) {
+            throw new IllegalStateException("Unable to open the " + vendor + " database.");
+        }
+
+        Random random = new Random(42);
+        keys = new byte[KEYS][32];
+        value = new byte[128];
+        random.nextBytes(value);
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            random.nextBytes(keys[i]);
+            batch.put(keys[i], value);
+            if (batch.size() == 10_000) {
+                database.putBatch(batch);
+                batch.clear();
+            }
+        }
+        database.putBatch(batch);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+        deleteRecursively(directory);
+    }
+
+    private byte[] nextKey() {
+        next = next + 1 == KEYS ? 0 : next + 1;
+        return keys[next];
+    }
+
+    @Benchmark
+    public Optional<byte[]> get() {
+        return database.get(nextKey());
+    }
+
+    @Benchmark
+    public void put() {
+        database.put(nextKey(), value);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putBatch() {
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.put(nextKey(), value);
+        }
+        database.putBatch(batch);
+    }
+}
@@ -0,0 +1,77 @@
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for encoding and decoding RLP lists shaped like transactions, i.e. a mix of small
+ * integers, 32 byte hashes and addresses and a variable length data field.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RlpBenchmark {
+
+    /** Number of transaction-like items in the encoded list. */
+    @Param({"1", "100"})
+    public int items;
+
+    private byte[][] elements;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        elements = new byte[items][];
+        for (int i = 0; i < items; i++) {
+            elements[i] = encodeTransaction(random, i);
+        }
+        encoded = RLP.encodeList(elements);
+    }
+
+    private static byte[] encodeTransaction(Random random, int nonce) {
+        return RLP.encodeList(
+                RLP.encodeBigInteger(BigInteger.valueOf(nonce)),
+                RLP.encodeElement(randomBytes(random, 32)),
+                RLP.encodeBigInteger(BigInteger.valueOf(random.nextInt(Integer.MAX_VALUE))),
+                RLP.encodeElement(randomBytes(random, random.nextInt(256))),
+                RLP.encodeLong(System.currentTimeMillis()),
+                RLP.encodeLong(2_000_000L),
+                RLP.encodeLong(10_000_000_000L),
+                RLP.encodeElement(randomBytes(random, 96)));
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public RLPList decode2() {
+        return RLP.decode2(encoded);
+    }
+
+    @Benchmark
+    public byte[] encodeList() {
+        return RLP.encodeList(elements);
+    }
+}
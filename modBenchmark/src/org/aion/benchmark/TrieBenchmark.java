@@ -0,0 +1,100 @@
+package org.aion.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.mcf.trie.TrieImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the state trie operations. Keys are hashes, matching the uniform distribution of
+ * the keys in the world state and storage tries, and values have the size of encoded accounts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrieBenchmark {
+
+    /** Number of entries in the trie before the measured operations. */
+    @Param({"1000", "100000"})
+    public int size;
+
+    private ByteArrayKeyValueDatabase database;
+    private TrieImpl trie;
+    private byte[][] keys;
+    private byte[][] values;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+        props.setProperty(Props.DB_NAME, "trie");
+        database = DatabaseFactory.connect(props);
+        database.open();
+
+        Random random = new Random(42);
+        keys = new byte[size][];
+        values = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            keys[i] = HashUtil.h256(Integer.toString(i).getBytes());
+            values[i] = new byte[70 + random.nextInt(30)];
+            random.nextBytes(values[i]);
+        }
+
+        trie = new TrieImpl(database);
+        for (int i = 0; i < size; i++) {
+            trie.update(keys[i], values[i]);
+        }
+        trie.getRootHash();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    private int nextIndex() {
+        next = next + 1 == size ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return trie.get(keys[nextIndex()]);
+    }
+
+    /** Overwrites an existing entry, which rewrites the nodes on the path to the root. */
+    @Benchmark
+    public void put() {
+        int index = nextIndex();
+        values[index][0]++;
+        trie.update(keys[index], values[index]);
+    }
+
+    /** Changes one entry and recomputes the root hash, as done once per modified account. */
+    @Benchmark
+    public byte[] putAndGetRootHash() {
+        put();
+        return trie.getRootHash();
+    }
+}
@@ -0,0 +1,105 @@
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.interfaces.tx.Transaction;
+import org.aion.txpool.ITxPool;
+import org.aion.txpool.zero.TxPoolA0;
+import org.aion.txpool.zero.TxPoolA1;
+import org.aion.types.Address;
+import org.aion.zero.types.AionTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for adding transactions to the pool and for taking the snapshot used when building
+ * block templates. The transactions are signed once during the setup so that only the pool
+ * operations are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TxPoolBenchmark {
+
+    private static final int SENDERS = 10;
+    private static final int TRANSACTIONS_PER_SENDER = 1000;
+
+    @Param({"TxPoolA0", "TxPoolA1"})
+    public String pool;
+
+    private List<Transaction> transactions;
+    private ITxPool<Transaction> filledPool;
+
+    /** Provides an empty pool for each invocation of {@link #add(EmptyPool)}. */
+    @State(Scope.Thread)
+    public static class EmptyPool {
+        ITxPool<Transaction> pool;
+
+        @Setup(Level.Invocation)
+        public void setup(TxPoolBenchmark benchmark) {
+            pool = createPool(benchmark.pool);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        Address destination = Address.wrap(new byte[Address.SIZE]);
+
+        transactions = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            ECKey key = ECKeyFac.inst().create();
+            for (int nonce = 0; nonce < TRANSACTIONS_PER_SENDER; nonce++) {
+                AionTransaction tx =
+                        new AionTransaction(
+                                BigInteger.valueOf(nonce).toByteArray(),
+                                Address.wrap(key.getAddress()),
+                                destination,
+                                BigInteger.ONE.toByteArray(),
+                                new byte[0],
+                                10_000L,
+                                10_000_000_000L + nonce % 10);
+                tx.setNrgConsume(21_000L);
+                tx.sign(key);
+                transactions.add(tx);
+            }
+        }
+
+        filledPool = createPool(pool);
+        filledPool.add(transactions);
+    }
+
+    private static ITxPool<Transaction> createPool(String implementation) {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        return "TxPoolA1".equals(implementation) ? new TxPoolA1<>(config) : new TxPoolA0<>(config);
+    }
+
+    @Benchmark
+    public List<Transaction> add(EmptyPool state) {
+        return state.pool.add(transactions);
+    }
+
+    @Benchmark
+    public List<Transaction> snapshot() {
+        return filledPool.snapshot();
+    }
+}
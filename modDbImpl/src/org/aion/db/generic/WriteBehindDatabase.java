@@ -0,0 +1,394 @@
+package org.aion.db.generic;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aion.db.impl.AbstractDB;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.interfaces.db.PersistenceMethod;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.ByteArrayWrapper;
+import org.slf4j.Logger;
+
+/**
+ * Database implementation that persists modifications asynchronously through a {@link
+ * WriteBehindQueue}.
+ *
+ * <p>Each batch write is applied to the underlying database as a single batch by the writer thread
+ * of the queue. Single writes are coalesced and submitted together with the next batch write, once
+ * {@link #MAX_COALESCED_WRITES} keys were changed, or when the queue reaches a checkpoint or is
+ * flushed. Until the writes are applied, the written values are kept in memory and served to
+ * readers, so that the asynchronous persistence is not observable through this instance.
+ *
+ * <p>The writes of one database are persisted in the order in which they were made. Across
+ * databases the writes are applied in submission order, but each database persists them
+ * independently, so the databases are not guaranteed to be consistent with each other after a
+ * crash.
+ *
+ * <p>Operations that need to observe the complete content of the underlying database (e.g. {@link
+ * #keys()}, {@link #isEmpty()}) or that change its lifecycle first wait for all the pending writes
+ * to be applied.
+ *
+ * @implNote The batch operations ({@link #putToBatch(byte[], byte[])}, {@link
+ *     #deleteInBatch(byte[])}) are buffered locally and become visible only after {@link
+ *     #commitBatch()}, matching the behaviour of the underlying implementations.
+ */
+public class WriteBehindDatabase implements ByteArrayKeyValueDatabase {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Underlying database implementation. */
+    private final ByteArrayKeyValueDatabase database;
+    /** Ordered queue used to persist the changes. */
+    private final WriteBehindQueue queue;
+
+    /** Maximum number of single writes held back before being submitted to the queue. */
+    static final int MAX_COALESCED_WRITES = 1024;
+
+    /** Values written but not yet applied to the database. */
+    private final Map<ByteArrayWrapper, PendingValue> pending = new ConcurrentHashMap<>();
+    /** Orders the updates of the pending values with their submission to the queue. */
+    private final Object writeLock = new Object();
+    /** Single writes coalesced into one batch that was not yet submitted to the queue. */
+    private Map<ByteArrayWrapper, PendingValue> coalesced = new HashMap<>();
+    /** Changes added through the batch operations and waiting for a call to commitBatch. */
+    private final Map<ByteArrayWrapper, byte[]> batch = new HashMap<>();
+
+    /** Wrapper used to distinguish between different writes of the same value. */
+    private static final class PendingValue {
+        /** The written value or {@code null} for deletions. */
+        private final byte[] value;
+
+        private PendingValue(byte[] value) {
+            this.value = value;
+        }
+    }
+
+    public WriteBehindDatabase(ByteArrayKeyValueDatabase database, WriteBehindQueue queue) {
+        this.database = database;
+        this.queue = queue;
+        queue.register(this);
+    }
+
+    /** Returns the number of keys with changes that have not yet been persisted. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + " over " + database.toString();
+    }
+
+    // IDatabase functionality
+    // -----------------------------------------------------------------------------------------
+
+    @Override
+    public boolean open() {
+        return database.open();
+    }
+
+    @Override
+    public void close() {
+        try {
+            queue.flush();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to persist all pending writes for " + this.toString() + ".", e);
+        } finally {
+            queue.unregister(this);
+            synchronized (writeLock) {
+                coalesced.clear();
+                pending.clear();
+            }
+            synchronized (batch) {
+                batch.clear();
+            }
+            database.close();
+        }
+    }
+
+    /**
+     * Schedules a commit of the underlying database after the pending writes.
+     *
+     * @return {@code true}, failures are reported on the following write operations
+     */
+    @Override
+    public boolean commit() {
+        if (!database.isAutoCommitEnabled()) {
+            synchronized (writeLock) {
+                submitCoalesced();
+                queue.submit(database::commit);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void compact() {
+        queue.flush();
+        database.compact();
+    }
+
+    @Override
+    public void drop() {
+        queue.flush();
+        synchronized (writeLock) {
+            coalesced.clear();
+            pending.clear();
+        }
+        synchronized (batch) {
+            batch.clear();
+        }
+        database.drop();
+    }
+
+    @Override
+    public Optional<String> getName() {
+        return database.getName();
+    }
+
+    @Override
+    public Optional<String> getPath() {
+        return database.getPath();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return database.isOpen();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return database.isClosed();
+    }
+
+    @Override
+    public boolean isLocked() {
+        return database.isLocked();
+    }
+
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return database.isAutoCommitEnabled();
+    }
+
+    @Override
+    public PersistenceMethod getPersistenceMethod() {
+        return database.getPersistenceMethod();
+    }
+
+    @Override
+    public boolean isCreatedOnDisk() {
+        return database.isCreatedOnDisk();
+    }
+
+    @Override
+    public long approximateSize() {
+        return database.approximateSize();
+    }
+
+    // IKeyValueStore functionality
+    // ------------------------------------------------------------------------------------
+
+    @Override
+    public void check() {
+        database.check();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        queue.flush();
+        return database.isEmpty();
+    }
+
+    @Override
+    public Iterator<byte[]> keys() {
+        queue.flush();
+        return database.keys();
+    }
+
+    @Override
+    public Optional<byte[]> get(byte[] key) {
+        AbstractDB.check(key);
+
+        PendingValue value = pending.get(ByteArrayWrapper.wrap(key));
+        if (value != null) {
+            return Optional.ofNullable(value.value);
+        }
+
+        return database.get(key);
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        AbstractDB.check(key);
+        AbstractDB.check(value);
+        check();
+
+        writeSingle(ByteArrayWrapper.wrap(key), value);
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        AbstractDB.check(key);
+        check();
+
+        writeSingle(ByteArrayWrapper.wrap(key), null);
+    }
+
+    @Override
+    public void putBatch(Map<byte[], byte[]> input) {
+        AbstractDB.check(input.keySet());
+        AbstractDB.check(input.values());
+        check();
+
+        Map<ByteArrayWrapper, byte[]> changes = new HashMap<>();
+        for (Map.Entry<byte[], byte[]> entry : input.entrySet()) {
+            changes.put(ByteArrayWrapper.wrap(entry.getKey()), entry.getValue());
+        }
+        write(changes);
+    }
+
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        AbstractDB.check(keys);
+        check();
+
+        Map<ByteArrayWrapper, byte[]> changes = new HashMap<>();
+        for (byte[] key : keys) {
+            changes.put(ByteArrayWrapper.wrap(key), null);
+        }
+        write(changes);
+    }
+
+    @Override
+    public void putToBatch(byte[] key, byte[] value) {
+        AbstractDB.check(key);
+        AbstractDB.check(value);
+        check();
+
+        synchronized (batch) {
+            batch.put(ByteArrayWrapper.wrap(key), value);
+        }
+    }
+
+    @Override
+    public void deleteInBatch(byte[] key) {
+        AbstractDB.check(key);
+        check();
+
+        synchronized (batch) {
+            batch.put(ByteArrayWrapper.wrap(key), null);
+        }
+    }
+
+    @Override
+    public void commitBatch() {
+        Map<ByteArrayWrapper, byte[]> changes;
+        synchronized (batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            changes = new HashMap<>(batch);
+            batch.clear();
+        }
+        write(changes);
+    }
+
+    /**
+     * Makes the given change visible to readers and adds it to the coalesced writes, which are
+     * submitted to the queue once they reach {@link #MAX_COALESCED_WRITES} keys.
+     *
+     * @param key the changed key
+     * @param value the new value or {@code null} for deletions
+     */
+    private void writeSingle(ByteArrayWrapper key, byte[] value) {
+        synchronized (writeLock) {
+            PendingValue pendingValue = new PendingValue(value);
+            pending.put(key, pendingValue);
+            coalesced.put(key, pendingValue);
+
+            if (coalesced.size() >= MAX_COALESCED_WRITES) {
+                submitCoalesced();
+            }
+        }
+    }
+
+    /**
+     * Makes the given changes visible to readers and submits them to the queue to be persisted as
+     * a single batch together with the coalesced single writes.
+     *
+     * @param changes the changes to be applied, where {@code null} values represent deletions
+     */
+    private void write(Map<ByteArrayWrapper, byte[]> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : changes.entrySet()) {
+                PendingValue value = new PendingValue(entry.getValue());
+                pending.put(entry.getKey(), value);
+                coalesced.put(entry.getKey(), value);
+            }
+            submitCoalesced();
+        }
+    }
+
+    /** Submits the coalesced single writes to the queue. Called by the queue before checkpoints. */
+    void submitPendingWrites() {
+        synchronized (writeLock) {
+            submitCoalesced();
+        }
+    }
+
+    /** Must be called while holding the write lock, so that the submissions follow the updates. */
+    private void submitCoalesced() {
+        if (coalesced.isEmpty()) {
+            return;
+        }
+
+        Map<ByteArrayWrapper, PendingValue> submitted = coalesced;
+        coalesced = new HashMap<>();
+        queue.submit(() -> persist(submitted));
+    }
+
+    /**
+     * Applies the changes to the underlying database. Executed by the writer thread.
+     *
+     * @throws IllegalStateException if the database reports that the changes were not applied
+     */
+    private void persist(Map<ByteArrayWrapper, PendingValue> changes) {
+        if (database instanceof AbstractDB) {
+            Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
+            for (Map.Entry<ByteArrayWrapper, PendingValue> entry : changes.entrySet()) {
+                values.put(entry.getKey(), entry.getValue().value);
+            }
+
+            // the batch operations only log failures, while this reports them
+            if (!((AbstractDB) database).commitCache(values)) {
+                throw new IllegalStateException(
+                        "Unable to persist " + values.size() + " writes to " + this.toString());
+            }
+        } else {
+            for (Map.Entry<ByteArrayWrapper, PendingValue> entry : changes.entrySet()) {
+                byte[] value = entry.getValue().value;
+                if (value == null) {
+                    database.deleteInBatch(entry.getKey().getData());
+                } else {
+                    database.putToBatch(entry.getKey().getData(), value);
+                }
+            }
+            database.commitBatch();
+        }
+
+        // the values are now readable from the database unless overwritten in the meantime
+        for (Map.Entry<ByteArrayWrapper, PendingValue> entry : changes.entrySet()) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+}
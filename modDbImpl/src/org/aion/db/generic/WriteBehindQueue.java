@@ -0,0 +1,284 @@
+package org.aion.db.generic;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Ordered write-behind stage shared by a group of {@link WriteBehindDatabase} instances.
+ *
+ * <p>Writes are applied to the underlying databases by a single background thread in the order in
+ * which they were submitted. Each write is applied as one batch of its database, so the data of one
+ * database persisted on disk corresponds to a prefix of the writes made to it. There is no
+ * atomicity across databases: each database persists its writes independently, so after a crash
+ * one database may hold writes that followed writes lost by another one. A checkpoint only marks
+ * the point at which all earlier writes were applied; it is not written atomically. The single
+ * writes coalesced by the databases are submitted before each checkpoint and flush.
+ *
+ * <p>The queue is bounded: when the writer falls behind, submitting threads block until space
+ * becomes available. The time spent blocked is recorded and can be used to detect disk
+ * bottlenecks.
+ *
+ * @implNote If a write fails, all following writes are discarded (to preserve the ordering
+ *     guarantee) and the failure is rethrown to any thread submitting new writes or waiting for
+ *     the queue to be flushed.
+ */
+public class WriteBehindQueue {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Marker used to stop the writer thread. */
+    private static final Runnable STOP = () -> {};
+
+    private final BlockingQueue<Runnable> tasks;
+    private final Thread writer;
+    private final Object progressLock = new Object();
+    /** Databases whose coalesced writes are submitted before checkpoints and flushes. */
+    private final List<WriteBehindDatabase> databases = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+    private volatile RuntimeException failure = null;
+
+    // progress
+    private final AtomicLong submitted = new AtomicLong();
+    private volatile long completed = 0L;
+    private final AtomicLong checkpointsSubmitted = new AtomicLong();
+    private final AtomicLong checkpointsCompleted = new AtomicLong();
+
+    // backpressure statistics
+    private final AtomicLong blockedSubmissions = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /**
+     * Creates and starts a write-behind queue.
+     *
+     * @param capacity the maximum number of writes that may be pending before submitting threads
+     *     are blocked
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public WriteBehindQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The write-behind queue capacity must be positive.");
+        }
+        this.tasks = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::processWrites, "db-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Adds a write operation to the end of the queue, blocking while the queue is full.
+     *
+     * @param write the operation that persists the data
+     * @throws IllegalStateException if the queue was shut down or the current thread was
+     *     interrupted while waiting for space in the queue
+     * @throws RuntimeException if a previously submitted write failed
+     */
+    public void submit(Runnable write) {
+        checkFailure();
+        if (!running) {
+            throw new IllegalStateException("The write-behind queue has been shut down.");
+        }
+
+        submitted.incrementAndGet();
+        if (!tasks.offer(write)) {
+            // backpressure: the writer is behind
+            blockedSubmissions.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                tasks.put(write);
+            } catch (InterruptedException e) {
+                submitted.decrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to submit write.", e);
+            } finally {
+                blockedNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+        maxDepth.accumulateAndGet(tasks.size(), Math::max);
+    }
+
+    /**
+     * Submits the single writes coalesced by the databases, followed by the given operation, so
+     * that the operation runs after all the writes made before this call.
+     *
+     * @param task the operation to run after the writes
+     */
+    public void submitAfterPendingWrites(Runnable task) {
+        submitPendingWrites();
+        submit(task);
+    }
+
+    /**
+     * Marks the end of a set of writes (e.g. all the changes from importing a block) and submits
+     * the writes coalesced by the databases. Does not wait for the writes to be persisted, and does
+     * not make the set of writes atomic.
+     */
+    public void checkpoint() {
+        submitPendingWrites();
+        checkpointsSubmitted.incrementAndGet();
+        submit(
+                () -> {
+                    checkpointsCompleted.incrementAndGet();
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Write-behind checkpoint applied: {}", getStatsSummary());
+                    }
+                });
+    }
+
+    /**
+     * Blocks until all the writes submitted before this call have been applied to the underlying
+     * databases.
+     *
+     * @throws RuntimeException if any of the writes failed
+     */
+    public void flush() {
+        if (Thread.currentThread() == writer) {
+            // called from a write operation, everything before it was already applied
+            return;
+        }
+
+        submitPendingWrites();
+        long target = submitted.get();
+        synchronized (progressLock) {
+            while (completed < target && writer.isAlive()) {
+                try {
+                    progressLock.wait(TimeUnit.SECONDS.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while flushing writes.", e);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /** Applies all the pending writes and stops the writer thread. */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to persist all pending writes before shutdown.", e);
+        } finally {
+            running = false;
+            try {
+                tasks.put(STOP);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        LOG.info("Write-behind queue stopped: {}", getStatsSummary());
+    }
+
+    void register(WriteBehindDatabase database) {
+        databases.add(database);
+    }
+
+    void unregister(WriteBehindDatabase database) {
+        databases.remove(database);
+    }
+
+    private void submitPendingWrites() {
+        for (WriteBehindDatabase database : databases) {
+            database.submitPendingWrites();
+        }
+    }
+
+    private void processWrites() {
+        while (true) {
+            Runnable task;
+            try {
+                task = tasks.take();
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                } else {
+                    break;
+                }
+            }
+
+            if (task == STOP) {
+                break;
+            }
+
+            if (failure == null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Write-behind failed. Discarding all following writes.", e);
+                    failure = e;
+                }
+            }
+
+            synchronized (progressLock) {
+                completed++;
+                progressLock.notifyAll();
+            }
+        }
+    }
+
+    private void checkFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /** Returns the number of writes that were submitted but not yet applied. */
+    public long getPendingCount() {
+        return submitted.get() - completed;
+    }
+
+    /** Returns the number of checkpoints whose writes were all applied. */
+    public long getPersistedCheckpointCount() {
+        return checkpointsCompleted.get();
+    }
+
+    /** Returns the number of checkpoints that were submitted. */
+    public long getCheckpointCount() {
+        return checkpointsSubmitted.get();
+    }
+
+    /** Returns the number of submissions that had to wait for space in the queue. */
+    public long getBlockedSubmissionCount() {
+        return blockedSubmissions.get();
+    }
+
+    /** Returns the total time in nanoseconds spent by submitting threads waiting for space. */
+    public long getBlockedTimeNanos() {
+        return blockedNanos.get();
+    }
+
+    /** Returns the maximum number of writes observed waiting in the queue. */
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public String getStatsSummary() {
+        return "pending="
+                + getPendingCount()
+                + ", checkpoints="
+                + checkpointsCompleted.get()
+                + "/"
+                + checkpointsSubmitted.get()
+                + ", blocked="
+                + blockedSubmissions.get()
+                + ", blockedMs="
+                + TimeUnit.NANOSECONDS.toMillis(blockedNanos.get())
+                + ", maxDepth="
+                + maxDepth.get();
+    }
+}
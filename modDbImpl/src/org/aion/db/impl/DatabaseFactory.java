@@ -11,6 +11,7 @@ import org.aion.db.impl.leveldb.LevelDBConstants;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.PersistentMockDB;
 import org.aion.db.impl.mongodb.MongoDB;
+import org.aion.db.impl.rocksdb.RocksDBColumnFamily;
 import org.aion.db.impl.rocksdb.RocksDBConstants;
 import org.aion.db.impl.rocksdb.RocksDBWrapper;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
@@ -52,6 +53,8 @@ public abstract class DatabaseFactory {
 
         public static final String WRITE_BUFFER_SIZE = "write_buffer_size";
         public static final String READ_BUFFER_SIZE = "read_buffer_size";
+
+        public static final String WRITE_RATE_LIMIT = "write_rate_limit";
     }
 
     public static ByteArrayKeyValueDatabase connect(Properties info) {
@@ -102,7 +105,9 @@ public abstract class DatabaseFactory {
             return new LockedDatabase(connectWithCache(info));
         } else {
             DBVendor vendor = DBVendor.fromString(info.getProperty(Props.DB_TYPE));
-            if (vendor == DBVendor.LEVELDB || vendor == DBVendor.ROCKSDB) {
+            if (vendor == DBVendor.LEVELDB
+                    || vendor == DBVendor.ROCKSDB
+                    || vendor == DBVendor.ROCKSDB_CF) {
                 return new SpecialLockedDatabase(connectBasic(info));
             } else {
                 return new LockedDatabase(connectBasic(info));
@@ -188,6 +193,25 @@ public abstract class DatabaseFactory {
                             getInt(info, Props.READ_BUFFER_SIZE, RocksDBConstants.READ_BUFFER_SIZE),
                             getInt(info, Props.DB_CACHE_SIZE, RocksDBConstants.CACHE_SIZE));
                 }
+            case ROCKSDB_CF:
+                {
+                    return new RocksDBColumnFamily(
+                            dbName,
+                            dbPath,
+                            enableDbCache,
+                            enableDbCompression,
+                            getInt(info, Props.MAX_FD_ALLOC, RocksDBConstants.MAX_OPEN_FILES),
+                            getInt(info, Props.BLOCK_SIZE, RocksDBConstants.BLOCK_SIZE),
+                            getInt(
+                                    info,
+                                    Props.WRITE_BUFFER_SIZE,
+                                    RocksDBConstants.WRITE_BUFFER_SIZE),
+                            getInt(info, Props.DB_CACHE_SIZE, RocksDBConstants.CACHE_SIZE),
+                            getInt(
+                                    info,
+                                    Props.WRITE_RATE_LIMIT,
+                                    RocksDBConstants.WRITE_RATE_LIMIT));
+                }
             case H2:
                 {
                     return new H2MVMap(dbName, dbPath, enableDbCache, enableDbCompression);
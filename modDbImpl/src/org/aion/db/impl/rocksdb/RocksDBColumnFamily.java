@@ -0,0 +1,292 @@
+package org.aion.db.impl.rocksdb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.aion.db.impl.AbstractDB;
+import org.aion.types.ByteArrayWrapper;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+
+/**
+ * Database stored as a column family of the {@link RocksDBInstance} shared by all the databases
+ * with the same path.
+ *
+ * <p>The data of all the column families is kept in the {@link RocksDBConstants#SHARED_DB_NAME}
+ * directory under the given path, which is also the value returned by {@link #getPath()}.
+ */
+public class RocksDBColumnFamily extends AbstractDB {
+
+    private final int maxOpenFiles;
+    private final int blockSize;
+    private final int writeBufferSize;
+    private final int cacheSize;
+    private final int writeRateLimit;
+
+    private RocksDBInstance instance = null;
+    private ColumnFamilyHandle family = null;
+
+    // changes added through the batch operations and waiting for a call to commitBatch
+    private final Map<ByteArrayWrapper, byte[]> batch = new HashMap<>();
+
+    public RocksDBColumnFamily(
+            String name,
+            String path,
+            boolean enableDbCache,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize,
+            int writeRateLimit) {
+        super(name, path, enableDbCache, enableDbCompression);
+
+        // all the column families from the same path belong to one database
+        this.path = new File(path, RocksDBConstants.SHARED_DB_NAME).getAbsolutePath();
+
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockSize = blockSize;
+        this.writeBufferSize = writeBufferSize;
+        this.cacheSize = cacheSize;
+        this.writeRateLimit = writeRateLimit;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ":" + propertiesInfo();
+    }
+
+    /** Returns the shared database holding this column family, {@code null} when closed. */
+    public RocksDBInstance getInstance() {
+        return instance;
+    }
+
+    // IDatabase Functionality
+    @Override
+    public boolean open() {
+        if (isOpen()) {
+            return true;
+        }
+
+        LOG.debug("Initialising RocksDB column family {}", this.toString());
+
+        File dbRoot = new File(path).getParentFile();
+
+        // make the parent directory if not exists
+        if (!dbRoot.exists()) {
+            if (!dbRoot.mkdirs()) {
+                LOG.error("Failed to initialize the database storage for " + this.toString() + ".");
+                return false;
+            }
+        }
+
+        try {
+            instance =
+                    RocksDBInstance.acquire(
+                            path,
+                            enableDbCompression,
+                            maxOpenFiles,
+                            blockSize,
+                            writeBufferSize,
+                            cacheSize,
+                            writeRateLimit);
+            family = instance.getColumnFamily(name);
+        } catch (RocksDBException e) {
+            if (e.getMessage() != null && e.getMessage().contains("lock")) {
+                LOG.error(
+                        "Failed to open the database "
+                                + this.toString()
+                                + "\nCheck if you have two instances running on the same database."
+                                + "\nFailure due to: ",
+                        e);
+            } else {
+                LOG.error("Failed to open the database " + this.toString() + " due to: ", e);
+            }
+
+            // close the connection and cleanup if needed
+            close();
+        }
+
+        return isOpen();
+    }
+
+    @Override
+    public void close() {
+        // do nothing if already closed
+        if (instance == null) {
+            return;
+        }
+
+        LOG.info("Closing database " + this.toString());
+
+        // the column family handle is owned by the shared instance
+        family = null;
+        batch.clear();
+        instance.release();
+        instance = null;
+    }
+
+    @Override
+    public void compact() {
+        LOG.info("Compacting " + this.toString() + ".");
+        try {
+            instance.compact(family);
+        } catch (RocksDBException e) {
+            LOG.error("Cannot compact data.", e);
+        }
+    }
+
+    @Override
+    public void drop() {
+        check();
+
+        try {
+            batch.clear();
+            family = instance.dropColumnFamily(name);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to drop " + this.toString() + ".", e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return family != null;
+    }
+
+    @Override
+    public boolean isCreatedOnDisk() {
+        return new File(path, "CURRENT").exists();
+    }
+
+    @Override
+    public long approximateSize() {
+        check();
+
+        try {
+            return instance.approximateSize(family);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to compute the size of " + this.toString() + ".", e);
+            return -1L;
+        }
+    }
+
+    // IKeyValueStore functionality
+
+    @Override
+    public boolean isEmpty() {
+        check();
+
+        try {
+            return instance.isEmpty(family);
+        } catch (Exception e) {
+            LOG.error("Unable to extract information from database " + this.toString() + ".", e);
+        }
+
+        return true;
+    }
+
+    @Override
+    public Iterator<byte[]> keys() {
+        check();
+
+        try {
+            return instance.keys(family);
+        } catch (Exception e) {
+            LOG.error("Unable to extract keys from database " + this.toString() + ".", e);
+        }
+
+        // empty when retrieval failed
+        return Collections.emptyIterator();
+    }
+
+    @Override
+    protected byte[] getInternal(byte[] key) {
+        try {
+            return instance.get(family, key);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get key " + Arrays.toString(key) + ". " + e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public void putInternal(byte[] key, byte[] value) {
+        try {
+            instance.put(family, key, value);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to put / update key " + Arrays.toString(key) + ". " + e);
+        }
+    }
+
+    @Override
+    public void deleteInternal(byte[] key) {
+        try {
+            instance.delete(family, key);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to delete key " + Arrays.toString(key) + ". " + e);
+        }
+    }
+
+    @Override
+    public void putToBatchInternal(byte[] key, byte[] value) {
+        batch.put(ByteArrayWrapper.wrap(key), value);
+    }
+
+    @Override
+    public void deleteInBatchInternal(byte[] key) {
+        batch.put(ByteArrayWrapper.wrap(key), null);
+    }
+
+    @Override
+    public void commitBatch() {
+        if (!batch.isEmpty()) {
+            try {
+                instance.update(family, batch);
+            } catch (RocksDBException e) {
+                LOG.error(
+                        "Unable to execute batch put/update/delete operation on "
+                                + this.toString()
+                                + ".",
+                        e);
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void putBatchInternal(Map<byte[], byte[]> input) {
+        try {
+            instance.putAll(family, input);
+        } catch (RocksDBException e) {
+            LOG.error(
+                    "Unable to execute batch put/update operation on " + this.toString() + ".", e);
+        }
+    }
+
+    @Override
+    public void deleteBatchInternal(Collection<byte[]> keys) {
+        try {
+            instance.deleteAll(family, keys);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to execute batch delete operation on " + this.toString() + ".", e);
+        }
+    }
+
+    @Override
+    public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
+        check();
+
+        try {
+            instance.update(family, cache);
+            return true;
+        } catch (RocksDBException e) {
+            LOG.error("Unable to commit heap cache to " + this.toString() + ".", e);
+            return false;
+        }
+    }
+}
@@ -7,5 +7,10 @@ public class RocksDBConstants {
     public static int READ_BUFFER_SIZE = 64 * 1024 * 1024;
     public static int CACHE_SIZE = 128 * 1024 * 1024;
 
+    // settings of the database shared by the column family stores
+    public static String SHARED_DB_NAME = "rocksdb";
+    public static int WRITE_RATE_LIMIT = 128 * 1024 * 1024;
+    public static int MAX_BATCH_OPERATIONS = 1_000_000;
+
     private RocksDBConstants() {}
 }
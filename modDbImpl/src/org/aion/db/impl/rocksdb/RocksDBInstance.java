@@ -0,0 +1,653 @@
+package org.aion.db.impl.rocksdb;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.ByteArrayWrapper;
+import org.rocksdb.AbstractWriteBatch;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.RateLimiter;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WBWIRocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+
+/**
+ * A RocksDB database shared by several stores, each of them kept in its own column family.
+ *
+ * <p>The column families share the write-ahead log, the block cache, the rate limiter, the open
+ * files and the background threads of the database. Instances are reference counted per path:
+ * {@link #acquire} returns the instance already open for the path or opens a new one and the
+ * database is closed when the last reference is released.
+ *
+ * <p>After {@link #enableWriteBatch(Collection)} the writes to the given column families are
+ * collected in a single indexed write batch and {@link #commitWriteBatch()} applies them atomically
+ * with one write to the log. The writes to the other column families are applied directly. Reads
+ * performed through this instance see the collected writes before they are committed. The batch
+ * is only committed by {@link #commitWriteBatch()}, so a warning is logged when it grows past
+ * {@link RocksDBConstants#MAX_BATCH_OPERATIONS} operations without being committed.
+ *
+ * @implNote The settings of the database are taken from the first store opened for a path.
+ */
+public final class RocksDBInstance {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private static final byte[] DEFAULT_FAMILY_NAME = RocksDB.DEFAULT_COLUMN_FAMILY;
+
+    // the open instances by absolute path, guarded by the class
+    private static final Map<String, RocksDBInstance> instances = new HashMap<>();
+
+    private final String path;
+    private final LRUCache blockCache;
+    private final RateLimiter rateLimiter;
+    private final DBOptions options;
+    private final ColumnFamilyOptions familyOptions;
+    private final ReadOptions readOptions = new ReadOptions();
+    private final WriteOptions writeOptions = new WriteOptions();
+    private final RocksDB db;
+
+    // guarded by this
+    private final Map<String, ColumnFamilyHandle> families = new HashMap<>();
+    // the names of the column families whose writes are collected in the batch, guarded by this
+    private final Set<String> batchedNames = new HashSet<>();
+    // the handles of the open column families among the batched ones
+    private final Set<ColumnFamilyHandle> batchedFamilies = ConcurrentHashMap.newKeySet();
+
+    // guarded by the class
+    private int references = 0;
+
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    // guarded by the batch lock, null unless write batching is enabled
+    private WriteBatchWithIndex batch = null;
+    private long batchCommits = 0;
+    private long batchOperations = 0;
+    private long largeBatches = 0;
+    private boolean largeBatchReported = false;
+
+    private RocksDBInstance(
+            String path,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize,
+            int writeRateLimit)
+            throws RocksDBException {
+        this.path = path;
+
+        blockCache = new LRUCache(cacheSize);
+        rateLimiter = writeRateLimit > 0 ? new RateLimiter(writeRateLimit) : null;
+
+        options = new DBOptions();
+        options.setCreateIfMissing(true);
+        options.setCreateMissingColumnFamilies(true);
+        options.setParanoidChecks(true);
+        options.setMaxOpenFiles(maxOpenFiles);
+        if (rateLimiter != null) {
+            options.setRateLimiter(rateLimiter);
+        }
+
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setBlockSize(blockSize);
+        tableConfig.setBlockCache(blockCache);
+
+        familyOptions = new ColumnFamilyOptions();
+        familyOptions.setCompressionType(
+                enableDbCompression
+                        ? CompressionType.SNAPPY_COMPRESSION
+                        : CompressionType.NO_COMPRESSION);
+        familyOptions.setWriteBufferSize(writeBufferSize);
+        familyOptions.setTableFormatConfig(tableConfig);
+
+        // all the existing column families must be opened together with the database
+        List<byte[]> names = new ArrayList<>();
+        if (new File(path, "CURRENT").exists()) {
+            try (Options listOptions = new Options()) {
+                names.addAll(RocksDB.listColumnFamilies(listOptions, path));
+            }
+        }
+        if (names.stream().noneMatch(name -> Arrays.equals(name, DEFAULT_FAMILY_NAME))) {
+            names.add(DEFAULT_FAMILY_NAME);
+        }
+
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        for (byte[] name : names) {
+            descriptors.add(new ColumnFamilyDescriptor(name, familyOptions));
+        }
+        List<ColumnFamilyHandle> handles = new ArrayList<>();
+
+        try {
+            db = RocksDB.open(options, path, descriptors, handles);
+        } catch (RocksDBException e) {
+            closeOptions();
+            throw e;
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            families.put(new String(names.get(i), StandardCharsets.UTF_8), handles.get(i));
+        }
+    }
+
+    /**
+     * Returns the database open at the given path or opens it when this is the first reference.
+     * Each call must be matched by a call to {@link #release()}.
+     *
+     * @throws RocksDBException when the database cannot be opened
+     */
+    public static synchronized RocksDBInstance acquire(
+            String path,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize,
+            int writeRateLimit)
+            throws RocksDBException {
+        String key = new File(path).getAbsolutePath();
+        RocksDBInstance instance = instances.get(key);
+        if (instance == null) {
+            RocksDB.loadLibrary();
+            instance =
+                    new RocksDBInstance(
+                            key,
+                            enableDbCompression,
+                            maxOpenFiles,
+                            blockSize,
+                            writeBufferSize,
+                            cacheSize,
+                            writeRateLimit);
+            instances.put(key, instance);
+            LOG.info("Opened shared RocksDB instance at {}.", key);
+        }
+        instance.references++;
+        return instance;
+    }
+
+    /** Returns the database open at the given path, if any. */
+    public static synchronized Optional<RocksDBInstance> lookup(String path) {
+        return Optional.ofNullable(instances.get(new File(path).getAbsolutePath()));
+    }
+
+    /**
+     * Releases a reference obtained from {@link #acquire}. The writes collected in the batch are
+     * committed and the database is closed when the last reference is released.
+     */
+    public void release() {
+        synchronized (RocksDBInstance.class) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+            instances.remove(path);
+        }
+
+        commitWriteBatch();
+
+        batchLock.writeLock().lock();
+        try {
+            if (batch != null) {
+                batch.close();
+                batch = null;
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+
+        synchronized (this) {
+            batchedFamilies.clear();
+            for (ColumnFamilyHandle handle : families.values()) {
+                handle.close();
+            }
+            families.clear();
+        }
+        db.close();
+        closeOptions();
+        LOG.info("Closed shared RocksDB instance {}: {}", path, getStatsSummary());
+    }
+
+    private void closeOptions() {
+        readOptions.close();
+        writeOptions.close();
+        familyOptions.close();
+        options.close();
+        if (rateLimiter != null) {
+            rateLimiter.close();
+        }
+        blockCache.close();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ":<path=" + path + ">";
+    }
+
+    // column families
+    // -----------------------------------------------------------------------------------------
+
+    /**
+     * Returns the column family with the given name, creating it if needed.
+     *
+     * @throws RocksDBException when the column family cannot be created
+     */
+    public synchronized ColumnFamilyHandle getColumnFamily(String name) throws RocksDBException {
+        ColumnFamilyHandle handle = families.get(name);
+        if (handle == null) {
+            handle =
+                    db.createColumnFamily(
+                            new ColumnFamilyDescriptor(
+                                    name.getBytes(StandardCharsets.UTF_8), familyOptions));
+            families.put(name, handle);
+            if (batchedNames.contains(name)) {
+                batchedFamilies.add(handle);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Deletes all the data in the column family with the given name and returns the handle of the
+     * new empty column family. The writes collected in the batch are committed first.
+     *
+     * @throws RocksDBException when the column family cannot be dropped or created
+     */
+    public synchronized ColumnFamilyHandle dropColumnFamily(String name) throws RocksDBException {
+        commitWriteBatch();
+
+        ColumnFamilyHandle handle = families.remove(name);
+        if (handle != null) {
+            batchedFamilies.remove(handle);
+            db.dropColumnFamily(handle);
+            handle.close();
+        }
+        return getColumnFamily(name);
+    }
+
+    // reads
+    // -----------------------------------------------------------------------------------------
+
+    public byte[] get(ColumnFamilyHandle family, byte[] key) throws RocksDBException {
+        batchLock.readLock().lock();
+        try {
+            if (batch == null) {
+                return db.get(family, key);
+            } else {
+                return batch.getFromBatchAndDB(db, family, readOptions, key);
+            }
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty(ColumnFamilyHandle family) {
+        batchLock.readLock().lock();
+        try (RocksIterator iterator = newIterator(family, db.newIterator(family))) {
+            iterator.seekToFirst();
+            return !iterator.isValid();
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the keys of the column family. The keys are read lazily from a snapshot of the
+     * database and merged with a copy of the writes to the column family collected in the batch,
+     * taken together with the snapshot.
+     */
+    public Iterator<byte[]> keys(ColumnFamilyHandle family) {
+        batchLock.readLock().lock();
+        try {
+            ReadOptions snapshotOptions = new ReadOptions();
+            snapshotOptions.setSnapshot(db.getSnapshot());
+            Iterator<byte[]> stored =
+                    new SnapshotIterator(snapshotOptions, db.newIterator(family, snapshotOptions));
+
+            if (batch == null || !batchedFamilies.contains(family)) {
+                return stored;
+            }
+            TreeMap<byte[], Boolean> pending = pendingKeys(family);
+            return pending.isEmpty() ? stored : new MergedIterator(stored, pending);
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the keys of the column family written in the batch, mapped to {@code true} for puts
+     * and {@code false} for deletions, in the order of the database. Requires the batch lock.
+     */
+    private TreeMap<byte[], Boolean> pendingKeys(ColumnFamilyHandle family) {
+        TreeMap<byte[], Boolean> pending = new TreeMap<>(Arrays::compareUnsigned);
+        try (WBWIRocksIterator iterator = batch.newIterator(family)) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                WBWIRocksIterator.WriteEntry entry = iterator.entry();
+                ByteBuffer key = entry.getKey().data();
+                byte[] copy = new byte[key.remaining()];
+                key.get(copy);
+                pending.put(copy, entry.getType() == WBWIRocksIterator.WriteType.PUT);
+            }
+        }
+        return pending;
+    }
+
+    /** Wraps the database iterator to include the collected writes. Requires the batch lock. */
+    private RocksIterator newIterator(ColumnFamilyHandle family, RocksIterator base) {
+        return batch == null ? base : batch.newIteratorWithBase(family, base);
+    }
+
+    /** Iterates over the keys of a snapshot and releases the snapshot after the last key. */
+    private final class SnapshotIterator implements Iterator<byte[]> {
+        private final ReadOptions readOptions;
+        private final RocksIterator iterator;
+        private boolean closed = false;
+
+        SnapshotIterator(ReadOptions readOptions, RocksIterator iterator) {
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+            iterator.seekToFirst();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (!iterator.isValid()) {
+                iterator.close();
+                db.releaseSnapshot(readOptions.snapshot());
+                readOptions.close();
+                closed = true;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] key = iterator.key();
+            iterator.next();
+            return key;
+        }
+    }
+
+    /**
+     * Merges the ordered keys of the database with the ordered keys written in the batch, where
+     * the batch takes precedence.
+     */
+    private static final class MergedIterator implements Iterator<byte[]> {
+        private final Iterator<byte[]> stored;
+        private final Iterator<Map.Entry<byte[], Boolean>> pending;
+        private byte[] nextStored = null;
+        private Map.Entry<byte[], Boolean> nextPending = null;
+        private byte[] next = null;
+
+        MergedIterator(Iterator<byte[]> stored, TreeMap<byte[], Boolean> pending) {
+            this.stored = stored;
+            this.pending = pending.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (nextStored == null && stored.hasNext()) {
+                    nextStored = stored.next();
+                }
+                if (nextPending == null && pending.hasNext()) {
+                    nextPending = pending.next();
+                }
+                if (nextStored == null && nextPending == null) {
+                    return false;
+                }
+
+                int order =
+                        nextPending == null
+                                ? -1
+                                : nextStored == null
+                                        ? 1
+                                        : Arrays.compareUnsigned(nextStored, nextPending.getKey());
+                if (order < 0) {
+                    next = nextStored;
+                    nextStored = null;
+                } else {
+                    if (order == 0) {
+                        // overwritten or deleted in the batch
+                        nextStored = null;
+                    }
+                    if (nextPending.getValue()) {
+                        next = nextPending.getKey();
+                    }
+                    nextPending = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] key = next;
+            next = null;
+            return key;
+        }
+    }
+
+    public long approximateSize(ColumnFamilyHandle family) throws RocksDBException {
+        return db.getLongProperty(family, "rocksdb.total-sst-files-size")
+                + db.getLongProperty(family, "rocksdb.cur-size-all-mem-tables");
+    }
+
+    public void compact(ColumnFamilyHandle family) throws RocksDBException {
+        db.compactRange(family);
+    }
+
+    // writes
+    // -----------------------------------------------------------------------------------------
+
+    /** A group of write operations added to a write batch. */
+    @FunctionalInterface
+    private interface Writes {
+        void addTo(AbstractWriteBatch batch) throws RocksDBException;
+    }
+
+    public void put(ColumnFamilyHandle family, byte[] key, byte[] value) throws RocksDBException {
+        if (!write(family, b -> b.put(family, key, value))) {
+            db.put(family, writeOptions, key, value);
+        }
+    }
+
+    public void delete(ColumnFamilyHandle family, byte[] key) throws RocksDBException {
+        if (!write(family, b -> b.delete(family, key))) {
+            db.delete(family, writeOptions, key);
+        }
+    }
+
+    public void putAll(ColumnFamilyHandle family, Map<byte[], byte[]> input)
+            throws RocksDBException {
+        writeAtomically(
+                family,
+                b -> {
+                    for (Map.Entry<byte[], byte[]> e : input.entrySet()) {
+                        b.put(family, e.getKey(), e.getValue());
+                    }
+                });
+    }
+
+    public void deleteAll(ColumnFamilyHandle family, Collection<byte[]> keys)
+            throws RocksDBException {
+        writeAtomically(
+                family,
+                b -> {
+                    for (byte[] key : keys) {
+                        b.delete(family, key);
+                    }
+                });
+    }
+
+    /** Applies the given changes, where {@code null} values are deletions. */
+    public void update(ColumnFamilyHandle family, Map<ByteArrayWrapper, byte[]> changes)
+            throws RocksDBException {
+        writeAtomically(
+                family,
+                b -> {
+                    for (Map.Entry<ByteArrayWrapper, byte[]> e : changes.entrySet()) {
+                        if (e.getValue() == null) {
+                            b.delete(family, e.getKey().getData());
+                        } else {
+                            b.put(family, e.getKey().getData(), e.getValue());
+                        }
+                    }
+                });
+    }
+
+    private void writeAtomically(ColumnFamilyHandle family, Writes writes)
+            throws RocksDBException {
+        if (!write(family, writes)) {
+            try (WriteBatch direct = new WriteBatch()) {
+                writes.addTo(direct);
+                db.write(writeOptions, direct);
+            }
+        }
+    }
+
+    /**
+     * Adds the writes to the shared batch when the column family is batched.
+     *
+     * @return {@code false} when the writes to the column family are not batched and must be
+     *     applied directly
+     */
+    private boolean write(ColumnFamilyHandle family, Writes writes) throws RocksDBException {
+        if (!batchedFamilies.contains(family)) {
+            return false;
+        }
+
+        batchLock.writeLock().lock();
+        try {
+            if (batch == null) {
+                return false;
+            }
+
+            writes.addTo(batch);
+            if (!largeBatchReported && batch.count() >= RocksDBConstants.MAX_BATCH_OPERATIONS) {
+                // committing here would break the atomicity of the batch
+                largeBatches++;
+                largeBatchReported = true;
+                LOG.warn(
+                        "The write batch of {} holds {} uncommitted operations.",
+                        path,
+                        batch.count());
+            }
+            return true;
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts collecting the writes to the column families with the given names in a single batch
+     * that is applied by {@link #commitWriteBatch()}. The column families may be created later.
+     */
+    public void enableWriteBatch(Collection<String> names) {
+        synchronized (this) {
+            batchedNames.addAll(names);
+            for (String name : names) {
+                ColumnFamilyHandle handle = families.get(name);
+                if (handle != null) {
+                    batchedFamilies.add(handle);
+                }
+            }
+        }
+
+        batchLock.writeLock().lock();
+        try {
+            if (batch == null) {
+                batch = new WriteBatchWithIndex(true);
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Atomically applies all the writes collected since the previous commit.
+     *
+     * @return {@code false} when the batch could not be written, in which case the collected writes
+     *     are kept for the next attempt
+     */
+    public boolean commitWriteBatch() {
+        batchLock.writeLock().lock();
+        try {
+            if (batch != null && batch.count() > 0) {
+                commitLocked();
+            }
+            return true;
+        } catch (RocksDBException e) {
+            LOG.error("Unable to commit the write batch to " + this + ".", e);
+            return false;
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    private void commitLocked() throws RocksDBException {
+        int count = batch.count();
+        db.write(writeOptions, batch);
+        batch.clear();
+        batchCommits++;
+        batchOperations += count;
+        largeBatchReported = false;
+    }
+
+    /** Returns a short summary of the write batch statistics. */
+    public String getStatsSummary() {
+        batchLock.readLock().lock();
+        try {
+            return "batchCommits="
+                    + batchCommits
+                    + " batchOperations="
+                    + batchOperations
+                    + " largeBatches="
+                    + largeBatches
+                    + " pending="
+                    + (batch == null ? 0 : batch.count());
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+}
@@ -6,10 +6,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.types.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
 import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
@@ -20,13 +22,23 @@ import org.rocksdb.WriteOptions;
 
 public class RocksDBWrapper extends AbstractDB {
 
+    // the ignored read buffer size is reported once instead of for every database
+    private static final AtomicBoolean readBufferSizeReported = new AtomicBoolean(false);
+
     private RocksDB db;
+    // kept open together with the database since the table config only references them
+    private Options options;
+    private LRUCache blockCache;
     private final int maxOpenFiles;
     private final int blockSize;
     private final int writeBufferSize;
-    private final int readBufferSize;
     private final int cacheSize;
 
+    /**
+     * @param readBufferSize no longer used, since rocksdbjni 6 removed the random access buffer
+     *     option; kept so that the existing configurations remain valid and reported when it
+     *     differs from the default
+     */
     public RocksDBWrapper(
             String name,
             String path,
@@ -42,9 +54,16 @@ public class RocksDBWrapper extends AbstractDB {
         this.maxOpenFiles = maxOpenFiles;
         this.blockSize = blockSize;
         this.writeBufferSize = writeBufferSize;
-        this.readBufferSize = readBufferSize;
         this.cacheSize = cacheSize;
 
+        if (readBufferSize != RocksDBConstants.READ_BUFFER_SIZE
+                && readBufferSizeReported.compareAndSet(false, true)) {
+            LOG.warn(
+                    "The read_buffer_size={} setting is ignored by the RocksDB vendor since it is"
+                            + " no longer supported by RocksDB.",
+                    readBufferSize);
+        }
+
         RocksDB.loadLibrary();
     }
 
@@ -63,7 +82,6 @@ public class RocksDBWrapper extends AbstractDB {
                         : CompressionType.NO_COMPRESSION);
 
         options.setWriteBufferSize(this.writeBufferSize);
-        options.setRandomAccessMaxBufferSize(this.readBufferSize);
         options.setParanoidChecks(true);
         options.setMaxOpenFiles(this.maxOpenFiles);
         options.setTableFormatConfig(setupBlockBasedTableConfig());
@@ -72,9 +90,11 @@ public class RocksDBWrapper extends AbstractDB {
     }
 
     private BlockBasedTableConfig setupBlockBasedTableConfig() {
+        blockCache = new LRUCache(this.cacheSize);
+
         BlockBasedTableConfig bbtc = new BlockBasedTableConfig();
         bbtc.setBlockSize(this.blockSize);
-        bbtc.setBlockCacheSize(this.cacheSize);
+        bbtc.setBlockCache(blockCache);
 
         return bbtc;
     }
@@ -99,7 +119,7 @@ public class RocksDBWrapper extends AbstractDB {
             }
         }
 
-        Options options = setupRocksDbOptions();
+        options = setupRocksDbOptions();
 
         try {
             db = RocksDB.open(options, f.getAbsolutePath());
@@ -117,6 +137,7 @@ public class RocksDBWrapper extends AbstractDB {
 
             // close the connection and cleanup if needed
             close();
+            closeOptions();
         }
 
         return isOpen();
@@ -134,6 +155,18 @@ public class RocksDBWrapper extends AbstractDB {
         // attempt to close the database
         db.close();
         db = null;
+        closeOptions();
+    }
+
+    private void closeOptions() {
+        if (options != null) {
+            options.close();
+            options = null;
+        }
+        if (blockCache != null) {
+            blockCache.close();
+            blockCache = null;
+        }
     }
 
     @Override
@@ -0,0 +1,210 @@
+package org.aion.db.generic;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.aion.db.impl.mockdb.MockDB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteBehindDatabaseTest {
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private WriteBehindQueue queue;
+    private MockDB source;
+    private WriteBehindDatabase db;
+
+    @Before
+    public void setUp() {
+        queue = new WriteBehindQueue(4);
+        source = new MockDB("write-behind");
+        db = new WriteBehindDatabase(source, queue);
+        db.open();
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+        db.close();
+    }
+
+    /** Occupies the writer thread until the returned latch is released. */
+    private CountDownLatch blockWriter() {
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.submit(
+                () -> {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        return latch;
+    }
+
+    @Test
+    public void testWritesAreVisibleBeforePersisted() {
+        CountDownLatch latch = blockWriter();
+
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.delete(k2);
+
+        assertThat(db.get(k1).get()).isEqualTo(v1);
+        assertThat(db.get(k2).isPresent()).isFalse();
+        assertThat(source.get(k1).isPresent()).isFalse();
+        assertThat(db.getPendingCount()).isEqualTo(2);
+
+        latch.countDown();
+        queue.flush();
+
+        assertThat(source.get(k1).get()).isEqualTo(v1);
+        assertThat(source.get(k2).isPresent()).isFalse();
+        assertThat(db.getPendingCount()).isEqualTo(0);
+        assertThat(db.get(k1).get()).isEqualTo(v1);
+    }
+
+    @Test
+    public void testBatchIsVisibleAfterCommit() {
+        db.putToBatch(k1, v1);
+        db.deleteInBatch(k2);
+        assertThat(db.get(k1).isPresent()).isFalse();
+
+        db.commitBatch();
+        assertThat(db.get(k1).get()).isEqualTo(v1);
+
+        queue.flush();
+        assertThat(source.get(k1).get()).isEqualTo(v1);
+    }
+
+    @Test
+    public void testWritesArePersistedInOrder() {
+        MockDB otherSource = new MockDB("write-behind-other");
+        WriteBehindDatabase other = new WriteBehindDatabase(otherSource, queue);
+        other.open();
+
+        List<String> order = new ArrayList<>();
+        db.putBatch(Collections.singletonMap(k1, v1));
+        queue.submit(() -> order.add("db:" + source.get(k1).isPresent()));
+        other.putBatch(Collections.singletonMap(k1, v1));
+        queue.submit(() -> order.add("other:" + otherSource.get(k1).isPresent()));
+        db.put(k1, v2);
+        queue.checkpoint();
+        queue.submit(() -> order.add("checkpoint:" + Arrays.equals(source.get(k1).get(), v2)));
+        queue.flush();
+
+        assertThat(order)
+                .containsExactly("db:true", "other:true", "checkpoint:true")
+                .inOrder();
+        assertThat(source.get(k1).get()).isEqualTo(v2);
+        assertThat(queue.getPersistedCheckpointCount()).isEqualTo(1L);
+
+        other.close();
+    }
+
+    @Test
+    public void testSingleWritesAreCoalesced() {
+        CountDownLatch latch = blockWriter();
+
+        for (int i = 0; i < WriteBehindDatabase.MAX_COALESCED_WRITES - 1; i++) {
+            db.put(new byte[] {(byte) (i >> 8), (byte) i}, v1);
+        }
+        db.delete(k1);
+        db.put(k2, v2);
+
+        // one submission for the blocking task and one for the full set of coalesced writes
+        assertThat(queue.getPendingCount()).isEqualTo(2L);
+
+        // the following write is merged into the batch write
+        db.put(k1, v1);
+        db.putBatch(Collections.singletonMap(k2, v1));
+        assertThat(queue.getPendingCount()).isEqualTo(3L);
+
+        latch.countDown();
+        queue.flush();
+        assertThat(source.get(k1).get()).isEqualTo(v1);
+        assertThat(source.get(k2).get()).isEqualTo(v1);
+        assertThat(db.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentWritesOfSameKey() throws InterruptedException {
+        int writes = 2_000;
+        Runnable writer =
+                () -> {
+                    for (int i = 0; i < writes; i++) {
+                        db.put(k1, new byte[] {(byte) i});
+                        db.putBatch(Collections.singletonMap(k2, new byte[] {(byte) i}));
+                    }
+                };
+        Thread first = new Thread(writer);
+        Thread second = new Thread(writer);
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        // the persisted values are the last ones visible to readers
+        byte[] visible1 = db.get(k1).get();
+        byte[] visible2 = db.get(k2).get();
+        queue.flush();
+        assertThat(source.get(k1).get()).isEqualTo(visible1);
+        assertThat(source.get(k2).get()).isEqualTo(visible2);
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        CountDownLatch latch = blockWriter();
+
+        // fills the queue and blocks on the last write
+        Thread producer =
+                new Thread(
+                        () -> {
+                            for (int i = 0; i < 6; i++) {
+                                Map<byte[], byte[]> batch = new HashMap<>();
+                                batch.put(new byte[] {(byte) i}, v1);
+                                db.putBatch(batch);
+                            }
+                        });
+        producer.start();
+
+        while (queue.getBlockedSubmissionCount() == 0) {
+            Thread.sleep(10);
+        }
+        assertThat(producer.isAlive()).isTrue();
+
+        latch.countDown();
+        producer.join();
+        queue.flush();
+
+        assertThat(queue.getBlockedTimeNanos()).isGreaterThan(0L);
+        assertThat(queue.getMaxQueueDepth()).isEqualTo(4);
+        assertThat(queue.getPendingCount()).isEqualTo(0L);
+        for (int i = 0; i < 6; i++) {
+            assertThat(source.get(new byte[] {(byte) i}).isPresent()).isTrue();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailureIsReported() {
+        queue.submit(
+                () -> {
+                    throw new IllegalStateException("failed write");
+                });
+        db.put(k1, v1);
+
+        // the following writes are discarded
+        queue.flush();
+    }
+}
@@ -0,0 +1,158 @@
+package org.aion.db.impl.rocksdb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.db.impl.DatabaseFactory.Props;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.utils.FileUtils;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.junit.After;
+import org.junit.Test;
+
+public class RocksDBColumnFamilyTest {
+
+    private static final File testDir =
+            new File(System.getProperty("user.dir"), "tmp-column-families");
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private static RocksDBColumnFamily connect(String name) {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.ROCKSDB_CF.toValue());
+        props.setProperty(Props.DB_NAME, name);
+        props.setProperty(Props.DB_PATH, testDir.getAbsolutePath());
+
+        ByteArrayKeyValueDatabase db = DatabaseFactory.connect(props);
+        assertThat(db).isInstanceOf(RocksDBColumnFamily.class);
+        assertThat(db.open()).isTrue();
+        return (RocksDBColumnFamily) db;
+    }
+
+    @After
+    public void teardown() {
+        if (testDir.exists()) {
+            assertThat(FileUtils.deleteRecursively(testDir)).isTrue();
+        }
+    }
+
+    @Test
+    public void testColumnFamiliesShareInstance() {
+        RocksDBColumnFamily first = connect("first");
+        RocksDBColumnFamily second = connect("second");
+
+        assertThat(first.getInstance()).isSameAs(second.getInstance());
+        assertThat(first.getPath().get())
+                .isEqualTo(new File(testDir, RocksDBConstants.SHARED_DB_NAME).getAbsolutePath());
+
+        first.put(k1, v1);
+        assertThat(first.get(k1).get()).isEqualTo(v1);
+        assertThat(second.get(k1).isPresent()).isFalse();
+        assertThat(second.isEmpty()).isTrue();
+
+        first.close();
+        assertThat(second.isOpen()).isTrue();
+        second.put(k2, v2);
+        second.close();
+
+        // the data is persisted after the last column family is closed
+        first = connect("first");
+        second = connect("second");
+        assertThat(first.get(k1).get()).isEqualTo(v1);
+        assertThat(second.get(k2).get()).isEqualTo(v2);
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testWriteBatch() {
+        RocksDBColumnFamily first = connect("first");
+        RocksDBColumnFamily second = connect("second");
+        RocksDBColumnFamily direct = connect("direct");
+        RocksDBInstance instance = first.getInstance();
+        instance.enableWriteBatch(Arrays.asList("first", "second"));
+
+        first.put(k1, v1);
+        second.put(k2, v2);
+        first.delete(k1);
+        second.putToBatch(k1, v1);
+        second.commitBatch();
+
+        // the collected writes are visible before the commit
+        assertThat(first.get(k1).isPresent()).isFalse();
+        assertThat(first.isEmpty()).isTrue();
+        assertThat(second.get(k2).get()).isEqualTo(v2);
+        assertThat(second.keys().hasNext()).isTrue();
+
+        // the writes to other column families are not collected
+        direct.put(k1, v1);
+        assertThat(instance.getStatsSummary()).contains("pending=4");
+
+        assertThat(instance.commitWriteBatch()).isTrue();
+        assertThat(instance.getStatsSummary()).contains("batchCommits=1");
+        assertThat(instance.getStatsSummary()).contains("pending=0");
+        assertThat(second.get(k1).get()).isEqualTo(v1);
+        assertThat(second.get(k2).get()).isEqualTo(v2);
+        assertThat(direct.get(k1).get()).isEqualTo(v1);
+
+        first.close();
+        second.close();
+        direct.close();
+        assertThat(RocksDBInstance.lookup(first.getPath().get()).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testKeys_mergedWithBatch() {
+        RocksDBColumnFamily first = connect("first");
+        byte[] k3 = "key3".getBytes();
+        byte[] k4 = "key4".getBytes();
+        first.put(k1, v1);
+        first.put(k2, v2);
+        first.put(k4, v2);
+
+        RocksDBInstance instance = first.getInstance();
+        instance.enableWriteBatch(Collections.singletonList("first"));
+        first.delete(k2);
+        first.put(k3, v1);
+        first.put(k4, v1);
+
+        Iterator<byte[]> keys = first.keys();
+
+        // later writes are not visible to the iterator
+        first.put(k2, v1);
+        assertThat(instance.commitWriteBatch()).isTrue();
+
+        List<String> found = new ArrayList<>();
+        keys.forEachRemaining(k -> found.add(new String(k)));
+        assertThat(found).containsExactly("key1", "key3", "key4").inOrder();
+
+        first.close();
+    }
+
+    @Test
+    public void testDrop() {
+        RocksDBColumnFamily first = connect("first");
+        RocksDBColumnFamily second = connect("second");
+        first.put(k1, v1);
+        second.put(k1, v1);
+
+        first.drop();
+
+        assertThat(first.isOpen()).isTrue();
+        assertThat(first.isEmpty()).isTrue();
+        assertThat(second.get(k1).get()).isEqualTo(v1);
+
+        first.close();
+        second.close();
+    }
+}
@@ -3,12 +3,13 @@ package org.aion.evtmgr.impl.abs;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.IEventCallback;
+import org.aion.evtmgr.impl.es.EventStats;
 import org.aion.evtmgr.impl.evt.EventDummy;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -19,8 +20,23 @@ public abstract class AbstractHandler {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.EVTMGR.toString());
 
+    /** The number of events that can wait for dispatch before new events are dropped. */
+    public static final int QUEUE_CAPACITY = 100_000;
+
+    /** An event together with the time it was queued. */
+    private static final class Queued {
+        final IEvent event;
+        final long time;
+
+        Queued(IEvent event) {
+            this.event = event;
+            this.time = System.nanoTime();
+        }
+    }
+
     private Set<IEvent> events = new HashSet<>();
-    private BlockingQueue<IEvent> queue = new LinkedBlockingQueue<>();
+    private BlockingQueue<Queued> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private EventStats stats = new EventStats();
     private List<IEventCallback> eventCallback = new CopyOnWriteArrayList<>();
     private AtomicBoolean interrupt = new AtomicBoolean(false);
     private boolean interrupted = false;
@@ -31,7 +47,10 @@ public abstract class AbstractHandler {
                     () -> {
                         try {
                             while (!interrupt.get()) {
-                                IEvent e = queue.take();
+                                Queued queued = queue.take();
+                                stats.onTake(System.nanoTime() - queued.time);
+
+                                IEvent e = queued.event;
                                 if (e.getEventType() != EventDummy.getTypeStatic()
                                         && events.contains(e)) {
                                     if (LOG.isTraceEnabled()) {
@@ -55,6 +74,7 @@ public abstract class AbstractHandler {
                             }
 
                             queue.clear();
+                            stats.onClear();
                             interrupted = true;
                         } catch (InterruptedException e) {
                             LOG.error("Handler interrupt exception ", e);
@@ -89,7 +109,8 @@ public abstract class AbstractHandler {
 
         interrupt.set(true);
         try {
-            this.queue.add(new EventDummy());
+            this.queue.clear();
+            this.queue.add(new Queued(new EventDummy()));
         } catch (Exception e) {
             LOG.error("stop exception ", e);
         }
@@ -98,6 +119,10 @@ public abstract class AbstractHandler {
             LOG.info("Handler {} dispatcher interrupting..", this.getType());
         }
 
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Handler {} stats: {}", this.getType(), stats);
+        }
+
         int cnt = 0;
         while (!interrupted && (cnt++ < 10)) {
             System.out.print(".");
@@ -146,14 +171,33 @@ public abstract class AbstractHandler {
         }
     }
 
+    /**
+     * Queues the event for dispatch. The caller is never blocked, since events are produced by
+     * threads such as block import. When the queue is full the event is dropped, while the policies
+     * of the {@link org.aion.evtmgr.impl.es.EventExecuteService} apply after dispatch.
+     */
     public void onEvent(IEvent _evt) {
         try {
-            this.queue.add(_evt);
+            if (this.queue.offer(new Queued(_evt))) {
+                stats.onAdd();
+            } else {
+                stats.onDrop();
+                LOG.error(
+                        "Handler {} queue is full! Dropped event callbackType = {}, {}",
+                        this.getType(),
+                        _evt.getCallbackType(),
+                        stats);
+            }
         } catch (Exception e) {
             LOG.error("onEvent exception! ", e);
         }
     }
 
+    /** Returns the queue statistics of the events of this handler. */
+    public EventStats getStats() {
+        return stats;
+    }
+
     public int getType() {
         return handlerType;
     }
@@ -1,22 +1,75 @@
 package org.aion.evtmgr.impl.es;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.impl.evt.EventDummy;
 import org.slf4j.Logger;
 
+/**
+ * Queues events received from the event handlers for processing on threads owned by the service.
+ *
+ * <p>The queue is bounded. What happens to an event that cannot be queued right away is decided
+ * by the {@link Policy} set for its type, which defaults to {@link Policy#DROP}. Queue depth,
+ * drops and queueing latency are tracked per event type and callback type, see {@link
+ * #getStats(int, int)}.
+ */
 public class EventExecuteService {
 
-    private LinkedBlockingQueue<IEvent> callbackEvt;
+    /** Handling of events that cannot be queued right away. */
+    public enum Policy {
+        /** The event is dropped when the queue is full. */
+        DROP,
+        /** The caller waits for space in the queue and the event is dropped on timeout. */
+        BLOCK,
+        /**
+         * While an event of the same type is waiting in the queue, a newer event replaces it
+         * instead of being queued. Only suitable for events superseded by their successors, such
+         * as best block updates.
+         */
+        COALESCE
+    }
+
+    /** The maximum time in milliseconds an event with the {@link Policy#BLOCK} policy waits. */
+    static final long BLOCK_TIMEOUT_MS = 1_000L;
+
+    /** An event together with the time it was queued. */
+    private static final class Entry {
+        final IEvent event;
+        final long queued;
+
+        Entry(IEvent event) {
+            this.event = event;
+            this.queued = System.nanoTime();
+        }
+    }
+
+    private BlockingQueue<Entry> callbackEvt;
     private ExecutorService es;
+    private ExecutorService lanes;
     private static Logger LOG;
     private String thName;
+    private int qSize;
+    private int threadPriority;
     private Set<Integer> filter;
 
+    private final Map<Integer, Policy> policies = new ConcurrentHashMap<>();
+    // the latest event of each coalesced type that is currently queued
+    private final Map<Integer, IEvent> coalescing = new ConcurrentHashMap<>();
+    private final Map<Integer, EventStats> stats = new ConcurrentHashMap<>();
+
     public EventExecuteService(
             final int qSize, final String threadName, final int threadPriority, final Logger log) {
         if (threadName == null || log == null) {
@@ -29,11 +82,13 @@ public class EventExecuteService {
 
         LOG = log;
         thName = threadName;
+        this.qSize = qSize;
+        this.threadPriority = threadPriority;
 
         filter = new HashSet<>();
         filter.add(0);
 
-        callbackEvt = new LinkedBlockingQueue(qSize);
+        callbackEvt = new ArrayBlockingQueue<>(qSize);
 
         es =
                 Executors.newFixedThreadPool(
@@ -53,6 +108,91 @@ public class EventExecuteService {
         es.execute(r);
     }
 
+    /**
+     * Starts processing the queued events on the given number of worker threads. Events are
+     * assigned to workers by the given key, so that events with the same key are processed in the
+     * order they were queued while events with different keys may be processed in parallel. When a
+     * worker is busy, its events wait in a bounded queue, which in turn fills up the queue of the
+     * service and applies the {@link Policy} of the events.
+     *
+     * <p>The service stops the workers on {@link #shutdown()}, the consumer does not receive the
+     * poison pill.
+     *
+     * @param workers the number of worker threads
+     * @param key computes the ordering key of an event
+     * @param consumer processes the events
+     */
+    public void start(int workers, ToIntFunction<IEvent> key, Consumer<IEvent> consumer) {
+        if (key == null || consumer == null) {
+            throw new NullPointerException();
+        }
+
+        if (workers < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        List<BlockingQueue<IEvent>> laneQueues = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            laneQueues.add(new ArrayBlockingQueue<>(Math.max(1, qSize / workers)));
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        lanes =
+                Executors.newFixedThreadPool(
+                        workers,
+                        arg0 -> {
+                            Thread thread =
+                                    new Thread(arg0, thName + "-" + count.getAndIncrement());
+                            thread.setPriority(threadPriority);
+                            return thread;
+                        });
+
+        for (BlockingQueue<IEvent> lane : laneQueues) {
+            lanes.execute(
+                    () -> {
+                        try {
+                            while (true) {
+                                IEvent e = lane.take();
+                                if (e.getEventType() == EventDummy.getTypeStatic()) {
+                                    return;
+                                }
+
+                                try {
+                                    consumer.accept(e);
+                                } catch (Exception ex) {
+                                    LOG.error("EventExecuteService {} exception", thName, ex);
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+        }
+
+        es.execute(
+                () -> {
+                    try {
+                        while (true) {
+                            IEvent e = take();
+                            if (e == null) {
+                                return;
+                            }
+
+                            if (e.getEventType() == EventDummy.getTypeStatic()) {
+                                for (BlockingQueue<IEvent> lane : laneQueues) {
+                                    lane.put(e);
+                                }
+                                return;
+                            }
+
+                            laneQueues.get(Math.floorMod(key.applyAsInt(e), workers)).put(e);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+    }
+
     public IEvent take() {
 
         if (LOG.isTraceEnabled()) {
@@ -60,7 +200,19 @@ public class EventExecuteService {
         }
 
         try {
-            return callbackEvt.take();
+            Entry entry = callbackEvt.take();
+            int sn = serial(entry.event);
+
+            IEvent event = entry.event;
+            if (policies.get(sn) == Policy.COALESCE) {
+                IEvent latest = coalescing.remove(sn);
+                if (latest != null) {
+                    event = latest;
+                }
+            }
+
+            getStats(sn).onTake(System.nanoTime() - entry.queued);
+            return event;
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -71,6 +223,8 @@ public class EventExecuteService {
     /** Clear all events from queue */
     public void clear() {
         callbackEvt.clear();
+        coalescing.clear();
+        stats.values().forEach(EventStats::onClear);
     }
 
     public boolean add(IEvent event) {
@@ -78,29 +232,115 @@ public class EventExecuteService {
             throw new NullPointerException();
         }
 
-        int sn = (event.getEventType() << 8) + event.getCallbackType();
+        int sn = serial(event);
 
         if (filter.contains(sn)) {
+            Policy policy = policies.getOrDefault(sn, Policy.DROP);
+
+            if (policy == Policy.COALESCE) {
+                if (coalescing.put(sn, event) != null) {
+                    // replaced the event waiting in the queue
+                    getStats(sn).onCoalesce();
+                    return true;
+                }
 
-            try {
-                return callbackEvt.add(event);
-            } catch (IllegalStateException e) {
-                LOG.warn("ExecutorService Q is full!");
-                return false;
+                if (enqueue(sn, event, false)) {
+                    return true;
+                } else {
+                    // a concurrent producer may have replaced the event meanwhile, and no queue
+                    // entry would take that one
+                    coalescing.remove(sn);
+                    return false;
+                }
             }
+
+            return enqueue(sn, event, policy == Policy.BLOCK);
         } else {
             return false;
         }
     }
 
+    private boolean enqueue(int sn, IEvent event, boolean block) {
+        EventStats eventStats = getStats(sn);
+
+        boolean added;
+        try {
+            added =
+                    block
+                            ? callbackEvt.offer(
+                                    new Entry(event), BLOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                            : callbackEvt.offer(new Entry(event));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            added = false;
+        }
+
+        if (added) {
+            eventStats.onAdd();
+        } else {
+            eventStats.onDrop();
+            LOG.warn(
+                    "ExecutorService {} Q is full! Dropped event type[{}] callback[{}], {}",
+                    thName,
+                    event.getEventType(),
+                    event.getCallbackType(),
+                    eventStats);
+        }
+        return added;
+    }
+
+    private static int serial(IEvent event) {
+        return (event.getEventType() << 8) + event.getCallbackType();
+    }
+
     public void shutdown() {
-        callbackEvt.clear();
-        callbackEvt.add(new EventDummy());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("EventExecuteService {} stats: {}", thName, getStatsSummary());
+        }
+
+        clear();
+        callbackEvt.add(new Entry(new EventDummy()));
         es.shutdown();
+        if (lanes != null) {
+            lanes.shutdown();
+        }
     }
 
     public void setFilter(Set<Integer> filter) {
         this.filter = filter;
         this.filter.add(0); // Poison Pill
     }
+
+    /** Sets the policy applied to events of the given type and callback type. */
+    public void setPolicy(int eventType, int callbackType, Policy policy) {
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+
+        policies.put((eventType << 8) + callbackType, policy);
+    }
+
+    /** Returns the queue statistics of the events of the given type and callback type. */
+    public EventStats getStats(int eventType, int callbackType) {
+        return getStats((eventType << 8) + callbackType);
+    }
+
+    private EventStats getStats(int sn) {
+        return stats.computeIfAbsent(sn, k -> new EventStats());
+    }
+
+    /** Returns the queue statistics of all event types that were queued in a readable format. */
+    public String getStatsSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("q#[").append(callbackEvt.size()).append("]");
+        for (Map.Entry<Integer, EventStats> e : stats.entrySet()) {
+            sb.append(" type[")
+                    .append(e.getKey() >> 8)
+                    .append("] callback[")
+                    .append(e.getKey() & 0xFF)
+                    .append("] ")
+                    .append(e.getValue());
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,95 @@
+package org.aion.evtmgr.impl.es;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue statistics for the events of a single type and callback type.
+ *
+ * <p>The queue depth counts the events waiting to be taken, the latency is measured from the
+ * moment an event is queued until it is taken for processing.
+ */
+public final class EventStats {
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final LongAdder added = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /** Records an event accepted into the queue. */
+    public void onAdd() {
+        added.increment();
+        depth.incrementAndGet();
+    }
+
+    /** Records an event rejected because the queue was full. */
+    public void onDrop() {
+        dropped.increment();
+    }
+
+    /** Records an event merged into an event that was already queued. */
+    public void onCoalesce() {
+        coalesced.increment();
+    }
+
+    /** Records an event taken from the queue after waiting for the given time in nanoseconds. */
+    public void onTake(long latencyNanos) {
+        depth.decrementAndGet();
+        taken.increment();
+        totalLatency.add(latencyNanos);
+        maxLatency.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    /** Records that all queued events were discarded. */
+    public void onClear() {
+        depth.set(0);
+    }
+
+    /** Returns the number of events currently waiting in the queue. */
+    public int getDepth() {
+        // an event can be taken before the producer counted it
+        return Math.max(0, depth.get());
+    }
+
+    /** Returns the number of events accepted into the queue. */
+    public long getAdded() {
+        return added.sum();
+    }
+
+    /** Returns the number of events rejected because the queue was full. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Returns the number of events merged into an event that was already queued. */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /** Returns the average time in nanoseconds events spent in the queue. */
+    public long getAverageLatency() {
+        long count = taken.sum();
+        return count == 0 ? 0 : totalLatency.sum() / count;
+    }
+
+    /** Returns the longest time in nanoseconds an event spent in the queue. */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "depth=%d added=%d dropped=%d coalesced=%d latency(avg/max)=%.3f/%.3f ms",
+                getDepth(),
+                getAdded(),
+                getDropped(),
+                getCoalesced(),
+                getAverageLatency() / 1_000_000d,
+                getMaxLatency() / 1_000_000d);
+    }
+}
@@ -2,10 +2,19 @@ package org.aion.evtmgr.impl.es;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
 import static junit.framework.TestCase.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.impl.evt.EventBlock;
 import org.aion.evtmgr.impl.evt.EventConsensus;
@@ -57,6 +66,152 @@ public class EventExecuteServiceTest {
         assertFalse(ees.add(new EventDummy()));
     }
 
+    @Test
+    public void testCoalescePolicy() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        ees.setPolicy(
+                IEvent.TYPE.BLOCK0.getValue(),
+                EventBlock.CALLBACK.ONBEST0.getValue(),
+                EventExecuteService.Policy.COALESCE);
+
+        EventBlock first = new EventBlock(EventBlock.CALLBACK.ONBEST0);
+        EventBlock latest = new EventBlock(EventBlock.CALLBACK.ONBEST0);
+        EventTx tx = new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0);
+        assertTrue(ees.add(first));
+        assertTrue(ees.add(tx));
+        assertTrue(ees.add(latest));
+
+        // the queued best block event was replaced by the latest one
+        assertSame(latest, ees.take());
+        assertSame(tx, ees.take());
+
+        EventStats stats =
+                ees.getStats(
+                        IEvent.TYPE.BLOCK0.getValue(), EventBlock.CALLBACK.ONBEST0.getValue());
+        assertEquals(1, stats.getAdded());
+        assertEquals(1, stats.getCoalesced());
+        assertEquals(0, stats.getDepth());
+
+        // a new event is queued once the previous one was taken
+        assertTrue(ees.add(first));
+        assertSame(first, ees.take());
+    }
+
+    @Test
+    public void testCoalescePolicy_wFullQueue() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        ees.setPolicy(
+                IEvent.TYPE.BLOCK0.getValue(),
+                EventBlock.CALLBACK.ONBEST0.getValue(),
+                EventExecuteService.Policy.COALESCE);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ees.add(new EventDummy()));
+        }
+        assertFalse(ees.add(new EventBlock(EventBlock.CALLBACK.ONBEST0)));
+
+        // the dropped event does not absorb the next one
+        ees.take();
+        EventBlock latest = new EventBlock(EventBlock.CALLBACK.ONBEST0);
+        assertTrue(ees.add(latest));
+        for (int i = 0; i < 99; i++) {
+            ees.take();
+        }
+        assertSame(latest, ees.take());
+    }
+
+    @Test
+    public void testDropPolicy_stats() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+
+        for (int i = 0; i < 101; i++) {
+            ees.add(new EventBlock(EventBlock.CALLBACK.ONBLOCK0));
+        }
+
+        EventStats stats =
+                ees.getStats(
+                        IEvent.TYPE.BLOCK0.getValue(), EventBlock.CALLBACK.ONBLOCK0.getValue());
+        assertEquals(100, stats.getAdded());
+        assertEquals(1, stats.getDropped());
+        assertEquals(100, stats.getDepth());
+
+        ees.take();
+        assertEquals(99, stats.getDepth());
+    }
+
+    @Test
+    public void testBlockPolicy_timeout() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        ees.setPolicy(
+                IEvent.TYPE.TX0.getValue(),
+                EventTx.CALLBACK.PENDINGTXUPDATE0.getValue(),
+                EventExecuteService.Policy.BLOCK);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ees.add(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0)));
+        }
+
+        long start = System.currentTimeMillis();
+        assertFalse(ees.add(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0)));
+        assertTrue(
+                System.currentTimeMillis() - start >= EventExecuteService.BLOCK_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testStartWorkers_orderedPerKey() throws InterruptedException {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        ees.setPolicy(
+                IEvent.TYPE.BLOCK0.getValue(),
+                EventBlock.CALLBACK.ONBLOCK0.getValue(),
+                EventExecuteService.Policy.BLOCK);
+
+        int keys = 4;
+        int perKey = 20;
+        Map<Integer, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        ees.start(
+                3,
+                e -> (int) e.getFuncArgs().get(0),
+                e -> {
+                    processed
+                            .computeIfAbsent(
+                                    (int) e.getFuncArgs().get(0),
+                                    k -> Collections.synchronizedList(new ArrayList<>()))
+                            .add((int) e.getFuncArgs().get(1));
+                    done.countDown();
+                });
+
+        for (int i = 0; i < perKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                EventBlock e = new EventBlock(EventBlock.CALLBACK.ONBLOCK0);
+                e.setFuncArgs(Arrays.asList(key, i));
+                assertTrue(ees.add(e));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int key = 0; key < keys; key++) {
+            List<Integer> order = processed.get(key);
+            assertEquals(perKey, order.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        }
+
+        ees.shutdown();
+    }
+
     @Test
     public void testEventNotRecognized() {
         assertFalse(eventExecuteService.add(new EventBlock(EventBlock.CALLBACK.ONBEST0)));
@@ -32,18 +32,35 @@ public class CfgDb {
 
         public static final String STATE = "state";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String STATE_JOURNAL = "stateJournal";
         public static final String TRANSACTION = "transaction";
+        public static final String LOG_INDEX = "logIndex";
+        public static final String FAST_SYNC = "fastSync";
 
         public static final String TX_CACHE = "pendingtxCache";
         public static final String TX_POOL = "pendingtxPool";
     }
 
+    /** Property name used to pass the trie node cache size (in MB) to the repository. */
+    public static final String TRIE_CACHE_SIZE = "trie_cache_size";
+
+    /** Default size (in MB) of the in-memory cache for clean state trie nodes. */
+    public static final int DEFAULT_TRIE_CACHE_SIZE = 32;
+
+    /** Property name used to pass the capacity of the write-behind queue to the repository. */
+    public static final String WRITE_BEHIND_QUEUE_SIZE = "write_behind_queue_size";
+
+    /** Default number of pending writes allowed before block import is throttled, 0 disables it. */
+    public static final int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 0;
+
     private String path;
     private String vendor;
     private boolean compression;
     private boolean check_integrity;
     private CfgPrune prune;
     private PruneOption prune_option;
+    private int trie_cache_size;
+    private int write_behind_queue_size;
 
     /**
      * Enabling expert mode allows more detailed database configurations.
@@ -62,6 +79,8 @@ public class CfgDb {
         this.check_integrity = true;
         this.prune = new CfgPrune(false);
         this.prune_option = PruneOption.FULL;
+        this.trie_cache_size = DEFAULT_TRIE_CACHE_SIZE;
+        this.write_behind_queue_size = DEFAULT_WRITE_BEHIND_QUEUE_SIZE;
 
         if (expert) {
             this.specificConfig = new HashMap<>();
@@ -86,6 +105,12 @@ public class CfgDb {
                         case "state-storage":
                             setPrune(Cfg.readValue(sr));
                             break;
+                        case TRIE_CACHE_SIZE:
+                            setTrieCacheSize(Cfg.readValue(sr));
+                            break;
+                        case WRITE_BEHIND_QUEUE_SIZE:
+                            setWriteBehindQueueSize(Cfg.readValue(sr));
+                            break;
                             // parameter considered only when expert==false
                         case "vendor":
                             this.vendor = Cfg.readValue(sr);
@@ -218,10 +243,27 @@ public class CfgDb {
             xmlWriter.writeCharacters(this.prune_option.toString());
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Size in MB of the in-memory cache for state trie nodes; 0 disables the bound.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(TRIE_CACHE_SIZE);
+            xmlWriter.writeCharacters(String.valueOf(this.trie_cache_size));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Number of database writes persisted in the background; 0 writes synchronously."
+                            + " Background writes are not atomic across databases.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(WRITE_BEHIND_QUEUE_SIZE);
+            xmlWriter.writeCharacters(String.valueOf(this.write_behind_queue_size));
+            xmlWriter.writeEndElement();
+
             if (!expert) {
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
-                        "Database implementation used to store data; supported options: leveldb, h2, rocksdb.");
+                        "Database implementation used to store data; supported options: leveldb, h2, rocksdb, rocksdb_cf.");
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
                         "Caution: changing implementation requires re-syncing from genesis!");
@@ -278,6 +320,34 @@ public class CfgDb {
         return this.prune;
     }
 
+    /** Returns the size in MB of the in-memory cache for state trie nodes. */
+    public int getTrieCacheSize() {
+        return trie_cache_size;
+    }
+
+    public void setTrieCacheSize(String _trie_cache_size) {
+        try {
+            int value = Integer.parseInt(_trie_cache_size.trim());
+            this.trie_cache_size = value < 0 ? DEFAULT_TRIE_CACHE_SIZE : value;
+        } catch (NumberFormatException e) {
+            this.trie_cache_size = DEFAULT_TRIE_CACHE_SIZE;
+        }
+    }
+
+    /** Returns the number of database writes that may be pending in the write-behind queue. */
+    public int getWriteBehindQueueSize() {
+        return write_behind_queue_size;
+    }
+
+    public void setWriteBehindQueueSize(String _write_behind_queue_size) {
+        try {
+            int value = Integer.parseInt(_write_behind_queue_size.trim());
+            this.write_behind_queue_size = value < 0 ? DEFAULT_WRITE_BEHIND_QUEUE_SIZE : value;
+        } catch (NumberFormatException e) {
+            this.write_behind_queue_size = DEFAULT_WRITE_BEHIND_QUEUE_SIZE;
+        }
+    }
+
     /**
      * Number of topmost blocks present in the database in TOP pruning mode. Information about these
      * blocks is also kept in memory for later pruning.
@@ -362,6 +432,12 @@ public class CfgDb {
             Properties props = propSet.get(Names.DEFAULT);
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
             props.setProperty(Props.PERSISTENT, String.valueOf(isPersistent));
+
+            for (Properties dbProps : propSet.values()) {
+                dbProps.setProperty(TRIE_CACHE_SIZE, String.valueOf(this.trie_cache_size));
+                dbProps.setProperty(
+                        WRITE_BEHIND_QUEUE_SIZE, String.valueOf(this.write_behind_queue_size));
+            }
         } else {
             Properties props = new Properties();
             props.setProperty(Props.DB_TYPE, this.vendor);
@@ -383,6 +459,10 @@ public class CfgDb {
             props.setProperty(Props.WRITE_BUFFER_SIZE, String.valueOf(64 * (int) Utils.MEGA_BYTE));
             props.setProperty(Props.READ_BUFFER_SIZE, String.valueOf(64 * (int) Utils.MEGA_BYTE));
 
+            props.setProperty(TRIE_CACHE_SIZE, String.valueOf(this.trie_cache_size));
+            props.setProperty(
+                    WRITE_BEHIND_QUEUE_SIZE, String.valueOf(this.write_behind_queue_size));
+
             propSet.put(Names.DEFAULT, props);
         }
 
@@ -418,6 +498,8 @@ public class CfgDb {
                 && Objects.equal(vendor, cfgDb.vendor)
                 && Objects.equal(prune, cfgDb.prune)
                 && prune_option == cfgDb.prune_option
+                && trie_cache_size == cfgDb.trie_cache_size
+                && write_behind_queue_size == cfgDb.write_behind_queue_size
                 && Objects.equal(specificConfig, cfgDb.specificConfig);
     }
 
@@ -430,6 +512,8 @@ public class CfgDb {
                 check_integrity,
                 prune,
                 prune_option,
+                trie_cache_size,
+                write_behind_queue_size,
                 expert,
                 specificConfig);
     }
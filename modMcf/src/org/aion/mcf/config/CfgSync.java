@@ -24,6 +24,8 @@ public final class CfgSync {
     private int slowImportTime;
     private int compactFrequency;
 
+    private boolean fastSyncEnabled;
+
     private static final int BLOCKS_QUEUE_MAX = 32;
 
     private static final int SLOW_IMPORT_TIME = 1_000; // 1 sec
@@ -37,6 +39,7 @@ public final class CfgSync {
         this.compactEnabled = false;
         this.slowImportTime = SLOW_IMPORT_TIME;
         this.compactFrequency = COMPACT_FREQUENCY;
+        this.fastSyncEnabled = false;
     }
 
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
@@ -59,6 +62,9 @@ public final class CfgSync {
                         case "compact":
                             parseCompact(sr);
                             break;
+                        case "fast-sync":
+                            this.fastSyncEnabled = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -176,6 +182,16 @@ public final class CfgSync {
             xmlWriter.writeAttribute("frequency", this.compactFrequency + "");
             xmlWriter.writeEndElement();
 
+            // sub-element fast-sync
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "downloads the state at a recent block instead of executing all blocks;"
+                            + " only used when the local chain is empty");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("fast-sync");
+            xmlWriter.writeCharacters(this.fastSyncEnabled + "");
+            xmlWriter.writeEndElement();
+
             // close element sync
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
@@ -245,6 +261,10 @@ public final class CfgSync {
         return this.compactFrequency;
     }
 
+    public boolean getFastSyncEnabled() {
+        return this.fastSyncEnabled;
+    }
+
     public void setCompactEnabled(boolean enabled) {
         this.compactEnabled = enabled;
     }
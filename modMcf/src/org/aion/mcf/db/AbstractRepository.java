@@ -6,11 +6,16 @@ import static org.aion.mcf.db.DatabaseUtils.verifyAndBuildPath;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.db.generic.WriteBehindDatabase;
+import org.aion.db.generic.WriteBehindQueue;
+import org.aion.db.impl.rocksdb.RocksDBConstants;
+import org.aion.db.impl.rocksdb.RocksDBInstance;
 import org.aion.interfaces.block.BlockHeader;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
 import org.aion.interfaces.db.Repository;
@@ -18,10 +23,13 @@ import org.aion.interfaces.db.RepositoryConfig;
 import org.aion.interfaces.tx.Transaction;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
+import org.aion.mcf.config.CfgDb;
 import org.aion.mcf.config.CfgDb.Names;
 import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.exception.InvalidFilePathException;
 import org.aion.mcf.ds.ArchivedDataSource;
+import org.aion.mcf.ds.BloomFilteredDatabase;
+import org.aion.mcf.trie.Cache;
 import org.aion.mcf.trie.JournalPruneDataSource;
 import org.aion.mcf.trie.Trie;
 import org.aion.mcf.types.AbstractBlock;
@@ -45,6 +53,8 @@ public abstract class AbstractRepository<
 
     /** ********* Database Name Constants ********** */
     protected static final String TRANSACTION_DB = Names.TRANSACTION;
+    protected static final String LOG_INDEX_DB = Names.LOG_INDEX;
+    protected static final String FAST_SYNC_DB = Names.FAST_SYNC;
 
     protected static final String INDEX_DB = Names.INDEX;
     protected static final String BLOCK_DB = Names.BLOCK;
@@ -54,6 +64,7 @@ public abstract class AbstractRepository<
     protected static final String STORAGE_DB = Names.STORAGE;
     protected static final String STATE_DB = Names.STATE;
     protected static final String STATE_ARCHIVE_DB = Names.STATE_ARCHIVE;
+    protected static final String STATE_JOURNAL_DB = Names.STATE_JOURNAL;
     protected static final String PENDING_TX_POOL_DB = Names.TX_POOL;
     protected static final String PENDING_TX_CACHE_DB = Names.TX_CACHE;
 
@@ -66,6 +77,8 @@ public abstract class AbstractRepository<
 
     /** ******** Database and Cache parameters ************* */
     protected ByteArrayKeyValueDatabase transactionDatabase;
+    protected ByteArrayKeyValueDatabase logIndexDatabase;
+    protected ByteArrayKeyValueDatabase fastSyncDatabase;
 
     protected ByteArrayKeyValueDatabase contractIndexDatabase;
     protected ByteArrayKeyValueDatabase detailsDatabase;
@@ -73,7 +86,8 @@ public abstract class AbstractRepository<
     protected ByteArrayKeyValueDatabase indexDatabase;
     protected ByteArrayKeyValueDatabase blockDatabase;
     protected ByteArrayKeyValueDatabase stateDatabase;
-    protected ByteArrayKeyValueDatabase stateArchiveDatabase;
+    protected BloomFilteredDatabase stateArchiveDatabase;
+    protected ByteArrayKeyValueDatabase stateJournalDatabase;
     protected ByteArrayKeyValueDatabase txPoolDatabase;
     protected ByteArrayKeyValueDatabase pendingTxCacheDatabase;
 
@@ -103,6 +117,15 @@ public abstract class AbstractRepository<
 
     protected boolean checkIntegrity = true;
 
+    // Maximum size in bytes of the in-memory cache for clean state trie nodes.
+    protected long trieCacheSize = Cache.DEFAULT_CACHE_SIZE;
+
+    // Shared queue for persisting database writes in the background (null when disabled).
+    protected WriteBehindQueue writeBehindQueue = null;
+
+    // Database shared by the stores kept as column families (null for the other vendors).
+    protected RocksDBInstance sharedDatabase = null;
+
     /**
      * Initializes all necessary databases and caches.
      *
@@ -158,6 +181,15 @@ public abstract class AbstractRepository<
         try {
             databaseGroup = new ArrayList<>();
 
+            // the write-behind queue must exist before connecting to the databases
+            String writeBehindQueueSize =
+                    cfg.getDatabaseConfig(Names.DEFAULT).getProperty(CfgDb.WRITE_BEHIND_QUEUE_SIZE);
+            int queueSize =
+                    writeBehindQueueSize == null ? 0 : Integer.parseInt(writeBehindQueueSize);
+            if (queueSize > 0) {
+                writeBehindQueue = new WriteBehindQueue(queueSize);
+            }
+
             checkIntegrity =
                     Boolean.valueOf(
                             cfg.getDatabaseConfig(Names.DEFAULT)
@@ -165,11 +197,15 @@ public abstract class AbstractRepository<
 
             // getting state specific properties
             sharedProps = cfg.getDatabaseConfig(STATE_DB);
+            String trieCacheSizeMB = sharedProps.getProperty(CfgDb.TRIE_CACHE_SIZE);
+            if (trieCacheSizeMB != null) {
+                trieCacheSize = Long.parseLong(trieCacheSizeMB) * 1024 * 1024;
+            }
             // locking enabled for state when JournalPrune not used
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, STATE_DB);
-            this.stateDatabase = connectAndOpen(sharedProps, LOG);
+            this.stateDatabase = connectWithWriteBehind(sharedProps);
             if (stateDatabase == null || stateDatabase.isClosed()) {
                 throw newException(STATE_DB, sharedProps);
             }
@@ -180,18 +216,40 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, TRANSACTION_DB);
-            this.transactionDatabase = connectAndOpen(sharedProps, LOG);
+            this.transactionDatabase = connectWithWriteBehind(sharedProps);
             if (transactionDatabase == null || transactionDatabase.isClosed()) {
                 throw newException(TRANSACTION_DB, sharedProps);
             }
             databaseGroup.add(transactionDatabase);
 
+            // getting log index specific properties
+            sharedProps = cfg.getDatabaseConfig(LOG_INDEX_DB);
+            sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+            sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+            sharedProps.setProperty(Props.DB_NAME, LOG_INDEX_DB);
+            this.logIndexDatabase = connectWithWriteBehind(sharedProps);
+            if (logIndexDatabase == null || logIndexDatabase.isClosed()) {
+                throw newException(LOG_INDEX_DB, sharedProps);
+            }
+            databaseGroup.add(logIndexDatabase);
+
+            // getting fast sync progress specific properties
+            sharedProps = cfg.getDatabaseConfig(FAST_SYNC_DB);
+            sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+            sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+            sharedProps.setProperty(Props.DB_NAME, FAST_SYNC_DB);
+            this.fastSyncDatabase = connectWithWriteBehind(sharedProps);
+            if (fastSyncDatabase == null || fastSyncDatabase.isClosed()) {
+                throw newException(FAST_SYNC_DB, sharedProps);
+            }
+            databaseGroup.add(fastSyncDatabase);
+
             // getting details specific properties
             sharedProps = cfg.getDatabaseConfig(CONTRACT_INDEX_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, CONTRACT_INDEX_DB);
-            this.contractIndexDatabase = connectAndOpen(sharedProps, LOG);
+            this.contractIndexDatabase = connectWithWriteBehind(sharedProps);
             if (contractIndexDatabase == null || contractIndexDatabase.isClosed()) {
                 throw newException(CONTRACT_INDEX_DB, sharedProps);
             }
@@ -202,7 +260,7 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, DETAILS_DB);
-            this.detailsDatabase = connectAndOpen(sharedProps, LOG);
+            this.detailsDatabase = connectWithWriteBehind(sharedProps);
             if (detailsDatabase == null || detailsDatabase.isClosed()) {
                 throw newException(DETAILS_DB, sharedProps);
             }
@@ -213,7 +271,7 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, STORAGE_DB);
-            this.storageDatabase = connectAndOpen(sharedProps, LOG);
+            this.storageDatabase = connectWithWriteBehind(sharedProps);
             if (storageDatabase == null || storageDatabase.isClosed()) {
                 throw newException(STORAGE_DB, sharedProps);
             }
@@ -224,7 +282,7 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, INDEX_DB);
-            this.indexDatabase = connectAndOpen(sharedProps, LOG);
+            this.indexDatabase = connectWithWriteBehind(sharedProps);
             if (indexDatabase == null || indexDatabase.isClosed()) {
                 throw newException(INDEX_DB, sharedProps);
             }
@@ -235,7 +293,7 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, BLOCK_DB);
-            this.blockDatabase = connectAndOpen(sharedProps, LOG);
+            this.blockDatabase = connectWithWriteBehind(sharedProps);
             if (blockDatabase == null || blockDatabase.isClosed()) {
                 throw newException(BLOCK_DB, sharedProps);
             }
@@ -250,7 +308,7 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, PENDING_TX_POOL_DB);
-            this.txPoolDatabase = connectAndOpen(sharedProps, LOG);
+            this.txPoolDatabase = connectWithWriteBehind(sharedProps);
             if (txPoolDatabase == null || txPoolDatabase.isClosed()) {
                 throw newException(PENDING_TX_POOL_DB, sharedProps);
             }
@@ -261,12 +319,35 @@ public abstract class AbstractRepository<
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, PENDING_TX_CACHE_DB);
-            this.pendingTxCacheDatabase = connectAndOpen(sharedProps, LOG);
+            this.pendingTxCacheDatabase = connectWithWriteBehind(sharedProps);
             if (pendingTxCacheDatabase == null || pendingTxCacheDatabase.isClosed()) {
                 throw newException(PENDING_TX_CACHE_DB, sharedProps);
             }
             databaseGroup.add(pendingTxCacheDatabase);
 
+            // the writes made by block imports are committed together by the blockchain, while
+            // the pending and fast sync stores persist each write when it is made
+            sharedDatabase =
+                    RocksDBInstance.lookup(
+                                    new File(cfg.getDbPath(), RocksDBConstants.SHARED_DB_NAME)
+                                            .getPath())
+                            .orElse(null);
+            if (sharedDatabase != null) {
+                sharedDatabase.enableWriteBatch(
+                        Arrays.asList(
+                                STATE_DB,
+                                TRANSACTION_DB,
+                                LOG_INDEX_DB,
+                                CONTRACT_INDEX_DB,
+                                DETAILS_DB,
+                                STORAGE_DB,
+                                INDEX_DB,
+                                BLOCK_DB,
+                                STATE_JOURNAL_DB,
+                                STATE_ARCHIVE_DB));
+                LOGGEN.info("Atomic write batches ENABLED for the shared database.");
+            }
+
             // Setup the cache for transaction data source.
             this.detailsDS = new DetailsDataStore<>(detailsDatabase, storageDatabase, this.cfg);
 
@@ -275,17 +356,37 @@ public abstract class AbstractRepository<
             pruneBlockCount = this.cfg.getPruneConfig().getCurrentCount();
             archiveRate = this.cfg.getPruneConfig().getArchiveRate();
 
+            if (pruneEnabled) {
+                // using state config for state_journal
+                sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, STATE_JOURNAL_DB);
+                this.stateJournalDatabase = connectWithWriteBehind(sharedProps);
+                if (stateJournalDatabase == null || stateJournalDatabase.isClosed()) {
+                    throw newException(STATE_JOURNAL_DB, sharedProps);
+                }
+                databaseGroup.add(stateJournalDatabase);
+            } else {
+                stateJournalDatabase = null;
+            }
+
             if (pruneEnabled && this.cfg.getPruneConfig().isArchived()) {
                 // using state config for state_archive
                 sharedProps = cfg.getDatabaseConfig(STATE_DB);
                 sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
                 sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
                 sharedProps.setProperty(Props.DB_NAME, STATE_ARCHIVE_DB);
-                this.stateArchiveDatabase = connectAndOpen(sharedProps, LOG);
+                // filtering the archive keys avoids a disk read for most pruned nodes
+                this.stateArchiveDatabase =
+                        new BloomFilteredDatabase(
+                                connectWithWriteBehind(sharedProps),
+                                BloomFilteredDatabase.DEFAULT_CAPACITY,
+                                new File(cfg.getDbPath(), STATE_ARCHIVE_DB + ".filter"));
                 databaseGroup.add(stateArchiveDatabase);
 
                 stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
-                stateDSPrune = new JournalPruneDataSource(stateWithArchive);
+                stateDSPrune = new JournalPruneDataSource(stateWithArchive, stateJournalDatabase);
 
                 LOGGEN.info(
                         "Pruning and archiving ENABLED. Top block count set to {} and archive rate set to {}.",
@@ -294,10 +395,11 @@ public abstract class AbstractRepository<
             } else {
                 stateArchiveDatabase = null;
                 stateWithArchive = null;
-                stateDSPrune = new JournalPruneDataSource(stateDatabase);
-
                 if (pruneEnabled) {
+                    stateDSPrune = new JournalPruneDataSource(stateDatabase, stateJournalDatabase);
                     LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
+                } else {
+                    stateDSPrune = new JournalPruneDataSource(stateDatabase);
                 }
             }
 
@@ -307,6 +409,39 @@ public abstract class AbstractRepository<
         }
     }
 
+    /**
+     * Connects to the database described by the given properties. When the write-behind queue is
+     * enabled, the writes to the database are persisted asynchronously through the shared queue.
+     */
+    private ByteArrayKeyValueDatabase connectWithWriteBehind(Properties props) {
+        ByteArrayKeyValueDatabase db = connectAndOpen(props, LOG);
+        if (db == null || writeBehindQueue == null) {
+            return db;
+        } else {
+            return new WriteBehindDatabase(db, writeBehindQueue);
+        }
+    }
+
+    /**
+     * Atomically persists the writes made to the block import stores since the previous call, when
+     * the stores are column families of one shared database. For the other vendors each write is
+     * persisted when it is made and this method does nothing.
+     *
+     * @implNote When the write-behind queue is enabled the commit is queued after the writes.
+     */
+    public void commitWriteBatch() {
+        RocksDBInstance database = sharedDatabase;
+        if (database == null) {
+            return;
+        }
+
+        if (writeBehindQueue != null) {
+            writeBehindQueue.submitAfterPendingWrites(database::commitWriteBatch);
+        } else {
+            database.commitWriteBatch();
+        }
+    }
+
     private InvalidFilePathException newException(String dbName, Properties props) {
         return new InvalidFilePathException(
                 "The «"
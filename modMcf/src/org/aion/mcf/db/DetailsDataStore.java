@@ -2,8 +2,10 @@ package org.aion.mcf.db;
 
 import static org.aion.types.ByteArrayWrapper.wrap;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.aion.interfaces.block.BlockHeader;
@@ -15,6 +17,7 @@ import org.aion.mcf.trie.JournalPruneDataSource;
 import org.aion.mcf.types.AbstractBlock;
 import org.aion.types.Address;
 import org.aion.types.ByteArrayWrapper;
+import org.apache.commons.collections4.map.LRUMap;
 
 /** Detail data storage , */
 public class DetailsDataStore<
@@ -27,6 +30,25 @@ public class DetailsDataStore<
     private ByteArrayKeyValueDatabase storageSrc;
     private Set<ByteArrayWrapper> removes = new HashSet<>();
 
+    /**
+     * The details updated since the last flush. Only these details need their storage synced when
+     * flushing, so a flush is proportional to the contracts touched and not to all the contracts in
+     * the database.
+     */
+    private Map<ByteArrayWrapper, ContractDetails> dirty = new HashMap<>();
+
+    /** The encoded size of the details written since the last flush. */
+    private long dirtySize = 0;
+
+    private static final int DECODED_CACHE_SIZE = 256;
+
+    /**
+     * Recently decoded details. The cached instances are never handed out, callers receive copies
+     * so that their modifications do not affect the cache.
+     */
+    private final LRUMap<ByteArrayWrapper, ContractDetails> decoded =
+            new LRUMap<>(DECODED_CACHE_SIZE);
+
     public DetailsDataStore() {}
 
     public DetailsDataStore(
@@ -43,6 +65,7 @@ public class DetailsDataStore<
         this.detailsSrc = detailsSrc;
         this.storageSrc = storageSrc;
         this.storageDSPrune = new JournalPruneDataSource(storageSrc);
+        this.decoded.clear();
         return this;
     }
 
@@ -55,24 +78,32 @@ public class DetailsDataStore<
     public synchronized ContractDetails get(byte[] key) {
 
         ByteArrayWrapper wrappedKey = wrap(key);
-        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        ContractDetails detailsImpl = decoded.get(wrappedKey);
 
-        // If it doesn't exist in cache or database.
-        if (!rawDetails.isPresent()) {
+        if (detailsImpl == null) {
+            Optional<byte[]> rawDetails = detailsSrc.get(key);
 
-            // Check to see if we have to remove it.
-            // If it isn't in removes set, we add it to removes set.
-            removes.add(wrappedKey);
-            return null;
-        }
+            // If it doesn't exist in cache or database.
+            if (!rawDetails.isPresent()) {
+
+                // Check to see if we have to remove it.
+                // If it isn't in removes set, we add it to removes set.
+                removes.add(wrappedKey);
+                return null;
+            }
 
-        // Found something from cache or database, return it by decoding it.
-        ContractDetails detailsImpl = repoConfig.contractDetailsImpl();
-        detailsImpl.setDataSource(storageDSPrune);
-        detailsImpl.decode(rawDetails.get()); // We can safely get as we checked
-        // if it is present.
+            // Found something from cache or database, return it by decoding it.
+            detailsImpl = repoConfig.contractDetailsImpl();
+            detailsImpl.setDataSource(storageDSPrune);
+            detailsImpl.decode(rawDetails.get()); // We can safely get as we checked
+            // if it is present.
+
+            // Hash the code once here instead of once for each copy.
+            detailsImpl.getCode();
+            decoded.put(wrappedKey, detailsImpl);
+        }
 
-        return detailsImpl;
+        return detailsImpl.copy();
     }
 
     public synchronized void update(Address key, ContractDetails contractDetails) {
@@ -88,6 +119,10 @@ public class DetailsDataStore<
 
         // Remove from the remove set.
         removes.remove(wrappedKey);
+        decoded.remove(wrappedKey);
+
+        dirty.put(wrappedKey, contractDetails);
+        dirtySize += rawDetails == null ? 0 : rawDetails.length;
     }
 
     public synchronized void remove(byte[] key) {
@@ -95,57 +130,41 @@ public class DetailsDataStore<
         detailsSrc.delete(key);
 
         removes.add(wrappedKey);
+        decoded.remove(wrappedKey);
+        dirty.remove(wrappedKey);
     }
 
     public synchronized void flush() {
         flushInternal();
     }
 
+    /** @return the encoded size of the details written since the previous flush */
     private long flushInternal() {
-        long totalSize = 0;
+        long totalSize = dirtySize;
 
         syncLargeStorage();
 
-        // Get everything from the cache and calculate the size.
-        Iterator<byte[]> keysFromSource = detailsSrc.keys();
-        while (keysFromSource.hasNext()) {
-            byte[] keyInSource = keysFromSource.next();
-            // Fetch the value given the keys.
-            Optional<byte[]> valFromKey = detailsSrc.get(keyInSource);
-
-            // Add to total size given size of the value
-            totalSize += valFromKey.map(rawDetails -> rawDetails.length).orElse(0);
+        // Flushes both details and storage.
+        if (!detailsSrc.isAutoCommitEnabled()) {
+            detailsSrc.commit();
+        }
+        if (!storageSrc.isAutoCommitEnabled()) {
+            storageSrc.commit();
         }
 
-        // Flushes both details and storage.
-        detailsSrc.commit();
-        storageSrc.commit();
+        dirty.clear();
+        dirtySize = 0;
 
         return totalSize;
     }
 
-    public void syncLargeStorage() {
-
-        Iterator<byte[]> keysFromSource = detailsSrc.keys();
-        while (keysFromSource.hasNext()) {
-            byte[] keyInSource = keysFromSource.next();
-
-            // Fetch the value given the keys.
-            Optional<byte[]> rawDetails = detailsSrc.get(keyInSource);
-
-            // If it is null, just continue
-            if (!rawDetails.isPresent()) {
-                continue;
-            }
-
-            // Decode the details.
-            ContractDetails detailsImpl = repoConfig.contractDetailsImpl();
-            detailsImpl.setDataSource(storageDSPrune);
-            detailsImpl.decode(rawDetails.get(), true);
-            // We can safely get as we checked if it is present.
-
-            // ContractDetails details = entry.getValue();
-            detailsImpl.syncStorage();
+    /**
+     * Syncs the storage of the details updated since the last flush, using the instances passed to
+     * {@link #update(Address, ContractDetails)} instead of decoding them again from the database.
+     */
+    public synchronized void syncLargeStorage() {
+        for (ContractDetails details : dirty.values()) {
+            details.syncStorage();
         }
     }
 
@@ -1,36 +1,70 @@
 package org.aion.mcf.db;
 
-import static org.aion.util.others.Utils.dummy;
-
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
 import org.aion.interfaces.db.Flushable;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
 import org.aion.mcf.core.AbstractTxInfo;
 import org.aion.mcf.ds.ObjectDataSource;
 import org.aion.mcf.ds.Serializer;
 import org.aion.mcf.types.AbstractTransaction;
 import org.aion.mcf.types.AbstractTxReceipt;
 import org.aion.types.ByteArrayWrapper;
-import org.apache.commons.collections4.map.LRUMap;
-
+import org.slf4j.Logger;
+
+/**
+ * Stores the transaction information for each transaction hash, one entry per block that included
+ * the transaction.
+ *
+ * <p>The decoded information of recently stored and recently read transactions is kept in a
+ * concurrent cache. Cached lists are never modified, which allows lookups to proceed without
+ * locking. Writes replace the cached list, so the blocks stored by the chain are available without
+ * decoding them again.
+ */
 public class TransactionStore<
                 TX extends AbstractTransaction,
                 TXR extends AbstractTxReceipt<TX>,
                 INFO extends AbstractTxInfo<TXR, TX>>
         implements Flushable, Closeable {
-    private final LRUMap<ByteArrayWrapper, Object> lastSavedTxHash = new LRUMap<>(5000);
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** The default number of transaction hashes with cached information. */
+    public static final int DEFAULT_CACHE_SIZE = 20_000;
+
+    private static final int CONCURRENCY_LEVEL = 16;
+
     private final ObjectDataSource<List<INFO>> source;
+    private final Cache<ByteArrayWrapper, List<INFO>> cache;
 
+    // serializes the updates that read and rewrite the stored lists
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public TransactionStore(
             ByteArrayKeyValueDatabase src, Serializer<List<INFO>, byte[]> serializer) {
+        this(src, serializer, DEFAULT_CACHE_SIZE);
+    }
+
+    public TransactionStore(
+            ByteArrayKeyValueDatabase src,
+            Serializer<List<INFO>, byte[]> serializer,
+            int cacheSize) {
         source = new ObjectDataSource(src, serializer);
+        cache =
+                CacheBuilder.newBuilder()
+                        .maximumSize(cacheSize)
+                        .concurrencyLevel(CONCURRENCY_LEVEL)
+                        .recordStats()
+                        .build();
     }
 
     public boolean putToBatch(INFO tx) {
@@ -39,23 +73,24 @@ public class TransactionStore<
         try {
             byte[] txHash = tx.getReceipt().getTransaction().getTransactionHash();
 
-            List<INFO> existingInfos = null;
-            if (lastSavedTxHash.put(new ByteArrayWrapper(txHash), dummy) != null
-                    || !lastSavedTxHash.isFull()) {
-                existingInfos = source.get(txHash);
-            }
-
+            List<INFO> existingInfos = get(txHash);
+            List<INFO> updatedInfos;
             if (existingInfos == null) {
-                existingInfos = new ArrayList<>();
+                updatedInfos = new ArrayList<>(1);
             } else {
                 for (AbstractTxInfo<TXR, TX> info : existingInfos) {
                     if (Arrays.equals(info.getBlockHash(), tx.getBlockHash())) {
                         return false;
                     }
                 }
+                updatedInfos = new ArrayList<>(existingInfos.size() + 1);
+                updatedInfos.addAll(existingInfos);
             }
-            existingInfos.add(tx);
-            source.putToBatch(txHash, existingInfos);
+            updatedInfos.add(tx);
+            source.putToBatch(txHash, updatedInfos);
+
+            // replacing the cached list also discards any concurrent lookup of the old one
+            cache.put(ByteArrayWrapper.wrap(txHash), Collections.unmodifiableList(updatedInfos));
 
             return true;
         } finally {
@@ -68,28 +103,56 @@ public class TransactionStore<
     }
 
     public INFO get(byte[] txHash, byte[] blockHash) {
-        lock.readLock().lock();
-
-        try {
-            List<INFO> existingInfos = source.get(txHash);
+        List<INFO> existingInfos = get(txHash);
+        if (existingInfos != null) {
             for (INFO info : existingInfos) {
                 if (Arrays.equals(info.getBlockHash(), blockHash)) {
                     return info;
                 }
             }
-            return null;
-        } finally {
-            lock.readLock().unlock();
         }
+        return null;
     }
 
+    /**
+     * Returns the information stored for the given transaction hash.
+     *
+     * @param key the transaction hash
+     * @return an unmodifiable list with one entry per block that included the transaction, or
+     *     {@code null} if the transaction is unknown
+     */
     public List<INFO> get(byte[] key) {
-        lock.readLock().lock();
-        try {
-            return source.get(key);
-        } finally {
-            lock.readLock().unlock();
+        ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
+        List<INFO> infos = cache.getIfPresent(wrappedKey);
+        if (infos == null) {
+            infos = source.get(key);
+            if (infos != null) {
+                // an update stored while the list was read takes precedence
+                List<INFO> loaded = Collections.unmodifiableList(infos);
+                List<INFO> cached = cache.asMap().putIfAbsent(wrappedKey, loaded);
+                infos = cached == null ? loaded : cached;
+            }
         }
+        return infos;
+    }
+
+    /** Returns the statistics for the cached transaction information. */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public String getStatsSummary() {
+        CacheStats stats = getStats();
+        return "size="
+                + cache.size()
+                + ", hits="
+                + stats.hitCount()
+                + ", misses="
+                + stats.missCount()
+                + ", hitRate="
+                + String.format("%.3f", stats.hitRate())
+                + ", evictions="
+                + stats.evictionCount();
     }
 
     @Override
@@ -100,6 +163,10 @@ public class TransactionStore<
         } finally {
             lock.writeLock().unlock();
         }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Transaction store cache stats after flush: {}", getStatsSummary());
+        }
     }
 
     @Override
@@ -107,6 +174,7 @@ public class TransactionStore<
         lock.writeLock().lock();
         try {
             source.close();
+            cache.invalidateAll();
         } finally {
             lock.writeLock().unlock();
         }
@@ -10,6 +10,9 @@ import org.aion.interfaces.db.ByteArrayKeyValueStore;
 /**
  * A data source with archived data that must no be deleted.
  *
+ * <p>Every delete checks whether the key is archived. When the archive is a {@link
+ * BloomFilteredDatabase} the check is answered from memory for most keys that are not archived.
+ *
  * @author Alexandra Roatis
  */
 public class ArchivedDataSource implements ByteArrayKeyValueStore {
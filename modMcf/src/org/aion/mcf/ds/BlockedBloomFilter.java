@@ -0,0 +1,142 @@
+package org.aion.mcf.ds;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Bloom filter over byte array keys where all the bits of a key are set in one block of 512 bits,
+ * so that each lookup touches a single cache line.
+ *
+ * <p>The filter is sized for a given number of keys at {@link #BITS_PER_KEY} bits per key, for a
+ * false positive rate of about one percent. Adding more keys than the capacity is allowed, but
+ * raises the false positive rate.
+ */
+public final class BlockedBloomFilter {
+
+    public static final int BITS_PER_KEY = 10;
+    private static final int HASH_COUNT = 7;
+
+    private static final int BLOCK_BITS = 512;
+    private static final int BLOCK_WORDS = BLOCK_BITS / Long.SIZE;
+    private static final int POSITION_BITS = 9;
+    private static final int POSITION_MASK = BLOCK_BITS - 1;
+
+    private final long[] words;
+    private final int blocks;
+    private long insertions;
+    private long bitCount;
+
+    public BlockedBloomFilter(long capacity) {
+        this((int) Math.min(Integer.MAX_VALUE / BLOCK_WORDS, blocksFor(capacity)));
+    }
+
+    private BlockedBloomFilter(int blocks) {
+        this.blocks = blocks;
+        this.words = new long[blocks * BLOCK_WORDS];
+    }
+
+    private static long blocksFor(long capacity) {
+        return Math.max(1L, (Math.max(capacity, 1L) * BITS_PER_KEY + BLOCK_BITS - 1) / BLOCK_BITS);
+    }
+
+    public synchronized void put(byte[] key) {
+        long hash = hash(key);
+        int offset = blockOffset(hash);
+        long positions = mix(hash + 0x9E3779B97F4A7C15L);
+
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int position = (int) (positions >>> (i * POSITION_BITS)) & POSITION_MASK;
+            int word = offset + (position >>> 6);
+            long mask = 1L << position;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                bitCount++;
+            }
+        }
+        insertions++;
+    }
+
+    /**
+     * Returns {@code false} if the key was definitely never added to the filter and {@code true}
+     * if it might have been added.
+     */
+    public boolean mightContain(byte[] key) {
+        long hash = hash(key);
+        int offset = blockOffset(hash);
+        long positions = mix(hash + 0x9E3779B97F4A7C15L);
+
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int position = (int) (positions >>> (i * POSITION_BITS)) & POSITION_MASK;
+            if ((words[offset + (position >>> 6)] & (1L << position)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the number of keys the filter was sized for. */
+    public long getCapacity() {
+        return (long) blocks * BLOCK_BITS / BITS_PER_KEY;
+    }
+
+    /** Returns the number of keys added to the filter, including duplicates. */
+    public synchronized long getInsertions() {
+        return insertions;
+    }
+
+    /** Returns the memory used by the filter bits. */
+    public long getSizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /** Estimates the false positive rate from the fraction of bits set. */
+    public synchronized double getExpectedFalsePositiveRate() {
+        return Math.pow((double) bitCount / ((long) blocks * BLOCK_BITS), HASH_COUNT);
+    }
+
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(blocks);
+        out.writeLong(insertions);
+        out.writeLong(bitCount);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    public static BlockedBloomFilter readFrom(DataInputStream in) throws IOException {
+        int blocks = in.readInt();
+        if (blocks <= 0 || blocks > Integer.MAX_VALUE / BLOCK_WORDS) {
+            throw new IOException("Invalid number of blocks " + blocks + ".");
+        }
+
+        BlockedBloomFilter filter = new BlockedBloomFilter(blocks);
+        filter.insertions = in.readLong();
+        filter.bitCount = in.readLong();
+        for (int i = 0; i < filter.words.length; i++) {
+            filter.words[i] = in.readLong();
+        }
+        return filter;
+    }
+
+    private int blockOffset(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+
+    private static long hash(byte[] key) {
+        long hash = 0xCBF29CE484222325L ^ key.length;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
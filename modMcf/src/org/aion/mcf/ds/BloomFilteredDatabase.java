@@ -0,0 +1,343 @@
+package org.aion.mcf.ds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.aion.interfaces.db.PersistenceMethod;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Keeps a {@link BlockedBloomFilter} over the keys of the database, so that lookups for keys that
+ * were never stored are answered without reading from the disk.
+ *
+ * <p>Every key written through this class is added to the filter. Deleted keys cannot be removed
+ * from the filter and only cause false positives. When a file is given, the filter is saved to it
+ * on close and loaded on the next open. The file is deleted once loaded, so that after a crash the
+ * filter is rebuilt from the database keys instead of missing the writes made since the load.
+ */
+public class BloomFilteredDatabase implements ByteArrayKeyValueDatabase {
+
+    /** Number of keys the filter is sized for when the database holds fewer keys. */
+    public static final long DEFAULT_CAPACITY = 1L << 23;
+
+    protected final ByteArrayKeyValueDatabase database;
+
+    protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private final long minCapacity;
+    private final File filterFile;
+    private volatile BlockedBloomFilter filter = null;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /**
+     * @param _database the filtered database
+     * @param minCapacity the number of keys the filter is sized for when the database holds fewer
+     * @param filterFile the file used to persist the filter between runs, or {@code null} to
+     *     rebuild it from the database keys on each open
+     */
+    public BloomFilteredDatabase(
+            ByteArrayKeyValueDatabase _database, long minCapacity, File filterFile) {
+        this.database = _database;
+        this.minCapacity = minCapacity;
+        this.filterFile = filterFile;
+
+        if (database.isOpen()) {
+            loadFilter();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + " over " + database.toString();
+    }
+
+    private void loadFilter() {
+        BlockedBloomFilter loaded = null;
+
+        if (filterFile != null && filterFile.exists()) {
+            try (DataInputStream in =
+                    new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(filterFile)))) {
+                loaded = BlockedBloomFilter.readFrom(in);
+            } catch (IOException e) {
+                LOG.warn("Unable to load the key filter of " + database.toString() + ".", e);
+            }
+
+            if (!filterFile.delete()) {
+                // a stale file could be loaded after a crash
+                LOG.warn("Unable to delete the key filter file {}.", filterFile);
+                loaded = null;
+            }
+        }
+
+        if (loaded != null && loaded.getInsertions() <= loaded.getCapacity()) {
+            filter = loaded;
+        } else {
+            filter = rebuildFilter();
+        }
+    }
+
+    private BlockedBloomFilter rebuildFilter() {
+        long start = System.currentTimeMillis();
+
+        BlockedBloomFilter rebuilt = new BlockedBloomFilter(minCapacity);
+        long count = addKeys(rebuilt);
+        if (count > rebuilt.getCapacity()) {
+            // leave room for growth before the next rebuild
+            rebuilt = new BlockedBloomFilter(2 * count);
+            addKeys(rebuilt);
+        }
+
+        LOG.info(
+                "Built the key filter of {} with {} keys in {} ms.",
+                database.toString(),
+                count,
+                System.currentTimeMillis() - start);
+        return rebuilt;
+    }
+
+    private long addKeys(BlockedBloomFilter target) {
+        long count = 0;
+        Iterator<byte[]> keys = database.keys();
+        while (keys.hasNext()) {
+            target.put(keys.next());
+            count++;
+        }
+        return count;
+    }
+
+    private void saveFilter(BlockedBloomFilter saved) {
+        if (filterFile == null || saved == null) {
+            return;
+        }
+
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(filterFile)))) {
+            saved.writeTo(out);
+        } catch (IOException e) {
+            LOG.warn("Unable to save the key filter of " + database.toString() + ".", e);
+            if (filterFile.exists() && !filterFile.delete()) {
+                LOG.error("Unable to delete the incomplete key filter file {}.", filterFile);
+            }
+        }
+    }
+
+    public String getStatsSummary() {
+        BlockedBloomFilter current = filter;
+        if (current == null) {
+            return "closed";
+        }
+
+        long total = lookups.get();
+        long positives = total - skipped.get();
+        long absent = skipped.get() + falsePositives.get();
+        return "keys="
+                + current.getInsertions()
+                + ", capacity="
+                + current.getCapacity()
+                + ", memoryKB="
+                + current.getSizeInBytes() / 1024
+                + ", expectedFpp="
+                + String.format("%.4f", current.getExpectedFalsePositiveRate())
+                + ", lookups="
+                + total
+                + ", skipped="
+                + skipped.get()
+                + ", falsePositives="
+                + falsePositives.get()
+                + ", observedFpp="
+                + String.format(
+                        "%.4f", absent == 0 ? 0d : (double) falsePositives.get() / absent)
+                + ", diskReads="
+                + positives;
+    }
+
+    // IDatabase functionality
+    // -----------------------------------------------------------------------------------------
+
+    @Override
+    public boolean open() {
+        boolean open = database.open();
+        if (open && filter == null) {
+            loadFilter();
+        }
+        return open;
+    }
+
+    @Override
+    public void close() {
+        BlockedBloomFilter current = filter;
+        filter = null;
+        if (database.isOpen()) {
+            saveFilter(current);
+        }
+        database.close();
+    }
+
+    @Override
+    public boolean commit() {
+        return database.commit();
+    }
+
+    @Override
+    public void compact() {
+        database.compact();
+    }
+
+    @Override
+    public Optional<String> getName() {
+        return database.getName();
+    }
+
+    @Override
+    public Optional<String> getPath() {
+        return database.getPath();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return database.isOpen();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return database.isClosed();
+    }
+
+    @Override
+    public boolean isLocked() {
+        return database.isLocked();
+    }
+
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return database.isAutoCommitEnabled();
+    }
+
+    @Override
+    public PersistenceMethod getPersistenceMethod() {
+        return database.getPersistenceMethod();
+    }
+
+    @Override
+    public boolean isCreatedOnDisk() {
+        return database.isCreatedOnDisk();
+    }
+
+    @Override
+    public long approximateSize() {
+        return database.approximateSize();
+    }
+
+    // IKeyValueStore functionality
+    // -----------------------------------------------------------------------------------------
+
+    @Override
+    public boolean isEmpty() {
+        return database.isEmpty();
+    }
+
+    @Override
+    public Iterator<byte[]> keys() {
+        return database.keys();
+    }
+
+    @Override
+    public Optional<byte[]> get(byte[] key) {
+        BlockedBloomFilter current = filter;
+        if (current == null || key == null) {
+            // the database handles closed state and null checks
+            return database.get(key);
+        }
+
+        lookups.incrementAndGet();
+        if (!current.mightContain(key)) {
+            skipped.incrementAndGet();
+            return Optional.empty();
+        }
+
+        Optional<byte[]> value = database.get(key);
+        if (!value.isPresent()) {
+            falsePositives.incrementAndGet();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        // added before the write so that the key is never missed by lookups
+        addToFilter(key);
+        database.put(key, value);
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        database.delete(key);
+    }
+
+    @Override
+    public void putBatch(Map<byte[], byte[]> keyValuePairs) {
+        if (keyValuePairs != null) {
+            keyValuePairs.keySet().forEach(this::addToFilter);
+        }
+        database.putBatch(keyValuePairs);
+    }
+
+    @Override
+    public void putToBatch(byte[] key, byte[] value) {
+        addToFilter(key);
+        database.putToBatch(key, value);
+    }
+
+    @Override
+    public void deleteInBatch(byte[] key) {
+        database.deleteInBatch(key);
+    }
+
+    @Override
+    public void commitBatch() {
+        database.commitBatch();
+    }
+
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        database.deleteBatch(keys);
+    }
+
+    @Override
+    public void check() {
+        database.check();
+    }
+
+    @Override
+    public void drop() {
+        database.drop();
+        if (filter != null) {
+            filter = new BlockedBloomFilter(minCapacity);
+        }
+    }
+
+    private void addToFilter(byte[] key) {
+        BlockedBloomFilter current = filter;
+        if (current != null && key != null) {
+            current.put(key);
+        }
+    }
+}
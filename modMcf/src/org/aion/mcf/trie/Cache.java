@@ -3,17 +3,21 @@ package org.aion.mcf.trie;
 import static org.aion.rlp.Value.fromRlpEncoded;
 import static org.aion.types.ByteArrayWrapper.wrap;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.aion.crypto.HashUtil;
 import org.aion.interfaces.db.ByteArrayKeyValueStore;
 import org.aion.log.AionLoggerFactory;
@@ -22,24 +26,89 @@ import org.aion.rlp.Value;
 import org.aion.types.ByteArrayWrapper;
 import org.slf4j.Logger;
 
-/** Cache class */
+/**
+ * Cache of trie nodes placed in front of the trie data source.
+ *
+ * <p>Nodes created by trie updates are <i>dirty</i> and are pinned in memory until they are
+ * written to the data source by {@link #commit(boolean)}. Nodes loaded from the data source or
+ * already committed are <i>clean</i> and are kept in a bounded LRU cache whose total weight is
+ * limited to a byte budget. Clean nodes are only evicted when a data source is present, since
+ * otherwise they could not be reloaded.
+ *
+ * <p>The dirty nodes are kept in a concurrent map and the clean nodes in a striped cache. Reads
+ * and writes (i.e. trie lookups, updates, commits) are expected to be serialized by the caller,
+ * which is done in {@link TrieImpl} by synchronizing on this object. Since pruning deletes the
+ * nodes removed by an update on commit, a lookup from the previous root is not safe concurrently
+ * with them.
+ */
 public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    /** Default byte budget for the clean nodes when no explicit size is given. */
+    public static final long DEFAULT_CACHE_SIZE = 32 * 1024 * 1024L;
+
+    /** Number of segments used by the clean node cache. */
+    private static final int CONCURRENCY_LEVEL = 16;
+
+    /** Approximate memory overhead per cached node (key, wrappers and map entries). */
+    private static final int NODE_OVERHEAD = 128;
+
     private ByteArrayKeyValueStore dataSource;
-    private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
-    private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
-    private boolean isDirty;
+    private final long maxSize;
+
+    /** Nodes that were modified since the last commit. These are never evicted. */
+    private Map<ByteArrayWrapper, Node> dirtyNodes = new ConcurrentHashMap<>();
+    /** Nodes that are consistent with the data source. These may be evicted. */
+    private com.google.common.cache.Cache<ByteArrayWrapper, Node> cleanNodes;
+
+    private Set<ByteArrayWrapper> removedNodes = ConcurrentHashMap.newKeySet();
+    private volatile boolean isDirty;
+
+    // statistics for the dirty nodes and reads from the data source
+    private final AtomicLong dirtyHits = new AtomicLong();
+    private final AtomicLong dbHits = new AtomicLong();
 
     public Cache(ByteArrayKeyValueStore dataSource) {
+        this(dataSource, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a cache for the given data source limiting the memory used by clean nodes.
+     *
+     * @param dataSource the storage for the trie nodes
+     * @param maxSize the maximum number of bytes used by the clean nodes; if {@code 0} the cache is
+     *     unbounded
+     */
+    public Cache(ByteArrayKeyValueStore dataSource, long maxSize) {
         this.dataSource = dataSource;
+        this.maxSize = maxSize;
+        this.cleanNodes = buildCleanNodeCache(maxSize);
+    }
+
+    private static com.google.common.cache.Cache<ByteArrayWrapper, Node> buildCleanNodeCache(
+            long maxSize) {
+        CacheBuilder<Object, Object> builder =
+                CacheBuilder.newBuilder().concurrencyLevel(CONCURRENCY_LEVEL).recordStats();
+
+        // when size is 0, we make it unbounded
+        if (maxSize > 0) {
+            builder.maximumWeight(maxSize)
+                    .weigher((ByteArrayWrapper key, Node node) -> weight(node));
+        }
+
+        return builder.build();
     }
 
-    public synchronized void markRemoved(byte[] key) {
+    private static int weight(Node node) {
+        return NODE_OVERHEAD + node.getEncodedSize();
+    }
+
+    public void markRemoved(byte[] key) {
         ByteArrayWrapper keyW = new ByteArrayWrapper(key);
         removedNodes.add(keyW);
-        nodes.remove(keyW);
+        dirtyNodes.remove(keyW);
+        cleanNodes.invalidate(keyW);
     }
 
     /**
@@ -48,13 +117,14 @@ public class Cache {
      * @param o the Node which could be a pair-, multi-item Node or single Value
      * @return keccak hash of RLP encoded node if length &gt; 32 otherwise return node itself
      */
-    public synchronized Object put(Object o) {
+    public Object put(Object o) {
         Value value = new Value(o);
         byte[] enc = value.encode();
         if (enc.length >= 32) {
-            byte[] sha = HashUtil.h256(value.encode());
+            byte[] sha = HashUtil.h256(enc);
             ByteArrayWrapper key = wrap(sha);
-            this.nodes.put(key, new Node(value, true));
+            this.dirtyNodes.put(key, new Node(value, true, enc.length));
+            this.cleanNodes.invalidate(key);
             this.removedNodes.remove(key);
             this.isDirty = true;
 
@@ -63,20 +133,30 @@ public class Cache {
         return value;
     }
 
-    public synchronized Value get(byte[] key) {
-
+    public Value get(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
-        Node node = nodes.get(wrappedKey);
+
+        Node node = dirtyNodes.get(wrappedKey);
+        if (node != null) {
+            dirtyHits.incrementAndGet();
+            return node.getValue();
+        }
+
+        node = cleanNodes.getIfPresent(wrappedKey);
         if (node != null) {
-            // cachehits++;
             return node.getValue();
         }
+
         if (this.dataSource != null) {
             Optional<byte[]> data = this.dataSource.get(key);
             if (data.isPresent()) {
-                // dbhits++;
+                dbHits.incrementAndGet();
                 Value val = fromRlpEncoded(data.get());
-                nodes.put(wrappedKey, new Node(val, false));
+                // nodes marked for removal are still read from the data source until the commit,
+                // but are not cached again
+                if (!removedNodes.contains(wrappedKey)) {
+                    cleanNodes.put(wrappedKey, new Node(val, false, data.get().length));
+                }
                 return val;
             }
         }
@@ -84,45 +164,34 @@ public class Cache {
         return null;
     }
 
-    public synchronized void delete(byte[] key) {
+    public void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
-        this.nodes.remove(wrappedKey);
+        this.dirtyNodes.remove(wrappedKey);
+        this.cleanNodes.invalidate(wrappedKey);
 
         if (dataSource != null) {
             this.dataSource.delete(key);
         }
     }
 
-    public synchronized void commit(boolean flushCache) {
+    public void commit(boolean flushCache) {
         // Don't try to commit if it isn't dirty
         if ((dataSource == null) || !this.isDirty) {
             // clear cache when flush requested
             if (flushCache) {
-                this.nodes.clear();
+                this.cleanNodes.invalidateAll();
+                this.dirtyNodes.clear();
             }
             return;
         }
 
-        // long start = System.nanoTime();
-        // int batchMemorySize = 0;
         Map<byte[], byte[]> batch = new HashMap<>();
         List<byte[]> deleteBatch = new ArrayList<>();
-        for (ByteArrayWrapper nodeKey : this.nodes.keySet()) {
-            Node node = this.nodes.get(nodeKey);
-
-            if (node == null || node.isDirty()) {
-                byte[] value;
-                if (node != null) {
-                    node.setDirty(false);
-                    value = node.getValue().encode();
-                } else {
-                    value = null;
-                }
-
-                byte[] key = nodeKey.getData();
-
-                batch.put(key, value);
-                // batchMemorySize += length(key, value);
+        for (Entry<ByteArrayWrapper, Node> entry : this.dirtyNodes.entrySet()) {
+            Node node = entry.getValue();
+            if (node.isDirty()) {
+                node.setDirty(false);
+                batch.put(entry.getKey().getData(), node.getValue().encode());
             }
         }
         for (ByteArrayWrapper removedNode : removedNodes) {
@@ -132,48 +201,58 @@ public class Cache {
         this.dataSource.putBatch(batch);
         this.dataSource.deleteBatch(deleteBatch);
         this.isDirty = false;
+
+        // the committed nodes are now clean and may be evicted
         if (flushCache) {
-            this.nodes.clear();
+            this.cleanNodes.invalidateAll();
+        } else {
+            this.cleanNodes.putAll(this.dirtyNodes);
         }
+        this.dirtyNodes.clear();
         this.removedNodes.clear();
-    }
 
-    // not used
-    //    public synchronized void undo() {
-    //        this.nodes.entrySet().removeIf(entry -> entry.getValue().isDirty());
-    //        this.isDirty = false;
-    //    }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Trie cache stats after commit: {}", getStatsSummary());
+        }
+    }
 
-    public synchronized boolean isDirty() {
+    public boolean isDirty() {
         return isDirty;
     }
 
-    public synchronized Map<ByteArrayWrapper, Node> getNodes() {
-        return nodes;
+    /** Returns the nodes marked for removal that will be deleted on the next commit. */
+    @VisibleForTesting
+    Set<ByteArrayWrapper> getRemovedNodes() {
+        return Collections.unmodifiableSet(removedNodes);
+    }
+
+    /**
+     * Returns a read-only snapshot of all the nodes currently held in memory, both dirty and
+     * clean. Use {@link #putNode(ByteArrayWrapper, Node)} to add nodes to the cache.
+     */
+    public Map<ByteArrayWrapper, Node> getNodes() {
+        Map<ByteArrayWrapper, Node> nodes = new HashMap<>(cleanNodes.asMap());
+        nodes.putAll(dirtyNodes);
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    /**
+     * Adds the given node to the cache. Dirty nodes are pinned until the next commit while clean
+     * nodes are subject to eviction.
+     */
+    public void putNode(ByteArrayWrapper key, Node node) {
+        if (node.isDirty() || dataSource == null) {
+            dirtyNodes.put(key, node);
+            cleanNodes.invalidate(key);
+        } else {
+            cleanNodes.put(key, node);
+        }
     }
 
-    public synchronized ByteArrayKeyValueStore getDb() {
+    public ByteArrayKeyValueStore getDb() {
         return dataSource;
     }
 
-    // not used
-    //    public String cacheDump() {
-    //        StringBuilder cacheDump = new StringBuilder();
-    //        for (ByteArrayWrapper key : nodes.keySet()) {
-    //            Node node = nodes.get(key);
-    //            if (node.getValue() != null) {
-    //                cacheDump
-    //                        .append(key.toString())
-    //                        .append(" : ")
-    //                        .append(node.getValue().toString())
-    //                        .append("\n");
-    //            }
-    //        }
-    //
-    //        return cacheDump.toString();
-    //    }
-
-    @SuppressWarnings("OptionalGetWithoutIsPresent")
     public synchronized void setDB(ByteArrayKeyValueStore kvds) {
         if (this.dataSource == kvds) {
             return;
@@ -181,19 +260,20 @@ public class Cache {
 
         Map<byte[], byte[]> rows = new HashMap<>();
         if (this.dataSource == null) {
-            for (ByteArrayWrapper key : nodes.keySet()) {
-                Node node = nodes.get(key);
-                if (node == null) {
-                    rows.put(key.getData(), null);
-                } else if (!node.isDirty()) {
-                    rows.put(key.getData(), node.getValue().encode());
+            for (Entry<ByteArrayWrapper, Node> entry : dirtyNodes.entrySet()) {
+                Node node = entry.getValue();
+                if (!node.isDirty()) {
+                    rows.put(entry.getKey().getData(), node.getValue().encode());
                 }
             }
         } else {
             Iterator<byte[]> iterator = dataSource.keys();
             while (iterator.hasNext()) {
                 byte[] key = iterator.next();
-                rows.put(key, this.dataSource.get(key).get());
+                Optional<byte[]> value = this.dataSource.get(key);
+                if (value.isPresent()) {
+                    rows.put(key, value.get());
+                }
             }
 
             try {
@@ -208,7 +288,43 @@ public class Cache {
     }
 
     public int getSize() {
-        return nodes.size();
+        return (int) (dirtyNodes.size() + cleanNodes.size());
+    }
+
+    /** Returns the maximum number of bytes allowed for clean nodes ({@code 0} when unbounded). */
+    public long getMaximumCacheSize() {
+        return maxSize;
+    }
+
+    /** Returns the statistics for the clean (evictable) nodes. */
+    public CacheStats getStats() {
+        return cleanNodes.stats();
+    }
+
+    /** Returns the number of lookups satisfied by the dirty nodes. */
+    public long getDirtyHitCount() {
+        return dirtyHits.get();
+    }
+
+    /** Returns the number of lookups that were satisfied by reading from the data source. */
+    public long getDatabaseHitCount() {
+        return dbHits.get();
+    }
+
+    public String getStatsSummary() {
+        CacheStats stats = getStats();
+        return "dirty="
+                + dirtyNodes.size()
+                + ", clean="
+                + cleanNodes.size()
+                + ", hits="
+                + (stats.hitCount() + dirtyHits.get())
+                + ", misses="
+                + stats.missCount()
+                + ", dbHits="
+                + dbHits.get()
+                + ", evictions="
+                + stats.evictionCount();
     }
 
     /**
@@ -221,51 +337,32 @@ public class Cache {
      * @return A copy of this cache.
      */
     public Cache copy() {
-        Cache cacheCopy = new Cache(this.dataSource);
+        Cache cacheCopy = new Cache(this.dataSource, this.maxSize);
         cacheCopy.isDirty = this.isDirty;
-        cacheCopy.nodes = copyOfNodes();
+        cacheCopy.dirtyNodes = copyOfNodes(this.dirtyNodes);
+        cacheCopy.cleanNodes.putAll(copyOfNodes(this.cleanNodes.asMap()));
         cacheCopy.removedNodes = copyOfRemovedNodes();
         return cacheCopy;
     }
 
-    private Map<ByteArrayWrapper, Node> copyOfNodes() {
-        if (this.nodes == null) {
-            return null;
-        }
-
-        Map<ByteArrayWrapper, Node> nodesCopy = new HashMap<>();
-        for (Entry<ByteArrayWrapper, Node> nodesEntry : this.nodes.entrySet()) {
-            ByteArrayWrapper keyWrapper = null;
-
-            if (nodesEntry.getKey() != null) {
-                byte[] keyBytes = nodesEntry.getKey().getData();
-                keyWrapper = new ByteArrayWrapper(Arrays.copyOf(keyBytes, keyBytes.length));
-            }
+    private static Map<ByteArrayWrapper, Node> copyOfNodes(Map<ByteArrayWrapper, Node> nodes) {
+        Map<ByteArrayWrapper, Node> nodesCopy = new ConcurrentHashMap<>();
+        for (Entry<ByteArrayWrapper, Node> nodesEntry : nodes.entrySet()) {
+            byte[] keyBytes = nodesEntry.getKey().getData();
+            ByteArrayWrapper keyWrapper =
+                    new ByteArrayWrapper(Arrays.copyOf(keyBytes, keyBytes.length));
 
-            nodesCopy.put(
-                    keyWrapper,
-                    (nodesEntry.getValue() == null) ? null : nodesEntry.getValue().copy());
+            nodesCopy.put(keyWrapper, nodesEntry.getValue().copy());
         }
         return nodesCopy;
     }
 
     private Set<ByteArrayWrapper> copyOfRemovedNodes() {
-        if (this.removedNodes == null) {
-            return null;
-        }
-
-        Set<ByteArrayWrapper> removedNodesCopy = new HashSet<>();
+        Set<ByteArrayWrapper> removedNodesCopy = ConcurrentHashMap.newKeySet();
         for (ByteArrayWrapper removedNode : this.removedNodes) {
-            ByteArrayWrapper removedNodeWrapper = null;
-
-            if (removedNode != null) {
-                byte[] removedNodeBytes = removedNode.toBytes();
-                removedNodeWrapper =
-                        new ByteArrayWrapper(
-                                Arrays.copyOf(removedNodeBytes, removedNodeBytes.length));
-            }
-
-            removedNodesCopy.add(removedNodeWrapper);
+            byte[] removedNodeBytes = removedNode.toBytes();
+            removedNodesCopy.add(
+                    new ByteArrayWrapper(Arrays.copyOf(removedNodeBytes, removedNodeBytes.length)));
         }
         return removedNodesCopy;
     }
@@ -1,5 +1,6 @@
 package org.aion.mcf.trie;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -10,9 +11,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.db.impl.DatabaseFactory;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
 import org.aion.interfaces.db.ByteArrayKeyValueStore;
 import org.aion.log.AionLoggerFactory;
@@ -27,15 +30,43 @@ import org.slf4j.Logger;
  * [storeBlockChanges] call). When the [prune] is called for a block the deletes for this block are
  * submitted to the underlying DataSource with respect to following inserts. E.g. if the key was
  * deleted at block N and then inserted at block N + 10 this delete is not passed.
+ *
+ * <p>The changes of each stored block and the reference counts of the inserted keys are kept in a
+ * journal database instead of the heap, so that only the changes of the current block and an index
+ * of the journaled block hashes by number are held in memory. When the journal is persistent, the
+ * blocks stored before a restart are pruned exactly as if the node had not been restarted. A block
+ * stored again, e.g. imported again after a restart, replaces its previous changes.
+ *
+ * <p>Journal entries:
+ *
+ * <ul>
+ *   <li>{@code 'b' + block hash} => the inserted and deleted keys of the block;
+ *   <li>{@code 'r' + key} => the number of journaled blocks inserting the key and whether the key
+ *       was present in the database before them;
+ *   <li>{@code 'n' + block number} => the hashes of the journaled blocks with that number;
+ *   <li>{@code 'n'} => the lowest and highest numbers of the journaled blocks.
+ * </ul>
+ *
+ * Journals written before the per-number entries keep all the block numbers and hashes under
+ * {@code 'i'}, which is converted when loaded.
+ *
+ * Keys are encoded with a two byte length prefix, so the journal supports keys of up to 65535
+ * bytes.
  */
 public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
-    private class Updates {
-        ByteArrayWrapper blockHeader;
-        long blockNumber;
+    private static final byte BLOCK_PREFIX = 'b';
+    private static final byte REF_PREFIX = 'r';
+    private static final byte NUMBER_PREFIX = 'n';
+    private static final byte[] RANGE_KEY = new byte[] {NUMBER_PREFIX};
+    private static final byte[] LEGACY_INDEX_KEY = new byte[] {'i'};
+
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    private static class Updates {
         Set<ByteArrayWrapper> insertedKeys = new HashSet<>();
         Set<ByteArrayWrapper> deletedKeys = new HashSet<>();
     }
@@ -59,18 +90,48 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
-    Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
-
     private ByteArrayKeyValueStore src;
-    // block hash => updates
-    private LinkedHashMap<ByteArrayWrapper, Updates> blockUpdates = new LinkedHashMap<>();
+    private final ByteArrayKeyValueDatabase journal;
+    private final boolean ownsJournal;
+    // block hash => block number, in the order in which the blocks were stored
+    private final LinkedHashMap<ByteArrayWrapper, Long> blockNumbers = new LinkedHashMap<>();
+    // block number => hashes of the journaled blocks with that number
+    private final TreeMap<Long, List<ByteArrayWrapper>> blocksByNumber = new TreeMap<>();
+    // block numbers whose hashes changed since the journal was last written
+    private final Set<Long> changedNumbers = new HashSet<>();
+    // reference counts read or changed since the journal was last written, removed when zero
+    private final Map<ByteArrayWrapper, Ref> changedRefs = new HashMap<>();
     private Updates currentUpdates = new Updates();
     private AtomicBoolean enabled = new AtomicBoolean(false);
     private final boolean hasArchive;
 
+    /** Creates a data source with an in-memory journal. */
     public JournalPruneDataSource(ByteArrayKeyValueStore src) {
+        this(src, openInMemoryJournal(), true);
+    }
+
+    /**
+     * Creates a data source with the journal kept in the given database. The blocks journaled by a
+     * previous instance using the same database are recovered.
+     */
+    public JournalPruneDataSource(ByteArrayKeyValueStore src, ByteArrayKeyValueDatabase journal) {
+        this(src, journal, false);
+    }
+
+    private JournalPruneDataSource(
+            ByteArrayKeyValueStore src, ByteArrayKeyValueDatabase journal, boolean ownsJournal) {
         this.src = src;
         this.hasArchive = src instanceof ArchivedDataSource;
+        this.journal = journal;
+        this.ownsJournal = ownsJournal;
+
+        loadIndex();
+    }
+
+    private static ByteArrayKeyValueDatabase openInMemoryJournal() {
+        ByteArrayKeyValueDatabase journal = DatabaseFactory.connect("journal");
+        journal.open();
+        return journal;
     }
 
     public void setPruneEnabled(boolean _enabled) {
@@ -191,19 +252,39 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
     }
 
     private void incRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
-        if (cnt == null) {
+        Ref cnt = getRef(keyW);
+        if (cnt == null || cnt.journalRefs == 0) {
             cnt = new Ref(src.get(keyW.getData()).isPresent());
-            refCount.put(keyW, cnt);
+            changedRefs.put(keyW, cnt);
         }
         cnt.journalRefs++;
     }
 
     private Ref decRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
+        if (cnt == null) {
+            // missing from the journal, keep the key in the database
+            LOG.warn("Missing journal reference count for key {}.", keyW);
+            cnt = new Ref(true);
+            cnt.journalRefs = 1;
+            changedRefs.put(keyW, cnt);
+        }
         cnt.journalRefs -= 1;
-        if (cnt.journalRefs == 0) {
-            refCount.remove(keyW);
+        return cnt;
+    }
+
+    /**
+     * Returns the reference count of the key, or {@code null} if the key is not referenced by the
+     * journal. A count read from the journal is kept until the journal is written back.
+     */
+    private Ref getRef(ByteArrayWrapper keyW) {
+        Ref cnt = changedRefs.get(keyW);
+        if (cnt == null) {
+            Optional<byte[]> data = journal.get(refKey(keyW));
+            if (data.isPresent()) {
+                cnt = decodeRef(data.get());
+                changedRefs.put(keyW, cnt);
+            }
         }
         return cnt;
     }
@@ -217,9 +298,20 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
         try {
             ByteArrayWrapper hash = ByteArrayWrapper.wrap(blockHash);
-            currentUpdates.blockHeader = hash;
-            currentUpdates.blockNumber = blockNumber;
-            blockUpdates.put(hash, currentUpdates);
+            Updates previous = removeBlock(hash);
+            if (previous != null) {
+                // the keys inserted again by the block were referenced once more
+                for (ByteArrayWrapper insertedKey : previous.insertedKeys) {
+                    decRef(insertedKey);
+                }
+            }
+
+            blockNumbers.put(hash, blockNumber);
+            blocksByNumber.computeIfAbsent(blockNumber, n -> new ArrayList<>(1)).add(hash);
+            changedNumbers.add(blockNumber);
+
+            journal.putToBatch(blockKey(hash), encodeUpdates(currentUpdates));
+            writeJournal();
             currentUpdates = new Updates();
         } finally {
             lock.writeLock().unlock();
@@ -235,7 +327,7 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
         try {
             ByteArrayWrapper blockHashW = ByteArrayWrapper.wrap(blockHash);
-            Updates updates = blockUpdates.remove(blockHashW);
+            Updates updates = removeBlock(blockHashW);
             if (updates != null) {
                 for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
                     decRef(insertedKey).dbRef = true;
@@ -243,16 +335,17 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
                 List<byte[]> batchRemove = new ArrayList<>();
                 for (ByteArrayWrapper key : updates.deletedKeys) {
-                    Ref ref = refCount.get(key);
+                    Ref ref = getRef(key);
                     if (ref == null || ref.journalRefs == 0) {
                         batchRemove.add(key.getData());
-                    } else if (ref != null) {
+                    } else {
                         ref.dbRef = false;
                     }
                 }
                 src.deleteBatch(batchRemove);
 
                 rollbackForkBlocks(blockNumber);
+                writeJournal();
             }
         } finally {
             lock.writeLock().unlock();
@@ -260,15 +353,16 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
     }
 
     private void rollbackForkBlocks(long blockNum) {
-        for (Updates updates : new ArrayList<>(blockUpdates.values())) {
-            if (updates.blockNumber == blockNum) {
-                rollback(updates.blockHeader);
+        List<ByteArrayWrapper> forks = blocksByNumber.get(blockNum);
+        if (forks != null) {
+            for (ByteArrayWrapper hash : new ArrayList<>(forks)) {
+                rollback(hash);
             }
         }
     }
 
     private void rollback(ByteArrayWrapper blockHashW) {
-        Updates updates = blockUpdates.remove(blockHashW);
+        Updates updates = removeBlock(blockHashW);
         List<byte[]> batchRemove = new ArrayList<>();
         for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
             Ref ref = decRef(insertedKey);
@@ -279,12 +373,229 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         src.deleteBatch(batchRemove);
     }
 
-    public Map<ByteArrayWrapper, Ref> getRefCount() {
-        return refCount;
+    /**
+     * Removes the block from the index and its changes from the journal.
+     *
+     * @return the changes of the block or {@code null} if the block is not journaled
+     */
+    private Updates removeBlock(ByteArrayWrapper hash) {
+        Long number = blockNumbers.remove(hash);
+        if (number == null) {
+            return null;
+        }
+        removeFromNumberIndex(hash, number);
+
+        byte[] key = blockKey(hash);
+        Optional<byte[]> data = journal.get(key);
+        journal.deleteInBatch(key);
+        if (data.isPresent()) {
+            return decodeUpdates(data.get());
+        } else {
+            LOG.warn("Missing journal entry for block {}.", hash);
+            return new Updates();
+        }
+    }
+
+    private void removeFromNumberIndex(ByteArrayWrapper hash, long number) {
+        changedNumbers.add(number);
+        List<ByteArrayWrapper> hashes = blocksByNumber.get(number);
+        if (hashes != null) {
+            hashes.remove(hash);
+            if (hashes.isEmpty()) {
+                blocksByNumber.remove(number);
+            }
+        }
+    }
+
+    /** Writes the changed reference counts and block index entries to the journal. */
+    private void writeJournal() {
+        for (Map.Entry<ByteArrayWrapper, Ref> entry : changedRefs.entrySet()) {
+            Ref ref = entry.getValue();
+            if (ref.journalRefs == 0) {
+                journal.deleteInBatch(refKey(entry.getKey()));
+            } else {
+                journal.putToBatch(refKey(entry.getKey()), encodeRef(ref));
+            }
+        }
+        changedRefs.clear();
+
+        if (!changedNumbers.isEmpty()) {
+            for (long number : changedNumbers) {
+                List<ByteArrayWrapper> hashes = blocksByNumber.get(number);
+                if (hashes == null) {
+                    journal.deleteInBatch(numberKey(number));
+                } else {
+                    journal.putToBatch(numberKey(number), encodeHashes(hashes));
+                }
+            }
+            changedNumbers.clear();
+
+            if (blocksByNumber.isEmpty()) {
+                journal.deleteInBatch(RANGE_KEY);
+            } else {
+                journal.putToBatch(
+                        RANGE_KEY,
+                        ByteBuffer.allocate(2 * Long.BYTES)
+                                .putLong(blocksByNumber.firstKey())
+                                .putLong(blocksByNumber.lastKey())
+                                .array());
+            }
+        }
+        journal.commitBatch();
+    }
+
+    /** Recovers the index of the blocks journaled by a previous instance. */
+    private void loadIndex() {
+        Optional<byte[]> legacy = journal.get(LEGACY_INDEX_KEY);
+        if (legacy.isPresent()) {
+            ByteBuffer buffer = ByteBuffer.wrap(legacy.get());
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                long number = buffer.getLong();
+                ByteArrayWrapper hash = readKey(buffer);
+                blockNumbers.put(hash, number);
+                blocksByNumber.computeIfAbsent(number, n -> new ArrayList<>(1)).add(hash);
+                changedNumbers.add(number);
+            }
+
+            // converted to the per-number entries
+            journal.deleteInBatch(LEGACY_INDEX_KEY);
+            writeJournal();
+            LOG.info("Recovered the prune journal of {} blocks.", count);
+            return;
+        }
+
+        Optional<byte[]> range = journal.get(RANGE_KEY);
+        if (range.isPresent()) {
+            ByteBuffer buffer = ByteBuffer.wrap(range.get());
+            long lowest = buffer.getLong();
+            long highest = buffer.getLong();
+            for (long number = lowest; number <= highest; number++) {
+                Optional<byte[]> data = journal.get(numberKey(number));
+                if (data.isPresent()) {
+                    Set<ByteArrayWrapper> hashes = new HashSet<>();
+                    readKeys(ByteBuffer.wrap(data.get()), hashes);
+                    for (ByteArrayWrapper hash : hashes) {
+                        blockNumbers.put(hash, number);
+                    }
+                    blocksByNumber.put(number, new ArrayList<>(hashes));
+                }
+            }
+            LOG.info("Recovered the prune journal of {} blocks.", blockNumbers.size());
+        }
+    }
+
+    // journal encoding
+    // -----------------------------------------------------------------------------------------
+
+    private static byte[] blockKey(ByteArrayWrapper hash) {
+        return prefixed(BLOCK_PREFIX, hash.getData());
+    }
+
+    private static byte[] refKey(ByteArrayWrapper key) {
+        return prefixed(REF_PREFIX, key.getData());
+    }
+
+    private static byte[] numberKey(long number) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(NUMBER_PREFIX).putLong(number).array();
+    }
+
+    private static byte[] prefixed(byte prefix, byte[] data) {
+        byte[] key = new byte[data.length + 1];
+        key[0] = prefix;
+        System.arraycopy(data, 0, key, 1, data.length);
+        return key;
+    }
+
+    private static byte[] encodeRef(Ref ref) {
+        return ByteBuffer.allocate(Integer.BYTES + 1)
+                .putInt(ref.journalRefs)
+                .put((byte) (ref.dbRef ? 1 : 0))
+                .array();
+    }
+
+    private static Ref decodeRef(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int journalRefs = buffer.getInt();
+        Ref ref = new Ref(buffer.get() != 0);
+        ref.journalRefs = journalRefs;
+        return ref;
+    }
+
+    private static byte[] encodeUpdates(Updates updates) {
+        ByteBuffer buffer =
+                ByteBuffer.allocate(
+                        2 * Integer.BYTES
+                                + encodedSize(updates.insertedKeys)
+                                + encodedSize(updates.deletedKeys));
+        writeKeys(buffer, updates.insertedKeys);
+        writeKeys(buffer, updates.deletedKeys);
+        return buffer.array();
     }
 
-    public LinkedHashMap<ByteArrayWrapper, Updates> getBlockUpdates() {
-        return blockUpdates;
+    private static Updates decodeUpdates(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        Updates updates = new Updates();
+        readKeys(buffer, updates.insertedKeys);
+        readKeys(buffer, updates.deletedKeys);
+        return updates;
+    }
+
+    private static byte[] encodeHashes(List<ByteArrayWrapper> hashes) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + encodedSize(hashes));
+        buffer.putInt(hashes.size());
+        for (ByteArrayWrapper hash : hashes) {
+            writeKey(buffer, hash);
+        }
+        return buffer.array();
+    }
+
+    private static int encodedSize(Collection<ByteArrayWrapper> keys) {
+        int size = 0;
+        for (ByteArrayWrapper key : keys) {
+            size += Short.BYTES + key.getData().length;
+        }
+        return size;
+    }
+
+    private static void writeKeys(ByteBuffer buffer, Set<ByteArrayWrapper> keys) {
+        buffer.putInt(keys.size());
+        for (ByteArrayWrapper key : keys) {
+            writeKey(buffer, key);
+        }
+    }
+
+    private static void readKeys(ByteBuffer buffer, Set<ByteArrayWrapper> keys) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            keys.add(readKey(buffer));
+        }
+    }
+
+    private static void writeKey(ByteBuffer buffer, ByteArrayWrapper key) {
+        byte[] data = key.getData();
+        if (data.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "The journal does not accept keys longer than " + MAX_KEY_LENGTH + " bytes.");
+        }
+        buffer.putShort((short) data.length);
+        buffer.put(data);
+    }
+
+    private static ByteArrayWrapper readKey(ByteBuffer buffer) {
+        byte[] data = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(data);
+        return ByteArrayWrapper.wrap(data);
+    }
+
+    /** Returns the hashes of the journaled blocks mapped to their numbers. */
+    public Map<ByteArrayWrapper, Long> getBlockUpdates() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashMap<>(blockNumbers);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public int getDeletedKeysCount() {
@@ -335,6 +646,9 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
         try {
             src.close();
+            if (ownsJournal) {
+                journal.close();
+            }
         } catch (Exception e) {
             LOG.error("Could not close source due to ", e);
         } finally {
@@ -37,18 +37,25 @@ public class Node {
     /* RLP encoded value of the Trie-node */
     private final Value value;
     private boolean dirty;
+    /* length of the RLP encoding, computed on first use when not known at creation */
+    private int encodedSize;
 
     public Node(Value val) {
         this(val, false);
     }
 
     public Node(Value val, boolean dirty) {
+        this(val, dirty, -1);
+    }
+
+    public Node(Value val, boolean dirty, int encodedSize) {
         this.value = val;
         this.dirty = dirty;
+        this.encodedSize = encodedSize;
     }
 
     public Node copy() {
-        return new Node(this.value, this.dirty);
+        return new Node(this.value, this.dirty, this.encodedSize);
     }
 
     public boolean isDirty() {
@@ -63,6 +70,14 @@ public class Node {
         return value;
     }
 
+    /** Returns the length of the RLP encoding of the node. */
+    public int getEncodedSize() {
+        if (encodedSize < 0) {
+            encodedSize = value.encode().length;
+        }
+        return encodedSize;
+    }
+
     @Override
     public String toString() {
         return "[" + dirty + ", " + value + "]";
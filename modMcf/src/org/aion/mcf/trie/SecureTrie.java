@@ -3,7 +3,10 @@ package org.aion.mcf.trie;
 import static org.aion.crypto.HashUtil.h256;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import org.aion.interfaces.db.ByteArrayKeyValueStore;
+import org.aion.types.ByteArrayWrapper;
 
 public class SecureTrie extends TrieImpl implements Trie {
 
@@ -34,6 +37,15 @@ public class SecureTrie extends TrieImpl implements Trie {
         super.delete(h256(key));
     }
 
+    @Override
+    public void updateBatch(Map<ByteArrayWrapper, byte[]> batch) {
+        Map<ByteArrayWrapper, byte[]> hashed = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : batch.entrySet()) {
+            hashed.put(ByteArrayWrapper.wrap(h256(entry.getKey().getData())), entry.getValue());
+        }
+        super.updateBatch(hashed);
+    }
+
     /**
      * Returns a copy of this trie.
      *
@@ -2,6 +2,7 @@ package org.aion.mcf.trie;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
 import org.aion.types.ByteArrayWrapper;
 
@@ -34,6 +35,15 @@ public interface Trie {
      */
     void delete(byte[] key);
 
+    /**
+     * Applies a batch of updates and deletes to the trie. The entries are applied in key order
+     * and the nodes shared between the given keys are created only once.
+     *
+     * @param batch map from keys to the values to be stored; a {@code null} value marks the key
+     *     for deletion
+     */
+    void updateBatch(Map<ByteArrayWrapper, byte[]> batch);
+
     /**
      * Returns a SHA-3 hash from the top node of the trie
      *
@@ -99,6 +109,17 @@ public interface Trie {
      */
     Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(byte[] value, int limit);
 
+    /**
+     * Traverses the trie with the given root and passes the key and value of each leaf to the given
+     * consumer. The keys are the ones used inside the trie, which for a {@link SecureTrie} are the
+     * hashes of the keys given to {@link #update(byte[], byte[])}.
+     *
+     * @param stateRoot the root of the traversed trie
+     * @param leafConsumer receives the key and value of each leaf
+     * @throws RuntimeException when a node of the trie is not found in the database
+     */
+    void scanLeaves(byte[] stateRoot, BiConsumer<byte[], byte[]> leafConsumer);
+
     long saveFullStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
 
     long saveDiffStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
@@ -22,6 +22,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
 import org.aion.crypto.HashUtil;
 import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
 import org.aion.interfaces.db.ByteArrayKeyValueStore;
@@ -61,6 +64,11 @@ import org.aion.util.conversions.Hex;
  * implemented. As soon as the real life tree keys are hashes it is very unlikely the case so the
  * pruning algorithm is simplified in this implementation.
  *
+ * <p>When deferred hashing is enabled, updates and deletes do not encode and hash the modified
+ * nodes. They are kept in memory as unhashed nodes and their hashes are computed bottom-up in
+ * parallel the next time the root hash is requested or the trie is synced. The resulting root is
+ * identical to the one obtained by hashing each node when it is created.
+ *
  * @author Nick Savers
  * @since 20.05.2014
  */
@@ -69,11 +77,18 @@ public class TrieImpl implements Trie {
     private static final byte LIST_SIZE = 17;
     private static final int MAX_SIZE = 20;
 
+    /** Branch nodes below this depth are hashed by the task of their parent instead of forking. */
+    private static final int MAX_FORK_DEPTH = 3;
+
+    private static final ForkJoinPool HASHING_POOL =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
     // private Object prevRoot;
-    private Object root;
+    private volatile Object root;
     private Cache cache;
 
     private boolean pruningEnabled;
+    private boolean deferredHashing;
 
     public TrieImpl(ByteArrayKeyValueStore db) {
         this(db, "");
@@ -107,7 +122,10 @@ public class TrieImpl implements Trie {
     //    }
 
     public Object getRoot() {
-        return root;
+        synchronized (cache) {
+            hashDirtyNodes();
+            return root;
+        }
     }
 
     /** for testing TrieTest.testRollbackToRootScenarios */
@@ -145,17 +163,46 @@ public class TrieImpl implements Trie {
         return this;
     }
 
+    public boolean isDeferredHashingEnabled() {
+        return deferredHashing;
+    }
+
+    /**
+     * Enables or disables deferred hashing of modified nodes. Disabling it computes the hashes of
+     * the nodes modified so far.
+     */
+    public void setDeferredHashingEnabled(boolean deferredHashingEnabled) {
+        synchronized (cache) {
+            if (!deferredHashingEnabled) {
+                hashDirtyNodes();
+            }
+            deferredHashing = deferredHashingEnabled;
+        }
+    }
+
+    public TrieImpl withDeferredHashingEnabled(boolean deferredHashingEnabled) {
+        setDeferredHashingEnabled(deferredHashingEnabled);
+        return this;
+    }
+
     /** Retrieve a value from a key as String. */
     public byte[] get(String key) {
         return this.get(key.getBytes());
     }
 
+    /**
+     * Retrieves the value for the given key.
+     *
+     * @implNote Reads lock the cache. With pruning enabled, an update followed by a commit deletes
+     *     the nodes replaced by the update, which a traversal from the previous root may still
+     *     need.
+     */
     @Override
     public byte[] get(byte[] key) {
+        byte[] k = binToNibbles(key);
+
         synchronized (cache) {
-            byte[] k = binToNibbles(key);
             Value c = new Value(this.get(this.root, k));
-
             return c.asBytes();
         }
     }
@@ -215,9 +262,113 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote The deletes are applied first, followed by the updates. The updates are grouped by
+     *     their shared prefix at each branch node so that the branch is rebuilt once for all the keys
+     *     below it. The modified nodes are hashed once after the whole batch is applied.
+     */
+    @Override
+    public void updateBatch(Map<ByteArrayWrapper, byte[]> batch) {
+        List<byte[]> deleteKeys = new ArrayList<>();
+        List<byte[][]> updates = new ArrayList<>();
+
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : batch.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new NullPointerException("The key should not be null.");
+            }
+            byte[] value = entry.getValue();
+            byte[] k = binToNibbles(entry.getKey().getData());
+            if (value == null) {
+                deleteKeys.add(k);
+            } else if (value.length == 0) {
+                throw new IllegalArgumentException("The value should not be empty.");
+            } else {
+                updates.add(new byte[][] {k, value});
+            }
+        }
+
+        // keys sharing a prefix must be adjacent for the grouping done by insertBatch
+        deleteKeys.sort(Arrays::compare);
+        updates.sort((a, b) -> Arrays.compare(a[0], b[0]));
+
+        byte[][] updateKeys = new byte[updates.size()][];
+        byte[][] updateValues = new byte[updates.size()][];
+        for (int i = 0; i < updates.size(); i++) {
+            updateKeys[i] = updates.get(i)[0];
+            updateValues[i] = updates.get(i)[1];
+        }
+
+        synchronized (cache) {
+            boolean deferred = deferredHashing;
+            deferredHashing = true;
+            try {
+                if (isEmptyNode(root)) {
+                    cache.markRemoved(getRootHash());
+                }
+
+                Object node = this.root;
+                for (byte[] k : deleteKeys) {
+                    node = this.delete(node, k);
+                }
+                this.root =
+                        this.insertBatch(node, updateKeys, updateValues, 0, updateKeys.length, 0);
+            } finally {
+                if (!deferred) {
+                    hashDirtyNodes();
+                    deferredHashing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the keys in the range {@code [from, to)} into the given node. The keys must be sorted
+     * and share the first {@code offset} nibbles which were already consumed by the parent nodes.
+     *
+     * @return the updated node
+     */
+    private Object insertBatch(
+            Object node, byte[][] keys, byte[][] values, int from, int to, int offset) {
+        if (from == to) {
+            return node;
+        }
+
+        Value currentNode = isEmptyNode(node) ? null : this.getNode(node);
+
+        if (to - from == 1 || currentNode == null || currentNode.length() != LIST_SIZE) {
+            // insert one by one in empty, leaf and extension nodes
+            for (int i = from; i < to; i++) {
+                node = this.insert(node, copyOfRange(keys[i], offset, keys[i].length), values[i]);
+            }
+            return node;
+        }
+
+        // the branch is copied once for all the keys in the range
+        Object[] newNode = copyNode(currentNode);
+        int start = from;
+        while (start < to) {
+            byte nibble = keys[start][offset];
+            int end = start + 1;
+            while (end < to && keys[end][offset] == nibble) {
+                end++;
+            }
+            newNode[nibble] =
+                    this.insertBatch(
+                            currentNode.get(nibble).asObj(), keys, values, start, end, offset + 1);
+            start = end;
+        }
+
+        markRemovedReference(node);
+        return this.putToCache(newNode);
+    }
+
     @Override
     public byte[] getRootHash() {
         synchronized (cache) {
+            hashDirtyNodes();
+
             if (root == null
                     || (root instanceof byte[] && ((byte[]) root).length == 0)
                     || (root instanceof String && "".equals(root))) {
@@ -232,33 +383,31 @@ public class TrieImpl implements Trie {
     }
 
     private Object get(Object node, byte[] key) {
-        synchronized (cache) {
-            int keypos = 0;
-            while (key.length - keypos != 0 && !isEmptyNode(node)) {
-                Value currentNode = this.getNode(node);
-                if (currentNode == null) {
-                    return null;
-                }
+        int keypos = 0;
+        while (key.length - keypos != 0 && !isEmptyNode(node)) {
+            Value currentNode = this.getNode(node);
+            if (currentNode == null) {
+                return null;
+            }
 
-                if (currentNode.length() == PAIR_SIZE) {
-                    // Decode the key
-                    byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-                    Object v = currentNode.get(1).asObj();
+            if (currentNode.length() == PAIR_SIZE) {
+                // Decode the key
+                byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
+                Object v = currentNode.get(1).asObj();
 
-                    if (key.length - keypos >= k.length
-                            && Arrays.equals(k, copyOfRange(key, keypos, k.length + keypos))) {
-                        node = v;
-                        keypos += k.length;
-                    } else {
-                        return "";
-                    }
+                if (key.length - keypos >= k.length
+                        && Arrays.equals(k, copyOfRange(key, keypos, k.length + keypos))) {
+                    node = v;
+                    keypos += k.length;
                 } else {
-                    node = currentNode.get(key[keypos]).asObj();
-                    keypos++;
+                    return "";
                 }
+            } else {
+                node = currentNode.get(key[keypos]).asObj();
+                keypos++;
             }
-            return node;
         }
+        return node;
     }
 
     /**
@@ -291,6 +440,11 @@ public class TrieImpl implements Trie {
 
             // Matching key pair (ie. there's already an object with this key)
             if (Arrays.equals(k, key)) {
+                if (deferredHashing) {
+                    // the parent only marks itself in deferred mode, so the replaced leaf is marked
+                    // here; it is restored in the cache if the new leaf is identical
+                    markRemovedReference(node);
+                }
                 Object[] newNode = new Object[] {packNibbles(key), value};
                 return this.putToCache(newNode);
             }
@@ -319,7 +473,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(node, currentNode);
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -341,7 +495,11 @@ public class TrieImpl implements Trie {
                             copyOfRange(key, 1, key.length),
                             value);
 
-            if (!Arrays.equals(
+            if (deferredHashing) {
+                // identical nodes are restored in the cache when the hashes are computed
+                // the replaced child is marked by the recursive call
+                markRemovedReference(node);
+            } else if (!Arrays.equals(
                     HashUtil.h256(getNode(newNode).encode()),
                     HashUtil.h256(currentNode.encode()))) {
                 markRemoved(HashUtil.h256(currentNode.encode()));
@@ -374,6 +532,7 @@ public class TrieImpl implements Trie {
 
             // Matching key pair (ie. there's already an object with this key)
             if (Arrays.equals(k, key)) {
+                markRemoved(node, currentNode);
                 return "";
             } else if (Arrays.equals(copyOfRange(key, 0, k.length), k)) {
                 Object hash = this.delete(v, copyOfRange(key, k.length, key.length));
@@ -381,12 +540,14 @@ public class TrieImpl implements Trie {
 
                 Object newNode;
                 if (child.length() == PAIR_SIZE) {
+                    // the child is merged into the new node
+                    markRemoved(hash, child);
                     byte[] newKey = concatenate(k, unpackToNibbles(child.get(0).asBytes()));
                     newNode = new Object[] {packNibbles(newKey), child.get(1).asObj()};
                 } else {
                     newNode = new Object[] {currentNode.get(0), hash};
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(node, currentNode);
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -415,6 +576,8 @@ public class TrieImpl implements Trie {
             } else if (amount >= 0) {
                 Value child = this.getNode(itemList[amount]);
                 if (child.length() == PAIR_SIZE) {
+                    // the child is merged into the new node
+                    markRemoved(itemList[amount], child);
                     key = concatenate(new byte[] {amount}, unpackToNibbles(child.get(0).asBytes()));
                     newNode = new Object[] {packNibbles(key), child.get(1).asObj()};
                 } else if (child.length() == LIST_SIZE) {
@@ -424,7 +587,10 @@ public class TrieImpl implements Trie {
                 newNode = itemList;
             }
 
-            if (!Arrays.equals(
+            if (deferredHashing) {
+                // identical nodes are restored in the cache when the hashes are computed
+                markRemovedReference(node);
+            } else if (!Arrays.equals(
                     HashUtil.h256(getNode(newNode).encode()),
                     HashUtil.h256(currentNode.encode()))) {
                 markRemoved(HashUtil.h256(currentNode.encode()));
@@ -440,6 +606,28 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /**
+     * Marks the given node as removed.
+     *
+     * @param ref the reference to the node as stored by its parent
+     * @param node the value of the node
+     */
+    private void markRemoved(Object ref, Value node) {
+        if (deferredHashing) {
+            markRemovedReference(ref);
+        } else {
+            markRemoved(HashUtil.h256(node.encode()));
+        }
+    }
+
+    /** Marks the referenced node as removed if it is a hashed node, i.e. stored in the cache. */
+    private void markRemovedReference(Object ref) {
+        Value val = new Value(ref);
+        if (val.isBytes() && val.isHashCode()) {
+            markRemoved(val.asBytes());
+        }
+    }
+
     /**
      * Helper method to retrieve the actual node. If the node is not a list and length is > 32 bytes
      * get the actual node from the db.
@@ -448,6 +636,11 @@ public class TrieImpl implements Trie {
 
         Value val = new Value(node);
 
+        // modified node that was not hashed yet
+        if (val.asObj() instanceof UnhashedNode) {
+            return new Value(((UnhashedNode) val.asObj()).items);
+        }
+
         // in that case we got a node
         // so no need to encode it
         if (!val.isBytes()) {
@@ -464,10 +657,89 @@ public class TrieImpl implements Trie {
     }
 
     private Object putToCache(Object node) {
+        if (deferredHashing) {
+            return new UnhashedNode((Object[]) node);
+        }
         return this.cache.put(node);
     }
 
+    /**
+     * Computes the hashes of all the nodes modified since the last call and stores them in the
+     * cache. The branches of the trie are hashed in parallel.
+     *
+     * @implNote Must be called while holding the lock on the cache.
+     */
+    private void hashDirtyNodes() {
+        Object current = root;
+        if (current instanceof UnhashedNode) {
+            root = HASHING_POOL.invoke(new HashingTask((UnhashedNode) current, 0));
+        }
+    }
+
+    /** A modified node whose encoding and hash have not been computed yet. */
+    private static final class UnhashedNode {
+        private final Object[] items;
+
+        private UnhashedNode(Object[] items) {
+            this.items = items;
+        }
+    }
+
+    /**
+     * Replaces the unhashed children of a node with their references and returns the reference to
+     * the node as given by {@link Cache#put(Object)}. Each child of a branch node is hashed by a
+     * separate task.
+     */
+    private final class HashingTask extends RecursiveTask<Object> {
+        private final UnhashedNode node;
+        private final int depth;
+
+        private HashingTask(UnhashedNode node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Object compute() {
+            // the original items are not modified to allow concurrent reads
+            Object[] items = Arrays.copyOf(node.items, node.items.length);
+
+            if (items.length == LIST_SIZE && depth < MAX_FORK_DEPTH) {
+                HashingTask[] tasks = new HashingTask[LIST_SIZE];
+                for (int i = 0; i < LIST_SIZE; i++) {
+                    UnhashedNode child = asUnhashed(items[i]);
+                    if (child != null) {
+                        tasks[i] = new HashingTask(child, depth + 1);
+                        tasks[i].fork();
+                    }
+                }
+                for (int i = 0; i < LIST_SIZE; i++) {
+                    if (tasks[i] != null) {
+                        items[i] = tasks[i].join();
+                    }
+                }
+            } else {
+                for (int i = 0; i < items.length; i++) {
+                    UnhashedNode child = asUnhashed(items[i]);
+                    if (child != null) {
+                        items[i] = new HashingTask(child, depth + 1).compute();
+                    }
+                }
+            }
+
+            return cache.put(items);
+        }
+    }
+
+    private static UnhashedNode asUnhashed(Object item) {
+        Object obj = item instanceof Value ? ((Value) item).asObj() : item;
+        return obj instanceof UnhashedNode ? (UnhashedNode) obj : null;
+    }
+
     private static boolean isEmptyNode(Object node) {
+        if (asUnhashed(node) != null) {
+            return false;
+        }
         Value n = new Value(node);
         return (node == null
                 || (n.isString() && (n.asString().isEmpty() || n.get(0).isNull()))
@@ -496,6 +768,7 @@ public class TrieImpl implements Trie {
     @Override
     public void sync() {
         synchronized (cache) {
+            hashDirtyNodes();
             boolean flushCache = !cache.isDirty() || cache.getSize() > MAX_SIZE;
             sync(flushCache);
         }
@@ -504,6 +777,7 @@ public class TrieImpl implements Trie {
     @Override
     public void sync(boolean flushCache) {
         synchronized (cache) {
+            hashDirtyNodes();
             this.cache.commit(flushCache);
             // this.prevRoot = this.root;
         }
@@ -521,10 +795,12 @@ public class TrieImpl implements Trie {
     // Returns a copy of this trie
     public TrieImpl copy() {
         synchronized (cache) {
-            TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
-            for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
-                Node node = this.cache.getNodes().get(key);
-                trie.cache.getNodes().put(key, node.copy());
+            TrieImpl trie =
+                    new TrieImpl(
+                            new Cache(this.cache.getDb(), this.cache.getMaximumCacheSize()),
+                            this.getRoot());
+            for (Map.Entry<ByteArrayWrapper, Node> entry : this.cache.getNodes().entrySet()) {
+                trie.cache.putNode(entry.getKey(), entry.getValue().copy());
             }
             return trie;
         }
@@ -701,7 +977,7 @@ public class TrieImpl implements Trie {
 
                 Value value = Value.fromRlpEncoded(val);
                 System.arraycopy(keysElement.getRLPData(), i * 32, key, 0, 32);
-                cache.getNodes().put(wrap(key), new Node(value));
+                cache.putNode(wrap(key), new Node(value));
             }
 
             this.deserializeRoot(root.getRLPData());
@@ -822,7 +1098,7 @@ public class TrieImpl implements Trie {
 
         synchronized (cache) {
             TraceAllNodes traceAction = new TraceAllNodes();
-            Value value = new Value(root);
+            Value value = new Value(getRoot());
             if (value.isHashCode()) {
                 this.scanTree(this.getRootHash(), traceAction);
             } else {
@@ -970,7 +1246,73 @@ public class TrieImpl implements Trie {
         return collect.getNodes();
     }
 
-    private void appendHashes(Value node, ArrayList<byte[]> hashes) {
+    @Override
+    public void scanLeaves(byte[] stateRoot, BiConsumer<byte[], byte[]> leafConsumer) {
+        synchronized (cache) {
+            if (!Arrays.equals(stateRoot, EMPTY_TRIE_HASH)) {
+                scanLeaves(stateRoot, new byte[0], leafConsumer);
+            }
+        }
+    }
+
+    /**
+     * Passes the leaves below the given node to the consumer.
+     *
+     * @param node the hash of the node or the node itself when embedded in its parent
+     * @param path the nibbles of the key leading to the node
+     */
+    private void scanLeaves(Object node, byte[] path, BiConsumer<byte[], byte[]> leafConsumer) {
+        Value current = getNode(node);
+        if (current == null) {
+            throw new RuntimeException("Not found: " + new Value(node));
+        }
+
+        if (current.length() == PAIR_SIZE) {
+            byte[] packedKey = current.get(0).asBytes();
+            byte[] nibbles = unpackToNibbles(packedKey);
+            if (hasTerminator(packedKey)) {
+                // the unpacked key of a leaf ends with the terminator
+                byte[] key = concatenate(path, copyOfRange(nibbles, 0, nibbles.length - 1));
+                leafConsumer.accept(nibblesToBytes(key), current.get(1).asBytes());
+            } else {
+                scanLeaves(current.get(1).asObj(), concatenate(path, nibbles), leafConsumer);
+            }
+        } else if (current.length() == LIST_SIZE) {
+            for (int i = 0; i < LIST_SIZE - 1; i++) {
+                Object child = current.get(i).asObj();
+                if (!isEmptyNode(child)) {
+                    scanLeaves(child, concatenate(path, new byte[] {(byte) i}), leafConsumer);
+                }
+            }
+            byte[] value = current.get(LIST_SIZE - 1).asBytes();
+            if (value.length > 0) {
+                leafConsumer.accept(nibblesToBytes(path), value);
+            }
+        }
+    }
+
+    private static byte[] nibblesToBytes(byte[] nibbles) {
+        byte[] bytes = new byte[nibbles.length / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((nibbles[2 * i] << 4) | nibbles[2 * i + 1]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the keys of the trie nodes directly referenced by the given trie node. Nodes small
+     * enough to be embedded in their parent are not stored separately and are not included.
+     *
+     * @param value the encoded trie node
+     * @return the keys of the referenced trie nodes
+     */
+    public static List<byte[]> getReferencedHashes(byte[] value) {
+        ArrayList<byte[]> hashes = new ArrayList<>();
+        appendHashes(Value.fromRlpEncoded(value), hashes);
+        return hashes;
+    }
+
+    private static void appendHashes(Value node, ArrayList<byte[]> hashes) {
         if (node.isHashCode()) {
             hashes.add(node.asBytes());
         } else if (node.isList()) {
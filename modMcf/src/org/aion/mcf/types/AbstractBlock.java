@@ -6,7 +6,7 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.aion.interfaces.block.Block;
 import org.aion.interfaces.block.BlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RlpWriter;
 
 /** Abstract Block class. */
 public abstract class AbstractBlock<BH extends BlockHeader, TX extends AbstractTransaction>
@@ -36,9 +36,40 @@ public abstract class AbstractBlock<BH extends BlockHeader, TX extends AbstractT
     }
 
     public byte[] getEncodedBody() {
-        List<byte[]> body = getBodyElements();
-        byte[][] elements = body.toArray(new byte[body.size()][]);
-        return RLP.encodeList(elements);
+        return encodeBody(null);
+    }
+
+    /**
+     * Encodes the body of the block, i.e. a list containing the list of transactions. When a
+     * header encoding is given, it is written in front of the list of transactions, which results
+     * in the encoding of the complete block.
+     */
+    protected byte[] encodeBody(byte[] header) {
+        parseRLP();
+
+        List<byte[]> transactions = new ArrayList<>(transactionsList.size());
+        int transactionsLength = 0;
+        for (TX tx : transactionsList) {
+            byte[] encoded = tx.getEncoded();
+            transactions.add(encoded);
+            transactionsLength += encoded.length;
+        }
+
+        int length = RlpWriter.sizeOfList(transactionsLength);
+        if (header != null) {
+            length += header.length;
+        }
+
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfList(length));
+        writer.writeListHeader(length);
+        if (header != null) {
+            writer.writeEncoded(header);
+        }
+        writer.writeListHeader(transactionsLength);
+        for (byte[] encoded : transactions) {
+            writer.writeEncoded(encoded);
+        }
+        return writer.toByteArray();
     }
 
     public List<byte[]> getBodyElements() {
@@ -51,12 +82,19 @@ public abstract class AbstractBlock<BH extends BlockHeader, TX extends AbstractT
 
     public byte[] getTransactionsEncoded() {
 
-        byte[][] transactionsEncoded = new byte[transactionsList.size()][];
-        int i = 0;
+        List<byte[]> transactions = new ArrayList<>(transactionsList.size());
+        int length = 0;
         for (TX tx : transactionsList) {
-            transactionsEncoded[i] = tx.getEncoded();
-            ++i;
+            byte[] encoded = tx.getEncoded();
+            transactions.add(encoded);
+            length += encoded.length;
+        }
+
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfList(length));
+        writer.writeListHeader(length);
+        for (byte[] encoded : transactions) {
+            writer.writeEncoded(encoded);
         }
-        return RLP.encodeList(transactionsEncoded);
+        return writer.toByteArray();
     }
 }
@@ -0,0 +1,127 @@
+package org.aion.mcf.ds;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.interfaces.db.ByteArrayKeyValueDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link BloomFilteredDatabase}. */
+public class BloomFilteredDatabaseTest {
+
+    private static final int KEYS = 1_000;
+    private static final byte[] value = "value".getBytes();
+
+    private final File filterFile = new File(System.getProperty("user.dir"), "tmp-archive.filter");
+
+    private ByteArrayKeyValueDatabase source;
+    private List<byte[]> stored;
+    private List<byte[]> absent;
+
+    @Before
+    public void setup() {
+        source = new MockDB("archive");
+        assertThat(source.open()).isTrue();
+
+        Random random = new Random(42);
+        stored = randomKeys(random);
+        absent = randomKeys(random);
+    }
+
+    @After
+    public void teardown() {
+        source.close();
+        if (filterFile.exists()) {
+            assertThat(filterFile.delete()).isTrue();
+        }
+    }
+
+    private static List<byte[]> randomKeys(Random random) {
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static int countPresent(ByteArrayKeyValueDatabase db, List<byte[]> keys) {
+        int count = 0;
+        for (byte[] key : keys) {
+            if (db.get(key).isPresent()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testGet_skipsAbsentKeys() {
+        BloomFilteredDatabase db = new BloomFilteredDatabase(source, KEYS, null);
+        for (byte[] key : stored) {
+            db.put(key, value);
+        }
+
+        assertThat(countPresent(db, stored)).isEqualTo(KEYS);
+        assertThat(countPresent(db, absent)).isEqualTo(0);
+
+        // about one percent of the absent keys are expected to reach the database
+        assertThat(db.getStatsSummary()).contains("keys=" + KEYS);
+        assertThat(db.getStatsSummary()).contains("lookups=" + 2 * KEYS);
+        String diskReads = db.getStatsSummary().replaceAll(".*diskReads=", "");
+        assertThat(Integer.parseInt(diskReads)).isLessThan(KEYS + KEYS / 20);
+    }
+
+    @Test
+    public void testFilterBuiltFromExistingKeys() {
+        for (byte[] key : stored) {
+            source.put(key, value);
+        }
+
+        BloomFilteredDatabase db = new BloomFilteredDatabase(source, 1, null);
+
+        // resized for the keys found in the database
+        assertThat(db.getStatsSummary()).contains("keys=" + KEYS);
+        assertThat(countPresent(db, stored)).isEqualTo(KEYS);
+    }
+
+    @Test
+    public void testFilterPersistedOnClose() {
+        BloomFilteredDatabase db = new BloomFilteredDatabase(source, KEYS, filterFile);
+        for (byte[] key : stored) {
+            db.put(key, value);
+        }
+
+        db.close();
+        assertThat(filterFile.exists()).isTrue();
+        assertThat(db.getStatsSummary()).isEqualTo("closed");
+
+        // the mock database loses its data on close, but the filter is loaded from the file
+        assertThat(db.open()).isTrue();
+        assertThat(filterFile.exists()).isFalse();
+        assertThat(db.getStatsSummary()).contains("keys=" + KEYS);
+        assertThat(countPresent(db, stored)).isEqualTo(0);
+        assertThat(db.getStatsSummary()).contains("falsePositives=" + KEYS);
+    }
+
+    @Test
+    public void testDrop() {
+        BloomFilteredDatabase db = new BloomFilteredDatabase(source, KEYS, null);
+        for (byte[] key : stored) {
+            db.put(key, value);
+        }
+
+        db.drop();
+
+        assertThat(db.isEmpty()).isTrue();
+        assertThat(db.getStatsSummary()).contains("keys=0");
+        assertThat(countPresent(db, stored)).isEqualTo(0);
+    }
+}
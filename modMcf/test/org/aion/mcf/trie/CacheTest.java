@@ -0,0 +1,135 @@
+package org.aion.mcf.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.Value;
+import org.aion.types.ByteArrayWrapper;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for the bounded trie node {@link Cache}. */
+public class CacheTest {
+
+    private static final Random random = new Random(31);
+
+    private MockDB db;
+
+    @Before
+    public void setup() {
+        db = new MockDB("cache-test");
+        db.open();
+    }
+
+    private static Object[] randomNode() {
+        byte[] key = new byte[32];
+        byte[] value = new byte[64];
+        random.nextBytes(key);
+        random.nextBytes(value);
+        return new Object[] {key, value};
+    }
+
+    @Test
+    public void testDirtyNodesArePinnedUntilCommit() {
+        // budget smaller than a single node
+        Cache cache = new Cache(db, 1);
+
+        byte[][] keys = new byte[10][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (byte[]) cache.put(randomNode());
+        }
+
+        assertThat(cache.isDirty()).isTrue();
+        assertThat(cache.getSize()).isEqualTo(keys.length);
+        for (byte[] key : keys) {
+            assertThat(cache.get(key)).isNotNull();
+            assertThat(db.get(key).isPresent()).isFalse();
+        }
+        assertThat(cache.getDirtyHitCount()).isEqualTo(keys.length);
+
+        cache.commit(false);
+
+        assertThat(cache.isDirty()).isFalse();
+        for (byte[] key : keys) {
+            assertThat(db.get(key).isPresent()).isTrue();
+        }
+        // the committed nodes are clean and evicted according to the byte budget
+        assertThat(cache.getSize()).isLessThan(keys.length);
+        assertThat(cache.getStats().evictionCount()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testEvictedNodesAreReloaded() {
+        Cache cache = new Cache(db, 1);
+        Object[] node = randomNode();
+        byte[] key = (byte[]) cache.put(node);
+        cache.commit(false);
+
+        Value value = cache.get(key);
+        assertThat(value).isNotNull();
+        assertArrayEquals(new Value(node).encode(), value.encode());
+        assertThat(cache.getDatabaseHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testHitAndMissCounters() {
+        Cache cache = new Cache(db, 0);
+        byte[] key = (byte[]) cache.put(randomNode());
+        cache.commit(false);
+
+        cache.get(key);
+        cache.get(key);
+        cache.get(new byte[32]);
+
+        assertThat(cache.getStats().hitCount()).isEqualTo(2L);
+        assertThat(cache.getStats().missCount()).isEqualTo(1L);
+        assertThat(cache.getStats().evictionCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testMarkRemoved() {
+        Cache cache = new Cache(db);
+        byte[] key = (byte[]) cache.put(randomNode());
+        cache.commit(false);
+        assertThat(db.get(key).isPresent()).isTrue();
+
+        cache.put(randomNode());
+        cache.markRemoved(key);
+        cache.commit(false);
+
+        assertThat(db.get(key).isPresent()).isFalse();
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    public void testNodesWithoutDataSourceAreNotEvicted() {
+        Cache cache = new Cache(null, 1);
+
+        byte[][] keys = new byte[10][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (byte[]) cache.put(randomNode());
+        }
+        cache.commit(false);
+
+        for (byte[] key : keys) {
+            assertThat(cache.get(key)).isNotNull();
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        Cache cache = new Cache(db);
+        byte[] clean = (byte[]) cache.put(randomNode());
+        cache.commit(false);
+        byte[] dirty = (byte[]) cache.put(randomNode());
+
+        Cache copy = cache.copy();
+        assertThat(copy.isDirty()).isTrue();
+        assertThat(copy.getNodes().keySet())
+                .containsExactly(ByteArrayWrapper.wrap(clean), ByteArrayWrapper.wrap(dirty));
+        assertThat(copy.getNodes().get(ByteArrayWrapper.wrap(dirty)).isDirty()).isTrue();
+        assertThat(copy.getNodes().get(ByteArrayWrapper.wrap(clean)).isDirty()).isFalse();
+    }
+}
@@ -1583,4 +1583,88 @@ public class JournalPruneDataSourceTest {
         assertThat(source_db.get(k5).get()).isEqualTo(v5);
         assertThat(source_db.get(k6).get()).isEqualTo(v6);
     }
+
+    @Test
+    public void pruningTest_wRecoveredJournal() {
+        ByteArrayKeyValueDatabase journal = DatabaseFactory.connect("journal");
+        assertThat(journal.open()).isTrue();
+        db = new JournalPruneDataSource(source_db, journal);
+        db.setPruneEnabled(true);
+
+        // block b0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.storeBlockChanges(b0, 0);
+
+        // block b1
+        db.put(k3, v3);
+        db.delete(k1);
+        db.storeBlockChanges(b1, 1);
+
+        // block b2 : note same level as block b1
+        db.put(k4, v4);
+        db.delete(k2);
+        db.storeBlockChanges(b2, 1);
+
+        // restart with the same journal
+        db = new JournalPruneDataSource(source_db, journal);
+        db.setPruneEnabled(true);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(3);
+        assertThat(count(source_db.keys())).isEqualTo(4);
+
+        db.prune(b0, 0);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(2);
+        assertThat(count(source_db.keys())).isEqualTo(4);
+
+        // prune block b1 at level 1 : the fork block b2 is rolled back
+        db.prune(b1, 1);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(count(source_db.keys())).isEqualTo(2);
+        assertThat(source_db.get(k1).isPresent()).isFalse();
+        assertThat(source_db.get(k2).get()).isEqualTo(v2);
+        assertThat(source_db.get(k3).get()).isEqualTo(v3);
+        assertThat(source_db.get(k4).isPresent()).isFalse();
+
+        // the journal is empty once all the blocks are pruned
+        assertThat(count(journal.keys())).isEqualTo(0);
+        journal.close();
+    }
+
+    @Test
+    public void pruningTest_wReimportedBlock() {
+        ByteArrayKeyValueDatabase journal = DatabaseFactory.connect("journal");
+        assertThat(journal.open()).isTrue();
+        db = new JournalPruneDataSource(source_db, journal);
+        db.setPruneEnabled(true);
+
+        // block b0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.storeBlockChanges(b0, 0);
+
+        // restart with the same journal and import block b0 again
+        db = new JournalPruneDataSource(source_db, journal);
+        db.setPruneEnabled(true);
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.storeBlockChanges(b0, 0);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(1);
+
+        // block b1
+        db.put(k3, v3);
+        db.delete(k1);
+        db.storeBlockChanges(b1, 1);
+
+        db.prune(b0, 0);
+        db.prune(b1, 1);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+
+        // the keys of the re-imported block are referenced once
+        assertThat(count(source_db.keys())).isEqualTo(2);
+        assertThat(source_db.get(k1).isPresent()).isFalse();
+        assertThat(source_db.get(k2).get()).isEqualTo(v2);
+        assertThat(source_db.get(k3).get()).isEqualTo(v3);
+        assertThat(count(journal.keys())).isEqualTo(0);
+        journal.close();
+    }
 }
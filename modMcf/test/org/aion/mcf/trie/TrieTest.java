@@ -9,6 +9,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.aion.types.ByteArrayWrapper;
@@ -1056,4 +1058,250 @@ public class TrieTest {
             }
         }
     }
+
+    @Test
+    public void testDeferredHashing_matchesSerialHashing() {
+        MockDB serialDB = new MockDB("serial");
+        serialDB.open();
+        MockDB deferredDB = new MockDB("deferred");
+        deferredDB.open();
+
+        TrieImpl serial = new TrieImpl(serialDB).withPruningEnabled(true);
+        TrieImpl deferred =
+                new TrieImpl(deferredDB)
+                        .withPruningEnabled(true)
+                        .withDeferredHashingEnabled(true);
+
+        Random generator = new Random(2019);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int round = 0; round < 5; round++) {
+            // insert and update
+            for (int i = 0; i < 500; i++) {
+                byte[] key = HashUtil.h256(intToBytes(generator.nextInt(2_000)));
+                byte[] value = new byte[1 + generator.nextInt(64)];
+                generator.nextBytes(value);
+                keys.add(key);
+
+                serial.update(key, value);
+                deferred.update(key, value);
+            }
+
+            // delete
+            for (int i = 0; i < 100; i++) {
+                byte[] key = keys.get(generator.nextInt(keys.size()));
+                serial.delete(key);
+                deferred.delete(key);
+            }
+
+            assertArrayEquals(serial.getRootHash(), deferred.getRootHash());
+
+            // serial mode also marks the nodes created and replaced within the round, which the
+            // deferred trie never stores; the stored nodes marked for removal must match
+            Set<ByteArrayWrapper> stored = storedKeys(serialDB);
+            Set<ByteArrayWrapper> serialRemoved = new HashSet<>();
+            for (ByteArrayWrapper key : serial.getCache().getRemovedNodes()) {
+                if (stored.contains(key)) {
+                    serialRemoved.add(key);
+                }
+            }
+            Set<ByteArrayWrapper> deferredRemoved = new HashSet<>();
+            for (ByteArrayWrapper key : deferred.getCache().getRemovedNodes()) {
+                if (stored.contains(key)) {
+                    deferredRemoved.add(key);
+                }
+            }
+            assertThat(deferredRemoved).isEqualTo(serialRemoved);
+
+            serial.sync();
+            deferred.sync();
+
+            // the pruned databases hold the same nodes
+            assertThat(storedKeys(deferredDB)).isEqualTo(storedKeys(serialDB));
+
+            for (byte[] key : keys) {
+                assertArrayEquals(serial.get(key), deferred.get(key));
+            }
+        }
+
+        // the deferred trie can be fully reloaded from its database
+        byte[] root = deferred.getRootHash();
+        TrieImpl reloaded = new TrieImpl(deferredDB, root);
+        assertThat(reloaded.getMissingNodes(root)).isEmpty();
+        for (byte[] key : keys) {
+            assertArrayEquals(serial.get(key), reloaded.get(key));
+        }
+    }
+
+    private static Set<ByteArrayWrapper> storedKeys(MockDB db) {
+        Set<ByteArrayWrapper> keys = new HashSet<>();
+        Iterator<byte[]> iterator = db.keys();
+        while (iterator.hasNext()) {
+            keys.add(ByteArrayWrapper.wrap(iterator.next()));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testConcurrentGet_withPruning() throws InterruptedException {
+        MockDB mockDB = new MockDB("concurrent");
+        mockDB.open();
+        TrieImpl trie = new TrieImpl(mockDB).withPruningEnabled(true);
+
+        int keyCount = 200;
+        int rounds = 50;
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < keyCount; i++) {
+            byte[] key = HashUtil.h256(intToBytes(i));
+            keys.add(key);
+            trie.update(key, HashUtil.h256(intToBytes(-1 - i)));
+        }
+        trie.sync();
+
+        // each round replaces every node, so a read on a pruned path would miss its nodes
+        Thread writer =
+                new Thread(
+                        () -> {
+                            for (int round = 0; round < rounds; round++) {
+                                for (int i = 0; i < keyCount; i++) {
+                                    byte[] value = HashUtil.h256(intToBytes(round * keyCount + i));
+                                    trie.update(keys.get(i), value);
+                                }
+                                trie.sync();
+                            }
+                        });
+
+        AtomicInteger missing = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(
+                    new Thread(
+                            () -> {
+                                while (writer.isAlive()) {
+                                    for (byte[] key : keys) {
+                                        if (trie.get(key).length == 0) {
+                                            missing.incrementAndGet();
+                                        }
+                                    }
+                                }
+                            }));
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(missing.get()).isEqualTo(0);
+        for (int i = 0; i < keyCount; i++) {
+            byte[] expected = HashUtil.h256(intToBytes((rounds - 1) * keyCount + i));
+            assertArrayEquals(expected, trie.get(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void testUpdateBatch_matchesSequentialUpdates() {
+        MockDB sequentialDB = new MockDB("sequential");
+        sequentialDB.open();
+        MockDB batchDB = new MockDB("batch");
+        batchDB.open();
+
+        TrieImpl sequential = new SecureTrie(sequentialDB).withPruningEnabled(true);
+        TrieImpl batched = new SecureTrie(batchDB).withPruningEnabled(true);
+
+        Random generator = new Random(42);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int round = 0; round < 5; round++) {
+            Map<ByteArrayWrapper, byte[]> batch = new HashMap<>();
+
+            for (int i = 0; i < 300; i++) {
+                byte[] key = intToBytes(generator.nextInt(1_000));
+                byte[] value = new byte[1 + generator.nextInt(64)];
+                generator.nextBytes(value);
+                batch.put(ByteArrayWrapper.wrap(key), value);
+                keys.add(key);
+            }
+            for (int i = 0; i < 50; i++) {
+                batch.put(ByteArrayWrapper.wrap(keys.get(generator.nextInt(keys.size()))), null);
+            }
+
+            // the deletes are applied first by the batch
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : batch.entrySet()) {
+                if (e.getValue() == null) {
+                    sequential.delete(e.getKey().getData());
+                }
+            }
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : batch.entrySet()) {
+                if (e.getValue() != null) {
+                    sequential.update(e.getKey().getData(), e.getValue());
+                }
+            }
+            batched.updateBatch(batch);
+
+            assertArrayEquals(sequential.getRootHash(), batched.getRootHash());
+
+            sequential.sync();
+            batched.sync();
+        }
+
+        for (byte[] key : keys) {
+            assertArrayEquals(sequential.get(key), batched.get(key));
+        }
+
+        byte[] root = batched.getRootHash();
+        assertThat(new TrieImpl(batchDB, root).getMissingNodes(root)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdateBatch_withEmptyValue() {
+        TrieImpl trie = new TrieImpl(null);
+        Map<ByteArrayWrapper, byte[]> batch = new HashMap<>();
+        batch.put(ByteArrayWrapper.wrap(intToBytes(1)), new byte[0]);
+        trie.updateBatch(batch);
+    }
+
+    @Test
+    public void testScanLeaves() {
+        MockDB db = new MockDB("scan");
+        db.open();
+
+        TrieImpl trie = new SecureTrie(db);
+        Random generator = new Random(42);
+        Map<ByteArrayWrapper, ByteArrayWrapper> expected = new HashMap<>();
+
+        for (int i = 0; i < 500; i++) {
+            byte[] key = new byte[20];
+            generator.nextBytes(key);
+            // short values are embedded in their parent node
+            byte[] value = new byte[1 + generator.nextInt(64)];
+            generator.nextBytes(value);
+
+            trie.update(key, value);
+            expected.put(ByteArrayWrapper.wrap(HashUtil.h256(key)), ByteArrayWrapper.wrap(value));
+        }
+        trie.sync();
+
+        byte[] root = trie.getRootHash();
+        Map<ByteArrayWrapper, ByteArrayWrapper> scanned = new HashMap<>();
+        new SecureTrie(db, root)
+                .scanLeaves(
+                        root,
+                        (key, value) ->
+                                scanned.put(
+                                        ByteArrayWrapper.wrap(key), ByteArrayWrapper.wrap(value)));
+
+        assertThat(scanned).isEqualTo(expected);
+    }
+
+    @Test
+    public void testScanLeaves_withEmptyTrie() {
+        List<byte[]> keys = new ArrayList<>();
+        new TrieImpl(null).scanLeaves(EMPTY_TRIE_HASH, (key, value) -> keys.add(key));
+        assertThat(keys).isEmpty();
+    }
 }
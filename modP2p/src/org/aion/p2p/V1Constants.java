@@ -22,4 +22,7 @@ public class V1Constants {
 
     /** The number of components contained in a trie data response. */
     public static int TRIE_DATA_RESPONSE_COMPONENTS = 4;
+
+    /** Limits the number of blocks whose receipts are returned to one receipts request. */
+    public static final int RECEIPTS_REQUEST_MAXIMUM_BATCH_SIZE = 60;
 }
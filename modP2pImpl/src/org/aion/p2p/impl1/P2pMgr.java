@@ -186,7 +186,8 @@ public final class P2pMgr implements IP2pMgr {
 
             tcpServer.register(selector, SelectionKey.OP_ACCEPT);
 
-            Thread thrdIn = new Thread(getInboundInstance(), "p2p-in");
+            TaskInbound inbound = getInboundInstance();
+            Thread thrdIn = new Thread(inbound, "p2p-in");
             thrdIn.setPriority(Thread.NORM_PRIORITY);
             thrdIn.start();
 
@@ -242,7 +243,7 @@ public final class P2pMgr implements IP2pMgr {
             thrdClear.setPriority(Thread.NORM_PRIORITY);
             thrdClear.start();
 
-            Thread thrdConn = new Thread(getConnectPeersInstance(), "p2p-conn");
+            Thread thrdConn = new Thread(getConnectPeersInstance(inbound), "p2p-conn");
             thrdConn.setPriority(Thread.NORM_PRIORITY);
             thrdConn.start();
         } catch (SocketException e) {
@@ -286,6 +287,11 @@ public final class P2pMgr implements IP2pMgr {
     public void shutdown() {
         start.set(false);
 
+        if (selector != null) {
+            // release the inbound thread from select
+            selector.wakeup();
+        }
+
         if (scheduledWorkers != null) {
             scheduledWorkers.shutdownNow();
         }
@@ -476,13 +482,13 @@ public final class P2pMgr implements IP2pMgr {
         return new TaskClear(this.nodeMgr, this.start);
     }
 
-    private TaskConnectPeers getConnectPeersInstance() {
+    private TaskConnectPeers getConnectPeersInstance(TaskInbound inbound) {
         return new TaskConnectPeers(
                 this,
                 this.start,
                 this.nodeMgr,
                 this.maxActiveNodes,
-                this.selector,
+                inbound,
                 this.sendMsgQue,
                 cachedReqHandshake1);
     }
@@ -3,6 +3,7 @@ package org.aion.p2p.impl1.tasks;
 import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,12 +14,17 @@ import org.aion.p2p.Header;
 /** @author chris */
 class ChannelBuffer {
 
+    /** Initial capacity of the body buffer, which grows as the body bytes arrive. */
+    private static final int INITIAL_BODY_CAPACITY = 8 * 1024;
+
     byte[] body = null;
     Lock lock = new ReentrantLock();
     private Header header = null;
-    // buffer for buffer remaining after NIO select read.
-    private byte[] remainBuffer;
-    private int buffRemain = 0;
+    // number of header bytes received so far.
+    private int headPos = 0;
+    // partially received body and the number of body bytes received so far.
+    private byte[] bodyBuf = null;
+    private int bodyPos = 0;
     private int nodeIdHash;
     private String displayId;
     private byte[] bsHead = new byte[Header.LEN];
@@ -53,14 +59,6 @@ class ChannelBuffer {
         this.closed.set(true);
     }
 
-    int getBuffRemain() {
-        return buffRemain;
-    }
-
-    void setBuffRemain(int buffRemain) {
-        this.buffRemain = buffRemain;
-    }
-
     /**
      * @param _route int
      * @param _maxReqsPerSec int requests within 1 s
@@ -98,15 +96,20 @@ class ChannelBuffer {
         return routes.get(_route);
     }
 
+    /**
+     * Consumes the header bytes available in the given buffer. A header split across several reads
+     * is accumulated until complete, after which it is decoded.
+     */
     void readHead(ByteBuffer buf) {
-        if (buf.array().length < bsHead.length) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readHead short buffer size");
-            }
+        int cnt = Math.min(buf.remaining(), bsHead.length - headPos);
+        buf.get(bsHead, headPos, cnt);
+        headPos += cnt;
+
+        if (headPos < bsHead.length) {
             return;
         }
 
-        buf.get(bsHead);
+        headPos = 0;
         try {
             header = Header.decode(bsHead);
         } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
@@ -116,6 +119,12 @@ class ChannelBuffer {
         }
     }
 
+    /**
+     * Consumes the body bytes available in the given buffer. The bytes are accumulated in an array
+     * that grows with the received data up to the expected length, so that a header announcing a
+     * large body does not allocate it before the bytes arrive. The array becomes the {@link #body}
+     * once complete.
+     */
     void readBody(ByteBuffer buf) {
         if (isHeaderNotCompleted()) {
             if (p2pLOG.isDebugEnabled()) {
@@ -124,23 +133,37 @@ class ChannelBuffer {
             return;
         }
 
-        if (buf.array().length < header.getLen()) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readBody short buffer size.");
-            }
-            return;
+        int len = header.getLen();
+        int cnt = Math.min(buf.remaining(), len - bodyPos);
+
+        if (bodyBuf == null) {
+            bodyBuf = new byte[Math.min(len, Math.max(cnt, INITIAL_BODY_CAPACITY))];
+            bodyPos = 0;
+        } else if (bodyPos + cnt > bodyBuf.length) {
+            // doubled to keep the copies linear in the body length
+            int capacity = (int) Math.min(len, Math.max(bodyPos + cnt, 2L * bodyBuf.length));
+            bodyBuf = Arrays.copyOf(bodyBuf, capacity);
         }
 
-        body = new byte[header.getLen()];
-        buf.get(body);
+        buf.get(bodyBuf, bodyPos, cnt);
+        bodyPos += cnt;
+
+        if (bodyPos == len) {
+            body = bodyBuf;
+            bodyBuf = null;
+            bodyPos = 0;
+        }
     }
 
     void refreshHeader() {
         header = null;
+        headPos = 0;
     }
 
     void refreshBody() {
         body = null;
+        bodyBuf = null;
+        bodyPos = 0;
     }
 
     /** @return boolean */
@@ -153,14 +176,6 @@ class ChannelBuffer {
         return header == null || body == null || body.length != header.getLen();
     }
 
-    byte[] getRemainBuffer() {
-        return remainBuffer;
-    }
-
-    void setRemainBuffer(byte[] remainBuffer) {
-        this.remainBuffer = remainBuffer;
-    }
-
     public Header getHeader() {
         return header;
     }
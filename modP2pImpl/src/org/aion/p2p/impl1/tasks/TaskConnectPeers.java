@@ -4,8 +4,6 @@ import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -25,7 +23,7 @@ public class TaskConnectPeers implements Runnable {
     private final IP2pMgr mgr;
     private final AtomicBoolean start;
     private final BlockingQueue<MsgOut> sendMsgQue;
-    private final Selector selector;
+    private final TaskInbound inbound;
     private final ReqHandshake1 cachedReqHS;
 
     public TaskConnectPeers(
@@ -33,7 +31,7 @@ public class TaskConnectPeers implements Runnable {
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
             final int _maxActiveNodes,
-            final Selector _selector,
+            final TaskInbound _inbound,
             final BlockingQueue<MsgOut> _sendMsgQue,
             final ReqHandshake1 _cachedReqHS) {
 
@@ -41,7 +39,7 @@ public class TaskConnectPeers implements Runnable {
         this.nodeMgr = _nodeMgr;
         this.maxActiveNodes = _maxActiveNodes;
         this.mgr = _mgr;
-        this.selector = _selector;
+        this.inbound = _inbound;
         this.sendMsgQue = _sendMsgQue;
         this.cachedReqHS = _cachedReqHS;
     }
@@ -96,11 +94,11 @@ public class TaskConnectPeers implements Runnable {
                         }
 
                         channel.configureBlocking(false);
-                        SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
                         ChannelBuffer rb = new ChannelBuffer();
                         rb.setDisplayId(node.getIdShort());
                         rb.setNodeIdHash(nodeIdHash);
-                        sk.attach(rb);
+                        // registered by the inbound thread, which owns the selector
+                        this.inbound.registerOutbound(channel, rb);
 
                         node.refreshTimestamp();
                         node.setChannel(channel);
@@ -15,7 +15,9 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
@@ -36,6 +38,18 @@ import org.aion.p2p.impl1.P2pMgr.Dest;
 
 public class TaskInbound implements Runnable {
 
+    /**
+     * Upper bound on the time spent blocked in a select call, so that the shutdown flag is
+     * observed even when no channel becomes ready.
+     */
+    private static final long SELECT_TIMEOUT_MS = 100L;
+
+    /**
+     * Size of the buffer used for reading from the channels. Messages are parsed incrementally,
+     * so larger messages are received over several reads.
+     */
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
     private final IP2pMgr mgr;
     private final Selector selector;
     private final INodeMgr nodeMgr;
@@ -44,6 +58,19 @@ public class TaskInbound implements Runnable {
     private final BlockingQueue<MsgOut> sendMsgQue;
     private final ResHandshake1 cachedResHandshake1;
     private final BlockingQueue<MsgIn> receiveMsgQue;
+    /** Outbound channels waiting to be registered with the selector by the inbound thread. */
+    private final Queue<PendingChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+
+    /** An outbound channel and the buffer to attach to it once registered. */
+    private static final class PendingChannel {
+        private final SocketChannel channel;
+        private final ChannelBuffer buffer;
+
+        private PendingChannel(SocketChannel channel, ChannelBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
 
     public TaskInbound(
             final IP2pMgr _mgr,
@@ -68,22 +95,20 @@ public class TaskInbound implements Runnable {
     @Override
     public void run() {
 
-        // readBuffer buffer pre-alloc. @ max_body_size
-        ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
+        // direct read buffer allocated once and reused for all the channels
+        ByteBuffer readBuf = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
 
         while (start.get()) {
-            try {
-                Thread.sleep(0, 1);
+            registerPendingChannels();
 
-                if (this.selector.selectNow() == 0) {
+            try {
+                // blocks until a channel is ready, the selector is woken up or the timeout expires
+                if (this.selector.select(SELECT_TIMEOUT_MS) == 0) {
                     continue;
                 }
             } catch (IOException | ClosedSelectorException e) {
                 p2pLOG.debug("inbound-select-exception.", e);
                 continue;
-            } catch (InterruptedException e) {
-                p2pLOG.error("inbound thread sleep exception.", e);
-                continue;
             }
 
             try {
@@ -175,119 +200,77 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private int readHeader(final ChannelBuffer _cb, final ByteBuffer _readBuf, int cnt) {
-
-        if (cnt < Header.LEN) {
-            return cnt;
-        }
-
-        int origPos = _readBuf.position();
-
-        int startP = origPos - cnt;
-
-        _readBuf.position(startP);
-
-        _cb.readHead(_readBuf);
-
-        _readBuf.position(origPos);
-
-        return cnt - Header.LEN;
+    /**
+     * Queues an outbound channel to be registered for reading by the inbound thread. Registering
+     * from another thread would block until the current select call returns.
+     *
+     * @param channel a connected channel in non-blocking mode
+     * @param buffer the buffer to attach to the channel
+     */
+    void registerOutbound(SocketChannel channel, ChannelBuffer buffer) {
+        pendingChannels.offer(new PendingChannel(channel, buffer));
+        // woken up after queuing, so that the channel is registered before selecting again
+        this.selector.wakeup();
     }
 
-    private int readBody(final ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-
-        int bodyLen = _cb.getHeader().getLen();
-
-        // some msg have nobody.
-        if (bodyLen == 0) {
-            _cb.body = new byte[0];
-            return _cnt;
-        }
-
-        if (_cnt < bodyLen) {
-            return _cnt;
+    /** Registers the queued outbound channels with the selector. */
+    private void registerPendingChannels() {
+        PendingChannel pending;
+        while ((pending = pendingChannels.poll()) != null) {
+            try {
+                pending.channel.register(this.selector, SelectionKey.OP_READ, pending.buffer);
+            } catch (IOException | RuntimeException e) {
+                this.mgr.closeSocket(
+                        pending.channel, pending.buffer.getDisplayId() + "-register-exception", e);
+                pending.buffer.setClosed();
+            }
         }
-
-        int origPos = _readBuf.position();
-        int startP = origPos - _cnt;
-        _readBuf.position(startP);
-        _cb.readBody(_readBuf);
-        _readBuf.position(origPos);
-        return _cnt - bodyLen;
     }
 
+    /**
+     * Reads all the data currently available on the channel and processes the messages as soon as
+     * they are complete. Partially received headers and bodies are kept by the {@link
+     * ChannelBuffer} until the following reads.
+     */
     private void readBuffer(
             final SelectionKey _sk, final ChannelBuffer _cb, final ByteBuffer _readBuf)
             throws Exception {
 
-        _readBuf.rewind();
-
         SocketChannel sc = (SocketChannel) _sk.channel();
 
         int r;
-        int cnt = 0;
         do {
+            _readBuf.clear();
             r = sc.read(_readBuf);
-            cnt += r;
-        } while (r > 0);
-
-        if (cnt < 1) {
-            return;
-        }
-
-        int remainBufAll = _cb.getBuffRemain() + cnt;
-        ByteBuffer bufferAll = calBuffer(_cb, _readBuf, cnt);
-
-        do {
-            r = readMsg(_sk, bufferAll, remainBufAll);
-            if (remainBufAll == r) {
-                break;
-            } else {
-                remainBufAll = r;
+            if (r > 0) {
+                _readBuf.flip();
+                readMessages(_sk, _cb, _readBuf);
             }
         } while (r > 0);
 
-        _cb.setBuffRemain(r);
-
-        if (r != 0) {
-            // there are no perfect cycling buffer in jdk
-            // yet.
-            // simply just buff move for now.
-            // @TODO: looking for more efficient way.
-
-            int currPos = bufferAll.position();
-            _cb.setRemainBuffer(new byte[r]);
-            bufferAll.position(currPos - r);
-            bufferAll.get(_cb.getRemainBuffer());
+        if (r < 0) {
+            // without closing the channel it would be reported as readable by every select
+            throw new P2pException("end-of-stream");
         }
-
-        _readBuf.rewind();
     }
 
-    private int readMsg(SelectionKey _sk, ByteBuffer _readBuf, int _cnt) throws IOException {
-        ChannelBuffer cb = (ChannelBuffer) _sk.attachment();
-        if (cb == null) {
-            throw new P2pException("attachment is null");
-        }
-
-        int readCnt;
-        if (cb.isHeaderNotCompleted()) {
-            readCnt = readHeader(cb, _readBuf, _cnt);
-        } else {
-            readCnt = _cnt;
-        }
-
-        if (cb.isBodyNotCompleted()) {
-            readCnt = readBody(cb, _readBuf, readCnt);
-        }
+    private void readMessages(SelectionKey _sk, ChannelBuffer _cb, ByteBuffer _readBuf) {
+        do {
+            if (_cb.isHeaderNotCompleted()) {
+                _cb.readHead(_readBuf);
+            }
 
-        if (cb.isBodyNotCompleted()) {
-            return readCnt;
-        }
+            if (_cb.isBodyNotCompleted()) {
+                _cb.readBody(_readBuf);
+            }
 
-        handleMsg(_sk, cb);
+            if (_cb.isBodyNotCompleted()) {
+                // waiting for more data
+                return;
+            }
 
-        return readCnt;
+            handleMsg(_sk, _cb);
+        } while (_readBuf.hasRemaining());
     }
 
     private void handleMsg(SelectionKey _sk, ChannelBuffer _cb) {
@@ -366,22 +349,6 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private ByteBuffer calBuffer(ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-        ByteBuffer r;
-        if (_cb.getBuffRemain() != 0) {
-            byte[] alreadyRead = new byte[_cnt];
-            _readBuf.position(0);
-            _readBuf.get(alreadyRead);
-            r = ByteBuffer.allocate(_cb.getBuffRemain() + _cnt);
-            r.put(_cb.getRemainBuffer());
-            r.put(alreadyRead);
-        } else {
-            r = _readBuf;
-        }
-
-        return r;
-    }
-
     /**
      * @param _sk SelectionKey
      * @param _act ACT
@@ -149,6 +149,62 @@ public class ChannelBufferTest {
         assertNull(cb.body);
     }
 
+    @Test
+    public void testReadSplitMessage() {
+        byte[] body = new byte[1000];
+        r.nextBytes(body);
+        Header expected = Header.decode(genHeader(body.length));
+        byte[] msg =
+                ByteBuffer.allocate(LEN + body.length).put(expected.encode()).put(body).array();
+
+        // deliver the message in small chunks that split both the header and the body
+        int chunk = 3;
+        for (int pos = 0; pos < msg.length; pos += chunk) {
+            assertTrue(cb.isBodyNotCompleted());
+            ByteBuffer bb = ByteBuffer.wrap(msg, pos, Math.min(chunk, msg.length - pos));
+            if (cb.isHeaderNotCompleted()) {
+                cb.readHead(bb);
+            }
+            if (cb.isBodyNotCompleted()) {
+                cb.readBody(bb);
+            }
+            assertFalse(bb.hasRemaining());
+        }
+
+        assertFalse(cb.isBodyNotCompleted());
+        assertArrayEquals(expected.encode(), cb.getHeader().encode());
+        assertArrayEquals(body, cb.body);
+    }
+
+    @Test
+    public void testReadLargeBodyInChunks() {
+        byte[] body = new byte[100_000];
+        r.nextBytes(body);
+        Header expected = Header.decode(genHeader(body.length));
+        cb.readHead(ByteBuffer.wrap(expected.encode()));
+
+        // the body arrives over several reads larger than the initial body buffer
+        int chunk = 7_000;
+        for (int pos = 0; pos < body.length; pos += chunk) {
+            assertTrue(cb.isBodyNotCompleted());
+            ByteBuffer bb = ByteBuffer.wrap(body, pos, Math.min(chunk, body.length - pos));
+            cb.readBody(bb);
+            assertFalse(bb.hasRemaining());
+        }
+
+        assertFalse(cb.isBodyNotCompleted());
+        assertArrayEquals(body, cb.body);
+    }
+
+    @Test
+    public void testReadEmptyBody() {
+        ByteBuffer bb = ByteBuffer.wrap(genHeader(0));
+        cb.readHead(bb);
+        cb.readBody(bb);
+        assertFalse(cb.isBodyNotCompleted());
+        assertEquals(0, cb.body.length);
+    }
+
     @Test
     public void testShouldRoute() throws InterruptedException {
         assertTrue(cb.shouldRoute(1, 1));
@@ -46,6 +46,8 @@ public class TaskConnectPeersTest {
 
     @Mock private INode node;
 
+    @Mock private TaskInbound inbound;
+
     private ServerSocketChannel ssc;
 
     private Thread listen;
@@ -145,7 +147,7 @@ public class TaskConnectPeersTest {
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, inbound, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         Thread t = new Thread(tcp);
@@ -162,7 +164,7 @@ public class TaskConnectPeersTest {
     public void testRun1() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, inbound, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(nodeMgr.activeNodesSize()).thenReturn(128);
@@ -202,7 +204,7 @@ public class TaskConnectPeersTest {
     public void testRunException() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, inbound, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(node.getIdHash()).thenReturn(1);
@@ -240,7 +242,7 @@ public class TaskConnectPeersTest {
     public void testRunException2() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pMgr, atb, nodeMgr, 128, inbound, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(node.getIdHash()).thenReturn(1);
@@ -1,15 +1,18 @@
 package org.aion.p2p.impl1.tasks;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
@@ -139,7 +142,7 @@ public class TaskInboundTest {
                 new TaskInbound(p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
         assertNotNull(ti);
 
-        when(selector.selectNow()).thenReturn(0);
+        when(selector.select(anyLong())).thenReturn(0);
 
         Thread t = new Thread(ti);
         t.start();
@@ -158,7 +161,7 @@ public class TaskInboundTest {
                 new TaskInbound(p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
         assertNotNull(ti);
 
-        doThrow(ClosedSelectorException.class).when(selector).selectNow();
+        doThrow(ClosedSelectorException.class).when(selector).select(anyLong());
 
         Thread t = new Thread(ti);
         t.start();
@@ -178,7 +181,7 @@ public class TaskInboundTest {
                 new TaskInbound(p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
         assertNotNull(ti);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
         when(selector.selectedKeys()).thenThrow(ClosedSelectorException.class);
 
         Thread t = new Thread(ti);
@@ -212,7 +215,7 @@ public class TaskInboundTest {
 
         when(sk3.attachment()).thenReturn(cb);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -248,7 +251,7 @@ public class TaskInboundTest {
         when(p2pMgr.isSyncSeedsOnly()).thenReturn(true);
         when(nodeMgr.isSeedIp(anyString())).thenReturn(true);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk2);
@@ -283,7 +286,7 @@ public class TaskInboundTest {
         when(nodeMgr.isSeedIp(anyString())).thenReturn(false);
         when(p2pMgr.getOutGoingIP()).thenReturn("0.0.0.0");
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk2);
@@ -323,7 +326,7 @@ public class TaskInboundTest {
 
         when(sc.register(any(), anyInt())).thenReturn(sk);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -354,7 +357,7 @@ public class TaskInboundTest {
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -382,14 +385,11 @@ public class TaskInboundTest {
         when(sk.channel()).thenReturn(sc);
         when(sc.read(any(ByteBuffer.class))).thenReturn(1).thenReturn(0);
 
-        // settings for calBuffer
-        // when(cb.buffRemain).thenReturn(1);
-
         // settings for run
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -417,13 +417,8 @@ public class TaskInboundTest {
         // settings for readBuffer
         when(sk.channel()).thenReturn(sc);
         int read = r.nextInt(10000);
-        int remain = r.nextInt(10000);
         when(sc.read(any(ByteBuffer.class))).thenReturn(read).thenReturn(0);
 
-        // settings for calBuffer
-        when(cb.getBuffRemain()).thenReturn(remain);
-        when(cb.getRemainBuffer()).thenReturn(new byte[remain]);
-
         // settings for readMsg
         when(cb.isHeaderNotCompleted()).thenReturn(true);
         when(cb.isBodyNotCompleted()).thenReturn(true);
@@ -436,7 +431,7 @@ public class TaskInboundTest {
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -453,4 +448,39 @@ public class TaskInboundTest {
             Thread.sleep(10);
         }
     }
+
+    @Test(timeout = 10_000)
+    public void testRegisterOutbound() throws InterruptedException, IOException {
+        Selector realSelector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SocketChannel channel = SocketChannel.open(server.getLocalAddress());
+        channel.configureBlocking(false);
+
+        AtomicBoolean atb = new AtomicBoolean(true);
+        TaskInbound ti =
+                new TaskInbound(
+                        p2pMgr, realSelector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+
+        // the inbound thread blocks in select while the channel is queued
+        Thread t = new Thread(ti);
+        t.start();
+        Thread.sleep(50);
+
+        ChannelBuffer buffer = new ChannelBuffer();
+        ti.registerOutbound(channel, buffer);
+
+        // registered by the inbound thread without waiting for the select timeout
+        while (channel.keyFor(realSelector) == null) {
+            Thread.sleep(1);
+        }
+        assertEquals(buffer, channel.keyFor(realSelector).attachment());
+        assertEquals(SelectionKey.OP_READ, channel.keyFor(realSelector).interestOps());
+
+        atb.set(false);
+        t.join();
+        channel.close();
+        server.close();
+        realSelector.close();
+    }
 }
@@ -0,0 +1,217 @@
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.util.bytes.ByteUtil;
+
+/**
+ * A read-only view of an RLP encoded element within a byte array.
+ *
+ * <p>Unlike {@link RLP#decode2(byte[])}, which copies every element of the encoding into a new
+ * {@link RLPList} tree, a view only records where its element is located. Item payloads are read
+ * in place by the primitive accessors and the elements of a list are located the first time the
+ * list is accessed, leaving any nested lists untouched until they are accessed in turn.
+ *
+ * <p>Views share the array they were created from, which must not be modified while in use.
+ * Views are not thread safe.
+ */
+public final class RLPView {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] data;
+    // position of the first byte of the encoding, i.e. the prefix
+    private final int offset;
+    private final int payloadOffset;
+    private final int payloadLength;
+    private final boolean list;
+
+    // the elements of a list, located on first access
+    private RLPView[] elements = null;
+
+    private RLPView(byte[] data, int offset, int limit) {
+        if (offset >= limit) {
+            throw new IllegalArgumentException("RLP wrong encoding: no element at " + offset);
+        }
+
+        int type = data[offset] & 0xFF;
+        if (type < OFFSET_SHORT_ITEM) {
+            // single byte item
+            payloadOffset = offset;
+            payloadLength = 1;
+            list = false;
+        } else if (type <= OFFSET_LONG_ITEM) {
+            payloadOffset = offset + 1;
+            payloadLength = type - OFFSET_SHORT_ITEM;
+            list = false;
+        } else if (type < OFFSET_SHORT_LIST) {
+            int lengthOfLength = type - OFFSET_LONG_ITEM;
+            payloadOffset = offset + 1 + lengthOfLength;
+            payloadLength = readLength(data, offset + 1, lengthOfLength, limit);
+            list = false;
+        } else if (type <= OFFSET_LONG_LIST) {
+            payloadOffset = offset + 1;
+            payloadLength = type - OFFSET_SHORT_LIST;
+            list = true;
+        } else {
+            int lengthOfLength = type - OFFSET_LONG_LIST;
+            payloadOffset = offset + 1 + lengthOfLength;
+            payloadLength = readLength(data, offset + 1, lengthOfLength, limit);
+            list = true;
+        }
+
+        if ((long) payloadOffset + payloadLength > limit) {
+            throw new IllegalArgumentException(
+                    "RLP wrong encoding: element at "
+                            + offset
+                            + " exceeds the available "
+                            + (limit - offset)
+                            + " bytes");
+        }
+
+        this.data = data;
+        this.offset = offset;
+    }
+
+    private static int readLength(byte[] data, int position, int lengthOfLength, int limit) {
+        if (lengthOfLength > Integer.BYTES || position + lengthOfLength > limit) {
+            throw new IllegalArgumentException("RLP wrong encoding: invalid length at " + position);
+        }
+
+        long length = 0;
+        for (int i = 0; i < lengthOfLength; i++) {
+            length = (length << 8) | (data[position + i] & 0xFF);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("RLP wrong encoding: invalid length at " + position);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Creates a view of the element at the start of the given encoding. Any data following the
+     * element is ignored.
+     *
+     * @param encoding RLP encoded data
+     * @return a view of the first element of the encoding
+     * @throws IllegalArgumentException when the encoding is empty or malformed
+     */
+    public static RLPView wrap(byte[] encoding) {
+        if (encoding == null) {
+            throw new IllegalArgumentException("RLP wrong encoding: null data");
+        }
+        return new RLPView(encoding, 0, encoding.length);
+    }
+
+    /** Returns {@code true} if the element is a list, {@code false} if it is an item. */
+    public boolean isList() {
+        return list;
+    }
+
+    /**
+     * Returns the number of elements of the list.
+     *
+     * @throws IllegalStateException when the element is not a list
+     */
+    public int size() {
+        return getElements().length;
+    }
+
+    /**
+     * Returns a view of the element of the list at the given position.
+     *
+     * @throws IllegalStateException when the element is not a list
+     * @throws IndexOutOfBoundsException when the list has no element at the given position
+     */
+    public RLPView get(int index) {
+        RLPView[] all = getElements();
+        if (index < 0 || index >= all.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + all.length);
+        }
+        return all[index];
+    }
+
+    /**
+     * Returns views of all the elements of the list.
+     *
+     * @throws IllegalStateException when the element is not a list
+     */
+    public List<RLPView> getElementList() {
+        return Arrays.asList(getElements());
+    }
+
+    private RLPView[] getElements() {
+        if (!list) {
+            throw new IllegalStateException("The RLP element is not a list.");
+        }
+        if (elements == null) {
+            List<RLPView> found = new ArrayList<>();
+            int end = payloadOffset + payloadLength;
+            int position = payloadOffset;
+            while (position < end) {
+                RLPView element = new RLPView(data, position, end);
+                found.add(element);
+                position = element.getEnd();
+            }
+            elements = found.toArray(new RLPView[0]);
+        }
+        return elements;
+    }
+
+    private int getEnd() {
+        return payloadOffset + payloadLength;
+    }
+
+    /** Returns the number of bytes of the payload, excluding the prefix. */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Returns a copy of the payload. For items this is the same data as returned by {@link
+     * RLPItem#getRLPData()} for the corresponding item decoded with {@link RLP#decode2(byte[])}.
+     */
+    public byte[] getBytes() {
+        return payloadLength == 0
+                ? ByteUtil.EMPTY_BYTE_ARRAY
+                : Arrays.copyOfRange(data, payloadOffset, payloadOffset + payloadLength);
+    }
+
+    /** Returns a read-only buffer over the payload which does not copy the data. */
+    public ByteBuffer getBytesView() {
+        return ByteBuffer.wrap(data, payloadOffset, payloadLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a copy of the complete encoding of the element, including its prefix. For lists this
+     * is the same data as returned by {@link RLPList#getRLPData()}.
+     */
+    public byte[] getEncoded() {
+        return Arrays.copyOfRange(data, offset, getEnd());
+    }
+
+    /**
+     * Interprets the payload as an unsigned big-endian number and returns its low-order 64 bits,
+     * which matches {@code new BigInteger(1, getBytes()).longValue()}. An empty payload is zero.
+     */
+    public long getLong() {
+        long value = 0;
+        for (int i = payloadOffset, end = getEnd(); i < end; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /** Interprets the payload as an unsigned big-endian number. An empty payload is zero. */
+    public BigInteger getBigInteger() {
+        return payloadLength == 0
+                ? BigInteger.ZERO
+                : new BigInteger(1, data, payloadOffset, payloadLength);
+    }
+}
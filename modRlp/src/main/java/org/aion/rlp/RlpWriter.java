@@ -0,0 +1,282 @@
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes RLP encoded data into a single buffer.
+ *
+ * <p>The static {@code sizeOf*} methods compute the number of bytes an element occupies once
+ * encoded, which allows callers to compute the payload length of a list before writing its
+ * header followed by its elements. Encoding a whole object graph this way does not create the
+ * intermediate arrays built by {@link RLP#encodeList(byte[]...)} for every level of nesting. When
+ * the writer is created with the exact size of the encoding, {@link #toByteArray()} returns the
+ * buffer itself, making the encoding the only allocation.
+ *
+ * <p>The produced encodings are identical to the ones of the corresponding {@link RLP} methods.
+ *
+ * <p>A writer either owns a heap buffer, which grows as needed, or writes into a buffer supplied
+ * by the caller, in which case a {@link BufferOverflowException} is thrown when the buffer is
+ * full. Writers can be reused after calling {@link #reset()} and are not thread safe.
+ */
+public final class RlpWriter {
+
+    private static final int SIZE_THRESHOLD = 56;
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private ByteBuffer buffer;
+    private final boolean growable;
+    // position of the buffer at which the writer started
+    private final int start;
+
+    /** Creates a writer with a heap buffer of the given initial capacity which grows as needed. */
+    public RlpWriter(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+        this.growable = true;
+        this.start = 0;
+    }
+
+    /**
+     * Creates a writer which appends to the given buffer starting at its current position. The
+     * buffer is not resized when full.
+     */
+    public RlpWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.growable = false;
+        this.start = buffer.position();
+    }
+
+    // sizes of encoded elements
+
+    /** Returns the size of the encoding produced by {@link RLP#encodeElement(byte[])}. */
+    public static int sizeOfElement(byte[] data) {
+        if (data == null || data.length == 0) {
+            return 1;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return sizeOfPrefix(data.length) + data.length;
+        }
+    }
+
+    /** Returns the size of the encoding produced by {@link RLP#encodeByte(byte)}. */
+    public static int sizeOfByte(byte value) {
+        return (value & 0xFF) < OFFSET_SHORT_ITEM ? 1 : 2;
+    }
+
+    /** Returns the size of the encoding produced by {@link RLP#encodeLong(long)}. */
+    public static int sizeOfLong(long value) {
+        if ((value & 0xFFFFFFFFL) != value) {
+            return 9;
+        }
+        int v = (int) value;
+        if ((v & 0xFFFF) != v) {
+            return (v & 0xFFFFFF) == v ? 4 : 5;
+        } else if ((v & 0xFF) != v) {
+            return 3;
+        } else {
+            return sizeOfByte((byte) v);
+        }
+    }
+
+    /** Returns the size of the encoding produced by {@link RLP#encodeBigInteger(BigInteger)}. */
+    public static int sizeOfBigInteger(BigInteger value) {
+        if (value.signum() >= 0 && value.bitLength() < Long.SIZE) {
+            return sizeOfUnsigned(value.longValue());
+        } else {
+            return RLP.encodeBigInteger(value).length;
+        }
+    }
+
+    /**
+     * Returns the size of the encoding produced by {@code
+     * RLP.encodeBigInteger(BigInteger.valueOf(value))}.
+     */
+    public static int sizeOfBigInteger(long value) {
+        return value < 0 ? sizeOfBigInteger(BigInteger.valueOf(value)) : sizeOfUnsigned(value);
+    }
+
+    /**
+     * Returns the size of a list with a payload of the given length, i.e. the size of the list
+     * header produced by {@link RLP#encodeListHeader(int)} plus the payload length.
+     */
+    public static int sizeOfList(int payloadLength) {
+        return sizeOfPrefix(payloadLength) + payloadLength;
+    }
+
+    private static int sizeOfPrefix(int length) {
+        return length < SIZE_THRESHOLD ? 1 : 1 + bytesOf(length);
+    }
+
+    private static int sizeOfUnsigned(long value) {
+        return value < OFFSET_SHORT_ITEM ? 1 : 1 + bytesOf(value);
+    }
+
+    /** Returns the number of bytes needed to represent the value without leading zeroes. */
+    private static int bytesOf(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    // writing
+
+    /** Writes the same encoding as {@link RLP#encodeElement(byte[])}. */
+    public RlpWriter writeElement(byte[] data) {
+        if (data == null || data.length == 0) {
+            ensureCapacity(1);
+            buffer.put((byte) OFFSET_SHORT_ITEM);
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            ensureCapacity(1);
+            buffer.put(data[0]);
+        } else {
+            ensureCapacity(sizeOfPrefix(data.length) + data.length);
+            putPrefix(data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+            buffer.put(data);
+        }
+        return this;
+    }
+
+    /** Writes the same encoding as {@link RLP#encodeByte(byte)}. */
+    public RlpWriter writeByte(byte value) {
+        ensureCapacity(2);
+        if (value == 0) {
+            buffer.put((byte) OFFSET_SHORT_ITEM);
+        } else if ((value & 0xFF) < OFFSET_SHORT_ITEM) {
+            buffer.put(value);
+        } else {
+            buffer.put((byte) (OFFSET_SHORT_ITEM + 1));
+            buffer.put(value);
+        }
+        return this;
+    }
+
+    /** Writes the same encoding as {@link RLP#encodeLong(long)}. */
+    public RlpWriter writeLong(long value) {
+        int size = sizeOfLong(value);
+        if (size <= 2) {
+            return writeByte((byte) value);
+        }
+        // the payload of the encoding is the low order bytes of the value
+        ensureCapacity(size);
+        buffer.put((byte) (OFFSET_SHORT_ITEM + size - 1));
+        putBigEndian(value, size - 1);
+        return this;
+    }
+
+    /** Writes the same encoding as {@link RLP#encodeBigInteger(BigInteger)}. */
+    public RlpWriter writeBigInteger(BigInteger value) {
+        if (value.signum() >= 0 && value.bitLength() < Long.SIZE) {
+            return writeBigInteger(value.longValue());
+        } else {
+            return writeEncoded(RLP.encodeBigInteger(value));
+        }
+    }
+
+    /**
+     * Writes the same encoding as {@code RLP.encodeBigInteger(BigInteger.valueOf(value))} without
+     * creating the intermediate objects for non-negative values.
+     */
+    public RlpWriter writeBigInteger(long value) {
+        if (value < 0) {
+            return writeEncoded(RLP.encodeBigInteger(BigInteger.valueOf(value)));
+        } else if (value == 0) {
+            ensureCapacity(1);
+            buffer.put((byte) OFFSET_SHORT_ITEM);
+        } else if (value < OFFSET_SHORT_ITEM) {
+            ensureCapacity(1);
+            buffer.put((byte) value);
+        } else {
+            int length = bytesOf(value);
+            ensureCapacity(1 + length);
+            buffer.put((byte) (OFFSET_SHORT_ITEM + length));
+            putBigEndian(value, length);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the header of a list with a payload of the given length. The elements of the list
+     * must be written next and their encodings must add up to exactly the given length.
+     */
+    public RlpWriter writeListHeader(int payloadLength) {
+        ensureCapacity(sizeOfPrefix(payloadLength));
+        putPrefix(payloadLength, OFFSET_SHORT_LIST, OFFSET_LONG_LIST);
+        return this;
+    }
+
+    /** Writes data which is already RLP encoded, such as a cached encoding of a nested element. */
+    public RlpWriter writeEncoded(byte[] encoded) {
+        ensureCapacity(encoded.length);
+        buffer.put(encoded);
+        return this;
+    }
+
+    private void putPrefix(int length, int shortOffset, int longOffset) {
+        if (length < SIZE_THRESHOLD) {
+            buffer.put((byte) (shortOffset + length));
+        } else {
+            int lengthOfLength = bytesOf(length);
+            buffer.put((byte) (longOffset + lengthOfLength));
+            putBigEndian(length, lengthOfLength);
+        }
+    }
+
+    private void putBigEndian(long value, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            buffer.put((byte) (value >>> (8 * i)));
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (growable && buffer.remaining() < required) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    // output
+
+    /** Returns the number of bytes written since the writer was created or last reset. */
+    public int size() {
+        return buffer.position() - start;
+    }
+
+    /**
+     * Returns the bytes written since the writer was created or last reset. When the writer owns a
+     * buffer that is exactly full, the buffer is handed over without a copy and the writer
+     * continues with a new buffer.
+     */
+    public byte[] toByteArray() {
+        if (growable) {
+            byte[] array = buffer.array();
+            if (buffer.position() == array.length) {
+                buffer = ByteBuffer.allocate(0);
+                return array;
+            }
+            return Arrays.copyOf(array, buffer.position());
+        } else {
+            byte[] out = new byte[size()];
+            ByteBuffer written = buffer.duplicate();
+            written.flip();
+            written.position(start);
+            written.get(out);
+            return out;
+        }
+    }
+
+    /** Discards everything written so far, keeping the current buffer for reuse. */
+    public void reset() {
+        if (growable) {
+            buffer.clear();
+        } else {
+            buffer.position(start);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.aion.util.bytes.ByteUtil;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    @Test
+    public void testWrap_item() {
+        byte[] value = "a string longer than fifty five bytes to use a long item prefix".getBytes();
+        byte[] encoding = RLP.encodeElement(value);
+
+        RLPView view = RLPView.wrap(encoding);
+        assertThat(view.isList()).isFalse();
+        assertThat(view.getPayloadLength()).isEqualTo(value.length);
+        assertThat(view.getBytes()).isEqualTo(value);
+        assertThat(view.getEncoded()).isEqualTo(encoding);
+    }
+
+    @Test
+    public void testWrap_singleByteItem() {
+        RLPView view = RLPView.wrap(new byte[] {0x7f});
+        assertThat(view.isList()).isFalse();
+        assertThat(view.getBytes()).isEqualTo(new byte[] {0x7f});
+        assertThat(view.getLong()).isEqualTo(0x7fL);
+    }
+
+    @Test
+    public void testWrap_emptyItem() {
+        RLPView view = RLPView.wrap(RLP.encodeElement(ByteUtil.EMPTY_BYTE_ARRAY));
+        assertThat(view.getBytes()).isEqualTo(ByteUtil.EMPTY_BYTE_ARRAY);
+        assertThat(view.getLong()).isEqualTo(0L);
+        assertThat(view.getBigInteger()).isEqualTo(BigInteger.ZERO);
+    }
+
+    @Test
+    public void testWrap_matchesDecode2() {
+        byte[] encoding =
+                RLP.encodeList(
+                        RLP.encodeLong(123_456_789L),
+                        RLP.encodeElement(new byte[32]),
+                        RLP.encodeList(
+                                RLP.encodeString("nested"),
+                                RLP.encodeList(RLP.encodeByte((byte) 1))),
+                        RLP.encodeElement(ByteUtil.EMPTY_BYTE_ARRAY));
+
+        RLPList expected = (RLPList) RLP.decode2(encoding).get(0);
+        RLPView view = RLPView.wrap(encoding);
+
+        assertThat(view.isList()).isTrue();
+        assertThat(view.getEncoded()).isEqualTo(expected.getRLPData());
+        assertSameElements(view, expected);
+    }
+
+    private static void assertSameElements(RLPView view, RLPList expected) {
+        assertThat(view.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RLPElement element = expected.get(i);
+            if (element instanceof RLPList) {
+                assertThat(view.get(i).isList()).isTrue();
+                assertThat(view.get(i).getEncoded()).isEqualTo(element.getRLPData());
+                assertSameElements(view.get(i), (RLPList) element);
+            } else {
+                assertThat(view.get(i).isList()).isFalse();
+                assertThat(view.get(i).getBytes()).isEqualTo(element.getRLPData());
+            }
+        }
+    }
+
+    @Test
+    public void testGetLong_matchesBigInteger() {
+        byte[] value = ByteUtil.hexStringToBytes("0102030405060708090a");
+        RLPView view = RLPView.wrap(RLP.encodeElement(value));
+
+        assertThat(view.getLong()).isEqualTo(new BigInteger(1, value).longValue());
+        assertThat(view.getBigInteger()).isEqualTo(new BigInteger(1, value));
+    }
+
+    @Test
+    public void testGetBytesView() {
+        byte[] value = {1, 2, 3, 4};
+        byte[] encoding = RLP.encodeList(RLP.encodeElement(value));
+
+        ByteBuffer buffer = RLPView.wrap(encoding).get(0).getBytesView();
+        assertThat(buffer.isReadOnly()).isTrue();
+        assertThat(buffer.remaining()).isEqualTo(value.length);
+
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        assertThat(read).isEqualTo(value);
+    }
+
+    @Test
+    public void testWrap_ignoresTrailingData() {
+        byte[] encoding = ByteUtil.merge(RLP.encodeString("first"), RLP.encodeString("second"));
+        assertThat(RLPView.wrap(encoding).getBytes()).isEqualTo("first".getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrap_empty() {
+        RLPView.wrap(ByteUtil.EMPTY_BYTE_ARRAY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrap_truncatedItem() {
+        byte[] encoding = RLP.encodeString("truncated");
+        RLPView.wrap(Arrays.copyOf(encoding, encoding.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGet_truncatedElement() {
+        // list header claims two bytes containing an item header that claims five bytes
+        RLPView view = RLPView.wrap(new byte[] {(byte) 0xc2, (byte) 0x85, 0x01});
+        view.get(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGet_notList() {
+        RLPView.wrap(RLP.encodeString("item")).get(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGet_outOfBounds() {
+        RLPView.wrap(RLP.encodeList(RLP.encodeString("item"))).get(1);
+    }
+}
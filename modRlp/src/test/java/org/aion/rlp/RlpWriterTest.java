@@ -0,0 +1,163 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.aion.util.bytes.ByteUtil;
+import org.junit.Test;
+
+public class RlpWriterTest {
+
+    private static final long[] LONGS = {
+        0L,
+        1L,
+        0x7fL,
+        0x80L,
+        0xffL,
+        0x100L,
+        0x7fffL,
+        0x8000L,
+        0xffffL,
+        0x10000L,
+        0xffffffL,
+        0x1000000L,
+        0x7fffffffL,
+        0x80000000L,
+        0xffffffffL,
+        0x100000000L,
+        Long.MAX_VALUE,
+        -1L,
+        -128L,
+        Long.MIN_VALUE
+    };
+
+    @Test
+    public void testWriteLong() {
+        for (long value : LONGS) {
+            byte[] expected = RLP.encodeLong(value);
+            assertThat(new RlpWriter(0).writeLong(value).toByteArray()).isEqualTo(expected);
+            assertThat(RlpWriter.sizeOfLong(value)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    public void testWriteBigInteger() {
+        for (long value : LONGS) {
+            byte[] expected = RLP.encodeBigInteger(BigInteger.valueOf(value));
+            assertThat(new RlpWriter(0).writeBigInteger(value).toByteArray()).isEqualTo(expected);
+            assertThat(new RlpWriter(0).writeBigInteger(BigInteger.valueOf(value)).toByteArray())
+                    .isEqualTo(expected);
+            assertThat(RlpWriter.sizeOfBigInteger(value)).isEqualTo(expected.length);
+        }
+
+        BigInteger large = BigInteger.ONE.shiftLeft(200).add(BigInteger.TEN);
+        assertThat(new RlpWriter(0).writeBigInteger(large).toByteArray())
+                .isEqualTo(RLP.encodeBigInteger(large));
+        assertThat(RlpWriter.sizeOfBigInteger(large))
+                .isEqualTo(RLP.encodeBigInteger(large).length);
+    }
+
+    @Test
+    public void testWriteByte() {
+        for (int value = Byte.MIN_VALUE; value <= Byte.MAX_VALUE; value++) {
+            byte[] expected = RLP.encodeByte((byte) value);
+            assertThat(new RlpWriter(0).writeByte((byte) value).toByteArray()).isEqualTo(expected);
+            assertThat(RlpWriter.sizeOfByte((byte) value)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    public void testWriteElement() {
+        byte[][] elements = {
+            null,
+            ByteUtil.EMPTY_BYTE_ARRAY,
+            new byte[] {0},
+            new byte[] {0x7f},
+            new byte[] {(byte) 0x80},
+            new byte[55],
+            new byte[56],
+            new byte[256],
+            new byte[70_000]
+        };
+
+        for (byte[] element : elements) {
+            byte[] expected = RLP.encodeElement(element);
+            assertThat(new RlpWriter(0).writeElement(element).toByteArray()).isEqualTo(expected);
+            assertThat(RlpWriter.sizeOfElement(element)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    public void testWriteList() {
+        Random random = new Random(42);
+
+        for (int payloadSize : new int[] {0, 10, 55, 56, 1000, 70_000}) {
+            byte[] item = new byte[payloadSize];
+            random.nextBytes(item);
+            byte[] nested = RLP.encodeList(RLP.encodeElement(item), RLP.encodeLong(payloadSize));
+            byte[] expected = RLP.encodeList(nested, RLP.encodeString("last"));
+
+            int nestedLength = RlpWriter.sizeOfElement(item) + RlpWriter.sizeOfLong(payloadSize);
+            int length =
+                    RlpWriter.sizeOfList(nestedLength)
+                            + RlpWriter.sizeOfElement("last".getBytes());
+            assertThat(RlpWriter.sizeOfList(length)).isEqualTo(expected.length);
+
+            byte[] encoded =
+                    new RlpWriter(RlpWriter.sizeOfList(length))
+                            .writeListHeader(length)
+                            .writeListHeader(nestedLength)
+                            .writeElement(item)
+                            .writeLong(payloadSize)
+                            .writeElement("last".getBytes())
+                            .toByteArray();
+            assertThat(encoded).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testGrowableWriter_reset() {
+        RlpWriter writer = new RlpWriter(1);
+        writer.writeElement(new byte[100]);
+        assertThat(writer.size()).isEqualTo(RlpWriter.sizeOfElement(new byte[100]));
+
+        writer.reset();
+        assertThat(writer.size()).isEqualTo(0);
+        assertThat(writer.writeLong(1L).toByteArray()).isEqualTo(RLP.encodeLong(1L));
+    }
+
+    @Test
+    public void testExactWriter_returnsBuffer() {
+        RlpWriter writer = new RlpWriter(RlpWriter.sizeOfElement(new byte[10]));
+        byte[] first = writer.writeElement(new byte[10]).toByteArray();
+
+        // the buffer was handed over, so later writes must not modify it
+        writer.reset();
+        writer.writeElement(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertThat(first).isEqualTo(RLP.encodeElement(new byte[10]));
+    }
+
+    @Test
+    public void testCallerBuffer() {
+        byte[] expected = RLP.encodeString("payload");
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 4);
+        buffer.putShort((short) 1);
+
+        RlpWriter writer = new RlpWriter(buffer);
+        writer.writeElement("payload".getBytes());
+        assertThat(writer.size()).isEqualTo(expected.length);
+        assertThat(writer.toByteArray()).isEqualTo(expected);
+        assertThat(buffer.position()).isEqualTo(expected.length + 2);
+
+        writer.reset();
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testCallerBuffer_overflow() {
+        new RlpWriter(ByteBuffer.allocate(4)).writeElement(new byte[10]);
+    }
+}
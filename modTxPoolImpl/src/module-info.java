@@ -6,7 +6,8 @@ module aion.txpool.impl {
     requires aion.vm.api;
 
     provides org.aion.txpool.ITxPool with
-            org.aion.txpool.zero.TxPoolA0;
+            org.aion.txpool.zero.TxPoolA0,
+            org.aion.txpool.zero.TxPoolA1;
 
     exports org.aion.txpool.zero;
 }
@@ -0,0 +1,475 @@
+package org.aion.txpool.zero;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.interfaces.block.Constant;
+import org.aion.interfaces.tx.Transaction;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.txpool.ITxPool;
+import org.aion.types.Address;
+import org.aion.types.ByteArrayWrapper;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.time.TimeInstant;
+import org.slf4j.Logger;
+
+/**
+ * Transaction pool keeping the transactions of every sender in a queue ordered by nonce.
+ *
+ * <p>The first transaction of every sender, its head, is kept in an index ordered by energy price,
+ * then by arrival. The index and the queues are updated when transactions are added or removed,
+ * so that {@link #snapshot()} only has to merge the heads with the successors of the transactions
+ * it picks. Taking {@code k} transactions out of a pool of {@code n} costs {@code O(k log n)}.
+ *
+ * <p>Only the transactions with contiguous nonces starting at the head of their sender are
+ * included in a snapshot, at most {@link #PROP_TX_SEQ_MAX} of them per sender. The ones after a
+ * nonce gap stay in the pool until the gap is filled.
+ *
+ * <p>The returned transactions are the instances held by the pool and must not be modified.
+ */
+public class TxPoolA1<TX extends Transaction> implements ITxPool<TX> {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TXPOOL.toString());
+
+    private static final int TXN_TIMEOUT_MIN = 10; // 10s
+    private static final int TXN_TIMEOUT_MAX = 86_400; // 1 day
+    private static final int BLK_SIZE_MAX = 16 * 1024 * 1024; // 16MB
+    private static final int BLK_SIZE_MIN = 1024 * 1024; // 1MB
+    private static final int BLK_NRG_MAX = 100_000_000;
+    private static final int BLK_NRG_MIN = 1_000_000;
+    private static final int MULTIPLY_M = 1_000_000;
+    private static final int SEQ_TX_MAX = 25;
+    private static final int SEQ_TX_MIN = 5;
+
+    /** Higher energy price first, then the transaction that arrived first. */
+    private static final Comparator<PoolTx<?>> PRICE_ORDER =
+            (a, b) -> {
+                if (a.price != b.price) {
+                    return a.price > b.price ? -1 : 1;
+                }
+                return Long.compare(a.seq, b.seq);
+            };
+
+    /** Older timestamp first, then the transaction that arrived first. */
+    private static final Comparator<PoolTx<?>> TIME_ORDER =
+            (a, b) -> {
+                if (a.timestamp != b.timestamp) {
+                    return a.timestamp < b.timestamp ? -1 : 1;
+                }
+                return Long.compare(a.seq, b.seq);
+            };
+
+    /** A transaction in the pool with the keys it is indexed by. */
+    private static final class PoolTx<TX> {
+        private final TX tx;
+        private final TreeMap<Long, PoolTx<TX>> queue;
+        private final ByteArrayWrapper hash;
+        private final long nonce;
+        private final long price;
+        private final long timestamp;
+        private final long seq;
+
+        private PoolTx(
+                TX tx,
+                TreeMap<Long, PoolTx<TX>> queue,
+                ByteArrayWrapper hash,
+                long nonce,
+                long price,
+                long timestamp,
+                long seq) {
+            this.tx = tx;
+            this.queue = queue;
+            this.hash = hash;
+            this.nonce = nonce;
+            this.price = price;
+            this.timestamp = timestamp;
+            this.seq = seq;
+        }
+    }
+
+    private int txn_timeout = TXN_TIMEOUT_MAX;
+    private int blkSizeLimit = Constant.MAX_BLK_SIZE;
+    private final AtomicLong blkNrgLimit = new AtomicLong(10_000_000L);
+    private int seqTxCountMax = 16;
+
+    private final Map<ByteArrayWrapper, PoolTx<TX>> txByHash = new HashMap<>();
+    // the transactions of every sender by nonce
+    private final Map<Address, TreeMap<Long, PoolTx<TX>>> senders = new HashMap<>();
+    // the transaction with the lowest nonce of every sender
+    private final TreeSet<PoolTx<TX>> heads = new TreeSet<>(PRICE_ORDER);
+    private final TreeSet<PoolTx<TX>> byTime = new TreeSet<>(TIME_ORDER);
+
+    private final List<TX> outDated = new ArrayList<>();
+
+    private long nextSeq = 0;
+
+    public TxPoolA1() {}
+
+    public TxPoolA1(Properties config) {
+        setPoolArgs(config);
+    }
+
+    private void setPoolArgs(Properties config) {
+        if (Optional.ofNullable(config.get(PROP_TX_TIMEOUT)).isPresent()) {
+            txn_timeout = Integer.valueOf(config.get(PROP_TX_TIMEOUT).toString());
+            if (txn_timeout < TXN_TIMEOUT_MIN) {
+                txn_timeout = TXN_TIMEOUT_MIN;
+            } else if (txn_timeout > TXN_TIMEOUT_MAX) {
+                txn_timeout = TXN_TIMEOUT_MAX;
+            }
+        }
+
+        txn_timeout--; // final timeout value sub -1 sec
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_SIZE_LIMIT)).isPresent()) {
+            blkSizeLimit = Integer.valueOf(config.get(PROP_BLOCK_SIZE_LIMIT).toString());
+            if (blkSizeLimit < BLK_SIZE_MIN) {
+                blkSizeLimit = BLK_SIZE_MIN;
+            } else if (blkSizeLimit > BLK_SIZE_MAX) {
+                blkSizeLimit = BLK_SIZE_MAX;
+            }
+        }
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_NRG_LIMIT)).isPresent()) {
+            updateBlkNrgLimit(Long.valueOf((String) config.get(PROP_BLOCK_NRG_LIMIT)));
+        }
+
+        if (Optional.ofNullable(config.get(PROP_TX_SEQ_MAX)).isPresent()) {
+            seqTxCountMax = Integer.valueOf(config.get(PROP_TX_SEQ_MAX).toString());
+            if (seqTxCountMax < SEQ_TX_MIN) {
+                seqTxCountMax = SEQ_TX_MIN;
+            } else if (seqTxCountMax > SEQ_TX_MAX) {
+                seqTxCountMax = SEQ_TX_MAX;
+            }
+        }
+    }
+
+    @Override
+    public synchronized TX add(TX tx) {
+        List<TX> rtn = this.add(Collections.singletonList(tx));
+        return rtn.isEmpty() ? null : rtn.get(0);
+    }
+
+    /**
+     * Adds the given transactions to the pool. A transaction with the same sender and nonce as a
+     * transaction in the pool replaces it.
+     *
+     * @return for every added transaction, the transaction it replaced or else itself
+     */
+    @Override
+    public synchronized List<TX> add(List<TX> txl) {
+        List<TX> newPendingTx = new ArrayList<>();
+
+        for (TX tx : txl) {
+            ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getTransactionHash());
+            if (txByHash.containsKey(bw)) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(
+                            "The tx hash existed in the pool! [{}]",
+                            ByteUtil.toHexString(bw.getData()));
+                }
+                continue;
+            }
+
+            BigInteger txNonce = tx.getNonceBI();
+            if (txNonce.bitLength() >= Long.SIZE) {
+                LOG.warn("The tx nonce is out of range! [{}]", tx.toString());
+                continue;
+            }
+
+            Address sender = tx.getSenderAddress();
+            TreeMap<Long, PoolTx<TX>> queue = senders.computeIfAbsent(sender, k -> new TreeMap<>());
+            PoolTx<TX> entry =
+                    new PoolTx<>(
+                            tx,
+                            queue,
+                            bw,
+                            txNonce.longValue(),
+                            tx.getEnergyPrice(),
+                            tx.getTimeStampBI().longValue() / MULTIPLY_M,
+                            nextSeq++);
+
+            unlinkHead(queue);
+            PoolTx<TX> replaced = queue.put(entry.nonce, entry);
+            if (replaced != null) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("repay tx, remove previous tx!");
+                }
+                txByHash.remove(replaced.hash);
+                byTime.remove(replaced);
+                newPendingTx.add(replaced.tx);
+            } else {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("new tx! n[{}]", txNonce.toString());
+                }
+                newPendingTx.add(tx);
+            }
+            txByHash.put(bw, entry);
+            byTime.add(entry);
+            linkHead(queue);
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("new add tx! np[{}] tx[{}]", newPendingTx.size(), txl.size());
+        }
+
+        return newPendingTx;
+    }
+
+    @Override
+    public synchronized List<TX> remove(List<TX> txs) {
+        List<TX> removedTxl = new ArrayList<>();
+        for (TX tx : txs) {
+            PoolTx<TX> entry = txByHash.get(ByteArrayWrapper.wrap(tx.getTransactionHash()));
+            if (entry != null) {
+                removeEntry(entry);
+                removedTxl.add(entry.tx);
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.remove TX remove [{}] removed [{}]", txs.size(), removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    /** Removes the transactions of the given senders with a nonce lower than the given one. */
+    @Override
+    public synchronized List<TX> remove(Map<Address, BigInteger> accNonce) {
+        List<TX> removedTxl = new ArrayList<>();
+        for (Map.Entry<Address, BigInteger> en : accNonce.entrySet()) {
+            TreeMap<Long, PoolTx<TX>> queue = senders.get(en.getKey());
+            if (queue == null) {
+                continue;
+            }
+
+            BigInteger nonce = en.getValue();
+            List<PoolTx<TX>> lower =
+                    nonce.bitLength() >= Long.SIZE
+                            ? new ArrayList<>(queue.values())
+                            : new ArrayList<>(queue.headMap(nonce.longValue()).values());
+            for (PoolTx<TX> entry : lower) {
+                removeEntry(entry);
+                removedTxl.add(entry.tx);
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.remove {} TX", removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    @Override
+    public synchronized int size() {
+        return txByHash.size();
+    }
+
+    /**
+     * Returns the transactions for a new block, picking the transaction with the highest energy
+     * price among the next transactions of every sender until the block size or energy limit is
+     * reached. At most {@link #PROP_TX_SEQ_MAX} transactions are picked from each sender.
+     */
+    @Override
+    public synchronized List<TX> snapshot() {
+        removeTimeoutTxn();
+
+        int cnt_txSz = 0;
+        long cnt_nrg = 0;
+        List<TX> rtn = new ArrayList<>();
+
+        // the next transactions of the senders already picked from, merged with the heads
+        PriorityQueue<PoolTx<TX>> successors = new PriorityQueue<>(PRICE_ORDER);
+        Iterator<PoolTx<TX>> headIterator = heads.iterator();
+        PoolTx<TX> head = headIterator.hasNext() ? headIterator.next() : null;
+
+        while (head != null || !successors.isEmpty()) {
+            PoolTx<TX> picked;
+            if (head != null
+                    && (successors.isEmpty() || PRICE_ORDER.compare(head, successors.peek()) < 0)) {
+                picked = head;
+                head = headIterator.hasNext() ? headIterator.next() : null;
+            } else {
+                picked = successors.poll();
+            }
+
+            Transaction itx = picked.tx;
+            cnt_txSz += itx.getEncoded().length;
+            cnt_nrg += itx.getNrgConsume();
+            if (LOG.isTraceEnabled()) {
+                LOG.trace(
+                        "from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
+                        itx.getSenderAddress().toString(),
+                        picked.nonce,
+                        itx.getEncoded().length,
+                        itx.getNrgConsume());
+            }
+
+            if (cnt_txSz >= blkSizeLimit || cnt_nrg >= blkNrgLimit.get()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                            "Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]",
+                            cnt_txSz,
+                            cnt_nrg,
+                            rtn.size());
+                }
+                break;
+            }
+
+            rtn.add(picked.tx);
+
+            // the picked transactions of a sender are contiguous from its head
+            if (picked.nonce < Long.MAX_VALUE
+                    && picked.nonce - picked.queue.firstKey() + 1 < seqTxCountMax) {
+                PoolTx<TX> next = picked.queue.get(picked.nonce + 1);
+                if (next != null) {
+                    successors.add(next);
+                }
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.snapshot return [{}] TX, poolSize[{}]", rtn.size(), size());
+        }
+
+        return rtn;
+    }
+
+    /** Returns all the transactions, those of every sender ordered by nonce. */
+    @Override
+    public synchronized List<TX> snapshotAll() {
+        removeTimeoutTxn();
+
+        List<TX> rtn = new ArrayList<>(txByHash.size());
+        for (PoolTx<TX> head : heads) {
+            for (PoolTx<TX> entry : head.queue.values()) {
+                rtn.add(entry.tx);
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.snapshot All return [{}] TX, poolSize[{}]", rtn.size(), size());
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public synchronized List<TX> getOutdatedList() {
+        List<TX> rtn = new ArrayList<>(this.outDated);
+        this.outDated.clear();
+
+        return rtn;
+    }
+
+    @Override
+    public long getOutDateTime() {
+        return txn_timeout;
+    }
+
+    /**
+     * Returns the highest nonce of the sender in the pool, or {@code -1} if there is none. As for
+     * {@link TxPoolA0}, transactions after a nonce gap are included.
+     */
+    @Override
+    public synchronized BigInteger bestPoolNonce(Address addr) {
+        TreeMap<Long, PoolTx<TX>> queue = senders.get(addr);
+        return queue == null ? BigInteger.ONE.negate() : BigInteger.valueOf(queue.lastKey());
+    }
+
+    @Override
+    public void updateBlkNrgLimit(long nrg) {
+        if (nrg < BLK_NRG_MIN) {
+            blkNrgLimit.set(BLK_NRG_MIN);
+        } else if (nrg > BLK_NRG_MAX) {
+            blkNrgLimit.set(BLK_NRG_MAX);
+        } else {
+            blkNrgLimit.set(nrg);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.updateBlkNrgLimit nrg[{}] blkNrgLimit[{}]", nrg, blkNrgLimit.get());
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        return "0.2.0";
+    }
+
+    @Override
+    public synchronized TX getPoolTx(Address from, BigInteger txNonce) {
+        if (from == null || txNonce == null) {
+            LOG.error("TxPoolA1.getPoolTx null args");
+            return null;
+        }
+
+        TreeMap<Long, PoolTx<TX>> queue = senders.get(from);
+        if (queue == null || txNonce.bitLength() >= Long.SIZE) {
+            return null;
+        }
+
+        PoolTx<TX> entry = queue.get(txNonce.longValue());
+        return entry == null ? null : entry.tx;
+    }
+
+    private void removeEntry(PoolTx<TX> entry) {
+        TreeMap<Long, PoolTx<TX>> queue = entry.queue;
+
+        unlinkHead(queue);
+        queue.remove(entry.nonce);
+        txByHash.remove(entry.hash);
+        byTime.remove(entry);
+
+        if (queue.isEmpty()) {
+            senders.remove(entry.tx.getSenderAddress());
+        } else {
+            linkHead(queue);
+        }
+    }
+
+    private void unlinkHead(TreeMap<Long, PoolTx<TX>> queue) {
+        if (!queue.isEmpty()) {
+            heads.remove(queue.firstEntry().getValue());
+        }
+    }
+
+    private void linkHead(TreeMap<Long, PoolTx<TX>> queue) {
+        heads.add(queue.firstEntry().getValue());
+    }
+
+    private void removeTimeoutTxn() {
+        long ts = TimeInstant.now().toEpochSec() - txn_timeout;
+
+        List<TX> txl = new ArrayList<>();
+        while (!byTime.isEmpty() && byTime.first().timestamp < ts) {
+            PoolTx<TX> entry = byTime.first();
+            removeEntry(entry);
+            txl.add(entry.tx);
+        }
+
+        if (txl.isEmpty()) {
+            return;
+        }
+
+        this.outDated.addAll(txl);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.remove return [{}] TX, poolSize[{}]", txl.size(), size());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.aion.txpool.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.interfaces.tx.Transaction;
+import org.aion.txpool.zero.TxPoolA1;
+import org.aion.types.Address;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TxPoolA1Test {
+
+    private List<ECKey> keys;
+    private TxPoolA1<Transaction> pool;
+
+    @Before
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        pool = new TxPoolA1<>(config);
+    }
+
+    private Transaction tx(int sender, long nonce, long price) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        Address.wrap(keys.get(sender).getAddress()),
+                        Address.wrap(
+                                "0000000000000000000000000000000000000000000000000000000000000001"),
+                        BigInteger.ONE.toByteArray(),
+                        new byte[0],
+                        100_000L,
+                        price);
+        tx.setNrgConsume(21_000L);
+        tx.sign(keys.get(sender));
+        return tx;
+    }
+
+    @Test
+    public void testSnapshot_priceOrderWithinNonceOrder() {
+        Transaction a0 = tx(0, 0, 10);
+        Transaction a1 = tx(0, 1, 50);
+        Transaction a2 = tx(0, 2, 1);
+        Transaction b0 = tx(1, 0, 20);
+        Transaction b1 = tx(1, 1, 20);
+        pool.add(Arrays.asList(a0, a1, a2, b0, b1));
+
+        // a1 pays the most but can only follow a0
+        assertEquals(Arrays.asList(b0, b1, a0, a1, a2), pool.snapshot());
+        assertEquals(5, pool.snapshotAll().size());
+    }
+
+    @Test
+    public void testSnapshot_nonceGap() {
+        Transaction a5 = tx(0, 5, 10);
+        Transaction a7 = tx(0, 7, 100);
+        pool.add(Arrays.asList(a5, a7));
+
+        assertEquals(Collections.singletonList(a5), pool.snapshot());
+        assertTrue(pool.snapshotAll().contains(a7));
+
+        Transaction a6 = tx(0, 6, 1);
+        pool.add(a6);
+        assertEquals(Arrays.asList(a5, a6, a7), pool.snapshot());
+    }
+
+    @Test
+    public void testSnapshot_blockEnergyLimit() {
+        pool.updateBlkNrgLimit(1_000_000L);
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int nonce = 0; nonce < 100; nonce++) {
+            txs.add(tx(0, nonce, 10));
+        }
+        pool.add(txs);
+
+        // the cumulated energy has to stay below the limit
+        assertEquals(47, pool.snapshot().size());
+    }
+
+    @Test
+    public void testSnapshot_senderLimit() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        config.put("tx-seq-max", "5");
+        pool = new TxPoolA1<>(config);
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int nonce = 0; nonce < 8; nonce++) {
+            txs.add(tx(0, nonce, 10));
+        }
+        Transaction b0 = tx(1, 0, 1);
+        pool.add(txs);
+        pool.add(b0);
+
+        List<Transaction> expected = new ArrayList<>(txs.subList(0, 5));
+        expected.add(b0);
+        assertEquals(expected, pool.snapshot());
+        assertEquals(9, pool.snapshotAll().size());
+    }
+
+    @Test
+    public void testBestPoolNonce() {
+        Transaction a0 = tx(0, 0, 10);
+        Address sender = a0.getSenderAddress();
+        assertEquals(BigInteger.ONE.negate(), pool.bestPoolNonce(sender));
+
+        pool.add(Arrays.asList(a0, tx(0, 1, 10)));
+        assertEquals(BigInteger.ONE, pool.bestPoolNonce(sender));
+
+        // the highest nonce in the pool, also after a nonce gap
+        pool.add(tx(0, 5, 10));
+        assertEquals(BigInteger.valueOf(5), pool.bestPoolNonce(sender));
+
+        pool.remove(Collections.singletonMap(sender, BigInteger.TWO));
+        assertEquals(BigInteger.valueOf(5), pool.bestPoolNonce(sender));
+    }
+
+    @Test
+    public void testAdd_replacesSameNonce() {
+        Transaction original = tx(0, 1, 10);
+        pool.add(tx(0, 0, 10));
+        pool.add(original);
+
+        Transaction replacement = tx(0, 1, 20);
+        assertSame(original, pool.add(replacement));
+        assertEquals(2, pool.size());
+        assertSame(replacement, pool.getPoolTx(replacement.getSenderAddress(), BigInteger.ONE));
+    }
+
+    @Test
+    public void testAdd_duplicate() {
+        Transaction tx = tx(0, 0, 10);
+        pool.add(tx);
+
+        assertNull(pool.add(tx));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testRemove_byAccountNonce() {
+        Transaction a0 = tx(0, 0, 10);
+        Transaction a1 = tx(0, 1, 10);
+        Transaction a2 = tx(0, 2, 10);
+        Transaction b0 = tx(1, 0, 20);
+        pool.add(Arrays.asList(a0, a1, a2, b0));
+        Address sender = a0.getSenderAddress();
+
+        assertEquals(
+                Arrays.asList(a0, a1),
+                pool.remove(Collections.singletonMap(sender, BigInteger.TWO)));
+        assertEquals(2, pool.size());
+        assertEquals(BigInteger.TWO, pool.bestPoolNonce(sender));
+        assertEquals(Arrays.asList(b0, a2), pool.snapshot());
+    }
+
+    @Test
+    public void testRemove_byTransaction() {
+        Transaction a0 = tx(0, 0, 10);
+        Transaction a1 = tx(0, 1, 10);
+        pool.add(Arrays.asList(a0, a1));
+
+        assertEquals(Collections.singletonList(a0), pool.remove(Collections.singletonList(a0)));
+        assertEquals(Collections.singletonList(a1), pool.snapshot());
+
+        pool.remove(Collections.singletonList(a1));
+        assertEquals(0, pool.size());
+        assertEquals(BigInteger.ONE.negate(), pool.bestPoolNonce(a1.getSenderAddress()));
+    }
+}
@@ -0,0 +1,61 @@
+package org.aion.util.conversions;
+
+import java.util.Arrays;
+
+/**
+ * Immutable bytes, such as a hash or an address, together with their hex encoding which is
+ * computed on first use and then reused.
+ *
+ * <p>Meant for values that are serialized many times, like the hash of a block which is repeated
+ * in every log of the block. The wrapped array is not copied and must not be modified afterwards.
+ */
+public final class CachedHex {
+
+    private final byte[] bytes;
+
+    // racy single-check: concurrent callers may both compute the same string
+    private String jsonHex;
+
+    private CachedHex(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /** Wraps the given bytes without copying them. */
+    public static CachedHex wrap(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException();
+        }
+        return new CachedHex(bytes);
+    }
+
+    /** Returns the wrapped bytes, which must not be modified. */
+    public byte[] toBytes() {
+        return bytes;
+    }
+
+    /** Returns the hex encoding prefixed with {@code 0x}. */
+    public String toJsonHex() {
+        String hex = jsonHex;
+        if (hex == null) {
+            hex = HexCodec.toJsonHex(bytes);
+            jsonHex = hex;
+        }
+        return hex;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+                || (other instanceof CachedHex && Arrays.equals(bytes, ((CachedHex) other).bytes));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return toJsonHex();
+    }
+}
@@ -3,6 +3,7 @@ package org.aion.util.conversions;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /** Utility class for converting hex data to bytes and back again. */
@@ -15,7 +16,8 @@ public class Hex {
     }
 
     public static String toHexString(byte[] data, int off, int length) {
-        byte[] encoded = encode(data, off, length);
+        char[] encoded = new char[2 * length];
+        HexCodec.encode(data, off, length, encoded, 0);
         return new String(encoded);
     }
 
@@ -34,11 +36,9 @@ public class Hex {
      * @return a byte array containing the Hex encoded data.
      */
     public static byte[] encode(byte[] data, int off, int length) {
-        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-
-        encoder.encode(data, off, length, bOut);
-
-        return bOut.toByteArray();
+        ByteBuffer encoded = ByteBuffer.allocate(2 * length);
+        HexCodec.encode(data, off, length, encoded);
+        return encoded.array();
     }
 
     /**
@@ -0,0 +1,160 @@
+package org.aion.util.conversions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Hex encoding and decoding based on lookup tables.
+ *
+ * <p>The encoders write the hex digits straight into a char array, a {@link ByteBuffer} or an
+ * {@link Appendable} supplied by the caller, without creating intermediate arrays, strings or
+ * builders. The methods returning strings allocate only the digits and the string itself.
+ *
+ * <p>Encoding produces lower case digits, decoding accepts both cases.
+ */
+public final class HexCodec {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    // the two digits of every byte value, high digit first
+    private static final char[] PAIRS = new char[512];
+
+    // the value of every digit character, -1 for all other characters
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            PAIRS[2 * i] = DIGITS[i >>> 4];
+            PAIRS[2 * i + 1] = DIGITS[i & 0xF];
+        }
+
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private HexCodec() {}
+
+    /**
+     * Writes the hex digits of the given range of bytes into the char array.
+     *
+     * @return the index in the char array after the last written digit
+     */
+    public static int encode(byte[] data, int off, int length, char[] out, int outOff) {
+        int pos = outOff;
+        for (int i = off; i < off + length; i++) {
+            int pair = (data[i] & 0xFF) << 1;
+            out[pos++] = PAIRS[pair];
+            out[pos++] = PAIRS[pair + 1];
+        }
+        return pos;
+    }
+
+    /**
+     * Writes the hex digits of the given bytes as ASCII characters into the buffer, starting at
+     * its current position.
+     *
+     * @throws java.nio.BufferOverflowException when the buffer has less than {@code 2 *
+     *     data.length} bytes remaining
+     */
+    public static void encode(byte[] data, ByteBuffer out) {
+        encode(data, 0, data.length, out);
+    }
+
+    /**
+     * Writes the hex digits of the given range of bytes as ASCII characters into the buffer,
+     * starting at its current position.
+     *
+     * @throws java.nio.BufferOverflowException when the buffer has less than {@code 2 * length}
+     *     bytes remaining
+     */
+    public static void encode(byte[] data, int off, int length, ByteBuffer out) {
+        for (int i = off; i < off + length; i++) {
+            int pair = (data[i] & 0xFF) << 1;
+            out.put((byte) PAIRS[pair]);
+            out.put((byte) PAIRS[pair + 1]);
+        }
+    }
+
+    /** Appends the hex digits of the given bytes to the appendable. */
+    public static <A extends Appendable> A encode(byte[] data, A out) throws IOException {
+        for (byte b : data) {
+            int pair = (b & 0xFF) << 1;
+            out.append(PAIRS[pair]);
+            out.append(PAIRS[pair + 1]);
+        }
+        return out;
+    }
+
+    /** Returns the hex digits of the given bytes. */
+    public static String toHexString(byte[] data) {
+        char[] out = new char[2 * data.length];
+        encode(data, 0, data.length, out, 0);
+        return new String(out);
+    }
+
+    /** Returns the hex digits of the given bytes prefixed with {@code 0x}. */
+    public static String toJsonHex(byte[] data) {
+        char[] out = new char[2 + 2 * data.length];
+        out[0] = '0';
+        out[1] = 'x';
+        encode(data, 0, data.length, out, 2);
+        return new String(out);
+    }
+
+    /**
+     * Returns the hex digits of the given value without leading zeroes prefixed with {@code 0x},
+     * the same as {@code "0x" + Long.toHexString(value)}.
+     */
+    public static String toJsonHex(long value) {
+        int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) / 4);
+        char[] out = new char[2 + digits];
+        out[0] = '0';
+        out[1] = 'x';
+        for (int i = out.length - 1; i >= 2; i--) {
+            out[i] = DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes the given hex digits.
+     *
+     * @throws IllegalArgumentException when the number of digits is odd or a character is not a hex
+     *     digit
+     */
+    public static byte[] decode(CharSequence hex) {
+        return decode(hex, 0, hex.length());
+    }
+
+    /**
+     * Decodes the hex digits in the given range of the char sequence.
+     *
+     * @throws IllegalArgumentException when the number of digits is odd or a character is not a hex
+     *     digit
+     */
+    public static byte[] decode(CharSequence hex, int start, int end) {
+        if (((end - start) & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + (end - start));
+        }
+
+        byte[] out = new byte[(end - start) >>> 1];
+        for (int i = start, j = 0; i < end; i += 2, j++) {
+            out[j] = (byte) ((valueOf(hex.charAt(i)) << 4) | valueOf(hex.charAt(i + 1)));
+        }
+        return out;
+    }
+
+    private static int valueOf(char c) {
+        int value = c < VALUES.length ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex digit: " + c);
+        }
+        return value;
+    }
+}
@@ -3,6 +3,7 @@ package org.aion.util.string;
 import java.math.BigInteger;
 import java.util.Arrays;
 import org.aion.util.conversions.Hex;
+import org.aion.util.conversions.HexCodec;
 
 public class StringUtils {
 
@@ -78,7 +79,7 @@ public class StringUtils {
     }
 
     public static String toJsonHex(byte[] x) {
-        return "0x" + Hex.toHexString(x);
+        return HexCodec.toJsonHex(x);
     }
 
     public static String toJsonHex(String x) {
@@ -86,7 +87,7 @@ public class StringUtils {
     }
 
     public static String toJsonHex(long n) {
-        return "0x" + Long.toHexString(n);
+        return HexCodec.toJsonHex(n);
     }
 
     public static String toJsonHex(BigInteger n) {
@@ -0,0 +1,97 @@
+package org.aion.util.conversions;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+public class HexCodecTest {
+
+    private static final long[] LONGS = {
+        0L, 1L, 0xfL, 0x10L, 0xffL, 0x1234L, Integer.MAX_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE
+    };
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testToHexString_matchesHexEncoder() {
+        for (int length : new int[] {0, 1, 20, 32, 256}) {
+            byte[] data = randomBytes(length);
+            String expected = new String(Hex.encode(data), StandardCharsets.US_ASCII);
+
+            assertThat(HexCodec.toHexString(data)).isEqualTo(expected);
+            assertThat(HexCodec.toJsonHex(data)).isEqualTo("0x" + expected);
+        }
+    }
+
+    @Test
+    public void testToJsonHex_long() {
+        for (long value : LONGS) {
+            assertThat(HexCodec.toJsonHex(value)).isEqualTo("0x" + Long.toHexString(value));
+        }
+    }
+
+    @Test
+    public void testEncode_allByteValues() throws IOException {
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        String expected = HexCodec.toHexString(data);
+
+        char[] chars = new char[2 * data.length + 4];
+        assertThat(HexCodec.encode(data, 0, data.length, chars, 2)).isEqualTo(chars.length - 2);
+        assertThat(new String(chars, 2, 2 * data.length)).isEqualTo(expected);
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 * data.length);
+        HexCodec.encode(data, buffer);
+        assertThat(buffer.remaining()).isEqualTo(0);
+        assertThat(new String(buffer.array(), StandardCharsets.US_ASCII)).isEqualTo(expected);
+
+        StringBuilder sb = HexCodec.encode(data, new StringBuilder("0x"));
+        assertThat(sb.toString()).isEqualTo("0x" + expected);
+
+        assertThat(HexCodec.decode(expected)).isEqualTo(data);
+        assertThat(HexCodec.decode(expected.toUpperCase())).isEqualTo(data);
+    }
+
+    @Test
+    public void testDecode_range() {
+        assertThat(HexCodec.decode("0xa0ff", 2, 6)).isEqualTo(new byte[] {(byte) 0xa0, -1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_oddLength() {
+        HexCodec.decode("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_invalidDigit() {
+        HexCodec.decode("0g");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_nonAsciiDigit() {
+        HexCodec.decode("0\u0660");
+    }
+
+    @Test
+    public void testCachedHex() {
+        byte[] hash = randomBytes(32);
+        CachedHex cached = CachedHex.wrap(hash);
+
+        assertThat(cached.toBytes()).isSameAs(hash);
+        assertThat(cached.toJsonHex()).isEqualTo(HexCodec.toJsonHex(hash));
+        assertThat(cached.toJsonHex()).isSameAs(cached.toJsonHex());
+
+        assertThat(cached).isEqualTo(CachedHex.wrap(hash.clone()));
+        assertThat(cached.hashCode()).isEqualTo(CachedHex.wrap(hash.clone()).hashCode());
+    }
+}